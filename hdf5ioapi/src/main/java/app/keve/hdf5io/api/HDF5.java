@@ -19,8 +19,10 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.util.concurrent.Executor;
 
 import app.keve.hdf5io.api.HDF5Constants.Profile;
+import app.keve.hdf5io.api.HDF5Constants.StorageMode;
 
 /**
  * The main entrypoint to the HDF5 API.
@@ -53,6 +55,41 @@ public interface HDF5 {
 
         HDF5FileBuilder withProfile(Profile profile);
 
+        HDF5FileBuilder withStorageMode(StorageMode storageMode);
+
+        HDF5FileBuilder withMetadataCacheSize(long maxBytes);
+
+        /**
+         * Prepare the file to be shared by concurrent reader threads. Requires
+         * the file to be opened read-only.
+         * 
+         * @param concurrencyLevel the estimated number of concurrent reader
+         *                         threads
+         * @return the builder
+         */
+        HDF5FileBuilder withConcurrentReaders(int concurrencyLevel);
+
+        /**
+         * Configure the cache of decoded chunks.
+         * 
+         * @param maxBytes         the maximum byte size of the cached chunks
+         * @param preemptFullyRead whether to evict chunks which were read
+         *                         completely before partially read ones
+         * @return the builder
+         */
+        HDF5FileBuilder withChunkCache(long maxBytes, boolean preemptFullyRead);
+
+        /**
+         * Fetch, decode and copy the chunks of a dataset read in parallel on the
+         * executor, e.g. a {@link java.util.concurrent.ForkJoinPool}. Requires a
+         * read-only file.
+         * 
+         * @param executor the executor, or null to read the chunks on the calling
+         *                 thread
+         * @return the builder
+         */
+        HDF5FileBuilder withChunkExecutor(Executor executor);
+
         HDF5FileBuilder withPreamble(ByteBuffer buf);
 
         HDF5FileBuilder withOffsetSize(int offsetSize);
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api;
+
+/**
+ * Statistics of a cache.
+ * 
+ * @author keve
+ *
+ */
+public interface HDF5CacheStatistics {
+    long getHitCount();
+
+    long getMissCount();
+
+    long getEvictionCount();
+
+    /**
+     * The current weight of the cached entries, in bytes.
+     * 
+     * @return the current weight
+     */
+    long getWeight();
+
+    /**
+     * The maximum weight of the cached entries, in bytes.
+     * 
+     * @return the maximum weight
+     */
+    long getMaxWeight();
+}
@@ -35,6 +35,21 @@ public final class HDF5Constants {
         HDFv1_4, HDFv1_6_0, HDFv1_6_1, HDFv1_6_2, HDFv1_6_3, HDFv1_8, HDFv1_10_0, HDFv1_10_1
     }
 
+    /**
+     * Storage backends for accessing local files.
+     * 
+     * @author keve
+     *
+     */
+    public enum StorageMode {
+        /** Memory map the file in windows. */
+        MMAP,
+        /** Read the file with positional reads, read-only. */
+        PREAD,
+        /** Read small requests with positional reads, map large ones, read-only. */
+        ADAPTIVE
+    }
+
     /**
      * Member mappings for the multi driver.
      * 
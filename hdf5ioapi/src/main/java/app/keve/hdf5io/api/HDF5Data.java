@@ -15,9 +15,12 @@
  */
 package app.keve.hdf5io.api;
 
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
+import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -52,6 +55,26 @@ public interface HDF5Data {
 
     LongBuffer getAsLongBuffer(long... dim);
 
+    /**
+     * Slice continuous (sub-)dimensions out of the dataset and return them
+     * flattened as a FloatBuffer, provided the datatype is a 32 bit float. The
+     * buffer is a view of the stored data where the layout allows.
+     * 
+     * @param dim the dimensions to lock, if any.
+     * @return the buffer or null.
+     */
+    FloatBuffer getAsFloatBuffer(long... dim);
+
+    /**
+     * Slice continuous (sub-)dimensions out of the dataset and return them
+     * flattened as a DoubleBuffer, provided the datatype is a 64 bit float. The
+     * buffer is a view of the stored data where the layout allows.
+     * 
+     * @param dim the dimensions to lock, if any.
+     * @return the buffer or null.
+     */
+    DoubleBuffer getAsDoubleBuffer(long... dim);
+
     /**
      * Slice continuous (sub-)dimensions out of the dataset and return them
      * flattened as an IntStream, provided the underlying storage and the datatype
@@ -64,6 +87,16 @@ public interface HDF5Data {
 
     LongStream getAsLongStream(long... dim);
 
+    /**
+     * Slice continuous (sub-)dimensions out of the dataset and return them
+     * flattened as a DoubleStream, provided the datatype is a 32 or 64 bit float.
+     * Floats are widened.
+     * 
+     * @param dim the dimensions to lock, if any.
+     * @return the stream or null.
+     */
+    DoubleStream getAsDoubleStream(long... dim);
+
     /**
      * Stream the (sub-)dimensions from the dataset flattened.
      * 
@@ -17,9 +17,13 @@ package app.keve.hdf5io.api;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
 import java.util.stream.Stream;
 
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
+import app.keve.hdf5io.api.util.Aggregation;
+import app.keve.hdf5io.api.util.NDArray;
 
 /**
  * A HDF5 dataset named object.
@@ -51,6 +55,236 @@ public interface HDF5Dataset extends HDF5NamedObject, HDF5Data {
 
     Stream<? extends Chunk> getChunks();
 
+    /**
+     * Get the chunks in reverse order, starting with the last stored chunk. Where
+     * the chunk index is ordered, it is read from its tail, so the most recently
+     * appended chunks are found without walking the whole index.
+     * 
+     * @return the chunks, last first
+     */
+    Stream<? extends Chunk> getChunksDescending();
+
+    /**
+     * Get the selected part of the data as a multi-dimensional array. Only the
+     * chunks intersecting the selection are read.
+     * 
+     * @param selection the hyperslab to read
+     * @return the selected data, shaped {@link HDF5Hyperslab#getShape()}
+     */
+    Object getAsObject(HDF5Hyperslab selection);
+
+    /**
+     * Get the selected part of the data as a flat multi-dimensional array. Numeric
+     * data is read straight into the backing array, without creating an array per
+     * row.
+     * 
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the selected data, shaped {@link HDF5Hyperslab#getShape()}
+     */
+    NDArray getAsNDArray(HDF5Hyperslab selection);
+
+    /**
+     * Get the selected strings of a fixed or variable length string dataset. One
+     * decoder is reused for all the strings. With the dictionary, equal strings
+     * are decoded once and share the instance, which suits columns of few
+     * distinct values.
+     * 
+     * @param selection  the hyperslab to read, or null for the whole dataset
+     * @param dictionary whether equal strings share the instance
+     * @return the strings, in the row major order of
+     *         {@link HDF5Hyperslab#getShape()}
+     */
+    String[] getAsStrings(HDF5Hyperslab selection, boolean dictionary);
+
+    /**
+     * Get the selected strings of a fixed or variable length string dataset as
+     * lazy views of the stored bytes, decoded when read. Strings of ASCII
+     * characters are read from the bytes without decoding.
+     * 
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the views, in the row major order of
+     *         {@link HDF5Hyperslab#getShape()}
+     */
+    CharSequence[] getAsCharSequences(HDF5Hyperslab selection);
+
+    /**
+     * Get the selected compound records as instances of a Java class. The members
+     * are matched by name to the components of a record class, or to the fields
+     * declared by a class with a no argument constructor. The binding is composed
+     * once per datatype and class, and the records are read straight from the
+     * chunk data. The same classes can be written with
+     * {@link Builder#forData(Object)}.
+     * 
+     * @param <T>       the type of the instances
+     * @param type      the class of the instances
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the instances, in the row major order of
+     *         {@link HDF5Hyperslab#getShape()}
+     */
+    <T> T[] getAsRecords(Class<T> type, HDF5Hyperslab selection);
+
+    /**
+     * Get a member of the selected compound records as a flat multi-dimensional
+     * array, see {@link #getMembersAsNDArray(List, HDF5Hyperslab)}.
+     * 
+     * @param member    the name of the member
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the member values, shaped {@link HDF5Hyperslab#getShape()}
+     */
+    NDArray getMemberAsNDArray(String member, HDF5Hyperslab selection);
+
+    /**
+     * Get members of the selected compound records as flat multi-dimensional
+     * arrays, in one pass over the data. Each member is gathered from the record
+     * layout into its column without creating an object per record. The members
+     * must be numeric.
+     * 
+     * @param members   the names of the members
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the member values by name, in the order of the names
+     */
+    Map<String, NDArray> getMembersAsNDArray(List<String> members, HDF5Hyperslab selection);
+
+    /**
+     * Read the raw values of a member of the selected compound records into a
+     * buffer of the caller, as {@link #readInto(ByteBuffer, HDF5Hyperslab)}.
+     * 
+     * @param member    the name of the member
+     * @param dst       the buffer to fill
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the buffer
+     */
+    ByteBuffer readMemberInto(String member, ByteBuffer dst, HDF5Hyperslab selection);
+
+    /**
+     * Read the values of a member of the selected compound records into an array
+     * of the caller, converted to double, as
+     * {@link #readInto(double[], int, HDF5Hyperslab)}.
+     * 
+     * @param member    the name of the member
+     * @param dst       the array to fill
+     * @param dstOffset the index of the first element in the array
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the number of elements read
+     */
+    int readMemberInto(String member, double[] dst, int dstOffset, HDF5Hyperslab selection);
+
+    /**
+     * Read the raw elements of the selection into a buffer of the caller, in the
+     * row major order of {@link HDF5Hyperslab#getShape()}. The elements are
+     * written from the position of the buffer, which is advanced past them. The
+     * elements of chunks not stored are zero. With the chunk executor of the
+     * file, the chunks are copied in parallel on the executor.
+     *
+     * @param dst       the buffer to fill
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the buffer
+     */
+    ByteBuffer readInto(ByteBuffer dst, HDF5Hyperslab selection);
+
+    /**
+     * Read the elements of the selection into an array of the caller, converted
+     * to double, in the row major order of {@link HDF5Hyperslab#getShape()}. With
+     * the chunk executor of the file, the chunks are converted in parallel on the
+     * executor.
+     *
+     * @param dst       the array to fill
+     * @param dstOffset the index of the first element in the array
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the number of elements read
+     */
+    int readInto(double[] dst, int dstOffset, HDF5Hyperslab selection);
+
+    /**
+     * Read the elements of the selection into an array of the caller, as
+     * {@link #readInto(double[], int, HDF5Hyperslab)}. Only floating point data
+     * of at most single precision can be read as float.
+     *
+     * @param dst       the array to fill
+     * @param dstOffset the index of the first element in the array
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the number of elements read
+     */
+    int readInto(float[] dst, int dstOffset, HDF5Hyperslab selection);
+
+    /**
+     * Read the elements of the selection into an array of the caller, as
+     * {@link #readInto(double[], int, HDF5Hyperslab)}.
+     *
+     * @param dst       the array to fill
+     * @param dstOffset the index of the first element in the array
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the number of elements read
+     */
+    int readInto(int[] dst, int dstOffset, HDF5Hyperslab selection);
+
+    /**
+     * Read the elements of the selection into an array of the caller, as
+     * {@link #readInto(double[], int, HDF5Hyperslab)}.
+     *
+     * @param dst       the array to fill
+     * @param dstOffset the index of the first element in the array
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @return the number of elements read
+     */
+    int readInto(long[] dst, int dstOffset, HDF5Hyperslab selection);
+
+    /**
+     * Read the elements of a fixed or floating point dataset into a primitive
+     * array of the caller, converted to its component type. Without a narrowing
+     * the conversion must widen, as in the other readInto methods; with it, any
+     * numeric array can be read.
+     *
+     * @param dst       the byte, short, int, long, float or double array to fill
+     * @param dstOffset the index of the first element in the array
+     * @param selection the hyperslab to read, or null for the whole dataset
+     * @param narrowing the conversion of the values out of the range of the
+     *                  array, or null to allow widening only
+     * @return the number of elements read
+     */
+    int readInto(Object dst, int dstOffset, HDF5Hyperslab selection, Narrowing narrowing);
+
+    /**
+     * Aggregate the values of a fixed or floating point dataset, see
+     * {@link #aggregate(Aggregation, HDF5Hyperslab)}.
+     *
+     * @param <R>         the type of the result
+     * @param aggregation the aggregation, e.g.
+     *                    {@link app.keve.hdf5io.api.util.Aggregations#minMaxSum()}
+     * @return the result
+     */
+    default <R> R aggregate(final Aggregation<?, R> aggregation) {
+        return aggregate(aggregation, null);
+    }
+
+    /**
+     * Aggregate the selected values of a fixed or floating point dataset. The
+     * chunks are decoded and reduced a block of values at a time, without
+     * materialising the selection. With the chunk executor of the file, each
+     * chunk, or slab of rows of a compact or contiguous dataset, is reduced on
+     * the executor and the partial results are merged in the order of the
+     * chunks. The elements of chunks not stored are zero.
+     *
+     * @param <R>         the type of the result
+     * @param aggregation the aggregation
+     * @param selection   the hyperslab to aggregate, or null for the whole
+     *                    dataset
+     * @return the result
+     */
+    <R> R aggregate(Aggregation<?, R> aggregation, HDF5Hyperslab selection);
+
+    /**
+     * The conversion of numeric values to a type of smaller range or precision.
+     * Floating point values are rounded to the nearest float, and truncated
+     * towards zero to integers.
+     */
+    enum Narrowing {
+        /** Keep the low order bits of integers, as the Java casts. */
+        WRAP,
+        /** Clamp the values to the range of the target, NaN becoming zero. */
+        SATURATE
+    }
+
     /**
      * A HDF5 chunk, i.e. a subset of a dataset.
      * 
@@ -83,5 +317,14 @@ public interface HDF5Dataset extends HDF5NamedObject, HDF5Data {
         Builder withDimensions(long... dim);
 
         Builder withMaxDimensions(long... dim);
+
+        /**
+         * Allow the data to be converted to a datatype of smaller range or
+         * precision, such as double values to a 32 bit floating point datatype.
+         * 
+         * @param narrowing the conversion of the values out of range
+         * @return this builder
+         */
+        Builder withNarrowing(Narrowing narrowing);
     }
 }
@@ -260,6 +260,23 @@ public interface HDF5DatatypeAdapter {
         throw new IllegalArgumentException("Implement fromIterator for " + getClass().getName());
     }
 
+    /**
+     * If the datatype can be converted to a java int, return a primitive
+     * spliterator over the buffer. Adapters reading the buffer by index return a
+     * sized spliterator splitting by index range.
+     * 
+     * @param buf the buffer
+     * @return primitive spliterator of ints.
+     */
+    default Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+        final OfInt it = asIntIterator(buf);
+        if (null == it) {
+            return null;
+        }
+        final int n = numberOfElements(buf);
+        return Spliterators.spliterator(it, n, Spliterator.ORDERED);
+    }
+
     /**
      * Return an primitive stream of ints over the values in the buffer if they can
      * be converted to int.
@@ -268,14 +285,11 @@ public interface HDF5DatatypeAdapter {
      * @return iterator of values.
      */
     default IntStream asIntStream(final ByteBuffer buf) {
-        final OfInt it = asIntIterator(buf);
-        if (null == it) {
+        final Spliterator.OfInt sit = asIntSpliterator(buf);
+        if (null == sit) {
             return null;
         }
-        final int n = numberOfElements(buf);
-        final Spliterator.OfInt sit = Spliterators.spliterator(it, n, Spliterator.ORDERED);
         return StreamSupport.intStream(sit, false);
-
     }
 
     /**
@@ -289,6 +303,23 @@ public interface HDF5DatatypeAdapter {
         return fromIntIterator(buf, value.iterator());
     }
 
+    /**
+     * If the datatype can be converted to a java long, return a primitive
+     * spliterator over the buffer. Adapters reading the buffer by index return a
+     * sized spliterator splitting by index range.
+     * 
+     * @param buf the buffer
+     * @return primitive spliterator of longs.
+     */
+    default Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+        final OfLong it = asLongIterator(buf);
+        if (null == it) {
+            return null;
+        }
+        final int n = numberOfElements(buf);
+        return Spliterators.spliterator(it, n, Spliterator.ORDERED);
+    }
+
     /**
      * Return an primitive stream of longs over the values in the buffer if they can
      * be converted to long.
@@ -297,14 +328,11 @@ public interface HDF5DatatypeAdapter {
      * @return iterator of values.
      */
     default LongStream asLongStream(final ByteBuffer buf) {
-        final OfLong it = asLongIterator(buf);
-        if (null == it) {
+        final Spliterator.OfLong sit = asLongSpliterator(buf);
+        if (null == sit) {
             return null;
         }
-        final int n = numberOfElements(buf);
-        final Spliterator.OfLong sit = Spliterators.spliterator(it, n, Spliterator.ORDERED);
         return StreamSupport.longStream(sit, false);
-
     }
 
     /**
@@ -318,6 +346,23 @@ public interface HDF5DatatypeAdapter {
         return fromLongIterator(buf, value.iterator());
     }
 
+    /**
+     * If the datatype can be converted to a java double, return a primitive
+     * spliterator over the buffer. Adapters reading the buffer by index return a
+     * sized spliterator splitting by index range.
+     * 
+     * @param buf the buffer
+     * @return primitive spliterator of doubles.
+     */
+    default Spliterator.OfDouble asDoubleSpliterator(final ByteBuffer buf) {
+        final OfDouble it = asDoubleIterator(buf);
+        if (null == it) {
+            return null;
+        }
+        final int n = numberOfElements(buf);
+        return Spliterators.spliterator(it, n, Spliterator.ORDERED);
+    }
+
     /**
      * Return an primitive stream of doubles over the values in the buffer if they
      * can be converted to double.
@@ -326,14 +371,11 @@ public interface HDF5DatatypeAdapter {
      * @return iterator of values.
      */
     default DoubleStream asDoubleStream(final ByteBuffer buf) {
-        final OfDouble it = asDoubleIterator(buf);
-        if (null == it) {
+        final Spliterator.OfDouble sit = asDoubleSpliterator(buf);
+        if (null == sit) {
             return null;
         }
-        final int n = numberOfElements(buf);
-        final Spliterator.OfDouble sit = Spliterators.spliterator(it, n, Spliterator.ORDERED);
         return StreamSupport.doubleStream(sit, false);
-
     }
 
     /**
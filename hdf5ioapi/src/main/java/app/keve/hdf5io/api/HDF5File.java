@@ -29,4 +29,8 @@ public interface HDF5File extends AutoCloseable {
     HDF5Group getRootGroup() throws HDF5FormatException;
 
     DatatypeBuilder getDatatypeBuilder();
+
+    HDF5CacheStatistics getMetadataCacheStatistics();
+
+    HDF5CacheStatistics getChunkCacheStatistics();
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A filter of the HDF5 filter pipeline, transforming the data of the chunks of
+ * a dataset. Implementations are located with {@link java.util.ServiceLoader}
+ * and selected by their filter identification.
+ * 
+ * @author keve
+ *
+ */
+public interface HDF5Filter {
+    /**
+     * Get the filter identification, as registered with The HDF Group.
+     * 
+     * @return the filter identification
+     */
+    int getId();
+
+    /**
+     * Undo the filter on the data read from a file.
+     * 
+     * @param input       the filtered data, between position and limit
+     * @param clientData  the client data values of the filter in the pipeline
+     * @param decodedSize the size of the chunk with all filters undone, a hint to
+     *                    size the output
+     * @return the unfiltered data, between position and limit
+     */
+    ByteBuffer decode(ByteBuffer input, int[] clientData, int decodedSize);
+
+    /**
+     * Undo the filter on the data read from a file, into a buffer of the caller.
+     * The output buffer is used if it is large enough, otherwise a buffer is
+     * allocated. The default ignores the output buffer.
+     * 
+     * @param input       the filtered data, between position and limit
+     * @param clientData  the client data values of the filter in the pipeline
+     * @param decodedSize the size of the chunk with all filters undone, a hint to
+     *                    size the output
+     * @param output      the buffer to decode into, from its start
+     * @return the unfiltered data, between position and limit
+     */
+    default ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize,
+            final ByteBuffer output) {
+        return decode(input, clientData, decodedSize);
+    }
+
+    /**
+     * Apply the filter on the data to be written to a file.
+     * 
+     * @param input      the data, between position and limit
+     * @param clientData the client data values of the filter in the pipeline
+     * @return the filtered data, between position and limit
+     */
+    ByteBuffer encode(ByteBuffer input, int[] clientData);
+}
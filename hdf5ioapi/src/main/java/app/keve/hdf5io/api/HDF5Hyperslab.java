@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * A regular hyperslab selection of a dataset.
+ * 
+ * <p>
+ * Per dimension, the selection consists of {@code count} blocks of
+ * {@code block} elements, starting at {@code start} and {@code stride} elements
+ * apart. The shape of the selected data is {@code count * block} per
+ * dimension.
+ * 
+ * @author keve
+ *
+ */
+public final class HDF5Hyperslab {
+    private final long[] start;
+    private final long[] stride;
+    private final long[] count;
+    private final long[] block;
+
+    private HDF5Hyperslab(final long[] start, final long[] stride, final long[] count, final long[] block) {
+        final int rank = start.length;
+        if (stride.length != rank || count.length != rank || block.length != rank) {
+            throw new IllegalArgumentException("Rank mismatch in hyperslab " + Arrays.toString(start) + ", "
+                    + Arrays.toString(stride) + ", " + Arrays.toString(count) + ", " + Arrays.toString(block));
+        }
+        for (int d = 0; d < rank; d++) {
+            if (start[d] < 0 || count[d] < 0 || block[d] < 1 || count[d] > 1 && stride[d] < block[d]) {
+                throw new IllegalArgumentException(String.format(
+                        "Invalid hyperslab in dimension %d: start=%d, stride=%d, count=%d, block=%d", d, start[d],
+                        stride[d], count[d], block[d]));
+            }
+        }
+        this.start = start.clone();
+        this.stride = stride.clone();
+        this.count = count.clone();
+        this.block = block.clone();
+    }
+
+    public int getRank() {
+        return start.length;
+    }
+
+    public long[] getStart() {
+        return start.clone();
+    }
+
+    public long[] getStride() {
+        return stride.clone();
+    }
+
+    public long[] getCount() {
+        return count.clone();
+    }
+
+    public long[] getBlock() {
+        return block.clone();
+    }
+
+    /**
+     * The dimensions of the selected data.
+     * 
+     * @return count * block per dimension
+     */
+    public int[] getShape() {
+        final int[] shape = new int[start.length];
+        for (int d = 0; d < shape.length; d++) {
+            shape[d] = Math.toIntExact(count[d] * block[d]);
+        }
+        return shape;
+    }
+
+    /**
+     * The exclusive upper bound of the selected indices in a dimension.
+     * 
+     * @param d the dimension
+     * @return the index after the last selected index
+     */
+    public long getEnd(final int d) {
+        return 0 == count[d] ? start[d] : start[d] + (count[d] - 1) * stride[d] + block[d];
+    }
+
+    /**
+     * Check whether the selection fits into the dimensions.
+     * 
+     * @param dims the dimension sizes
+     * @throws IllegalArgumentException if the selection does not fit
+     */
+    public void checkWithin(final long... dims) {
+        if (dims.length != start.length) {
+            throw new IllegalArgumentException(
+                    "Hyperslab rank " + start.length + " does not match dimensions " + Arrays.toString(dims));
+        }
+        for (int d = 0; d < dims.length; d++) {
+            if (getEnd(d) > dims[d]) {
+                throw new IllegalArgumentException(String.format("Hyperslab %s exceeds dimension %d of %s", this, d,
+                        Arrays.toString(dims)));
+            }
+        }
+    }
+
+    private long firstBlock(final int d, final long from) {
+        // first block whose end is after from
+        return Long.max(0, Math.floorDiv(from - start[d] - block[d], stride[d]) + 1);
+    }
+
+    private long lastBlock(final int d, final long to) {
+        // last block that starts before to
+        return Long.min(count[d] - 1, Math.floorDiv(to - 1 - start[d], stride[d]));
+    }
+
+    /**
+     * Check whether the selection contains any element of the box.
+     * 
+     * @param offset the offset of the box
+     * @param size   the size of the box
+     * @return true if any element of the box is selected
+     */
+    public boolean intersects(final long[] offset, final long[] size) {
+        for (int d = 0; d < start.length; d++) {
+            if (0 == count[d] || offset[d] >= getEnd(d) || offset[d] + size[d] <= start[d]) {
+                return false;
+            }
+            if (1 == count[d]) {
+                continue;
+            }
+            if (firstBlock(d, offset[d]) > lastBlock(d, offset[d] + size[d])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy the selected elements of a box onto the selected data.
+     * 
+     * @param mdTarget the multi-dimensional array of the selected data, shaped
+     *                 {@link #getShape()}
+     * @param mdSource the multi-dimensional array of the box
+     * @param offset   the offset of the box
+     */
+    public void copyTo(final Object mdTarget, final Object mdSource, final long... offset) {
+        assert offset.length == start.length : "rank differs: " + start.length + "<>" + offset.length;
+        copyTo(mdTarget, mdSource, 0, offset);
+    }
+
+    private void copyTo(final Object mdTarget, final Object mdSource, final int d, final long[] offset) {
+        final long srcLength = Array.getLength(mdSource);
+        final long from = Long.max(offset[d], start[d]);
+        final long to = Long.min(offset[d] + srcLength, getEnd(d));
+        if (from >= to) {
+            return;
+        }
+        final boolean last = d + 1 == start.length;
+        for (long c = firstBlock(d, from); c <= lastBlock(d, to); c++) {
+            final long blockStart = start[d] + c * stride[d];
+            final long lo = Long.max(blockStart, from);
+            final long hi = Long.min(blockStart + block[d], to);
+            final int targetIdx = (int) (c * block[d] + lo - blockStart);
+            final int sourceIdx = (int) (lo - offset[d]);
+            if (last) {
+                System.arraycopy(mdSource, sourceIdx, mdTarget, targetIdx, (int) (hi - lo));
+            } else {
+                for (int i = 0; i < hi - lo; i++) {
+                    copyTo(Array.get(mdTarget, targetIdx + i), Array.get(mdSource, sourceIdx + i), d + 1, offset);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HDF5Hyperslab [start=%s, stride=%s, count=%s, block=%s]", Arrays.toString(start),
+                Arrays.toString(stride), Arrays.toString(count), Arrays.toString(block));
+    }
+
+    public static HDF5Hyperslab of(final long[] start, final long[] stride, final long[] count, final long[] block) {
+        return new HDF5Hyperslab(start, stride, count, block);
+    }
+
+    /**
+     * A contiguous selection.
+     * 
+     * @param start the start per dimension
+     * @param count the number of elements per dimension
+     * @return the selection
+     */
+    public static HDF5Hyperslab of(final long[] start, final long[] count) {
+        final long[] ones = new long[start.length];
+        Arrays.fill(ones, 1);
+        return new HDF5Hyperslab(start, ones, count, ones);
+    }
+}
@@ -81,7 +81,7 @@ public interface HDF5Datatype {
 
         OpaqueBuilder forOpaque();
 
-        StringBuilder forString();
+        HDF5String.StringBuilder forString();
 
         ArrayBuilder forArray();
 
@@ -43,6 +43,14 @@ public interface HDF5String extends HDF5AtomicDatatype {
         StringBuilder withPaddingType(PaddingType paddingType);
 
         StringBuilder withCharset(Charset charset);
+
+        @Override
+        default StringBuilder from(final HDF5String template) {
+            withElementSize(template.getElementSize());
+            withPaddingType(template.getPaddingType());
+            withCharset(template.getCharset());
+            return this;
+        }
     }
 
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api.util;
+
+/**
+ * A reduction of the numeric values of a dataset, see
+ * {@link app.keve.hdf5io.api.HDF5Dataset#aggregate(Aggregation, app.keve.hdf5io.api.HDF5Hyperslab)}.
+ * The values are decoded to double a block at a time and accumulated into a
+ * partial result. Each chunk may be reduced into its own partial result on
+ * another thread, the partial results being merged in the order of the chunks.
+ * A partial result is used by one thread at a time.
+ * 
+ * @param <A> the type of the partial result
+ * @param <R> the type of the result
+ */
+public interface Aggregation<A, R> {
+    /**
+     * Create an empty partial result.
+     * 
+     * @return the partial result
+     */
+    A create();
+
+    /**
+     * Accumulate a block of values.
+     * 
+     * @param partial the partial result
+     * @param values  the values
+     * @param from    the index of the first value
+     * @param to      the index past the last value
+     */
+    void accumulate(A partial, double[] values, int from, int to);
+
+    /**
+     * Accumulate a value repeated, such as the zero elements of chunks not
+     * stored.
+     * 
+     * @param partial the partial result
+     * @param value   the value
+     * @param count   the number of times the value occurs
+     */
+    void accumulate(A partial, double value, long count);
+
+    /**
+     * Merge two partial results.
+     * 
+     * @param left  the partial result of the preceding values, may be modified
+     * @param right the partial result of the following values
+     * @return the merged partial result
+     */
+    A merge(A left, A right);
+
+    /**
+     * Get the result from the partial result of all the values.
+     * 
+     * @param partial the partial result
+     * @return the result
+     */
+    R finish(A partial);
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api.util;
+
+import java.util.DoubleSummaryStatistics;
+
+/**
+ * The common aggregations of the numeric values of a dataset.
+ * 
+ * <ul>
+ * <li>{@link #minMaxSum()} count, minimum, maximum, sum and mean</li>
+ * <li>{@link #histogram(double, double, int)} counts of equal width bins</li>
+ * </ul>
+ */
+public final class Aggregations {
+    private Aggregations() {
+    }
+
+    /**
+     * The count, minimum, maximum, sum and mean of the values, as
+     * {@link DoubleSummaryStatistics}. A block of values is reduced in a single
+     * loop, the sums of the blocks being added with compensation.
+     * 
+     * @return the aggregation
+     */
+    public static Aggregation<DoubleSummaryStatistics, DoubleSummaryStatistics> minMaxSum() {
+        return new Aggregation<>() {
+            @Override
+            public DoubleSummaryStatistics create() {
+                return new DoubleSummaryStatistics();
+            }
+
+            @Override
+            public void accumulate(final DoubleSummaryStatistics partial, final double[] values, final int from,
+                    final int to) {
+                if (from >= to) {
+                    return;
+                }
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                double sum = 0;
+                for (int i = from; i < to; i++) {
+                    final double v = values[i];
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                    sum += v;
+                }
+                if (Double.isNaN(sum) && !Double.isNaN(min)) {
+                    // infinities of both signs, keeping the minimum and maximum
+                    for (int i = from; i < to; i++) {
+                        partial.accept(values[i]);
+                    }
+                } else {
+                    partial.combine(new DoubleSummaryStatistics(to - from, min, max, sum));
+                }
+            }
+
+            @Override
+            public void accumulate(final DoubleSummaryStatistics partial, final double value, final long count) {
+                if (count > 0) {
+                    partial.combine(new DoubleSummaryStatistics(count, value, value, value * count));
+                }
+            }
+
+            @Override
+            public DoubleSummaryStatistics merge(final DoubleSummaryStatistics left,
+                    final DoubleSummaryStatistics right) {
+                left.combine(right);
+                return left;
+            }
+
+            @Override
+            public DoubleSummaryStatistics finish(final DoubleSummaryStatistics partial) {
+                return partial;
+            }
+        };
+    }
+
+    /**
+     * The counts of the values in equal width bins between the minimum and the
+     * maximum. The maximum falls in the last bin. The values out of the range
+     * and NaN are not counted.
+     * 
+     * @param min  the lower bound of the first bin
+     * @param max  the upper bound of the last bin
+     * @param bins the number of bins
+     * @return the aggregation, its result the count per bin
+     */
+    public static Aggregation<long[], long[]> histogram(final double min, final double max, final int bins) {
+        if (bins <= 0 || !(min < max) || Double.isInfinite(max - min)) {
+            throw new IllegalArgumentException("Invalid histogram of " + bins + " bins in [" + min + ", " + max + "]");
+        }
+        final double scale = bins / (max - min);
+        return new Aggregation<>() {
+            @Override
+            public long[] create() {
+                return new long[bins];
+            }
+
+            @Override
+            public void accumulate(final long[] partial, final double[] values, final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    accumulate(partial, values[i], 1);
+                }
+            }
+
+            @Override
+            public void accumulate(final long[] partial, final double value, final long count) {
+                // false for NaN
+                if (value >= min && value <= max) {
+                    partial[Math.min(bins - 1, (int) ((value - min) * scale))] += count;
+                }
+            }
+
+            @Override
+            public long[] merge(final long[] left, final long[] right) {
+                for (int i = 0; i < bins; i++) {
+                    left[i] += right[i];
+                }
+                return left;
+            }
+
+            @Override
+            public long[] finish(final long[] partial) {
+                return partial;
+            }
+        };
+    }
+}
@@ -37,8 +37,10 @@ import java.util.stream.IntStream;
  * <li>{@link #size(int...)} size (number of objects)</li>
  * <li>{@link #rank(Object)} rank (number of dimensions)</li>
  * <li>{@link #data2Type(Object)} component type</li>
- * <li>{@link #copyTo(Object, int[], Object)} copy md array tile onto target md
+ * <li>{@link #copyTo(Object, Object, int...)} copy md array tile onto target md
  * array</li>
+ * <li>{@link #copyTo(Object, int[], Object, int[], int...)} copy flat row major
+ * tile onto flat row major target, see {@link NDArray}</li>
  * <li>{@link #data2DimensionsSimple(Object)} dimensions based on first
  * element</li>
  * <li>{@link #data2MinDimensions(Object)} minimal dimensions based on all
@@ -275,6 +277,22 @@ public final class ArrayUtil {
         copy(mdTarget, 0, ofs, mdTile);
     }
 
+    /**
+     * Copy a flat row major tile onto a flat row major target of the same rank
+     * at a specific offset, a run of the last dimension at a time.
+     * 
+     * @param target      the target flat array
+     * @param targetShape the dimensions of the target
+     * @param tile        the source flat array
+     * @param tileShape   the dimensions of the source
+     * @param ofs         the offset into the target array at which to copy the
+     *                    source to
+     */
+    public static void copyTo(final Object target, final int[] targetShape, final Object tile, final int[] tileShape,
+            final int... ofs) {
+        NDArray.of(tile, tileShape).copyTo(NDArray.of(target, targetShape), ofs);
+    }
+
     /* md to row major */
     /**
      * Write the multi-dimensional array of double values in row major order to the
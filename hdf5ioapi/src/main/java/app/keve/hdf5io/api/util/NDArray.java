@@ -0,0 +1,439 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api.util;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * A multi-dimensional array of primitive (or reference) elements held in a
+ * single flat array, addressed by an offset and a stride per dimension.
+ * 
+ * <p>
+ * Slices and transposed arrays are views sharing the backing array, no
+ * elements are copied. A nested Java array is created by {@link #toArray()}
+ * only.
+ * 
+ * @author keve
+ *
+ */
+public final class NDArray {
+    private final Object array;
+    private final int offset;
+    private final int[] shape;
+    private final int[] strides;
+
+    private NDArray(final Object array, final int offset, final int[] shape, final int[] strides) {
+        this.array = array;
+        this.offset = offset;
+        this.shape = shape;
+        this.strides = strides;
+    }
+
+    /**
+     * Wrap a flat array holding the elements in row major order.
+     * 
+     * @param array the flat array, not copied
+     * @param shape the dimensions
+     * @return the multi-dimensional array
+     */
+    public static NDArray of(final Object array, final int... shape) {
+        if (!array.getClass().isArray() || array.getClass().getComponentType().isArray()) {
+            throw new IllegalArgumentException("Not a flat array: " + array.getClass().getName());
+        }
+        if (ArrayUtil.size(shape) != Array.getLength(array)) {
+            throw new IllegalArgumentException(
+                    "Shape " + Arrays.toString(shape) + " does not fit " + Array.getLength(array) + " elements");
+        }
+        return new NDArray(array, 0, shape.clone(), rowMajorStrides(shape));
+    }
+
+    /**
+     * Allocate a row major array of zero elements.
+     * 
+     * @param componentType the element type, e.g. {@code double.class}
+     * @param shape         the dimensions
+     * @return the multi-dimensional array
+     */
+    public static NDArray allocate(final Class<?> componentType, final int... shape) {
+        return of(Array.newInstance(componentType, ArrayUtil.size(shape)), shape);
+    }
+
+    /**
+     * Copy a nested Java array, which must not be jagged.
+     * 
+     * @param mdArray the multi-dimensional Java array
+     * @return the multi-dimensional array
+     */
+    public static NDArray copyOf(final Object mdArray) {
+        final int[] shape = ArrayUtil.data2DimensionsSimple(mdArray);
+        final NDArray result = allocate((Class<?>) ArrayUtil.data2Type(mdArray), shape);
+        if (0 == shape.length) {
+            Array.set(result.array, 0, mdArray);
+        } else {
+            flatten(mdArray, result.array, 0, shape, 0);
+        }
+        return result;
+    }
+
+    private static int flatten(final Object mdArray, final Object target, final int d, final int[] shape,
+            final int position) {
+        if (d + 1 == shape.length) {
+            System.arraycopy(mdArray, 0, target, position, shape[d]);
+            return position + shape[d];
+        }
+        int pos = position;
+        for (int i = 0; i < shape[d]; i++) {
+            pos = flatten(Array.get(mdArray, i), target, d + 1, shape, pos);
+        }
+        return pos;
+    }
+
+    private static int[] rowMajorStrides(final int... shape) {
+        final int[] strides = new int[shape.length];
+        int stride = 1;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            strides[d] = stride;
+            stride *= shape[d];
+        }
+        return strides;
+    }
+
+    /**
+     * The backing array, shared with all views.
+     * 
+     * @return the flat array
+     */
+    public Object array() {
+        return array;
+    }
+
+    public Class<?> getComponentType() {
+        return array.getClass().getComponentType();
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getRank() {
+        return shape.length;
+    }
+
+    public int[] getShape() {
+        return shape.clone();
+    }
+
+    public int[] getStrides() {
+        return strides.clone();
+    }
+
+    public int size() {
+        return ArrayUtil.size(shape);
+    }
+
+    /**
+     * Whether the elements are consecutive in row major order in the backing
+     * array, from the offset.
+     * 
+     * @return true if the elements can be copied as a single run
+     */
+    public boolean isContiguous() {
+        int stride = 1;
+        for (int d = shape.length - 1; d >= 0; d--) {
+            if (shape[d] > 1 && strides[d] != stride) {
+                return false;
+            }
+            stride *= shape[d];
+        }
+        return true;
+    }
+
+    /**
+     * The index of an element in the backing array.
+     * 
+     * @param index the index per dimension
+     * @return the flat index
+     */
+    public int index(final int... index) {
+        if (index.length != shape.length) {
+            throw new IllegalArgumentException("Rank " + shape.length + " index " + Arrays.toString(index));
+        }
+        int flat = offset;
+        for (int d = 0; d < shape.length; d++) {
+            if (index[d] < 0 || index[d] >= shape[d]) {
+                throw new IndexOutOfBoundsException(
+                        "Index " + Arrays.toString(index) + " out of " + Arrays.toString(shape));
+            }
+            flat += index[d] * strides[d];
+        }
+        return flat;
+    }
+
+    public Object get(final int... index) {
+        return Array.get(array, index(index));
+    }
+
+    /**
+     * Get an element converted to double, as by a primitive cast.
+     * 
+     * @param index the index per dimension
+     * @return the element
+     */
+    public double getDouble(final int... index) {
+        final int flat = index(index);
+        if (array instanceof double[]) {
+            return ((double[]) array)[flat];
+        }
+        return ((Number) Array.get(array, flat)).doubleValue();
+    }
+
+    /**
+     * Get an element converted to long, as by a primitive cast.
+     * 
+     * @param index the index per dimension
+     * @return the element
+     */
+    public long getLong(final int... index) {
+        final int flat = index(index);
+        if (array instanceof long[]) {
+            return ((long[]) array)[flat];
+        }
+        return ((Number) Array.get(array, flat)).longValue();
+    }
+
+    public void set(final Object value, final int... index) {
+        Array.set(array, index(index), value);
+    }
+
+    /**
+     * A view of a range of a dimension.
+     * 
+     * @param axis the dimension
+     * @param from the first index, inclusive
+     * @param to   the last index, exclusive
+     * @return the view
+     */
+    public NDArray slice(final int axis, final int from, final int to) {
+        return slice(axis, from, to, 1);
+    }
+
+    /**
+     * A view of every step-th index of a range of a dimension.
+     * 
+     * @param axis the dimension
+     * @param from the first index, inclusive
+     * @param to   the last index, exclusive
+     * @param step the distance of the selected indexes, positive
+     * @return the view
+     */
+    public NDArray slice(final int axis, final int from, final int to, final int step) {
+        if (from < 0 || to > shape[axis] || from > to || step < 1) {
+            throw new IllegalArgumentException(
+                    "Cannot slice " + from + ".." + to + " by " + step + " of " + shape[axis]);
+        }
+        final int[] sliceShape = shape.clone();
+        final int[] sliceStrides = strides.clone();
+        sliceShape[axis] = (to - from + step - 1) / step;
+        sliceStrides[axis] *= step;
+        return new NDArray(array, offset + from * strides[axis], sliceShape, sliceStrides);
+    }
+
+    /**
+     * A view of an index of a dimension, dropping the dimension.
+     * 
+     * @param axis  the dimension
+     * @param index the index
+     * @return the view of one lower rank
+     */
+    public NDArray select(final int axis, final int index) {
+        if (index < 0 || index >= shape[axis]) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + shape[axis]);
+        }
+        final int[] selectShape = new int[shape.length - 1];
+        final int[] selectStrides = new int[shape.length - 1];
+        for (int d = 0, s = 0; d < shape.length; d++) {
+            if (d != axis) {
+                selectShape[s] = shape[d];
+                selectStrides[s++] = strides[d];
+            }
+        }
+        return new NDArray(array, offset + index * strides[axis], selectShape, selectStrides);
+    }
+
+    /**
+     * A view with the dimensions reversed.
+     * 
+     * @return the view
+     */
+    public NDArray transpose() {
+        final int[] axes = new int[shape.length];
+        for (int d = 0; d < axes.length; d++) {
+            axes[d] = axes.length - 1 - d;
+        }
+        return permute(axes);
+    }
+
+    /**
+     * A view with the dimensions reordered.
+     * 
+     * @param axes the dimension of this array for each dimension of the view
+     * @return the view
+     */
+    public NDArray permute(final int... axes) {
+        if (axes.length != shape.length) {
+            throw new IllegalArgumentException("Rank " + shape.length + " axes " + Arrays.toString(axes));
+        }
+        final int[] permutedShape = new int[axes.length];
+        final int[] permutedStrides = new int[axes.length];
+        final boolean[] seen = new boolean[axes.length];
+        for (int d = 0; d < axes.length; d++) {
+            if (axes[d] < 0 || axes[d] >= axes.length || seen[axes[d]]) {
+                throw new IllegalArgumentException("Not a permutation " + Arrays.toString(axes));
+            }
+            seen[axes[d]] = true;
+            permutedShape[d] = shape[axes[d]];
+            permutedStrides[d] = strides[axes[d]];
+        }
+        return new NDArray(array, offset, permutedShape, permutedStrides);
+    }
+
+    /**
+     * Copy the elements to a new row major array.
+     * 
+     * @return the copy
+     */
+    public NDArray copy() {
+        final NDArray result = allocate(getComponentType(), shape);
+        copyTo(result, new int[shape.length]);
+        return result;
+    }
+
+    /**
+     * Copy the elements onto a target of the same rank and component type at a
+     * specific offset, a run of the last dimension at a time.
+     * 
+     * @param target the target
+     * @param ofs    the offset into the target at which to copy the elements
+     */
+    public void copyTo(final NDArray target, final int... ofs) {
+        final int rank = shape.length;
+        if (target.shape.length != rank || ofs.length != rank) {
+            throw new IllegalArgumentException("Ranks differ: " + rank + "<>" + target.shape.length);
+        }
+        if (!target.getComponentType().equals(getComponentType())) {
+            throw new IllegalArgumentException("Types differ: " + getComponentType() + "<>"
+                    + target.getComponentType());
+        }
+        int targetPos = target.offset;
+        for (int d = 0; d < rank; d++) {
+            if (ofs[d] < 0 || ofs[d] + shape[d] > target.shape[d]) {
+                throw new IndexOutOfBoundsException("Cannot copy " + Arrays.toString(shape) + " at "
+                        + Arrays.toString(ofs) + " to " + Arrays.toString(target.shape));
+            }
+            targetPos += ofs[d] * target.strides[d];
+        }
+        if (0 == size()) {
+            return;
+        }
+        if (0 == rank) {
+            System.arraycopy(array, offset, target.array, targetPos, 1);
+            return;
+        }
+        final int last = rank - 1;
+        final int[] pos = new int[rank];
+        int sourcePos = offset;
+        while (true) {
+            copyRun(array, sourcePos, strides[last], target.array, targetPos, target.strides[last], shape[last]);
+            int d = last - 1;
+            while (d >= 0 && ++pos[d] >= shape[d]) {
+                sourcePos -= (shape[d] - 1) * strides[d];
+                targetPos -= (shape[d] - 1) * target.strides[d];
+                pos[d] = 0;
+                d--;
+            }
+            if (d < 0) {
+                return;
+            }
+            sourcePos += strides[d];
+            targetPos += target.strides[d];
+        }
+    }
+
+    private static void copyRun(final Object source, final int sourcePos, final int sourceStride,
+            final Object target, final int targetPos, final int targetStride, final int length) {
+        if (1 == sourceStride && 1 == targetStride) {
+            System.arraycopy(source, sourcePos, target, targetPos, length);
+        } else if (source instanceof double[]) {
+            final double[] s = (double[]) source;
+            final double[] t = (double[]) target;
+            for (int i = 0, si = sourcePos, ti = targetPos; i < length; i++, si += sourceStride, ti += targetStride) {
+                t[ti] = s[si];
+            }
+        } else if (source instanceof float[]) {
+            final float[] s = (float[]) source;
+            final float[] t = (float[]) target;
+            for (int i = 0, si = sourcePos, ti = targetPos; i < length; i++, si += sourceStride, ti += targetStride) {
+                t[ti] = s[si];
+            }
+        } else if (source instanceof long[]) {
+            final long[] s = (long[]) source;
+            final long[] t = (long[]) target;
+            for (int i = 0, si = sourcePos, ti = targetPos; i < length; i++, si += sourceStride, ti += targetStride) {
+                t[ti] = s[si];
+            }
+        } else if (source instanceof int[]) {
+            final int[] s = (int[]) source;
+            final int[] t = (int[]) target;
+            for (int i = 0, si = sourcePos, ti = targetPos; i < length; i++, si += sourceStride, ti += targetStride) {
+                t[ti] = s[si];
+            }
+        } else {
+            for (int i = 0, si = sourcePos, ti = targetPos; i < length; i++, si += sourceStride, ti += targetStride) {
+                System.arraycopy(source, si, target, ti, 1);
+            }
+        }
+    }
+
+    /**
+     * Create the nested Java array of the elements.
+     * 
+     * @return the multi-dimensional Java array, or the element if the rank is 0
+     */
+    public Object toArray() {
+        if (0 == shape.length) {
+            return Array.get(array, offset);
+        }
+        final Object mdArray = Array.newInstance(getComponentType(), shape);
+        toArray(mdArray, 0, offset);
+        return mdArray;
+    }
+
+    private void toArray(final Object mdArray, final int d, final int position) {
+        if (d + 1 == shape.length) {
+            copyRun(array, position, strides[d], mdArray, 0, 1, shape[d]);
+        } else {
+            for (int i = 0; i < shape[d]; i++) {
+                toArray(Array.get(mdArray, i), d + 1, position + i * strides[d]);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "NDArray [" + getComponentType() + Arrays.toString(shape) + "]";
+    }
+}
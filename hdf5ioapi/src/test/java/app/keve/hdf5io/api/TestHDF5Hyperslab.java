@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public final class TestHDF5Hyperslab {
+    private static final int ROWS = 12;
+    private static final int COLS = 10;
+    private static final int CHUNK = 4;
+
+    private static int[][] data() {
+        final int[][] data = new int[ROWS][COLS];
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLS; j++) {
+                data[i][j] = i * COLS + j;
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Read the selection from 4x4 tiles of the data.
+     * 
+     * @param selection the selection
+     * @param target    the array of the selection shape to fill
+     * @return the number of tiles copied
+     */
+    private static int readTiled(final HDF5Hyperslab selection, final Object target) {
+        final int[][] data = data();
+        int tiles = 0;
+        for (int i = 0; i < ROWS; i += CHUNK) {
+            for (int j = 0; j < COLS; j += CHUNK) {
+                final long[] offset = {i, j};
+                if (!selection.intersects(offset, new long[] {CHUNK, CHUNK})) {
+                    continue;
+                }
+                final int[][] tile = new int[CHUNK][CHUNK];
+                for (int k = 0; k < CHUNK; k++) {
+                    for (int l = 0; l < CHUNK; l++) {
+                        tile[k][l] = i + k < ROWS && j + l < COLS ? data[i + k][j + l] : -1;
+                    }
+                }
+                selection.copyTo(target, tile, offset);
+                tiles++;
+            }
+        }
+        return tiles;
+    }
+
+    @Test
+    public void testRow() {
+        final HDF5Hyperslab row = HDF5Hyperslab.of(new long[] {5, 0}, new long[] {1, COLS});
+        assertArrayEquals(new int[] {1, COLS}, row.getShape());
+        final int[][] target = new int[1][COLS];
+        assertEquals(3, readTiled(row, target));
+        assertArrayEquals(data()[5], target[0]);
+    }
+
+    @Test
+    public void testStrided() {
+        final HDF5Hyperslab selection = HDF5Hyperslab.of(new long[] {1, 2}, new long[] {5, 6}, new long[] {2, 2},
+                new long[] {2, 1});
+        assertArrayEquals(new int[] {4, 2}, selection.getShape());
+        assertEquals(8, selection.getEnd(0));
+        assertEquals(9, selection.getEnd(1));
+        final int[][] target = new int[4][2];
+        // rows 1,2,6,7 and columns 2,8 live in tiles (0,0),(0,4),(4,0),(4,4); column tile 1 holds no selected column
+        assertEquals(4, readTiled(selection, target));
+        final int[][] data = data();
+        assertArrayEquals(new int[][] {{data[1][2], data[1][8]}, {data[2][2], data[2][8]}, {data[6][2], data[6][8]},
+                {data[7][2], data[7][8]}}, target);
+    }
+
+    @Test
+    public void testIntersects() {
+        final HDF5Hyperslab selection = HDF5Hyperslab.of(new long[] {0}, new long[] {10}, new long[] {3},
+                new long[] {2});
+        assertTrue(selection.intersects(new long[] {0}, new long[] {1}));
+        assertFalse(selection.intersects(new long[] {2}, new long[] {8}));
+        assertTrue(selection.intersects(new long[] {2}, new long[] {9}));
+        assertTrue(selection.intersects(new long[] {21}, new long[] {5}));
+        assertFalse(selection.intersects(new long[] {22}, new long[] {5}));
+        assertFalse(HDF5Hyperslab.of(new long[] {0}, new long[] {0}).intersects(new long[] {0}, new long[] {1}));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class,
+                () -> HDF5Hyperslab.of(new long[] {0, 0}, new long[] {1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> HDF5Hyperslab.of(new long[] {-1}, new long[] {1}));
+        assertThrows(IllegalArgumentException.class,
+                () -> HDF5Hyperslab.of(new long[] {0}, new long[] {1}, new long[] {2}, new long[] {2}));
+        assertThrows(IllegalArgumentException.class,
+                () -> HDF5Hyperslab.of(new long[] {0}, new long[] {ROWS + 1}).checkWithin(ROWS));
+        HDF5Hyperslab.of(new long[] {0}, new long[] {ROWS}).checkWithin(ROWS);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.api.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public final class TestNDArray {
+    private static final int[] SHAPE = {3, 4, 5};
+
+    private static NDArray iota() {
+        return NDArray.of(IntStream.range(0, ArrayUtil.size(SHAPE)).asDoubleStream().toArray(), SHAPE);
+    }
+
+    @Test
+    public void testOf() {
+        final NDArray a = iota();
+        assertEquals(3, a.getRank());
+        assertEquals(60, a.size());
+        assertEquals(double.class, a.getComponentType());
+        assertArrayEquals(SHAPE, a.getShape());
+        assertArrayEquals(new int[] {20, 5, 1}, a.getStrides());
+        assertTrue(a.isContiguous());
+        assertEquals(27.0, a.getDouble(1, 1, 2));
+        assertEquals(27L, a.getLong(1, 1, 2));
+        a.set(-1.0, 1, 1, 2);
+        assertEquals(-1.0, ((double[]) a.array())[27]);
+        assertThrows(IllegalArgumentException.class, () -> NDArray.of(new double[5], 2, 3));
+        assertThrows(IllegalArgumentException.class, () -> NDArray.of(new double[2][3], 2, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> a.get(3, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> a.get(0, 0));
+    }
+
+    @Test
+    public void testViews() {
+        final NDArray a = iota();
+        final NDArray slice = a.slice(1, 1, 4, 2);
+        assertArrayEquals(new int[] {3, 2, 5}, slice.getShape());
+        assertSame(a.array(), slice.array());
+        assertFalse(slice.isContiguous());
+        assertEquals(a.getDouble(2, 3, 4), slice.getDouble(2, 1, 4));
+        final NDArray row = a.select(0, 2);
+        assertArrayEquals(new int[] {4, 5}, row.getShape());
+        assertTrue(row.isContiguous());
+        assertEquals(40, row.getOffset());
+        final NDArray t = a.transpose();
+        assertArrayEquals(new int[] {5, 4, 3}, t.getShape());
+        assertEquals(a.getDouble(1, 2, 3), t.getDouble(3, 2, 1));
+        assertEquals(a.getDouble(1, 2, 3), a.permute(2, 0, 1).getDouble(3, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> a.permute(0, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> a.slice(0, 2, 4));
+        assertThrows(IndexOutOfBoundsException.class, () -> a.select(2, 5));
+    }
+
+    @Test
+    public void testToArray() {
+        final NDArray a = iota();
+        final double[][][] md = (double[][][]) a.toArray();
+        assertEquals(27.0, md[1][1][2]);
+        assertTrue(ArrayUtil.deepEquals(md, NDArray.copyOf(md).toArray()));
+        final double[][][] mdT = (double[][][]) a.transpose().toArray();
+        assertEquals(md[1][2][3], mdT[3][2][1]);
+        final NDArray copy = a.transpose().copy();
+        assertTrue(copy.isContiguous());
+        assertTrue(ArrayUtil.deepEquals(mdT, copy.toArray()));
+        assertEquals(7, NDArray.of(new int[] {7}).toArray());
+        assertEquals(7, NDArray.copyOf(7).get());
+    }
+
+    @Test
+    public void testCopyTo() {
+        final int[] target = new int[6 * 7];
+        final int[] tile = IntStream.rangeClosed(1, 6).toArray();
+        ArrayUtil.copyTo(target, new int[] {6, 7}, tile, new int[] {2, 3}, 4, 4);
+        final int[][] md = (int[][]) NDArray.of(target, 6, 7).toArray();
+        assertArrayEquals(new int[] {0, 0, 0, 0, 1, 2, 3}, md[4]);
+        assertArrayEquals(new int[] {0, 0, 0, 0, 4, 5, 6}, md[5]);
+        // strided on both sides
+        final NDArray t = NDArray.allocate(int.class, 2, 3);
+        NDArray.of(tile, 2, 3).transpose().copyTo(t.transpose(), 0, 0);
+        assertArrayEquals(tile, (int[]) t.array());
+        NDArray.of(tile, 2, 3).transpose().copyTo(t.permute(0, 1).transpose().copy(), 0, 0);
+        final long[] longs = new long[4];
+        NDArray.of(new long[] {1, 2}, 2).copyTo(NDArray.of(longs, 4).slice(0, 0, 4, 2), 0);
+        assertArrayEquals(new long[] {1, 0, 2, 0}, longs);
+        final String[] strings = new String[4];
+        NDArray.of(new String[] {"a", "b"}, 2).copyTo(NDArray.of(strings, 4).slice(0, 1, 4, 2), 0);
+        assertArrayEquals(new String[] {null, "a", null, "b"}, strings);
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> ArrayUtil.copyTo(target, new int[] {6, 7}, tile, new int[] {2, 3}, 5, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> NDArray.of(tile, 6).copyTo(NDArray.of(new long[6], 6), 0));
+    }
+}
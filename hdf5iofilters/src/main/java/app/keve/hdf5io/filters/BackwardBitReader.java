@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+/**
+ * A bit stream of Zstandard, read from its end towards its start. The highest
+ * set bit of the last byte marks the end of the stream.
+ * 
+ * <p>
+ * Up to 64 bits are held in a container, refilled by {@link #reload()}. After
+ * a reload at least 57 bits can be read, unless the start of the stream is
+ * near. Reading past the start yields zero bits and is detected as overflow.
+ * 
+ * @author keve
+ *
+ */
+final class BackwardBitReader {
+    static final int UNFINISHED = 0;
+    static final int END_OF_BUFFER = 1;
+    static final int COMPLETED = 2;
+    static final int OVERFLOW = 3;
+
+    private final byte[] src;
+    private final int start;
+    private int ptr;
+    private long container;
+    private int consumed;
+
+    BackwardBitReader(final byte[] src, final int start, final int end) {
+        if (end <= start || end > src.length) {
+            throw new IllegalArgumentException("Empty Zstandard bit stream");
+        }
+        final int last = src[end - 1] & 0xFF;
+        if (0 == last) {
+            throw new IllegalArgumentException("Zstandard bit stream has no end mark");
+        }
+        this.src = src;
+        this.start = start;
+        final int size = end - start;
+        if (size >= Long.BYTES) {
+            ptr = end - Long.BYTES;
+            container = Bytes.getLongLE(src, ptr);
+        } else {
+            ptr = start;
+            for (int i = 0; i < size; i++) {
+                container |= (src[start + i] & 0xFFL) << Byte.SIZE * i;
+            }
+            consumed = (Long.BYTES - size) * Byte.SIZE;
+        }
+        // the leading zeros and the end mark
+        consumed += Integer.numberOfLeadingZeros(last) - (Integer.SIZE - Byte.SIZE) + 1;
+    }
+
+    /**
+     * Get the next bits without consuming them.
+     * 
+     * @param n the number of bits, at most 57
+     * @return the bits
+     */
+    long look(final int n) {
+        return container << (consumed & 0x3F) >>> 1 >>> (0x3F - n & 0x3F);
+    }
+
+    void skip(final int n) {
+        consumed += n;
+    }
+
+    int read(final int n) {
+        final long value = look(n);
+        consumed += n;
+        return (int) value;
+    }
+
+    /**
+     * Refill the container.
+     * 
+     * @return the state of the stream
+     */
+    int reload() {
+        if (consumed > Long.SIZE) {
+            return OVERFLOW;
+        }
+        if (ptr >= start + Long.BYTES) {
+            ptr -= consumed >>> 3;
+            consumed &= 7;
+            container = Bytes.getLongLE(src, ptr);
+            return UNFINISHED;
+        }
+        if (ptr == start) {
+            return consumed < Long.SIZE ? END_OF_BUFFER : COMPLETED;
+        }
+        int bytes = consumed >>> 3;
+        int result = UNFINISHED;
+        if (ptr - bytes < start) {
+            bytes = ptr - start;
+            result = END_OF_BUFFER;
+        }
+        ptr -= bytes;
+        consumed -= bytes * Byte.SIZE;
+        container = Bytes.getLongLE(src, ptr);
+        return result;
+    }
+
+    /**
+     * Check if all bits were read, no more and no less.
+     * 
+     * @return true if the stream is consumed exactly
+     */
+    boolean isCompleted() {
+        return ptr == start && Long.SIZE == consumed;
+    }
+}
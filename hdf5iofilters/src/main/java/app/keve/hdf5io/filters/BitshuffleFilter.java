@@ -0,0 +1,287 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+import java.nio.ByteBuffer;
+
+import app.keve.hdf5io.api.HDF5Filter;
+
+/**
+ * The bitshuffle filter, registered as 32008. Within blocks of elements, the
+ * n-th bits of all elements are stored together, optionally compressing each
+ * block with LZ4 or Zstandard. The client data holds the filter version, the
+ * element size, the block size in elements and the compression.
+ * 
+ * <p>
+ * Compressed data has a header of the big endian 8 byte size of the data and 4
+ * byte size of the blocks in bytes. Each block follows with its big endian 4
+ * byte compressed size. The elements not filling a multiple of 8 are stored as
+ * they are, after the blocks.
+ * 
+ * <p>
+ * A block is transposed as 8x8 bit matrices: byte j of eight consecutive
+ * elements are the rows, which become the bytes of the bit planes 8j..8j+7.
+ * 
+ * @author keve
+ *
+ */
+public final class BitshuffleFilter implements HDF5Filter {
+    public static final int FILTER_BITSHUFFLE = 32008;
+    public static final int COMPRESS_NONE = 0;
+    public static final int COMPRESS_LZ4 = 2;
+    public static final int COMPRESS_ZSTD = 3;
+
+    private static final int ELEMENT_SIZE = 2;
+    private static final int BLOCK_SIZE = 3;
+    private static final int COMPRESSION = 4;
+    private static final int BLOCKED_MULT = 8;
+    private static final int TARGET_BLOCK_BYTES = 8192;
+    private static final int MIN_BLOCK_SIZE = 128;
+    private static final int HEADER_SIZE = 12;
+    private static final int BLOCK_HEADER_SIZE = 4;
+
+    @Override
+    public int getId() {
+        return FILTER_BITSHUFFLE;
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize) {
+        final int elementSize = elementSize(clientData);
+        final int compression = clientData.length > COMPRESSION ? clientData[COMPRESSION] : COMPRESS_NONE;
+        final ByteBuffer in = Bytes.onHeap(input);
+        final byte[] src = in.array();
+        final int srcOff = in.arrayOffset() + in.position();
+        if (COMPRESS_NONE == compression) {
+            final byte[] dst = new byte[in.remaining()];
+            final int count = dst.length / elementSize;
+            int done = 0;
+            for (final int length : blocks(count, blockSize(clientData, elementSize))) {
+                untranspose(src, srcOff + done * elementSize, dst, done * elementSize, length, elementSize);
+                done += length;
+            }
+            System.arraycopy(src, srcOff + done * elementSize, dst, done * elementSize,
+                    dst.length - done * elementSize);
+            return ByteBuffer.wrap(dst);
+        }
+        if (COMPRESS_LZ4 != compression && COMPRESS_ZSTD != compression) {
+            throw new IllegalArgumentException("Implement bitshuffle compression " + compression);
+        }
+        final int srcEnd = srcOff + in.remaining();
+        if (in.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated bitshuffle header");
+        }
+        final long size = Bytes.getLongBE(src, srcOff);
+        final int blockSize = Bytes.getIntBE(src, srcOff + 8) / elementSize;
+        if (size < 0 || size > Integer.MAX_VALUE || 0 != size % elementSize || 0 != blockSize % BLOCKED_MULT) {
+            throw new IllegalArgumentException(String.format("Invalid bitshuffle header, size %d, block size %d",
+                    size, blockSize));
+        }
+        final byte[] dst = new byte[(int) size];
+        final int count = dst.length / elementSize;
+        final byte[] block = new byte[Integer.min(0 == blockSize ? defaultBlockSize(elementSize) : blockSize, count)
+                * elementSize];
+        int sp = srcOff + HEADER_SIZE;
+        int done = 0;
+        for (final int length : blocks(count, 0 == blockSize ? defaultBlockSize(elementSize) : blockSize)) {
+            if (srcEnd - sp < BLOCK_HEADER_SIZE) {
+                throw new IllegalArgumentException("Truncated bitshuffle block header");
+            }
+            final int compressed = Bytes.getIntBE(src, sp);
+            sp += BLOCK_HEADER_SIZE;
+            if (compressed < 0 || compressed > srcEnd - sp) {
+                throw new IllegalArgumentException("Truncated bitshuffle block");
+            }
+            final int bytes = length * elementSize;
+            if (COMPRESS_LZ4 == compression) {
+                Lz4.decompress(src, sp, compressed, block, 0, bytes);
+            } else {
+                final ByteBuffer decompressed = Zstd.decompress(src, sp, compressed, bytes);
+                if (decompressed.remaining() != bytes) {
+                    throw new IllegalArgumentException("Corrupt bitshuffle block, size " + decompressed.remaining());
+                }
+                System.arraycopy(decompressed.array(), 0, block, 0, bytes);
+            }
+            untranspose(block, 0, dst, done * elementSize, length, elementSize);
+            sp += compressed;
+            done += length;
+        }
+        final int rest = dst.length - done * elementSize;
+        if (rest > srcEnd - sp) {
+            throw new IllegalArgumentException("Truncated bitshuffle data");
+        }
+        System.arraycopy(src, sp, dst, done * elementSize, rest);
+        return ByteBuffer.wrap(dst);
+    }
+
+    @Override
+    public ByteBuffer encode(final ByteBuffer input, final int[] clientData) {
+        final int elementSize = elementSize(clientData);
+        final int compression = clientData.length > COMPRESSION ? clientData[COMPRESSION] : COMPRESS_NONE;
+        final ByteBuffer in = Bytes.onHeap(input);
+        final byte[] src = in.array();
+        final int srcOff = in.arrayOffset() + in.position();
+        final int count = in.remaining() / elementSize;
+        final int blockSize = blockSize(clientData, elementSize);
+        if (COMPRESS_NONE == compression) {
+            final byte[] dst = new byte[in.remaining()];
+            int done = 0;
+            for (final int length : blocks(count, blockSize)) {
+                transpose(src, srcOff + done * elementSize, dst, done * elementSize, length, elementSize);
+                done += length;
+            }
+            System.arraycopy(src, srcOff + done * elementSize, dst, done * elementSize,
+                    dst.length - done * elementSize);
+            return ByteBuffer.wrap(dst);
+        }
+        if (COMPRESS_LZ4 != compression) {
+            throw new IllegalArgumentException("Implement bitshuffle compression " + compression);
+        }
+        if (0 != in.remaining() % elementSize) {
+            throw new IllegalArgumentException("Bitshuffle needs whole elements, size " + in.remaining());
+        }
+        final int[] blocks = blocks(count, blockSize);
+        final byte[] block = new byte[Integer.min(blockSize, count) * elementSize];
+        final byte[] dst = new byte[HEADER_SIZE + blocks.length * (BLOCK_HEADER_SIZE + Lz4.maxCompressedLength(0))
+                + Lz4.maxCompressedLength(in.remaining())];
+        Bytes.putLongBE(dst, 0, in.remaining());
+        Bytes.putIntBE(dst, 8, blockSize * elementSize);
+        int dp = HEADER_SIZE;
+        int done = 0;
+        for (final int length : blocks) {
+            transpose(src, srcOff + done * elementSize, block, 0, length, elementSize);
+            final int compressed = Lz4.compress(block, 0, length * elementSize, dst, dp + BLOCK_HEADER_SIZE);
+            Bytes.putIntBE(dst, dp, compressed);
+            dp += BLOCK_HEADER_SIZE + compressed;
+            done += length;
+        }
+        final int rest = in.remaining() - done * elementSize;
+        System.arraycopy(src, srcOff + done * elementSize, dst, dp, rest);
+        return ByteBuffer.wrap(dst, 0, dp + rest);
+    }
+
+    private static int elementSize(final int[] clientData) {
+        if (clientData.length <= ELEMENT_SIZE || clientData[ELEMENT_SIZE] < 1) {
+            throw new IllegalArgumentException("Bitshuffle needs the element size as client data");
+        }
+        return clientData[ELEMENT_SIZE];
+    }
+
+    private static int blockSize(final int[] clientData, final int elementSize) {
+        final int blockSize = clientData.length > BLOCK_SIZE && 0 != clientData[BLOCK_SIZE] ? clientData[BLOCK_SIZE]
+                : defaultBlockSize(elementSize);
+        if (blockSize < 0 || 0 != blockSize % BLOCKED_MULT) {
+            throw new IllegalArgumentException("Bitshuffle block size must be a multiple of 8, " + blockSize);
+        }
+        return blockSize;
+    }
+
+    static int defaultBlockSize(final int elementSize) {
+        return Integer.max(TARGET_BLOCK_BYTES / elementSize / BLOCKED_MULT * BLOCKED_MULT, MIN_BLOCK_SIZE);
+    }
+
+    /**
+     * Split the elements into blocks, the last block being a multiple of 8.
+     * 
+     * @param count     the number of elements
+     * @param blockSize the number of elements of a full block
+     * @return the number of elements of the blocks
+     */
+    private static int[] blocks(final int count, final int blockSize) {
+        final int full = count / blockSize;
+        final int last = count % blockSize / BLOCKED_MULT * BLOCKED_MULT;
+        final int[] blocks = new int[full + (0 == last ? 0 : 1)];
+        for (int i = 0; i < full; i++) {
+            blocks[i] = blockSize;
+        }
+        if (0 != last) {
+            blocks[full] = last;
+        }
+        return blocks;
+    }
+
+    /**
+     * Bitshuffle a block of elements, the count being a multiple of 8.
+     * 
+     * @param src         the input
+     * @param srcOff      the index of the block in the input
+     * @param dst         the output
+     * @param dstOff      the index of the block in the output
+     * @param count       the number of elements of the block
+     * @param elementSize the size of the elements in bytes
+     */
+    static void transpose(final byte[] src, final int srcOff, final byte[] dst, final int dstOff, final int count,
+            final int elementSize) {
+        final int row = count / BLOCKED_MULT;
+        for (int j = 0; j < elementSize; j++) {
+            for (int c = 0; c < row; c++) {
+                long x = 0;
+                for (int r = 0; r < BLOCKED_MULT; r++) {
+                    x |= (src[srcOff + (BLOCKED_MULT * c + r) * elementSize + j] & 0xFFL) << Byte.SIZE * r;
+                }
+                x = transposeBits(x);
+                for (int k = 0; k < BLOCKED_MULT; k++) {
+                    dst[dstOff + (BLOCKED_MULT * j + k) * row + c] = (byte) (x >>> Byte.SIZE * k);
+                }
+            }
+        }
+    }
+
+    /**
+     * Undo the bitshuffle of a block of elements, the count being a multiple of
+     * 8.
+     * 
+     * @param src         the input
+     * @param srcOff      the index of the block in the input
+     * @param dst         the output
+     * @param dstOff      the index of the block in the output
+     * @param count       the number of elements of the block
+     * @param elementSize the size of the elements in bytes
+     */
+    static void untranspose(final byte[] src, final int srcOff, final byte[] dst, final int dstOff, final int count,
+            final int elementSize) {
+        final int row = count / BLOCKED_MULT;
+        for (int j = 0; j < elementSize; j++) {
+            for (int c = 0; c < row; c++) {
+                long x = 0;
+                for (int k = 0; k < BLOCKED_MULT; k++) {
+                    x |= (src[srcOff + (BLOCKED_MULT * j + k) * row + c] & 0xFFL) << Byte.SIZE * k;
+                }
+                x = transposeBits(x);
+                for (int r = 0; r < BLOCKED_MULT; r++) {
+                    dst[dstOff + (BLOCKED_MULT * c + r) * elementSize + j] = (byte) (x >>> Byte.SIZE * r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Transpose the 8x8 bit matrix having the little endian bytes as rows, by
+     * swapping blocks of 4x4, 2x2 and 1x1 bits.
+     * 
+     * @param x the matrix
+     * @return the transposed matrix
+     */
+    static long transposeBits(final long x) {
+        long y = x;
+        long t = (y ^ y >>> 7) & 0x00AA_00AA_00AA_00AAL;
+        y ^= t ^ t << 7;
+        t = (y ^ y >>> 14) & 0x0000_CCCC_0000_CCCCL;
+        y ^= t ^ t << 14;
+        t = (y ^ y >>> 28) & 0x0000_0000_F0F0_F0F0L;
+        return y ^ t ^ t << 28;
+    }
+}
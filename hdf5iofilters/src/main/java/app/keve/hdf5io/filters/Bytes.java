@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Access to the bytes of the codecs, which work on heap arrays.
+ * 
+ * @author keve
+ *
+ */
+final class Bytes {
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.BIG_ENDIAN);
+
+    private Bytes() {
+    }
+
+    /**
+     * Get the bytes between position and limit backed by an accessible array,
+     * copying them if the buffer is direct or read-only.
+     * 
+     * @param input the buffer
+     * @return a buffer having an array, with the position and limit of the input
+     */
+    static ByteBuffer onHeap(final ByteBuffer input) {
+        if (input.hasArray()) {
+            return input.duplicate();
+        }
+        final ByteBuffer copy = ByteBuffer.allocate(input.remaining());
+        copy.put(input.duplicate());
+        return copy.flip();
+    }
+
+    static int getIntLE(final byte[] b, final int index) {
+        return (int) INT_LE.get(b, index);
+    }
+
+    static long getLongLE(final byte[] b, final int index) {
+        return (long) LONG_LE.get(b, index);
+    }
+
+    static int getIntBE(final byte[] b, final int index) {
+        return (int) INT_BE.get(b, index);
+    }
+
+    static void putIntBE(final byte[] b, final int index, final int value) {
+        INT_BE.set(b, index, value);
+    }
+
+    static long getLongBE(final byte[] b, final int index) {
+        return (long) LONG_BE.get(b, index);
+    }
+
+    static void putLongBE(final byte[] b, final int index, final long value) {
+        LONG_BE.set(b, index, value);
+    }
+}
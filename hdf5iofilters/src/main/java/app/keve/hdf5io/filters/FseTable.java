@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+/**
+ * A finite state entropy decoding table of Zstandard. Each state decodes a
+ * symbol and gives the next state as the baseline plus the number of bits read
+ * from the stream.
+ * 
+ * @author keve
+ *
+ */
+final class FseTable {
+    final int log;
+    final int[] symbol;
+    final int[] bits;
+    final int[] baseline;
+
+    private FseTable(final int log) {
+        this.log = log;
+        final int size = 1 << log;
+        symbol = new int[size];
+        bits = new int[size];
+        baseline = new int[size];
+    }
+
+    /**
+     * Build the table of a distribution.
+     * 
+     * @param counts    the normalized counts of the symbols, -1 for the symbols
+     *                  of less than one count
+     * @param maxSymbol the highest symbol
+     * @param log       the accuracy log, the table has 2^log states
+     * @return the table
+     */
+    static FseTable of(final short[] counts, final int maxSymbol, final int log) {
+        final FseTable table = new FseTable(log);
+        final int size = 1 << log;
+        final int[] next = new int[maxSymbol + 1];
+        int high = size - 1;
+        for (int s = 0; s <= maxSymbol; s++) {
+            if (-1 == counts[s]) {
+                table.symbol[high--] = s;
+                next[s] = 1;
+            } else {
+                next[s] = counts[s];
+            }
+        }
+        final int step = (size >>> 1) + (size >>> 3) + 3;
+        final int mask = size - 1;
+        int position = 0;
+        for (int s = 0; s <= maxSymbol; s++) {
+            for (int i = 0; i < counts[s]; i++) {
+                table.symbol[position] = s;
+                do {
+                    position = position + step & mask;
+                } while (position > high);
+            }
+        }
+        if (0 != position) {
+            throw new IllegalArgumentException("Corrupt FSE distribution");
+        }
+        for (int u = 0; u < size; u++) {
+            final int state = next[table.symbol[u]]++;
+            final int n = log - (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(state));
+            table.bits[u] = n;
+            table.baseline[u] = (state << n) - size;
+        }
+        return table;
+    }
+
+    /**
+     * Build the table always decoding the same symbol, reading no bits.
+     * 
+     * @param symbol the symbol
+     * @return the table
+     */
+    static FseTable rle(final int symbol) {
+        final FseTable table = new FseTable(0);
+        table.symbol[0] = symbol;
+        return table;
+    }
+}
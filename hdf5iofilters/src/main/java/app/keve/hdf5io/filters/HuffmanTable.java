@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+/**
+ * A Huffman decoding table of Zstandard literals. The table is indexed by the
+ * next maximum number of bits of the stream and gives the symbol and the
+ * number of bits of its code.
+ * 
+ * @author keve
+ *
+ */
+final class HuffmanTable {
+    private static final int MAX_BITS = 11;
+
+    final int maxBits;
+    final byte[] symbol;
+    final byte[] bits;
+
+    private HuffmanTable(final int maxBits) {
+        this.maxBits = maxBits;
+        symbol = new byte[1 << maxBits];
+        bits = new byte[1 << maxBits];
+    }
+
+    /**
+     * Build the table from the weights of the symbols. The weight of the last
+     * symbol is implied, completing the sum of the weights to a power of 2.
+     * 
+     * @param weights the weights, with room for the implied weight
+     * @param count   the number of weights given
+     * @return the table
+     */
+    static HuffmanTable of(final byte[] weights, final int count) {
+        int sum = 0;
+        for (int i = 0; i < count; i++) {
+            final int w = weights[i];
+            if (w > MAX_BITS) {
+                throw new IllegalArgumentException("Corrupt Huffman weight " + w);
+            }
+            if (w > 0) {
+                sum += 1 << w - 1;
+            }
+        }
+        if (0 == sum) {
+            throw new IllegalArgumentException("Corrupt Huffman weights, all zero");
+        }
+        final int maxBits = Integer.SIZE - Integer.numberOfLeadingZeros(sum);
+        final int rest = (1 << maxBits) - sum;
+        if (maxBits > MAX_BITS || 1 != Integer.bitCount(rest)) {
+            throw new IllegalArgumentException("Corrupt Huffman weights, sum " + sum);
+        }
+        weights[count] = (byte) (Integer.SIZE - Integer.numberOfLeadingZeros(rest));
+        final HuffmanTable table = new HuffmanTable(maxBits);
+        // the codes of the lowest weights come first, by increasing symbol
+        int position = 0;
+        for (int w = 1; w <= maxBits; w++) {
+            final int length = 1 << w - 1;
+            for (int s = 0; s <= count; s++) {
+                if (weights[s] == w) {
+                    for (int i = 0; i < length; i++) {
+                        table.symbol[position + i] = (byte) s;
+                        table.bits[position + i] = (byte) (maxBits + 1 - w);
+                    }
+                    position += length;
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Decode a stream of symbols.
+     * 
+     * @param src    the source
+     * @param start  the start of the stream
+     * @param end    the end of the stream
+     * @param dst    the buffer for the symbols
+     * @param dstOff the offset of the symbols
+     * @param count  the number of symbols
+     */
+    void decode(final byte[] src, final int start, final int end, final byte[] dst, final int dstOff,
+            final int count) {
+        final BackwardBitReader stream = new BackwardBitReader(src, start, end);
+        final int dstEnd = dstOff + count;
+        int dp = dstOff;
+        // codes have at most 11 bits, four fit the bits available after a reload
+        final int batch = 4;
+        while (dp < dstEnd) {
+            stream.reload();
+            final int n = Integer.min(batch, dstEnd - dp);
+            for (int i = 0; i < n; i++) {
+                final int index = (int) stream.look(maxBits);
+                dst[dp++] = symbol[index];
+                stream.skip(bits[index]);
+            }
+        }
+        stream.reload();
+        if (!stream.isCompleted()) {
+            throw new IllegalArgumentException("Corrupt Huffman stream");
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+/**
+ * The LZ4 block format. A block is a sequence of literal runs, each but the
+ * last followed by a match copying from the bytes already decompressed.
+ * 
+ * <p>
+ * The compressor is a greedy single pass over the input, finding matches of
+ * four bytes through a hash table of the most recent positions and skipping
+ * faster through incompressible data.
+ * 
+ * @author keve
+ *
+ */
+final class Lz4 {
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_OFFSET = 0xFFFF;
+    private static final int RUN_MASK = 0x0F;
+    private static final int HASH_LOG = 12;
+    private static final int HASH_PRIME = -1640531535;
+    private static final int SKIP_TRIGGER = 6;
+
+    private Lz4() {
+    }
+
+    /**
+     * The size of the buffer a block compressed from the given length fits.
+     * 
+     * @param length the length of the data
+     * @return the worst case size of the compressed block
+     */
+    static int maxCompressedLength(final int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Decompress a block to exactly the given length.
+     * 
+     * @param src    the compressed block
+     * @param srcOff the offset of the block
+     * @param srcLen the length of the block
+     * @param dst    the buffer to decompress into
+     * @param dstOff the offset to decompress to
+     * @param dstLen the length of the decompressed block
+     */
+    static void decompress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff,
+            final int dstLen) {
+        final int srcEnd = srcOff + srcLen;
+        final int dstEnd = dstOff + dstLen;
+        int sp = srcOff;
+        int dp = dstOff;
+        try {
+            while (true) {
+                final int token = src[sp++] & 0xFF;
+                int literals = token >>> 4;
+                if (RUN_MASK == literals) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        literals += b;
+                    } while (0xFF == b);
+                }
+                if (literals > srcEnd - sp || literals > dstEnd - dp) {
+                    throw new IllegalArgumentException("Corrupt LZ4 block, literals overrun");
+                }
+                System.arraycopy(src, sp, dst, dp, literals);
+                sp += literals;
+                dp += literals;
+                if (sp == srcEnd) {
+                    break;
+                }
+                final int offset = src[sp++] & 0xFF | (src[sp++] & 0xFF) << 8;
+                int match = token & RUN_MASK;
+                if (RUN_MASK == match) {
+                    int b;
+                    do {
+                        b = src[sp++] & 0xFF;
+                        match += b;
+                    } while (0xFF == b);
+                }
+                match += MIN_MATCH;
+                final int ref = dp - offset;
+                if (0 == offset || ref < dstOff || match > dstEnd - dp) {
+                    throw new IllegalArgumentException("Corrupt LZ4 block, match overrun");
+                }
+                if (offset >= match) {
+                    System.arraycopy(dst, ref, dst, dp, match);
+                } else {
+                    // the match repeats the last offset bytes
+                    for (int i = 0; i < match; i++) {
+                        dst[dp + i] = dst[ref + i];
+                    }
+                }
+                dp += match;
+            }
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated LZ4 block", e);
+        }
+        if (dp != dstEnd) {
+            throw new IllegalArgumentException(
+                    String.format("LZ4 block decompressed to %d bytes, expected %d", dp - dstOff, dstLen));
+        }
+    }
+
+    /**
+     * Compress to a block.
+     * 
+     * @param src    the data
+     * @param srcOff the offset of the data
+     * @param srcLen the length of the data
+     * @param dst    the buffer to compress into, having at least
+     *               {@link #maxCompressedLength(int)} bytes from the offset
+     * @param dstOff the offset of the block
+     * @return the length of the block
+     */
+    static int compress(final byte[] src, final int srcOff, final int srcLen, final byte[] dst, final int dstOff) {
+        final int srcEnd = srcOff + srcLen;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int mfLimit = srcEnd - MF_LIMIT;
+        int anchor = srcOff;
+        int dp = dstOff;
+        if (srcLen > MF_LIMIT) {
+            // positions plus one, zero is no position
+            final int[] table = new int[1 << HASH_LOG];
+            int ip = srcOff + 1;
+            int searches = 1 << SKIP_TRIGGER;
+            while (ip < mfLimit) {
+                final int sequence = Bytes.getIntLE(src, ip);
+                final int hash = sequence * HASH_PRIME >>> Integer.SIZE - HASH_LOG;
+                int ref = table[hash] - 1;
+                table[hash] = ip + 1;
+                if (ref < 0 || ip - ref > MAX_OFFSET || Bytes.getIntLE(src, ref) != sequence) {
+                    ip += searches++ >>> SKIP_TRIGGER;
+                    continue;
+                }
+                searches = 1 << SKIP_TRIGGER;
+                while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+                    ip--;
+                    ref--;
+                }
+                int length = MIN_MATCH;
+                while (ip + length < matchLimit && src[ip + length] == src[ref + length]) {
+                    length++;
+                }
+                dp = sequence(src, anchor, ip - anchor, dst, dp, ip - ref, length);
+                ip += length;
+                anchor = ip;
+            }
+        }
+        return sequence(src, anchor, srcEnd - anchor, dst, dp, 0, 0) - dstOff;
+    }
+
+    /**
+     * Write a sequence, the token, the literals and the match. The last sequence
+     * has no match, marked by a zero offset.
+     * 
+     * @param src        the input
+     * @param literalOff the index of the first literal in the input
+     * @param literals   the number of literals
+     * @param dst        the output
+     * @param dstOff     the index of the sequence in the output
+     * @param offset     the distance of the match, or zero for the last sequence
+     * @param length     the length of the match
+     * @return the index following the sequence in the output
+     */
+    private static int sequence(final byte[] src, final int literalOff, final int literals, final byte[] dst,
+            final int dstOff, final int offset, final int length) {
+        int dp = dstOff;
+        final int match = length - MIN_MATCH;
+        dst[dp++] = (byte) (Math.min(literals, RUN_MASK) << 4 | (0 == offset ? 0 : Math.min(match, RUN_MASK)));
+        dp = writeLength(dst, dp, literals - RUN_MASK);
+        System.arraycopy(src, literalOff, dst, dp, literals);
+        dp += literals;
+        if (0 == offset) {
+            return dp;
+        }
+        dst[dp++] = (byte) offset;
+        dst[dp++] = (byte) (offset >>> 8);
+        return writeLength(dst, dp, match - RUN_MASK);
+    }
+
+    private static int writeLength(final byte[] dst, final int dstOff, final int rest) {
+        if (rest < 0) {
+            return dstOff;
+        }
+        int dp = dstOff;
+        int r = rest;
+        while (r >= 0xFF) {
+            dst[dp++] = (byte) 0xFF;
+            r -= 0xFF;
+        }
+        dst[dp++] = (byte) r;
+        return dp;
+    }
+}
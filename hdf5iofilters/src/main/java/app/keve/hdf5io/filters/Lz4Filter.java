@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+import java.nio.ByteBuffer;
+
+import app.keve.hdf5io.api.HDF5Filter;
+
+/**
+ * The LZ4 filter, registered as 32004. The data is split into blocks, each
+ * compressed on its own. The client data holds the block size.
+ * 
+ * <p>
+ * The filtered data has a header of the big endian 8 byte size of the data and
+ * 4 byte block size. Each block follows with its big endian 4 byte compressed
+ * size. A block as large as its data is stored uncompressed.
+ * 
+ * @author keve
+ *
+ */
+public final class Lz4Filter implements HDF5Filter {
+    public static final int FILTER_LZ4 = 32004;
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 30;
+    private static final int HEADER_SIZE = 12;
+    private static final int BLOCK_HEADER_SIZE = 4;
+
+    @Override
+    public int getId() {
+        return FILTER_LZ4;
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize) {
+        final ByteBuffer in = Bytes.onHeap(input);
+        final byte[] src = in.array();
+        int sp = in.arrayOffset() + in.position();
+        final int srcEnd = sp + in.remaining();
+        if (in.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated LZ4 header");
+        }
+        final long size = Bytes.getLongBE(src, sp);
+        final int blockSize = Bytes.getIntBE(src, sp + 8);
+        sp += HEADER_SIZE;
+        if (size < 0 || size > Integer.MAX_VALUE || size > 0 && blockSize <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid LZ4 header, size %d, block size %d", size,
+                    blockSize));
+        }
+        final byte[] dst = new byte[(int) size];
+        int dp = 0;
+        while (dp < dst.length) {
+            final int length = Integer.min(blockSize, dst.length - dp);
+            if (srcEnd - sp < BLOCK_HEADER_SIZE) {
+                throw new IllegalArgumentException("Truncated LZ4 block header");
+            }
+            final int compressed = Bytes.getIntBE(src, sp);
+            sp += BLOCK_HEADER_SIZE;
+            if (compressed < 0 || compressed > srcEnd - sp) {
+                throw new IllegalArgumentException("Truncated LZ4 block");
+            }
+            if (compressed == length) {
+                System.arraycopy(src, sp, dst, dp, length);
+            } else {
+                Lz4.decompress(src, sp, compressed, dst, dp, length);
+            }
+            sp += compressed;
+            dp += length;
+        }
+        return ByteBuffer.wrap(dst);
+    }
+
+    @Override
+    public ByteBuffer encode(final ByteBuffer input, final int[] clientData) {
+        final ByteBuffer in = Bytes.onHeap(input);
+        final byte[] src = in.array();
+        int sp = in.arrayOffset() + in.position();
+        final int size = in.remaining();
+        final int blockSize = Integer.min(
+                clientData.length > 0 && clientData[0] > 0 ? clientData[0] : DEFAULT_BLOCK_SIZE, size);
+        final int blocks = 0 == size ? 0 : (size - 1) / blockSize + 1;
+        final byte[] dst = new byte[HEADER_SIZE + Lz4.maxCompressedLength(size)
+                + blocks * (BLOCK_HEADER_SIZE + Lz4.maxCompressedLength(0))];
+        Bytes.putLongBE(dst, 0, size);
+        Bytes.putIntBE(dst, 8, blockSize);
+        int dp = HEADER_SIZE;
+        for (int done = 0; done < size; done += blockSize) {
+            final int length = Integer.min(blockSize, size - done);
+            int compressed = Lz4.compress(src, sp, length, dst, dp + BLOCK_HEADER_SIZE);
+            if (compressed >= length) {
+                System.arraycopy(src, sp, dst, dp + BLOCK_HEADER_SIZE, length);
+                compressed = length;
+            }
+            Bytes.putIntBE(dst, dp, compressed);
+            dp += BLOCK_HEADER_SIZE + compressed;
+            sp += length;
+        }
+        return ByteBuffer.wrap(dst, 0, dp);
+    }
+}
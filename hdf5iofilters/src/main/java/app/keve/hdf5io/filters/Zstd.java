@@ -0,0 +1,555 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A decoder of the Zstandard format of RFC 8878. The frames are decoded into
+ * one growing array, the matches copy from the decoded bytes of their frame.
+ * Dictionaries are not supported, the content checksum is skipped.
+ * 
+ * @author keve
+ *
+ */
+final class Zstd {
+    private static final int MAGIC = 0xFD2FB528;
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+    private static final int SKIPPABLE_MASK = 0xFFFFFFF0;
+
+    private static final int BLOCK_RAW = 0;
+    private static final int BLOCK_RLE = 1;
+    private static final int BLOCK_COMPRESSED = 2;
+    private static final int MAX_BLOCK_SIZE = 1 << 17;
+
+    private static final int LITERALS_RAW = 0;
+    private static final int LITERALS_RLE = 1;
+    private static final int LITERALS_COMPRESSED = 2;
+
+    private static final int MODE_PREDEFINED = 0;
+    private static final int MODE_RLE = 1;
+    private static final int MODE_FSE = 2;
+
+    private static final int HUFFMAN_MAX_SYMBOL = 255;
+    private static final int HUFFMAN_WEIGHTS_LOG = 6;
+    private static final int LL_MAX_SYMBOL = 35;
+    private static final int LL_MAX_LOG = 9;
+    private static final int ML_MAX_SYMBOL = 52;
+    private static final int ML_MAX_LOG = 9;
+    private static final int OF_MAX_SYMBOL = 31;
+    private static final int OF_MAX_LOG = 8;
+
+    private static final int[] LL_BASE = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 18, 20, 22, 24,
+        28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768, 65536};
+    private static final int[] LL_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4,
+        6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+    private static final int[] ML_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,
+        24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027,
+        2051, 4099, 8195, 16387, 32771, 65539};
+    private static final int[] ML_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+    private static final FseTable LL_PREDEFINED = FseTable.of(new short[] {4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1,
+        1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1, -1, -1, -1, -1}, LL_MAX_SYMBOL, 6);
+    private static final FseTable ML_PREDEFINED = FseTable.of(new short[] {1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1,
+        1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1,
+        -1, -1, -1}, ML_MAX_SYMBOL, 6);
+    private static final FseTable OF_PREDEFINED = FseTable.of(new short[] {1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1,
+        1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1}, 28, 5);
+
+    private final byte[] src;
+    private int pos;
+    private byte[] out;
+    private int op;
+    private int frameStart;
+    private final int[] rep = new int[3];
+    private FseTable llTable;
+    private FseTable ofTable;
+    private FseTable mlTable;
+    private HuffmanTable huffman;
+    private byte[] literals = new byte[0];
+    private int literalCount;
+
+    private Zstd(final byte[] src, final int pos, final int sizeHint) {
+        this.src = src;
+        this.pos = pos;
+        this.out = new byte[Integer.max(sizeHint, 0)];
+    }
+
+    /**
+     * Decompress the frames.
+     * 
+     * @param src      the source
+     * @param srcOff   the offset of the first frame
+     * @param srcLen   the length of the frames
+     * @param sizeHint the expected decompressed size
+     * @return the decompressed data
+     */
+    static ByteBuffer decompress(final byte[] src, final int srcOff, final int srcLen, final int sizeHint) {
+        final Zstd zstd = new Zstd(src, srcOff, sizeHint);
+        final int end = srcOff + srcLen;
+        try {
+            while (zstd.pos < end) {
+                zstd.frame(end);
+            }
+        } catch (final ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated Zstandard frame", e);
+        }
+        return ByteBuffer.wrap(zstd.out, 0, zstd.op);
+    }
+
+    private void frame(final int end) {
+        if (end - pos < Integer.BYTES) {
+            throw new IllegalArgumentException("Truncated Zstandard frame");
+        }
+        final int magic = Bytes.getIntLE(src, pos);
+        pos += Integer.BYTES;
+        if (SKIPPABLE_MAGIC == (magic & SKIPPABLE_MASK)) {
+            pos += Integer.BYTES + Bytes.getIntLE(src, pos);
+            return;
+        }
+        if (MAGIC != magic) {
+            throw new IllegalArgumentException(String.format("Not a Zstandard frame, magic %08x", magic));
+        }
+        final int descriptor = src[pos++] & 0xFF;
+        final int contentSizeFlag = descriptor >>> 6;
+        final boolean singleSegment = 0 != (descriptor & 0x20);
+        final boolean checksum = 0 != (descriptor & 0x04);
+        if (0 != (descriptor & 0x08)) {
+            throw new IllegalArgumentException("Reserved bit of the Zstandard frame header set");
+        }
+        if (!singleSegment) {
+            // the window descriptor, all of the frame is kept
+            pos++;
+        }
+        final int dictionaryIdSize = 3 == (descriptor & 3) ? 4 : descriptor & 3;
+        if (0 != unsignedLE(dictionaryIdSize)) {
+            throw new IllegalArgumentException("Zstandard dictionaries are not supported");
+        }
+        final int contentSizeSize = 0 == contentSizeFlag ? singleSegment ? 1 : 0 : 1 << contentSizeFlag;
+        if (contentSizeSize > 0) {
+            final long contentSize = unsignedLE(contentSizeSize) + (2 == contentSizeSize ? 256 : 0);
+            if (contentSize < 0 || contentSize > Integer.MAX_VALUE - op) {
+                throw new IllegalArgumentException("Zstandard frame too large, " + contentSize);
+            }
+            ensure((int) contentSize);
+        }
+        frameStart = op;
+        rep[0] = 1;
+        rep[1] = 4;
+        rep[2] = 8;
+        llTable = null;
+        ofTable = null;
+        mlTable = null;
+        huffman = null;
+        boolean last;
+        do {
+            final int header = src[pos] & 0xFF | (src[pos + 1] & 0xFF) << 8 | (src[pos + 2] & 0xFF) << 16;
+            pos += 3;
+            last = 0 != (header & 1);
+            final int type = header >>> 1 & 3;
+            final int size = header >>> 3;
+            if (size > MAX_BLOCK_SIZE) {
+                throw new IllegalArgumentException("Zstandard block too large, " + size);
+            }
+            switch (type) {
+            case BLOCK_RAW:
+                ensure(size);
+                System.arraycopy(src, pos, out, op, size);
+                pos += size;
+                op += size;
+                break;
+            case BLOCK_RLE:
+                ensure(size);
+                Arrays.fill(out, op, op + size, src[pos++]);
+                op += size;
+                break;
+            case BLOCK_COMPRESSED:
+                if (size > end - pos) {
+                    throw new IllegalArgumentException("Truncated Zstandard block");
+                }
+                compressedBlock(pos + size);
+                break;
+            default:
+                throw new IllegalArgumentException("Reserved Zstandard block type");
+            }
+        } while (!last);
+        if (checksum) {
+            pos += Integer.BYTES;
+        }
+        if (pos > end) {
+            throw new IllegalArgumentException("Truncated Zstandard frame");
+        }
+    }
+
+    private long unsignedLE(final int size) {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value |= (src[pos++] & 0xFFL) << Byte.SIZE * i;
+        }
+        return value;
+    }
+
+    private void ensure(final int size) {
+        if (out.length - op < size) {
+            out = Arrays.copyOf(out, Integer.max(op + size, out.length * 2));
+        }
+    }
+
+    private void compressedBlock(final int blockEnd) {
+        literals(blockEnd);
+        int sequences = src[pos++] & 0xFF;
+        if (0xFF == sequences) {
+            sequences = (src[pos] & 0xFF | (src[pos + 1] & 0xFF) << 8) + 0x7F00;
+            pos += 2;
+        } else if (sequences >= 0x80) {
+            sequences = (sequences - 0x80 << 8) + (src[pos++] & 0xFF);
+        }
+        int literal = 0;
+        if (sequences > 0) {
+            final int modes = src[pos++] & 0xFF;
+            if (0 != (modes & 3)) {
+                throw new IllegalArgumentException("Reserved bits of the Zstandard sequence modes set");
+            }
+            llTable = table(modes >>> 6, LL_PREDEFINED, llTable, LL_MAX_SYMBOL, LL_MAX_LOG, blockEnd);
+            ofTable = table(modes >>> 4 & 3, OF_PREDEFINED, ofTable, OF_MAX_SYMBOL, OF_MAX_LOG, blockEnd);
+            mlTable = table(modes >>> 2 & 3, ML_PREDEFINED, mlTable, ML_MAX_SYMBOL, ML_MAX_LOG, blockEnd);
+            literal = sequences(sequences, blockEnd);
+        } else if (pos != blockEnd) {
+            throw new IllegalArgumentException("Corrupt Zstandard block, trailing bytes");
+        }
+        final int rest = literalCount - literal;
+        ensure(rest);
+        System.arraycopy(literals, literal, out, op, rest);
+        op += rest;
+        pos = blockEnd;
+    }
+
+    private void literals(final int blockEnd) {
+        final int b0 = src[pos] & 0xFF;
+        final int type = b0 & 3;
+        final int sizeFormat = b0 >>> 2 & 3;
+        if (LITERALS_RAW == type || LITERALS_RLE == type) {
+            final int size;
+            switch (sizeFormat) {
+            case 1:
+                size = b0 >>> 4 | (src[pos + 1] & 0xFF) << 4;
+                pos += 2;
+                break;
+            case 3:
+                size = b0 >>> 4 | (src[pos + 1] & 0xFF) << 4 | (src[pos + 2] & 0xFF) << 12;
+                pos += 3;
+                break;
+            default:
+                size = b0 >>> 3;
+                pos += 1;
+                break;
+            }
+            literalBuffer(size);
+            if (LITERALS_RAW == type) {
+                if (size > blockEnd - pos) {
+                    throw new IllegalArgumentException("Truncated Zstandard literals");
+                }
+                System.arraycopy(src, pos, literals, 0, size);
+                pos += size;
+            } else {
+                Arrays.fill(literals, 0, size, src[pos++]);
+            }
+            return;
+        }
+        final int headerSize = sizeFormat < 2 ? 3 : sizeFormat + 2;
+        final int bits = sizeFormat < 2 ? 10 : 2 == sizeFormat ? 14 : 18;
+        final long header = unsignedLE(headerSize);
+        final int size = (int) (header >>> 4) & (1 << bits) - 1;
+        final int compressedSize = (int) (header >>> 4 + bits) & (1 << bits) - 1;
+        final int end = pos + compressedSize;
+        if (end > blockEnd) {
+            throw new IllegalArgumentException("Truncated Zstandard literals");
+        }
+        if (LITERALS_COMPRESSED == type) {
+            huffman = huffman(end);
+        } else if (null == huffman) {
+            throw new IllegalArgumentException("Zstandard literals repeat a missing Huffman table");
+        }
+        literalBuffer(size);
+        if (0 == sizeFormat) {
+            huffman.decode(src, pos, end, literals, 0, size);
+        } else {
+            final int start1 = pos + 6;
+            final int start2 = start1 + (src[pos] & 0xFF | (src[pos + 1] & 0xFF) << 8);
+            final int start3 = start2 + (src[pos + 2] & 0xFF | (src[pos + 3] & 0xFF) << 8);
+            final int start4 = start3 + (src[pos + 4] & 0xFF | (src[pos + 5] & 0xFF) << 8);
+            final int segment = (size + 3) / 4;
+            if (start4 > end || 3 * segment > size) {
+                throw new IllegalArgumentException("Corrupt Zstandard literals jump table");
+            }
+            huffman.decode(src, start1, start2, literals, 0, segment);
+            huffman.decode(src, start2, start3, literals, segment, segment);
+            huffman.decode(src, start3, start4, literals, 2 * segment, segment);
+            huffman.decode(src, start4, end, literals, 3 * segment, size - 3 * segment);
+        }
+        pos = end;
+    }
+
+    private void literalBuffer(final int size) {
+        if (size > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException("Zstandard literals too large, " + size);
+        }
+        if (literals.length < size) {
+            literals = new byte[Integer.max(size, Integer.min(2 * literals.length, MAX_BLOCK_SIZE))];
+        }
+        literalCount = size;
+    }
+
+    private HuffmanTable huffman(final int end) {
+        final int header = src[pos++] & 0xFF;
+        final byte[] weights = new byte[HUFFMAN_MAX_SYMBOL + 1];
+        int count = 0;
+        if (header >= 0x80) {
+            count = header - 0x7F;
+            if ((count + 1) / 2 > end - pos) {
+                throw new IllegalArgumentException("Truncated Huffman weights");
+            }
+            for (int i = 0; i < count; i++) {
+                final int b = src[pos + i / 2];
+                weights[i] = (byte) (0 == (i & 1) ? b >>> 4 & 0x0F : b & 0x0F);
+            }
+            pos += (count + 1) / 2;
+            return HuffmanTable.of(weights, count);
+        }
+        final int streamEnd = pos + header;
+        if (streamEnd > end) {
+            throw new IllegalArgumentException("Truncated Huffman weights");
+        }
+        final FseTable table = readTable(streamEnd, HUFFMAN_MAX_SYMBOL, HUFFMAN_WEIGHTS_LOG);
+        final BackwardBitReader stream = new BackwardBitReader(src, pos, streamEnd);
+        int state1 = stream.read(table.log);
+        int state2 = stream.read(table.log);
+        stream.reload();
+        // two interleaved states, the stream ends with the symbol of the other state
+        while (true) {
+            weights[count++] = (byte) table.symbol[state1];
+            state1 = table.baseline[state1] + stream.read(table.bits[state1]);
+            if (BackwardBitReader.OVERFLOW == stream.reload()) {
+                weights[count++] = (byte) table.symbol[state2];
+                break;
+            }
+            weights[count++] = (byte) table.symbol[state2];
+            state2 = table.baseline[state2] + stream.read(table.bits[state2]);
+            if (BackwardBitReader.OVERFLOW == stream.reload()) {
+                weights[count++] = (byte) table.symbol[state1];
+                break;
+            }
+            if (count > HUFFMAN_MAX_SYMBOL - 2) {
+                throw new IllegalArgumentException("Too many Huffman weights");
+            }
+        }
+        pos = streamEnd;
+        return HuffmanTable.of(weights, count);
+    }
+
+    private FseTable table(final int mode, final FseTable predefined, final FseTable previous, final int maxSymbol,
+            final int maxLog, final int end) {
+        switch (mode) {
+        case MODE_PREDEFINED:
+            return predefined;
+        case MODE_RLE:
+            final int symbol = src[pos++] & 0xFF;
+            if (symbol > maxSymbol) {
+                throw new IllegalArgumentException("Corrupt Zstandard RLE symbol " + symbol);
+            }
+            return FseTable.rle(symbol);
+        case MODE_FSE:
+            return readTable(end, maxSymbol, maxLog);
+        default:
+            if (null == previous) {
+                throw new IllegalArgumentException("Zstandard sequences repeat a missing table");
+            }
+            return previous;
+        }
+    }
+
+    /**
+     * Read the normalized counts of a finite state entropy table description.
+     * 
+     * @param end       the end of the block
+     * @param maxSymbol the largest symbol of the table
+     * @param maxLog    the largest accuracy log of the table
+     * @return the table
+     */
+    private FseTable readTable(final int end, final int maxSymbol, final int maxLog) {
+        final int start = pos;
+        final int log = (forwardBits(start, end, 0) & 0x0F) + 5;
+        if (log > maxLog) {
+            throw new IllegalArgumentException("Zstandard FSE accuracy too large, " + log);
+        }
+        final short[] counts = new short[maxSymbol + 1];
+        int bitPos = 4;
+        int remaining = (1 << log) + 1;
+        int threshold = 1 << log;
+        int bits = log + 1;
+        int symbol = 0;
+        boolean previousZero = false;
+        while (remaining > 1 && symbol <= maxSymbol) {
+            if (previousZero) {
+                int repeat;
+                do {
+                    repeat = forwardBits(start, end, bitPos) & 3;
+                    bitPos += 2;
+                    symbol += repeat;
+                } while (3 == repeat);
+                if (symbol > maxSymbol) {
+                    throw new IllegalArgumentException("Corrupt Zstandard FSE table description");
+                }
+            }
+            final int value = forwardBits(start, end, bitPos);
+            final int max = 2 * threshold - 1 - remaining;
+            int count;
+            if ((value & threshold - 1) < max) {
+                count = value & threshold - 1;
+                bitPos += bits - 1;
+            } else {
+                count = value & 2 * threshold - 1;
+                if (count >= threshold) {
+                    count -= max;
+                }
+                bitPos += bits;
+            }
+            count--;
+            remaining -= Math.abs(count);
+            counts[symbol++] = (short) count;
+            previousZero = 0 == count;
+            while (remaining < threshold) {
+                bits--;
+                threshold >>>= 1;
+            }
+        }
+        pos = start + (bitPos + 7) / Byte.SIZE;
+        if (1 != remaining || pos > end) {
+            throw new IllegalArgumentException("Corrupt Zstandard FSE table description");
+        }
+        return FseTable.of(counts, symbol - 1, log);
+    }
+
+    /**
+     * Get at least 25 bits of a little endian bit stream, zero beyond its end.
+     * 
+     * @param start  the start of the stream
+     * @param end    the end of the stream
+     * @param bitPos the position of the first bit from the start
+     * @return the bits, the first in the lowest bit
+     */
+    private int forwardBits(final int start, final int end, final int bitPos) {
+        final int index = start + (bitPos >>> 3);
+        int value = 0;
+        for (int i = 0; i < Integer.BYTES && index + i < end; i++) {
+            value |= (src[index + i] & 0xFF) << Byte.SIZE * i;
+        }
+        return value >>> (bitPos & 7);
+    }
+
+    /**
+     * Decode and execute the sequences, each copying literals and a match.
+     * 
+     * @param count    the number of sequences
+     * @param blockEnd the end of the block
+     * @return the number of literals copied
+     */
+    private int sequences(final int count, final int blockEnd) {
+        final BackwardBitReader stream = new BackwardBitReader(src, pos, blockEnd);
+        int llState = stream.read(llTable.log);
+        stream.reload();
+        int ofState = stream.read(ofTable.log);
+        stream.reload();
+        int mlState = stream.read(mlTable.log);
+        stream.reload();
+        int literal = 0;
+        for (int i = 0; i < count; i++) {
+            final int ofCode = ofTable.symbol[ofState];
+            final int llCode = llTable.symbol[llState];
+            final int mlCode = mlTable.symbol[mlState];
+            if (ofCode > OF_MAX_SYMBOL - 1) {
+                throw new IllegalArgumentException("Corrupt Zstandard offset code " + ofCode);
+            }
+            final int offsetValue = (1 << ofCode) + stream.read(ofCode);
+            stream.reload();
+            final int matchLength = ML_BASE[mlCode] + stream.read(ML_BITS[mlCode]);
+            final int literalLength = LL_BASE[llCode] + stream.read(LL_BITS[llCode]);
+            stream.reload();
+            if (i < count - 1) {
+                llState = llTable.baseline[llState] + stream.read(llTable.bits[llState]);
+                mlState = mlTable.baseline[mlState] + stream.read(mlTable.bits[mlState]);
+                ofState = ofTable.baseline[ofState] + stream.read(ofTable.bits[ofState]);
+                stream.reload();
+            }
+            final int offset = offset(offsetValue, literalLength);
+
+            if (literalLength > literalCount - literal) {
+                throw new IllegalArgumentException("Corrupt Zstandard sequence, literals overrun");
+            }
+            if (offset > op + literalLength - frameStart || offset <= 0) {
+                throw new IllegalArgumentException("Corrupt Zstandard sequence, offset " + offset);
+            }
+            ensure(literalLength + matchLength);
+            System.arraycopy(literals, literal, out, op, literalLength);
+            literal += literalLength;
+            op += literalLength;
+            final int ref = op - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(out, ref, out, op, matchLength);
+            } else {
+                // the match repeats the last offset bytes
+                for (int j = 0; j < matchLength; j++) {
+                    out[op + j] = out[ref + j];
+                }
+            }
+            op += matchLength;
+        }
+        stream.reload();
+        if (!stream.isCompleted()) {
+            throw new IllegalArgumentException("Corrupt Zstandard sequences stream");
+        }
+        return literal;
+    }
+
+    /**
+     * Resolve the offset value, the values up to 3 refer to the repeated offsets.
+     * 
+     * @param offsetValue   the decoded offset value
+     * @param literalLength the number of literals of the sequence
+     * @return the offset of the match
+     */
+    private int offset(final int offsetValue, final int literalLength) {
+        if (offsetValue > 3) {
+            rep[2] = rep[1];
+            rep[1] = rep[0];
+            rep[0] = offsetValue - 3;
+            return rep[0];
+        }
+        final int index = offsetValue - 1 + (0 == literalLength ? 1 : 0);
+        if (0 == index) {
+            return rep[0];
+        }
+        final int offset = 3 == index ? rep[0] - 1 : rep[index];
+        if (1 != index) {
+            rep[2] = rep[1];
+        }
+        rep[1] = rep[0];
+        rep[0] = offset;
+        return offset;
+    }
+}
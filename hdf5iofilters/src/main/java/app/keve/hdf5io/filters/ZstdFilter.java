@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+import java.nio.ByteBuffer;
+
+import app.keve.hdf5io.api.HDF5Filter;
+
+/**
+ * The Zstandard filter, registered as 32015. The filtered data is a Zstandard
+ * frame, the client data holds the compression level.
+ * 
+ * <p>
+ * Only decompression is implemented.
+ * 
+ * @author keve
+ *
+ */
+public final class ZstdFilter implements HDF5Filter {
+    public static final int FILTER_ZSTD = 32015;
+
+    @Override
+    public int getId() {
+        return FILTER_ZSTD;
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize) {
+        final ByteBuffer in = Bytes.onHeap(input);
+        return Zstd.decompress(in.array(), in.arrayOffset() + in.position(), in.remaining(), decodedSize);
+    }
+
+    @Override
+    public ByteBuffer encode(final ByteBuffer input, final int[] clientData) {
+        throw new IllegalArgumentException("Implement Zstandard compression");
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/**
+ * Module specification.
+ * 
+ * @author keve
+ *
+ */
+module hdf5iofilters {
+    requires hdf5ioapi;
+
+    provides app.keve.hdf5io.api.HDF5Filter with app.keve.hdf5io.filters.Lz4Filter,
+            app.keve.hdf5io.filters.ZstdFilter, app.keve.hdf5io.filters.BitshuffleFilter;
+}
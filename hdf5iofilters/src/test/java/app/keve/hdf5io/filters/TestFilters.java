@@ -0,0 +1,282 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filters;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import app.keve.hdf5io.api.HDF5Dataset;
+import app.keve.hdf5io.api.HDF5File;
+import app.keve.hdf5io.api.HDF5Filter;
+import app.keve.hdf5io.impl.HDF5Implementation;
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.airlift.compress.zstd.ZstdCompressor;
+
+public final class TestFilters {
+    private static final int[] LENGTHS = {0, 1, 12, 13, 100, 4096, 70_000, 300_000};
+
+    /**
+     * Data compressing well, a smooth series of doubles.
+     * 
+     * @param length the length of the data in bytes
+     * @return the data
+     */
+    private static byte[] series(final int length) {
+        final ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; buf.remaining() >= Double.BYTES; i++) {
+            buf.putDouble(Math.round(1000 * Math.sin(i / 100.0)) / 1000.0);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Data compressing somewhat, words of a small alphabet.
+     * 
+     * @param length the length of the data in bytes
+     * @param seed   the seed of the random words
+     * @return the data
+     */
+    private static byte[] text(final int length, final long seed) {
+        final Random random = new Random(seed);
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (0 == random.nextInt(6) ? ' ' : 'a' + random.nextInt(random.nextInt(26) + 1));
+        }
+        return data;
+    }
+
+    private static byte[] random(final int length, final long seed) {
+        final byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[][] samples(final int length) {
+        return new byte[][] {series(length), text(length, length), random(length, length), new byte[length]};
+    }
+
+    private static byte[] bytes(final ByteBuffer buf) {
+        final byte[] bytes = new byte[buf.remaining()];
+        buf.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testLz4() {
+        final HDF5Filter lz4 = new Lz4Filter();
+        assertEquals(Lz4Filter.FILTER_LZ4, lz4.getId());
+        for (final int length : LENGTHS) {
+            for (final byte[] data : samples(length)) {
+                for (final int[] clientData : new int[][] {{}, {1000}}) {
+                    final ByteBuffer encoded = lz4.encode(ByteBuffer.wrap(data), clientData);
+                    assertArrayEquals(data, bytes(lz4.decode(encoded.duplicate(), clientData, length)));
+                    // a direct buffer, as mapped from a file
+                    final ByteBuffer direct = ByteBuffer.allocateDirect(encoded.remaining()).put(encoded.duplicate())
+                            .flip();
+                    assertArrayEquals(data, bytes(lz4.decode(direct, clientData, length)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLz4Reference() {
+        final Lz4Compressor compressor = new Lz4Compressor();
+        final Lz4Decompressor decompressor = new Lz4Decompressor();
+        for (final int length : LENGTHS) {
+            if (0 == length) {
+                continue;
+            }
+            for (final byte[] data : samples(length)) {
+                // blocks of the reference compressor
+                final byte[] reference = new byte[compressor.maxCompressedLength(length)];
+                final int referenceLength = compressor.compress(data, 0, length, reference, 0, reference.length);
+                final byte[] decompressed = new byte[length];
+                Lz4.decompress(reference, 0, referenceLength, decompressed, 0, length);
+                assertArrayEquals(data, decompressed);
+                // blocks read by the reference decompressor
+                final byte[] block = new byte[Lz4.maxCompressedLength(length)];
+                final int blockLength = Lz4.compress(data, 0, length, block, 0);
+                Arrays.fill(decompressed, (byte) 0);
+                assertEquals(length, decompressor.decompress(block, 0, blockLength, decompressed, 0, length));
+                assertArrayEquals(data, decompressed);
+            }
+        }
+        final byte[] series = series(100_000);
+        final byte[] block = new byte[Lz4.maxCompressedLength(series.length)];
+        assertTrue(Lz4.compress(series, 0, series.length, block, 0) < series.length / 2);
+    }
+
+    @Test
+    public void testLz4Corrupt() {
+        final HDF5Filter lz4 = new Lz4Filter();
+        final byte[] data = text(10_000, 1);
+        final byte[] encoded = bytes(lz4.encode(ByteBuffer.wrap(data), new int[0]));
+        assertThrows(IllegalArgumentException.class,
+                () -> lz4.decode(ByteBuffer.wrap(encoded, 0, encoded.length - 10), new int[0], data.length));
+        assertThrows(IllegalArgumentException.class,
+                () -> lz4.decode(ByteBuffer.wrap(encoded, 0, 8), new int[0], data.length));
+        // a match reaching before the start
+        final byte[] block = {0x10, 'a', 0x02, 0x00, 0x00};
+        assertThrows(IllegalArgumentException.class, () -> Lz4.decompress(block, 0, block.length, new byte[10], 0, 10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 3, 7, 19})
+    public void testZstd(final int level) {
+        final HDF5Filter zstd = new ZstdFilter();
+        assertEquals(ZstdFilter.FILTER_ZSTD, zstd.getId());
+        for (final int length : LENGTHS) {
+            for (final byte[] data : samples(length)) {
+                final byte[] frame = zstd(data, level);
+                assertArrayEquals(data, bytes(zstd.decode(ByteBuffer.wrap(frame), new int[] {level}, length)));
+                // the size hint is only a hint
+                assertArrayEquals(data, bytes(zstd.decode(ByteBuffer.wrap(frame), new int[] {level}, 1)));
+            }
+        }
+    }
+
+    private static byte[] zstd(final byte[] data, final int level) {
+        final ZstdCompressor compressor = new ZstdCompressor();
+        final byte[] frame = new byte[compressor.maxCompressedLength(data.length)];
+        final int frameLength = compressor.compress(data, 0, data.length, frame, 0, frame.length);
+        return Arrays.copyOf(frame, frameLength);
+    }
+
+    @Test
+    public void testZstdFrames() {
+        final HDF5Filter zstd = new ZstdFilter();
+        // a frame without content size of a raw and an RLE block, with checksum
+        final byte[] frame = {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD, 0x04, 0x50, 0x18, 0x00, 0x00, 'a', 'b', 'c',
+            0x2B, 0x00, 0x00, 'x', 0x00, 0x00, 0x00, 0x00};
+        // a skippable frame
+        final byte[] skippable = {0x5A, 0x2A, 0x4D, 0x18, 0x02, 0x00, 0x00, 0x00, 0x01, 0x02};
+        final byte[] second = zstd(text(1000, 2), 3);
+        final ByteBuffer frames = ByteBuffer.allocate(frame.length + skippable.length + second.length).put(frame)
+                .put(skippable).put(second).flip();
+        final byte[] expected = new byte[3 + 5 + 1000];
+        System.arraycopy(new byte[] {'a', 'b', 'c', 'x', 'x', 'x', 'x', 'x'}, 0, expected, 0, 8);
+        System.arraycopy(text(1000, 2), 0, expected, 8, 1000);
+        assertArrayEquals(expected, bytes(zstd.decode(frames, new int[0], 0)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> zstd.decode(ByteBuffer.wrap(second, 0, second.length - 3), new int[0], 1000));
+        assertThrows(IllegalArgumentException.class, () -> zstd.decode(ByteBuffer.wrap(skippable, 4, 4), new int[0],
+                0));
+        assertThrows(IllegalArgumentException.class, () -> zstd.encode(ByteBuffer.wrap(expected), new int[0]));
+    }
+
+    /**
+     * Bitshuffle by the definition, bit k of byte j of element i is bit i % 8 of
+     * byte i / 8 of the bit plane 8j + k.
+     * 
+     * @param data        the elements
+     * @param elementSize the size of the elements in bytes
+     * @return the bit planes
+     */
+    private static byte[] bitshuffle(final byte[] data, final int elementSize) {
+        final int count = data.length / elementSize;
+        final byte[] shuffled = new byte[data.length];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < elementSize; j++) {
+                for (int k = 0; k < 8; k++) {
+                    final int bit = data[i * elementSize + j] >>> k & 1;
+                    shuffled[(8 * j + k) * count / 8 + i / 8] |= (byte) (bit << i % 8);
+                }
+            }
+        }
+        return shuffled;
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 4, 8, 12})
+    public void testBitshuffle(final int elementSize) {
+        final HDF5Filter bitshuffle = new BitshuffleFilter();
+        assertEquals(BitshuffleFilter.FILTER_BITSHUFFLE, bitshuffle.getId());
+        final byte[] block = random(64 * elementSize, elementSize);
+        final byte[] transposed = new byte[block.length];
+        BitshuffleFilter.transpose(block, 0, transposed, 0, 64, elementSize);
+        assertArrayEquals(bitshuffle(block, elementSize), transposed);
+
+        for (final int count : new int[] {0, 7, 8, 100, 1000, 5000}) {
+            for (final byte[] data : samples(count * elementSize + (count > 0 ? elementSize / 2 : 0))) {
+                final int[] none = {0, 0, elementSize, 16, BitshuffleFilter.COMPRESS_NONE};
+                final ByteBuffer shuffled = bitshuffle.encode(ByteBuffer.wrap(data), none);
+                assertArrayEquals(data, bytes(bitshuffle.decode(shuffled, none, data.length)));
+            }
+            for (final byte[] data : samples(count * elementSize)) {
+                for (final int blockSize : new int[] {0, 16}) {
+                    final int[] lz4 = {0, 0, elementSize, blockSize, BitshuffleFilter.COMPRESS_LZ4};
+                    final ByteBuffer compressed = bitshuffle.encode(ByteBuffer.wrap(data), lz4);
+                    assertArrayEquals(data, bytes(bitshuffle.decode(compressed, lz4, data.length)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBitshuffleZstd() {
+        // elements of 4 bytes, blocks of 16 elements, 36 elements
+        final byte[] data = series(36 * 4);
+        final byte[] first = new byte[64];
+        final byte[] second = new byte[64];
+        BitshuffleFilter.transpose(data, 0, first, 0, 16, 4);
+        BitshuffleFilter.transpose(data, 64, second, 0, 16, 4);
+        final byte[] firstFrame = zstd(first, 3);
+        final byte[] secondFrame = zstd(second, 3);
+        final ByteBuffer filtered = ByteBuffer.allocate(12 + 8 + firstFrame.length + secondFrame.length + 16)
+                .putLong(data.length).putInt(64).putInt(firstFrame.length).put(firstFrame)
+                .putInt(secondFrame.length).put(secondFrame).put(data, 128, 16).flip();
+        final int[] clientData = {0, 0, 4, 16, BitshuffleFilter.COMPRESS_ZSTD};
+        assertArrayEquals(data, bytes(new BitshuffleFilter().decode(filtered, clientData, data.length)));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BitshuffleFilter().encode(ByteBuffer.wrap(data), clientData));
+        assertEquals(2048, BitshuffleFilter.defaultBlockSize(4));
+        assertEquals(128, BitshuffleFilter.defaultBlockSize(100));
+        assertTrue(IntStream.of(1, 2, 4, 8).allMatch(e -> 0 == BitshuffleFilter.defaultBlockSize(e) % 8));
+    }
+
+    @Test
+    public void testReadFilteredDataset() throws Exception {
+        // simple1D in chunks of 600 doubles, through the pipeline bitshuffle, optional Zstandard, optional LZ4;
+        // the filter mask skips LZ4 for the even chunks, Zstandard for the odd ones and both for the last one
+        final Path p = Paths.get(getClass().getClassLoader().getResource("mySimple-filtered-V1_10.h5").toURI());
+        try (HDF5File hdf5File = new HDF5Implementation().open(p)) {
+            final HDF5Dataset ds = hdf5File.getRootGroup().resolve("simple1D").asDataset();
+            assertEquals(9, ds.getChunks().count());
+            final double[] data = (double[]) ds.getAsObject();
+            assertEquals(5400, data.length);
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(i / 100.0, data[i]);
+            }
+        }
+    }
+}
@@ -16,8 +16,14 @@
 package app.keve.hdf5io.fileformat;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
-import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import app.keve.hdf5io.fileformat.level1.BTreeV1.NodeType;
@@ -26,6 +32,16 @@ import app.keve.hdf5io.fileformat.level1.BTreeV1Data.DataKey;
 import app.keve.hdf5io.fileformat.level1.BTreeV1DataInternal;
 import app.keve.hdf5io.fileformat.level1.BTreeV1DataLeaf;
 
+/**
+ * Access to the chunks indexed by a version 1 B-tree of a chunked dataset.
+ * 
+ * <p>
+ * Chunks are found by descending the tree along the chunk offset keys, which
+ * reads one node per level, so a point or region lookup takes logarithmic time.
+ * No separate in-memory chunk offset index is built, since the descent already
+ * provides the logarithmic lookup and the decoded nodes are kept by the metadata
+ * cache.
+ */
 public final class BTreeV1DataManager extends AbstractBTreeV1Manager {
     private final H5Resolver hdf5Resolver;
     private final BTreeV1Data node;
@@ -72,15 +88,47 @@ public final class BTreeV1DataManager extends AbstractBTreeV1Manager {
     }
 
     public Iterator<TreeEntryData> chunkIterator() {
-        return chunkIterator(node);
+        return chunkIterator(node, null, null);
+    }
+
+    /**
+     * Iterate over the chunks with offsets between the bounds. The bounds are
+     * compared with the leading dimensions of the chunk offsets only, so e.g.
+     * one-element bounds select the chunks by their offset in the first
+     * dimension. Subtrees outside the bounds are not read.
+     * 
+     * @param lower the inclusive lower bound of the chunk offsets, or null
+     * @param upper the exclusive upper bound of the chunk offsets, or null
+     * @return the iterator of chunks
+     */
+    public Iterator<TreeEntryData> chunkIterator(final long[] lower, final long[] upper) {
+        return chunkIterator(node, lower, upper);
     }
 
-    private Iterator<TreeEntryData> chunkIterator(final BTreeV1Data bTreeNode) {
+    /**
+     * The chunks of a subtree within the bounds, see
+     * {@link #chunkIterator(long[], long[])}.
+     * 
+     * @param bTreeNode the root of the subtree
+     * @param lower     the inclusive lower bound of the chunk offsets, or null
+     * @param upper     the exclusive upper bound of the chunk offsets, or null
+     * @return the iterator of chunks
+     */
+    private Iterator<TreeEntryData> chunkIterator(final BTreeV1Data bTreeNode, final long[] lower,
+            final long[] upper) {
         if (0 == bTreeNode.getNodeLevel()) {
             final BTreeV1DataLeaf leafNode = (BTreeV1DataLeaf) bTreeNode;
             final int numEntries = leafNode.getEntriesUsed();
             return new Iterator<>() {
-                private int i;
+                private int i = advance(0);
+
+                private int advance(final int from) {
+                    int j = from;
+                    while (j < numEntries && !inBounds(leafNode.getKey(j), lower, upper)) {
+                        j++;
+                    }
+                    return j;
+                }
 
                 @Override
                 public boolean hasNext() {
@@ -89,31 +137,41 @@ public final class BTreeV1DataManager extends AbstractBTreeV1Manager {
 
                 @Override
                 public TreeEntryData next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
                     final TreeEntryData treeEntry = new TreeEntryData(leafNode.getKey(i), leafNode.getChild(i),
                             leafNode.getKey(i + 1));
-                    i++;
+                    i = advance(i + 1);
                     return treeEntry;
                 }
 
             };
         } else {
-            final List<Resolvable<BTreeV1Data>> children = ((BTreeV1DataInternal) bTreeNode).getChildren();
+            final BTreeV1DataInternal internalNode = (BTreeV1DataInternal) bTreeNode;
+            // child i holds the chunks from key i (inclusive) to key i+1 (exclusive)
+            final Deque<Resolvable<BTreeV1Data>> children = new ArrayDeque<>();
+            for (int i = 0; i < internalNode.getEntriesUsed(); i++) {
+                if ((null == lower || compare(internalNode.getKey(i + 1), lower) >= 0)
+                        && (null == upper || compare(internalNode.getKey(i), upper) < 0)) {
+                    children.add(internalNode.getChild(i));
+                }
+            }
             return new Iterator<>() {
-                private Iterator<TreeEntryData> currentIterator;
+                private Iterator<TreeEntryData> currentIterator = Collections.emptyIterator();
 
                 @Override
                 public boolean hasNext() {
-                    if (!children.isEmpty()) {
-                        return true;
+                    while (!currentIterator.hasNext() && !children.isEmpty()) {
+                        currentIterator = chunkIterator(children.poll().resolve(hdf5Resolver), lower, upper);
                     }
                     return currentIterator.hasNext();
                 }
 
                 @Override
                 public TreeEntryData next() {
-                    if (null == currentIterator || !currentIterator.hasNext()) {
-                        final Resolvable<BTreeV1Data> child = children.remove(0);
-                        currentIterator = chunkIterator(child.resolve(hdf5Resolver));
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
                     }
                     return currentIterator.next();
                 }
@@ -121,4 +179,191 @@ public final class BTreeV1DataManager extends AbstractBTreeV1Manager {
         }
     }
 
+    /**
+     * Create a spliterator over the chunks with offsets between the bounds, see
+     * {@link #chunkIterator(long[], long[])}. It splits at the child boundaries of
+     * the internal nodes, descending into the child if a single one is left, and
+     * is sized once it covers a range of a leaf node.
+     * 
+     * @param lower the inclusive lower bound of the chunk offsets, or null
+     * @param upper the exclusive upper bound of the chunk offsets, or null
+     * @return the spliterator of chunks
+     */
+    public Spliterator<TreeEntryData> chunkSpliterator(final long[] lower, final long[] upper) {
+        return new ChunkSpliterator(node, lower, upper);
+    }
+
+    /**
+     * Find a chunk by descending the tree along the keys.
+     * 
+     * @param chunkOffset the offset of the chunk
+     * @return the chunk, or empty if no chunk is stored at the offset
+     */
+    public Optional<TreeEntryData> findChunk(final long... chunkOffset) {
+        BTreeV1Data bTreeNode = node;
+        while (true) {
+            final int i = floorIndex(bTreeNode, chunkOffset);
+            if (i < 0) {
+                return Optional.empty();
+            }
+            if (0 == bTreeNode.getNodeLevel()) {
+                final BTreeV1DataLeaf leafNode = (BTreeV1DataLeaf) bTreeNode;
+                final DataKey key = leafNode.getKey(i);
+                if (0 != compare(key, chunkOffset)) {
+                    return Optional.empty();
+                }
+                return Optional.of(new TreeEntryData(key, leafNode.getChild(i), leafNode.getKey(i + 1)));
+            }
+            bTreeNode = ((BTreeV1DataInternal) bTreeNode).getChild(i).resolve(hdf5Resolver);
+        }
+    }
+
+    /**
+     * Binary search for the last entry whose left key is not after the offset.
+     * 
+     * @param bTreeNode the node
+     * @param offset    the chunk offset
+     * @return the index of the entry, or -1 if the offset is before the first
+     *         key
+     */
+    private static int floorIndex(final BTreeV1Data bTreeNode, final long[] offset) {
+        int lo = 0;
+        int hi = bTreeNode.getEntriesUsed() - 1;
+        int found = -1;
+        while (lo <= hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (compare(bTreeNode.getKey(mid), offset) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Compare the leading dimensions of the key to the offset.
+     * 
+     * @param key    the key
+     * @param offset the chunk offset, possibly of fewer dimensions
+     * @return the comparison of the key to the offset
+     */
+    private static int compare(final DataKey key, final long[] offset) {
+        final long[] keyOffset = key.getDimChunkOffset();
+        for (int i = 0; i < offset.length && i < keyOffset.length; i++) {
+            final int c = Long.compare(keyOffset[i], offset[i]);
+            if (0 != c) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean inBounds(final DataKey key, final long[] lower, final long[] upper) {
+        return (null == lower || compare(key, lower) >= 0) && (null == upper || compare(key, upper) < 0);
+    }
+
+    /**
+     * The chunks below the entries [lo, hi) of a node, within the bounds.
+     */
+    private final class ChunkSpliterator implements Spliterator<TreeEntryData> {
+        private final long[] lower;
+        private final long[] upper;
+        private BTreeV1Data bTreeNode;
+        private int lo;
+        private int hi;
+        /** The chunks of the child being traversed, null before the traversal. */
+        private Iterator<TreeEntryData> current;
+
+        ChunkSpliterator(final BTreeV1Data bTreeNode, final long[] lower, final long[] upper) {
+            this.lower = lower;
+            this.upper = upper;
+            narrow(bTreeNode);
+        }
+
+        private ChunkSpliterator(final BTreeV1Data bTreeNode, final int lo, final int hi, final long[] lower,
+                final long[] upper) {
+            this.lower = lower;
+            this.upper = upper;
+            this.bTreeNode = bTreeNode;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        /**
+         * Cover the entries of the node within the bounds, which are adjacent as the
+         * entries are ordered.
+         * 
+         * @param newNode the node
+         */
+        private void narrow(final BTreeV1Data newNode) {
+            bTreeNode = newNode;
+            lo = 0;
+            hi = newNode.getEntriesUsed();
+            // a leaf entry is in the bounds by its key, a child if its key range overlaps
+            final int upperKey = 0 == newNode.getNodeLevel() ? 0 : 1;
+            while (lo < hi && null != lower && compare(newNode.getKey(lo + upperKey), lower) < 0) {
+                lo++;
+            }
+            while (lo < hi && null != upper && compare(newNode.getKey(hi - 1), upper) >= 0) {
+                hi--;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super TreeEntryData> action) {
+            if (0 == bTreeNode.getNodeLevel()) {
+                if (lo >= hi) {
+                    return false;
+                }
+                final BTreeV1DataLeaf leafNode = (BTreeV1DataLeaf) bTreeNode;
+                action.accept(new TreeEntryData(leafNode.getKey(lo), leafNode.getChild(lo), leafNode.getKey(lo + 1)));
+                lo++;
+                return true;
+            }
+            if (null == current) {
+                current = Collections.emptyIterator();
+            }
+            while (!current.hasNext()) {
+                if (lo >= hi) {
+                    return false;
+                }
+                current = chunkIterator(((BTreeV1DataInternal) bTreeNode).getChild(lo++).resolve(hdf5Resolver),
+                        lower, upper);
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        @Override
+        public Spliterator<TreeEntryData> trySplit() {
+            if (null != current) {
+                return null;
+            }
+            while (1 == hi - lo && 0 != bTreeNode.getNodeLevel()) {
+                narrow(((BTreeV1DataInternal) bTreeNode).getChild(lo).resolve(hdf5Resolver));
+            }
+            if (hi - lo < 2) {
+                return null;
+            }
+            final int mid = lo + hi >>> 1;
+            final ChunkSpliterator prefix = new ChunkSpliterator(bTreeNode, lo, mid, lower, upper);
+            lo = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // assuming the children are as full as this node
+            return (long) ((hi - lo) * Math.pow(Math.max(2, bTreeNode.getEntriesUsed()), bTreeNode.getNodeLevel()));
+        }
+
+        @Override
+        public int characteristics() {
+            final int sized = 0 == bTreeNode.getNodeLevel() ? SIZED | SUBSIZED : 0;
+            return ORDERED | NONNULL | IMMUTABLE | sized;
+        }
+    }
+
 }
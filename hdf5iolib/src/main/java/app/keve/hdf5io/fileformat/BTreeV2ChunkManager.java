@@ -0,0 +1,505 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import app.keve.hdf5io.fileformat.level1.BTreeV2;
+
+/**
+ * Access to the chunk records of a version 2 B-tree chunk index. The records
+ * are ordered by the scaled offsets of their chunks, so a chunk is found by
+ * descending a single path of the tree, and the last chunk without visiting
+ * the others.
+ * 
+ * @author keve
+ *
+ */
+public final class BTreeV2ChunkManager extends AbstractManager {
+    /** Record type of non-filtered chunks. */
+    public static final int TYPE_CHUNKS = 10;
+    /** Record type of filtered chunks. */
+    public static final int TYPE_FILTERED_CHUNKS = 11;
+
+    // signature, version, type and checksum
+    private static final int NODE_PREFIX_SIZE = 4 + 1 + 1 + 4;
+    private static final byte[] LEAF_SIGNATURE = {'B', 'T', 'L', 'F'};
+    private static final byte[] INTERNAL_SIGNATURE = {'B', 'T', 'I', 'N'};
+
+    private final H5Resolver hdf5Resolver;
+    private final int offsetSize;
+    private final int rank;
+    private final boolean filtered;
+    private final int nodeSize;
+    private final int recordSize;
+    private final int depth;
+    private final long rootAddress;
+    private final int rootNumberOfRecords;
+    private final long totalNumberOfRecords;
+    /** The size of the number of records in a child node pointer. */
+    private final int maxNrecSize;
+    /** The size of the total number of records below a child node pointer, by node depth. */
+    private final int[] cumMaxNrecSize;
+
+    public BTreeV2ChunkManager(final H5Resolver hdf5Resolver, final Resolvable<BTreeV2> rIndex, final int rank) {
+        this.hdf5Resolver = hdf5Resolver;
+        final BTreeV2 index = rIndex.resolve(hdf5Resolver);
+        assert index.isValid();
+        switch (index.getType()) {
+        case TYPE_CHUNKS:
+            this.filtered = false;
+            break;
+        case TYPE_FILTERED_CHUNKS:
+            this.filtered = true;
+            break;
+        default:
+            throw new IllegalArgumentException("Not a chunk index B-tree, type " + index.getType());
+        }
+        this.offsetSize = index.context().offsetSize();
+        this.rank = rank;
+        this.nodeSize = (int) index.getNodeSize();
+        this.recordSize = index.getRecordSize();
+        this.depth = index.getDepth();
+        this.rootAddress = index.getRootNodeAddress();
+        this.rootNumberOfRecords = index.getRootNumberOfRecords();
+        this.totalNumberOfRecords = index.getTotalNumberOfRecords();
+        // the fields of the node pointers are sized to hold the most records a node can have
+        final long leafMaxNrec = (nodeSize - NODE_PREFIX_SIZE) / recordSize;
+        this.maxNrecSize = limitEncSize(leafMaxNrec);
+        this.cumMaxNrecSize = new int[depth + 1];
+        long cumMaxNrec = leafMaxNrec;
+        for (int d = 1; d <= depth; d++) {
+            final int pointerSize = pointerSize(d);
+            final long maxNrec = (nodeSize - (NODE_PREFIX_SIZE + pointerSize)) / (recordSize + pointerSize);
+            cumMaxNrec = (maxNrec + 1) * cumMaxNrec + maxNrec;
+            cumMaxNrecSize[d] = limitEncSize(cumMaxNrec);
+        }
+    }
+
+    public long getTotalNumberOfRecords() {
+        return totalNumberOfRecords;
+    }
+
+    /**
+     * Find the record of a chunk.
+     * 
+     * @param scaledOffset the offset of the chunk in units of the chunk size
+     * @return the entry, or empty if the chunk is not stored
+     */
+    public Optional<ChunkIndexEntry> findChunk(final long... scaledOffset) {
+        if (0 == rootNumberOfRecords) {
+            return Optional.empty();
+        }
+        Node node = new Node(rootAddress, depth, rootNumberOfRecords);
+        while (true) {
+            int low = 0;
+            int high = node.nrec - 1;
+            while (low <= high) {
+                final int mid = low + high >>> 1;
+                final int cmp = Arrays.compareUnsigned(node.key(mid), scaledOffset);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return Optional.of(node.entry(mid));
+                }
+            }
+            if (0 == node.depth) {
+                return Optional.empty();
+            }
+            node = node.child(low);
+        }
+    }
+
+    /**
+     * Create a cursor over the chunk records, in the order of their scaled
+     * offsets.
+     * 
+     * @return the cursor
+     */
+    public ChunkIndexCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Create a spliterator over the chunk records, in the order of their scaled
+     * offsets. It splits at the child boundaries of the internal nodes, and is
+     * sized from the record counts of the child node pointers.
+     * 
+     * @param <T>   the type of the elements
+     * @param chunk the function creating the element from the scaled offset and
+     *              the entry of a record
+     * @return the spliterator
+     */
+    public <T> Spliterator<T> spliterator(final BiFunction<long[], ChunkIndexEntry, T> chunk) {
+        final Node root = 0 == rootNumberOfRecords ? null : new Node(rootAddress, depth, rootNumberOfRecords);
+        return new RecordSpliterator<>(chunk, root, 0, null == root ? 0 : root.items(), new ArrayDeque<>());
+    }
+
+    /**
+     * A position in the tree. The frames hold the path from the root to the
+     * current record; the position of the innermost frame is the current record,
+     * the positions of the outer frames are the children descended into.
+     */
+    private final class Cursor implements ChunkIndexCursor {
+        private final Deque<Frame> path = new ArrayDeque<>();
+        /** Before the first record if negative, after the last if positive. */
+        private int outside = -1;
+
+        @Override
+        public boolean first() {
+            path.clear();
+            outside = -1;
+            if (0 == rootNumberOfRecords) {
+                return false;
+            }
+            descendFirst(new Node(rootAddress, depth, rootNumberOfRecords));
+            outside = 0;
+            return true;
+        }
+
+        @Override
+        public boolean last() {
+            path.clear();
+            outside = 1;
+            if (0 == rootNumberOfRecords) {
+                return false;
+            }
+            descendLast(new Node(rootAddress, depth, rootNumberOfRecords));
+            outside = 0;
+            return true;
+        }
+
+        @Override
+        public boolean next() {
+            if (outside < 0) {
+                return first();
+            }
+            if (outside > 0) {
+                return false;
+            }
+            final Frame current = path.peek();
+            if (current.node.depth > 0) {
+                // the records following an internal record are in the next child
+                current.pos++;
+                descendFirst(current.node.child(current.pos));
+                return true;
+            }
+            if (current.pos + 1 < current.node.nrec) {
+                current.pos++;
+                return true;
+            }
+            path.pop();
+            // the record following a child is the record of the parent at the child index
+            while (!path.isEmpty()) {
+                if (path.peek().pos < path.peek().node.nrec) {
+                    return true;
+                }
+                path.pop();
+            }
+            outside = 1;
+            return false;
+        }
+
+        @Override
+        public boolean previous() {
+            if (outside > 0) {
+                return last();
+            }
+            if (outside < 0) {
+                return false;
+            }
+            final Frame current = path.peek();
+            if (current.node.depth > 0) {
+                // the records preceding an internal record are in the child of the same index
+                descendLast(current.node.child(current.pos));
+                return true;
+            }
+            if (current.pos > 0) {
+                current.pos--;
+                return true;
+            }
+            path.pop();
+            // the record preceding a child is the record of the parent before the child index
+            while (!path.isEmpty()) {
+                if (path.peek().pos > 0) {
+                    path.peek().pos--;
+                    return true;
+                }
+                path.pop();
+            }
+            outside = -1;
+            return false;
+        }
+
+        private void descendFirst(final Node from) {
+            Node node = from;
+            path.push(new Frame(node, 0));
+            while (node.depth > 0) {
+                node = node.child(0);
+                path.push(new Frame(node, 0));
+            }
+        }
+
+        private void descendLast(final Node from) {
+            Node node = from;
+            while (node.depth > 0) {
+                path.push(new Frame(node, node.nrec));
+                node = node.child(node.nrec);
+            }
+            path.push(new Frame(node, node.nrec - 1));
+        }
+
+        @Override
+        public long[] getScaledOffset() {
+            if (0 != outside) {
+                throw new IllegalStateException();
+            }
+            return path.peek().node.key(path.peek().pos);
+        }
+
+        @Override
+        public ChunkIndexEntry getEntry() {
+            if (0 != outside) {
+                throw new IllegalStateException();
+            }
+            return path.peek().node.entry(path.peek().pos);
+        }
+    }
+
+    /**
+     * The records of the items [lo, hi) of a node, followed by the tail records.
+     * An item of a leaf is a record, an item of an internal node is a child
+     * followed by the record at the child index, if any. The tail holds the
+     * records following the items in the ancestors, left behind when descending
+     * into a single remaining child.
+     */
+    private final class RecordSpliterator<T> implements Spliterator<T> {
+        private final BiFunction<long[], ChunkIndexEntry, T> chunk;
+        private final Deque<T> tail;
+        private Node node;
+        private int lo;
+        private int hi;
+        private long size;
+        /** The path to the next item, null before the traversal. */
+        private Deque<Frame> path;
+
+        RecordSpliterator(final BiFunction<long[], ChunkIndexEntry, T> chunk, final Node node, final int lo,
+                final int hi, final Deque<T> tail) {
+            this.chunk = chunk;
+            this.tail = tail;
+            this.node = node;
+            this.lo = lo;
+            this.hi = hi;
+            this.size = tail.size();
+            for (int i = lo; i < hi; i++) {
+                size += node.itemSize(i);
+            }
+        }
+
+        private T record(final Node recordNode, final int i) {
+            return chunk.apply(recordNode.key(i), recordNode.entry(i));
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super T> action) {
+            if (null == path) {
+                path = new ArrayDeque<>();
+                if (lo < hi) {
+                    path.push(new Frame(node, lo));
+                }
+            }
+            while (!path.isEmpty()) {
+                final Frame frame = path.peek();
+                final int end = frame.node == node ? hi : frame.node.items();
+                if (frame.pos >= end) {
+                    path.pop();
+                    continue;
+                }
+                if (0 == frame.node.depth) {
+                    action.accept(record(frame.node, frame.pos++));
+                    size--;
+                    return true;
+                }
+                if (!frame.descended) {
+                    frame.descended = true;
+                    path.push(new Frame(frame.node.child(frame.pos), 0));
+                    continue;
+                }
+                frame.descended = false;
+                final int i = frame.pos++;
+                if (i < frame.node.nrec) {
+                    action.accept(record(frame.node, i));
+                    size--;
+                    return true;
+                }
+            }
+            if (tail.isEmpty()) {
+                return false;
+            }
+            action.accept(tail.pop());
+            size--;
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (null != path) {
+                return null;
+            }
+            while (1 == hi - lo && node.depth > 0) {
+                if (lo < node.nrec) {
+                    tail.push(record(node, lo));
+                }
+                node = node.child(lo);
+                lo = 0;
+                hi = node.items();
+            }
+            if (hi - lo < 2) {
+                return null;
+            }
+            final int mid = lo + hi >>> 1;
+            final RecordSpliterator<T> prefix = new RecordSpliterator<>(chunk, node, lo, mid, new ArrayDeque<>());
+            lo = mid;
+            size -= prefix.size;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+
+    private static final class Frame {
+        private final Node node;
+        private int pos;
+        /** Whether the child at the position of an internal node is traversed. */
+        private boolean descended;
+
+        Frame(final Node node, final int pos) {
+            this.node = node;
+            this.pos = pos;
+        }
+    }
+
+    /**
+     * A leaf or internal node, holding its records followed by the pointers to its
+     * children if internal.
+     */
+    private final class Node {
+        private final int depth;
+        private final int nrec;
+        private final ByteBuffer buf;
+
+        Node(final long address, final int depth, final int nrec) {
+            this.depth = depth;
+            this.nrec = nrec;
+            this.buf = hdf5Resolver.resolve(address, nodeSize).order(ByteOrder.LITTLE_ENDIAN);
+            assert Arrays.equals(0 == depth ? LEAF_SIGNATURE : INTERNAL_SIGNATURE,
+                    new byte[] {buf.get(0), buf.get(1), buf.get(2), buf.get(3)});
+        }
+
+        private int recordIndex(final int i) {
+            // after the signature, version and type
+            return 4 + 1 + 1 + i * recordSize;
+        }
+
+        long[] key(final int i) {
+            final int idx = recordIndex(i) + recordSize - 8 * rank;
+            final long[] key = new long[rank];
+            for (int d = 0; d < rank; d++) {
+                key[d] = buf.getLong(idx + 8 * d);
+            }
+            return key;
+        }
+
+        ChunkIndexEntry entry(final int i) {
+            final int idx = recordIndex(i);
+            final ByteBuffer entry = buf.duplicate().position(idx).limit(idx + recordSize - 8 * rank).slice()
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            return ChunkIndexEntry.decode(entry, offsetSize, filtered)
+                    .orElseThrow(() -> new IllegalArgumentException("Undefined chunk address in record " + i));
+        }
+
+        /**
+         * The number of items of the node.
+         * 
+         * @return the number of records of a leaf, of children of an internal node
+         */
+        int items() {
+            return 0 == depth ? nrec : nrec + 1;
+        }
+
+        /**
+         * The number of records of an item, without resolving the child.
+         * 
+         * @param i the item index
+         * @return the number of records of the child and the record following it
+         */
+        long itemSize(final int i) {
+            if (0 == depth) {
+                return 1;
+            }
+            final int idx = recordIndex(nrec) + i * pointerSize(depth) + offsetSize;
+            final long childRecords = 1 == depth ? ChunkIndexEntry.getUnsigned(buf, idx, maxNrecSize)
+                    : ChunkIndexEntry.getUnsigned(buf, idx + maxNrecSize, cumMaxNrecSize[depth - 1]);
+            return childRecords + (i < nrec ? 1 : 0);
+        }
+
+        Node child(final int i) {
+            final int idx = recordIndex(nrec) + i * pointerSize(depth);
+            final long address = ChunkIndexEntry.getUnsigned(buf, idx, offsetSize);
+            final int childNrec = (int) ChunkIndexEntry.getUnsigned(buf, idx + offsetSize, maxNrecSize);
+            return new Node(address, depth - 1, childNrec);
+        }
+    }
+
+    /**
+     * The size of a child node pointer in a node: the address, the number of
+     * records in the child and, below depth 1, the total number of records below
+     * the child.
+     * 
+     * @param nodeDepth the depth of the node holding the pointer
+     * @return the size of the pointer in bytes
+     */
+    private int pointerSize(final int nodeDepth) {
+        return offsetSize + maxNrecSize + (nodeDepth > 1 ? cumMaxNrecSize[nodeDepth - 1] : 0);
+    }
+
+    private static int limitEncSize(final long n) {
+        return (63 - Long.numberOfLeadingZeros(n)) / 8 + 1;
+    }
+
+    @Override
+    public void commit(final H5Resolver h5Resolver) {
+        // the index is only read, nothing to write
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat;
+
+/**
+ * A position within a chunk index, moving over the stored chunks in the
+ * logical order of their offsets. A new cursor is positioned before the first
+ * chunk.
+ * 
+ * @author keve
+ *
+ */
+public interface ChunkIndexCursor {
+    /**
+     * Move to the first stored chunk.
+     * 
+     * @return false if no chunk is stored
+     */
+    boolean first();
+
+    /**
+     * Move to the last stored chunk, without visiting the preceding ones.
+     * 
+     * @return false if no chunk is stored
+     */
+    boolean last();
+
+    /**
+     * Move to the next stored chunk.
+     * 
+     * @return false if there are no more chunks
+     */
+    boolean next();
+
+    /**
+     * Move to the previous stored chunk.
+     * 
+     * @return false if there are no more chunks
+     */
+    boolean previous();
+
+    /**
+     * The offset of the current chunk in units of the chunk size.
+     * 
+     * @return the scaled offset
+     */
+    long[] getScaledOffset();
+
+    /**
+     * The location of the current chunk.
+     * 
+     * @return the entry
+     */
+    ChunkIndexEntry getEntry();
+}
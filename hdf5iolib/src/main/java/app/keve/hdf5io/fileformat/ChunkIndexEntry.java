@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * The location of a stored chunk, as recorded in a chunk index.
+ * 
+ * @author keve
+ *
+ */
+public final class ChunkIndexEntry {
+    public final long address;
+    /** The size of a filtered chunk, or -1 if the chunk is not filtered. */
+    public final long chunkSize;
+    public final int filterMask;
+
+    public ChunkIndexEntry(final long address, final long chunkSize, final int filterMask) {
+        this.address = address;
+        this.chunkSize = chunkSize;
+        this.filterMask = filterMask;
+    }
+
+    /**
+     * Decode an entry as stored by the array and B-tree chunk indexes: the chunk
+     * address, followed by the chunk size and the filter mask for filtered chunks.
+     * 
+     * @param entry      the little endian encoded entry, limited to the address and
+     *                   the filter information
+     * @param offsetSize the size of a file address
+     * @param filtered   whether the entry carries the filter information
+     * @return the entry, or empty if the address is undefined
+     */
+    static Optional<ChunkIndexEntry> decode(final ByteBuffer entry, final int offsetSize, final boolean filtered) {
+        final long address = getUnsigned(entry, 0, offsetSize);
+        if (isUndefinedAddress(address, offsetSize)) {
+            return Optional.empty();
+        }
+        if (filtered) {
+            final int chunkSizeLength = entry.remaining() - offsetSize - 4;
+            return Optional.of(new ChunkIndexEntry(address, getUnsigned(entry, offsetSize, chunkSizeLength),
+                    entry.getInt(entry.position() + offsetSize + chunkSizeLength)));
+        }
+        return Optional.of(new ChunkIndexEntry(address, -1, 0));
+    }
+
+    /**
+     * Whether an address read with {@link #getUnsigned(ByteBuffer, int, int)} is
+     * the undefined address, i.e. has all bits set.
+     * 
+     * @param address    the address
+     * @param offsetSize the size of a file address
+     * @return true if the address is undefined
+     */
+    public static boolean isUndefinedAddress(final long address, final int offsetSize) {
+        return 8 == offsetSize ? -1L == address : (1L << 8 * offsetSize) - 1 == address;
+    }
+
+    static long getUnsigned(final ByteBuffer buf, final int idx, final int sizeInBytes) {
+        long value = 0;
+        for (int i = 0; i < sizeInBytes; i++) {
+            value |= (buf.get(buf.position() + idx + i) & 0xFFL) << 8 * i;
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ChunkIndexEntry[address=%d, chunkSize=%d, filterMask=%d]", address, chunkSize,
+                filterMask);
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+import app.keve.hdf5io.fileformat.level1.ExtensibleArrayIndex;
+
+/**
+ * Direct access to the elements of an extensible array chunk index. The data
+ * block holding an element, and the super block referencing that data block,
+ * are computed from the element index, so a lookup reads at most the index
+ * block, a super block and a data block entry.
+ * 
+ * @author keve
+ *
+ */
+public final class ExtensibleArrayManager extends AbstractManager {
+    /** Client ID of arrays of non-filtered chunks. */
+    public static final int CLIENT_CHUNKS = 0;
+    /** Client ID of arrays of filtered chunks. */
+    public static final int CLIENT_FILTERED_CHUNKS = 1;
+
+    private final H5Resolver hdf5Resolver;
+    private final int offsetSize;
+    private final int clientID;
+    private final int elementSize;
+    private final long indexBlkElmts;
+    private final long dataBlkMinElmts;
+    private final long dblkPageNelmts;
+    private final long maxIndexSet;
+    private final long indexBlockAddress;
+    private final int arrayOffsetSize;
+    /** The number of super blocks whose data blocks are referenced by the index block. */
+    private final int iblockSblks;
+    private final int iblockDblkAddrs;
+    private final int iblockSblkAddrs;
+    private final long[] sblkStartIdx;
+    private final long[] sblkStartDblk;
+
+    public ExtensibleArrayManager(final H5Resolver hdf5Resolver, final Resolvable<ExtensibleArrayIndex> rIndex) {
+        this.hdf5Resolver = hdf5Resolver;
+        final ExtensibleArrayIndex index = rIndex.resolve(hdf5Resolver);
+        assert index.isValid();
+        this.offsetSize = index.context().offsetSize();
+        this.clientID = index.getClientID();
+        this.elementSize = index.getElementSize();
+        this.indexBlkElmts = index.getIndexBlkElmts();
+        this.dataBlkMinElmts = index.getDataBlkMinElmts();
+        this.dblkPageNelmts = 1L << index.getMaxDataBlkPageNelmtsBits();
+        this.maxIndexSet = index.getMaxIndexSet();
+        this.indexBlockAddress = null == index.getIndexBlock() ? -1 : index.getIndexBlock().getAddress();
+        this.arrayOffsetSize = (index.getMaxNelmtsBits() + 7) / 8;
+        final int sblks = 1 + index.getMaxNelmtsBits() - log2(dataBlkMinElmts);
+        this.iblockSblks = 2 * log2(index.getSecondaryBlkMinDataPtrs());
+        this.iblockDblkAddrs = 2 * (index.getSecondaryBlkMinDataPtrs() - 1);
+        this.iblockSblkAddrs = sblks - iblockSblks;
+        // super block u holds 2^(u/2) data blocks of 2^((u+1)/2) * dataBlkMinElmts elements
+        this.sblkStartIdx = new long[sblks];
+        this.sblkStartDblk = new long[sblks];
+        for (int u = 1; u < sblks; u++) {
+            sblkStartIdx[u] = sblkStartIdx[u - 1] + sblkDblks(u - 1) * sblkDblkNelmts(u - 1);
+            sblkStartDblk[u] = sblkStartDblk[u - 1] + sblkDblks(u - 1);
+        }
+    }
+
+    /**
+     * The number of elements the array has been extended to, i.e. the index of
+     * the last element set plus one.
+     * 
+     * @return the maximum index set
+     */
+    public long getMaxIndexSet() {
+        return maxIndexSet;
+    }
+
+    /**
+     * Get an element of the array.
+     * 
+     * @param index the index of the element
+     * @return the entry, or empty if the chunk is not allocated
+     */
+    public Optional<ChunkIndexEntry> getEntry(final long index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index " + index);
+        }
+        if (index >= maxIndexSet || indexBlockAddress < 0) {
+            return Optional.empty();
+        }
+        // signature, version, client ID, header address
+        final long iblockPrefix = 4 + 1 + 1 + offsetSize;
+        if (index < indexBlkElmts) {
+            return decode(indexBlockAddress + iblockPrefix + index * elementSize);
+        }
+        final long idx = index - indexBlkElmts;
+        final int sblk = log2(idx / dataBlkMinElmts + 1);
+        final long dblkNelmts = sblkDblkNelmts(sblk);
+        final long dblk = (idx - sblkStartIdx[sblk]) / dblkNelmts;
+        final long elmt = (idx - sblkStartIdx[sblk]) % dblkNelmts;
+        final long dblkAddrsAddress = indexBlockAddress + iblockPrefix + indexBlkElmts * elementSize;
+        if (sblk < iblockSblks) {
+            final long dblkAddress = getAddress(dblkAddrsAddress + (sblkStartDblk[sblk] + dblk) * offsetSize);
+            if (ChunkIndexEntry.isUndefinedAddress(dblkAddress, offsetSize)) {
+                return Optional.empty();
+            }
+            return decode(elementAddress(dblkAddress, dblkNelmts, elmt));
+        }
+        final long sblkAddress = getAddress(
+                dblkAddrsAddress + (iblockDblkAddrs + sblk - iblockSblks) * (long) offsetSize);
+        if (ChunkIndexEntry.isUndefinedAddress(sblkAddress, offsetSize)) {
+            return Optional.empty();
+        }
+        // signature, version, client ID, header address, block offset
+        long sblkDblkAddrsAddress = sblkAddress + 4 + 1 + 1 + offsetSize + arrayOffsetSize;
+        if (dblkNelmts > dblkPageNelmts) {
+            final long dblkPages = dblkNelmts / dblkPageNelmts;
+            final long page = dblk * dblkPages + elmt / dblkPageNelmts;
+            final ByteBuffer bitmap = hdf5Resolver.resolve(sblkDblkAddrsAddress + page / 8, 1);
+            if (0 == (bitmap.get(0) & 0x80 >>> (page % 8))) {
+                return Optional.empty();
+            }
+            sblkDblkAddrsAddress += sblkDblks(sblk) * ((dblkPages + 7) / 8);
+        }
+        final long dblkAddress = getAddress(sblkDblkAddrsAddress + dblk * offsetSize);
+        if (ChunkIndexEntry.isUndefinedAddress(dblkAddress, offsetSize)) {
+            return Optional.empty();
+        }
+        return decode(elementAddress(dblkAddress, dblkNelmts, elmt));
+    }
+
+    /**
+     * Create a cursor over the set elements of the array, in index order.
+     * 
+     * @param scaledOffset maps the index of an element to the scaled offset of its
+     *                     chunk
+     * @return the cursor
+     */
+    public ChunkIndexCursor cursor(final LongFunction<long[]> scaledOffset) {
+        return new Cursor(scaledOffset);
+    }
+
+    /**
+     * A cursor over the set elements, looking up each element in turn.
+     */
+    private final class Cursor implements ChunkIndexCursor {
+        private final LongFunction<long[]> scaledOffset;
+        private long index = -1;
+        private ChunkIndexEntry entry;
+
+        Cursor(final LongFunction<long[]> scaledOffset) {
+            this.scaledOffset = scaledOffset;
+        }
+
+        private boolean seek(final long from, final long step) {
+            for (long i = from; i >= 0 && i < maxIndexSet; i += step) {
+                final Optional<ChunkIndexEntry> found = ExtensibleArrayManager.this.getEntry(i);
+                if (found.isPresent()) {
+                    index = i;
+                    entry = found.get();
+                    return true;
+                }
+            }
+            index = step > 0 ? maxIndexSet : -1;
+            entry = null;
+            return false;
+        }
+
+        @Override
+        public boolean first() {
+            return seek(0, 1);
+        }
+
+        @Override
+        public boolean last() {
+            return seek(maxIndexSet - 1, -1);
+        }
+
+        @Override
+        public boolean next() {
+            return seek(index + 1, 1);
+        }
+
+        @Override
+        public boolean previous() {
+            return seek(index - 1, -1);
+        }
+
+        @Override
+        public long[] getScaledOffset() {
+            if (null == entry) {
+                throw new IllegalStateException();
+            }
+            return scaledOffset.apply(index);
+        }
+
+        @Override
+        public ChunkIndexEntry getEntry() {
+            if (null == entry) {
+                throw new IllegalStateException();
+            }
+            return entry;
+        }
+    }
+
+    private long elementAddress(final long dblkAddress, final long dblkNelmts, final long elmt) {
+        // signature, version, client ID, header address, block offset
+        final long dblkPrefix = 4 + 1 + 1 + offsetSize + arrayOffsetSize;
+        if (dblkNelmts > dblkPageNelmts) {
+            // the checksum of the data block precedes the pages, each page has its own
+            final long pageSize = dblkPageNelmts * elementSize + 4;
+            return dblkAddress + dblkPrefix + 4 + elmt / dblkPageNelmts * pageSize
+                    + elmt % dblkPageNelmts * elementSize;
+        }
+        return dblkAddress + dblkPrefix + elmt * elementSize;
+    }
+
+    private Optional<ChunkIndexEntry> decode(final long entryAddress) {
+        final ByteBuffer entry = hdf5Resolver.resolve(entryAddress, elementSize).order(ByteOrder.LITTLE_ENDIAN);
+        return ChunkIndexEntry.decode(entry, offsetSize, CLIENT_FILTERED_CHUNKS == clientID);
+    }
+
+    private long getAddress(final long address) {
+        return ChunkIndexEntry.getUnsigned(hdf5Resolver.resolve(address, offsetSize), 0, offsetSize);
+    }
+
+    private static long sblkDblks(final int sblk) {
+        return 1L << sblk / 2;
+    }
+
+    private long sblkDblkNelmts(final int sblk) {
+        return (1L << (sblk + 1) / 2) * dataBlkMinElmts;
+    }
+
+    private static int log2(final long n) {
+        return 63 - Long.numberOfLeadingZeros(n);
+    }
+
+    @Override
+    public void commit(final H5Resolver h5Resolver) {
+        // the index is only read, nothing to write
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Optional;
+
+import app.keve.hdf5io.fileformat.level1.FixedArrayIndex;
+
+/**
+ * Direct access to the entries of a fixed array chunk index. The position of
+ * an entry is computed from its index, paged data blocks included, so a single
+ * entry is read per lookup.
+ * 
+ * @author keve
+ *
+ */
+public final class FixedArrayManager extends AbstractManager {
+    /** Client ID of arrays of non-filtered chunks. */
+    public static final int CLIENT_CHUNKS = 0;
+    /** Client ID of arrays of filtered chunks. */
+    public static final int CLIENT_FILTERED_CHUNKS = 1;
+
+    private final H5Resolver hdf5Resolver;
+    private final int offsetSize;
+    private final int clientID;
+    private final int entrySize;
+    private final long maxNumEntries;
+    private final long dataBlockAddress;
+    private final int pageBits;
+    private final boolean paged;
+    private final long bitmapAddress;
+    private final long prefixSize;
+
+    public FixedArrayManager(final H5Resolver hdf5Resolver, final Resolvable<FixedArrayIndex> rIndex) {
+        this.hdf5Resolver = hdf5Resolver;
+        final FixedArrayIndex index = rIndex.resolve(hdf5Resolver);
+        assert index.isValid();
+        this.offsetSize = index.context().offsetSize();
+        this.clientID = index.getClientID();
+        this.entrySize = index.getEntrySize();
+        this.maxNumEntries = index.getMaxNumEntries();
+        this.dataBlockAddress = index.getDataBlock().getAddress();
+        this.pageBits = index.getPageBits();
+        this.paged = maxNumEntries > 1L << pageBits;
+        // signature, version, client ID, header address
+        final long prefix = 4 + 1 + 1 + offsetSize;
+        this.bitmapAddress = dataBlockAddress + prefix;
+        // the page bitmap and the checksum of the data block precede the pages
+        this.prefixSize = paged ? prefix + (getNumberOfPages() + 7) / 8 + 4 : prefix;
+    }
+
+    public long getMaxNumEntries() {
+        return maxNumEntries;
+    }
+
+    private long getNumberOfPages() {
+        return (maxNumEntries + (1L << pageBits) - 1) >>> pageBits;
+    }
+
+    /**
+     * Get an entry of the array.
+     * 
+     * @param index the index of the entry
+     * @return the entry, or empty if the chunk is not allocated
+     */
+    public Optional<ChunkIndexEntry> getEntry(final long index) {
+        if (index < 0 || index >= maxNumEntries) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + maxNumEntries);
+        }
+        final long entryAddress;
+        if (paged) {
+            final long page = index >>> pageBits;
+            final ByteBuffer bitmap = hdf5Resolver.resolve(bitmapAddress + page / 8, 1);
+            if (0 == (bitmap.get(0) & 0x80 >>> (page % 8))) {
+                return Optional.empty();
+            }
+            final long pageSize = (1L << pageBits) * entrySize + 4;
+            entryAddress = dataBlockAddress + prefixSize + page * pageSize
+                    + (index & (1L << pageBits) - 1) * entrySize;
+        } else {
+            entryAddress = dataBlockAddress + prefixSize + index * entrySize;
+        }
+        final ByteBuffer entry = hdf5Resolver.resolve(entryAddress, entrySize).order(ByteOrder.LITTLE_ENDIAN);
+        return ChunkIndexEntry.decode(entry, offsetSize, CLIENT_FILTERED_CHUNKS == clientID);
+    }
+
+    @Override
+    public void commit(final H5Resolver h5Resolver) {
+        // the index is only read, nothing to write
+    }
+}
@@ -586,6 +586,7 @@ public final class H5Registry {
                         DataLayoutMessageV4Chunked.FixedArrayIndexingInformation.class,
                         DataLayoutMessageV4Chunked.ImplicitIndexingInformation.class,
                         DataLayoutMessageV4Chunked.SingleChunkIndexingInformation.class,
+                        DataLayoutMessageV4Chunked.FilteredSingleChunkIndexingInformation.class,
                         DataLayoutMessageV4Chunked.Version2BTreeIndexingInformation.class));
 
         register(DataLayoutMessageV4Chunked.ChunkIndexingInformation.class,
@@ -610,6 +611,10 @@ public final class H5Registry {
                 DataLayoutMessageV4ChunkedBB.ChunkIndexSingleChunkBB::size,
                 DataLayoutMessageV4ChunkedBB.ChunkIndexSingleChunkBB::size,
                 DataLayoutMessageV4ChunkedBB.ChunkIndexSingleChunkBB::new);
+        register(DataLayoutMessageV4Chunked.FilteredSingleChunkIndexingInformation.class,
+                DataLayoutMessageV4ChunkedBB.ChunkIndexFilteredSingleChunkBB::size,
+                DataLayoutMessageV4ChunkedBB.ChunkIndexFilteredSingleChunkBB::size,
+                DataLayoutMessageV4ChunkedBB.ChunkIndexFilteredSingleChunkBB::new);
         register(DataLayoutMessageV4Chunked.Version2BTreeIndexingInformation.class,
                 DataLayoutMessageV4ChunkedBB.ChunkIndexBTreeV2BB::size,
                 DataLayoutMessageV4ChunkedBB.ChunkIndexBTreeV2BB::size,
@@ -17,6 +17,9 @@ package app.keve.hdf5io.fileformat;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+
+import app.keve.hdf5io.util.ChunkCache;
 
 public interface H5Resolver {
     <T extends H5Object<S>, S extends H5Context> T resolve(long address, long length, Class<T> tClass, S sc);
@@ -27,6 +30,20 @@ public interface H5Resolver {
 
     void commitAll() throws IOException;
 
+    /**
+     * The cache of decoded chunks of this file.
+     * 
+     * @return the chunk cache
+     */
+    ChunkCache chunkCache();
+
+    /**
+     * The executor to read the chunks of a dataset in parallel with.
+     * 
+     * @return the executor, or null to read chunks on the calling thread
+     */
+    Executor chunkExecutor();
+
     /**
      * Return the current end of file address.
      * @deprecated avoid
@@ -43,6 +43,8 @@ public interface BTreeV2 extends H5Object<SizingContextBTreeV2> {
 
     Resolvable<? extends BTreeV2Node> getRootNode();
 
+    long getRootNodeAddress();
+
     int getRootNumberOfRecords();
 
     long getTotalNumberOfRecords();
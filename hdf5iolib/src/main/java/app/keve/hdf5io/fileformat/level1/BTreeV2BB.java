@@ -93,6 +93,11 @@ public final class BTreeV2BB extends AbstractSizedBB<SizingContextBTreeV2> imple
         return 0 == getDepth() ? getResolvable(16, BTreeV2LeafNode.class, context2) : null;
     }
 
+    @Override
+    public long getRootNodeAddress() {
+        return getOffset(16);
+    }
+
     @Override
     public int getRootNumberOfRecords() {
         return getUnsignedShort(16 + context.offsetSize());
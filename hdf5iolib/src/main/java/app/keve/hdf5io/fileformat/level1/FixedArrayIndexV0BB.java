@@ -41,8 +41,7 @@ public final class FixedArrayIndexV0BB extends AbstractSizedBB<SizingContext> im
     @Override
     public boolean isValid() {
         return Arrays.equals(SIGNATURE, getSignature()) && getChecksum() == JenkinsHash.hash(
-                getEmbeddedData(0, 12 + 6 * context.lengthSize() + context.offsetSize()).order(ByteOrder.LITTLE_ENDIAN),
-                0);
+                getEmbeddedData(0, 8 + context.lengthSize() + context.offsetSize()).order(ByteOrder.LITTLE_ENDIAN), 0);
     }
 
     @Override
@@ -77,11 +76,11 @@ public final class FixedArrayIndexV0BB extends AbstractSizedBB<SizingContext> im
 
     @Override
     public Resolvable<ByteBuffer> getDataBlock() {
-        return getResolvable(12 + context.lengthSize(), 0);
+        return getResolvable(8 + context.lengthSize(), 0);
     }
 
     @Override
     public int getChecksum() {
-        return getInt(12 + context.lengthSize() + context.offsetSize());
+        return getInt(8 + context.lengthSize() + context.offsetSize());
     }
 }
@@ -42,7 +42,10 @@ public final class FractalHeapBB extends AbstractSizedBB<SizingContext> implemen
 
     @Override
     public long size() {
-        return available();
+        final int ioFiltersEncodedLength = getIOFiltersEncodedLength();
+        final long filterSize = 0 == ioFiltersEncodedLength ? 0
+                : context.lengthSize() + 4 + ioFiltersEncodedLength;
+        return 26 + 12 * context.lengthSize() + 3 * context.offsetSize() + filterSize;
     }
 
     @Override
@@ -18,12 +18,16 @@ package app.keve.hdf5io.fileformat.level1;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import app.keve.hdf5io.fileformat.AbstractSizedBB;
 import app.keve.hdf5io.fileformat.SizingContext;
 
 public final class GlobalHeapCollectionBB extends AbstractSizedBB<SizingContext> implements GlobalHeapCollection {
+    /** The byte offset of the objects by heap object index, built on the first lookup. */
+    private volatile int[] objectOffsets;
+
     public GlobalHeapCollectionBB(final ByteBuffer buf, final SizingContext sizingContext) {
         super(buf, sizingContext);
     }
@@ -61,16 +65,43 @@ public final class GlobalHeapCollectionBB extends AbstractSizedBB<SizingContext>
         return getLength(8);
     }
 
+    /**
+     * Get a heap object by its index. The offsets of all the objects are indexed
+     * in one pass on the first lookup, so a collection cached by the resolver is
+     * not scanned again.
+     */
     @Override
     public GlobalHeapObject getHeapObject(final int index) {
-        final Iterator<GlobalHeapObject> it = objectIterator();
-        while (it.hasNext()) {
-            final GlobalHeapObject gho = it.next();
-            if (index == gho.getHeapObjectIndex()) {
-                return gho;
+        final int[] offsets = objectOffsets();
+        if (index <= 0 || index >= offsets.length || 0 == offsets[index]) {
+            throw new NoSuchElementException("No heap object " + index);
+        }
+        return getEmbedded(offsets[index], 0, GlobalHeapObject.class, context);
+    }
+
+    private int[] objectOffsets() {
+        int[] offsets = objectOffsets;
+        if (null == offsets) {
+            // a benign race, the index is the same in all threads
+            offsets = new int[0];
+            final int headerSize = 8 + context.lengthSize();
+            final Iterator<Map.Entry<Integer, GlobalHeapObject>> it = getOffsetIteratorByteSized(headerSize,
+                    GlobalHeapObject.class, getCollectionSize() - headerSize, headerSize);
+            while (it.hasNext()) {
+                final Map.Entry<Integer, GlobalHeapObject> e = it.next();
+                final int index = e.getValue().getHeapObjectIndex();
+                if (0 == index) {
+                    // the free space is last
+                    break;
+                }
+                if (index >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, Math.max(index + 1, 2 * offsets.length));
+                }
+                offsets[index] = e.getKey();
             }
+            objectOffsets = offsets;
         }
-        throw new NoSuchElementException();
+        return offsets;
     }
 
     @Override
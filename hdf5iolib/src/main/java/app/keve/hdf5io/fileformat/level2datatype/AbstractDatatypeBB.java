@@ -26,6 +26,7 @@ import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.datatype.HDF5Array;
 import app.keve.hdf5io.api.datatype.HDF5Array.ArrayBuilder;
 import app.keve.hdf5io.api.datatype.HDF5Bitfield.BitfieldBuilder;
+import app.keve.hdf5io.api.datatype.HDF5Compound;
 import app.keve.hdf5io.api.datatype.HDF5Compound.CompoundBuilder;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
 import app.keve.hdf5io.api.datatype.HDF5Enumeration.EnumerationBuilder;
@@ -34,6 +35,7 @@ import app.keve.hdf5io.api.datatype.HDF5FixedPointNumber.FixedPointNumberBuilder
 import app.keve.hdf5io.api.datatype.HDF5FloatingPointNumber;
 import app.keve.hdf5io.api.datatype.HDF5FloatingPointNumber.FloatingPointNumberBuilder;
 import app.keve.hdf5io.api.datatype.HDF5Opaque.OpaqueBuilder;
+import app.keve.hdf5io.api.datatype.HDF5String;
 import app.keve.hdf5io.fileformat.AbstractBB;
 import app.keve.hdf5io.fileformat.H5Context;
 import app.keve.hdf5io.fileformat.H5Object;
@@ -149,9 +151,8 @@ public abstract class AbstractDatatypeBB extends AbstractBB<H5Context> implement
         }
 
         @Override
-        public StringBuilder forString() {
-            // TODO Auto-generated method stub
-            return null;
+        public HDF5String.StringBuilder forString() {
+            return new StringDatatypeBB.BuilderBB(context);
         }
 
         @Override
@@ -166,8 +167,7 @@ public abstract class AbstractDatatypeBB extends AbstractBB<H5Context> implement
 
         @Override
         public CompoundBuilder forCompound() {
-            // TODO Auto-generated method stub
-            return null;
+            return new CompoundV3BB.BuilderBB(context);
         }
 
         @Override
@@ -235,6 +235,10 @@ public abstract class AbstractDatatypeBB extends AbstractBB<H5Context> implement
                     .from((HDF5FloatingPointNumber) datatype).build();
         case ARRAY:
             return (AbstractDatatypeBB) new ArrayDatatypeV3BB.BuilderBB(context).from((HDF5Array) datatype).build();
+        case COMPOUND:
+            return (AbstractDatatypeBB) new CompoundV3BB.BuilderBB(context).from((HDF5Compound) datatype).build();
+        case STRING:
+            return (AbstractDatatypeBB) new StringDatatypeBB.BuilderBB(context).from((HDF5String) datatype).build();
         default:
             throw new IllegalArgumentException("Implement copy contstructors!");
         }
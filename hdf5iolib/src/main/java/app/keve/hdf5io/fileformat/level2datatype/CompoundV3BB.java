@@ -16,8 +16,15 @@
 package app.keve.hdf5io.fileformat.level2datatype;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.OptionalInt;
 
+import app.keve.hdf5io.api.datatype.HDF5Compound;
+import app.keve.hdf5io.api.datatype.HDF5Datatype;
 import app.keve.hdf5io.fileformat.H5Context;
 
 public final class CompoundV3BB extends AbstractCompoundBB {
@@ -31,12 +38,33 @@ public final class CompoundV3BB extends AbstractCompoundBB {
         return getIterator(8, MemberV3BB::new, getNumberOfMembers());
     }
 
+    /**
+     * The number of bytes of the member byte offsets, enough to hold the element
+     * size.
+     * 
+     * @param elementSize the element size of the compound
+     * @return the number of bytes
+     */
+    private static int numByteOffsetBytes(final long elementSize) {
+        return (64 - Long.numberOfLeadingZeros(elementSize) + 7 & ~7) / 8;
+    }
+
+    private int setMember(final int idx, final byte[] name, final int byteOffset,
+            final AbstractDatatypeBB memberType) {
+        final int numByteOffsetBytes = numByteOffsetBytes(getElementSize());
+        setBytes(idx, name);
+        setByte(idx + name.length, 0);
+        setUnsignedNumber(idx + name.length + 1, numByteOffsetBytes, byteOffset);
+        setEmbedded(idx + name.length + 1 + numByteOffsetBytes, memberType);
+        return idx + name.length + 1 + numByteOffsetBytes + (int) memberType.size();
+    }
+
     public final class MemberV3BB extends AbstractH5Member {
         private final int numByteOffsetBytes;
 
         public MemberV3BB(final ByteBuffer buf, final H5Context context) {
             super(buf, context);
-            numByteOffsetBytes = (64 - Long.numberOfLeadingZeros(getElementSize()) + 7 & ~7) / 8;
+            numByteOffsetBytes = numByteOffsetBytes(getElementSize());
         }
 
         @Override
@@ -63,4 +91,57 @@ public final class CompoundV3BB extends AbstractCompoundBB {
             return getEmbedded(getNameSize() + numByteOffsetBytes, AbstractDatatypeBB.class);
         }
     }
+
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public static final class BuilderBB implements CompoundBuilder {
+        private final H5Context context;
+        private final List<byte[]> names = new ArrayList<>();
+        private final List<Integer> byteOffsets = new ArrayList<>();
+        private final List<HDF5Datatype> memberTypes = new ArrayList<>();
+        private OptionalInt elementSize = OptionalInt.empty();
+
+        public BuilderBB(final H5Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public CompoundBuilder addMember(final String name, final int byteOffset, final HDF5Datatype memberType) {
+            names.add(name.getBytes(StandardCharsets.US_ASCII));
+            byteOffsets.add(byteOffset);
+            memberTypes.add(memberType);
+            return this;
+        }
+
+        @Override
+        public CompoundBuilder withElementSize(final int elementSize) {
+            this.elementSize = OptionalInt.of(elementSize);
+            return this;
+        }
+
+        @Override
+        public HDF5Compound build() {
+            final AbstractDatatypeBB[] memberTypesBB = new AbstractDatatypeBB[memberTypes.size()];
+            int end = 0;
+            for (int i = 0; i < memberTypesBB.length; i++) {
+                memberTypesBB[i] = AbstractDatatypeBB.of(memberTypes.get(i), context);
+                end = Math.max(end, byteOffsets.get(i) + memberTypesBB[i].getElementSize());
+            }
+            final int size = elementSize.orElse(end);
+            long bufSize = 8;
+            for (int i = 0; i < memberTypesBB.length; i++) {
+                bufSize += names.get(i).length + 1 + numByteOffsetBytes(size) + memberTypesBB[i].size();
+            }
+            final ByteBuffer buf = ByteBuffer.allocate((int) bufSize).order(ByteOrder.LITTLE_ENDIAN);
+            final CompoundV3BB compound = new CompoundV3BB(buf, context);
+            compound.setDatatypeClass(TypeClass.COMPOUND);
+            compound.setVersion(3);
+            compound.setClassBitField(memberTypesBB.length);
+            compound.setElementSize(size);
+            int idx = 8;
+            for (int i = 0; i < memberTypesBB.length; i++) {
+                idx = compound.setMember(idx, names.get(i), byteOffsets.get(i), memberTypesBB[i]);
+            }
+            return compound;
+        }
+    }
 }
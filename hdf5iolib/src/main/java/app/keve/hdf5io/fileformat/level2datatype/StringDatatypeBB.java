@@ -16,8 +16,10 @@
 package app.keve.hdf5io.fileformat.level2datatype;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.OptionalInt;
 
 import app.keve.hdf5io.api.datatype.HDF5String;
 import app.keve.hdf5io.fileformat.H5Context;
@@ -61,4 +63,48 @@ public final class StringDatatypeBB extends AbstractDatatypeBB implements HDF5St
         }
     }
 
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public static final class BuilderBB implements HDF5String.StringBuilder {
+        private final H5Context context;
+
+        private OptionalInt elementSize = OptionalInt.empty();
+        private PaddingType paddingType = PaddingType.NULL_TERMINATE;
+        private Charset charset = StandardCharsets.US_ASCII;
+
+        public BuilderBB(final H5Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public HDF5String build() {
+            final ByteBuffer buf = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            final StringDatatypeBB string = new StringDatatypeBB(buf, context);
+            string.setDatatypeClass(TypeClass.STRING);
+            string.setVersion(1);
+            string.setClassBitField(paddingType.ordinal() | (StandardCharsets.UTF_8.equals(charset) ? 1 : 0) << 4);
+            string.setElementSize(elementSize.orElseThrow());
+            return string;
+        }
+
+        @Override
+        public HDF5String.StringBuilder withElementSize(final int elementSize) {
+            this.elementSize = OptionalInt.of(elementSize);
+            return this;
+        }
+
+        @Override
+        public HDF5String.StringBuilder withPaddingType(final PaddingType paddingType) {
+            this.paddingType = paddingType;
+            return this;
+        }
+
+        @Override
+        public HDF5String.StringBuilder withCharset(final Charset charset) {
+            if (!StandardCharsets.US_ASCII.equals(charset) && !StandardCharsets.UTF_8.equals(charset)) {
+                throw new IllegalArgumentException("Unsupported charset " + charset);
+            }
+            this.charset = charset;
+            return this;
+        }
+    }
 }
@@ -19,10 +19,7 @@ import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
 import java.util.BitSet;
 import java.util.Iterator;
-import java.util.PrimitiveIterator;
 import java.util.PrimitiveIterator.OfInt;
-import java.util.Spliterator;
-import java.util.Spliterators;
 import java.util.stream.IntStream;
 import java.util.stream.StreamSupport;
 
@@ -36,9 +33,7 @@ public abstract class AbstractBitfieldAdapter extends AbstractDatatypeAdapter<HD
 
     @Override
     public IntStream asIntStream(final ByteBuffer buf) {
-        final PrimitiveIterator.OfInt ofIntP = new BufferToIteratorUtil.UByteBufferToIntIterator(buf);
-        final Spliterator.OfInt ofIntS = Spliterators.spliterator(ofIntP, buf.remaining(), Spliterator.ORDERED);
-        return StreamSupport.intStream(ofIntS, false);
+        return StreamSupport.intStream(new BufferToSpliteratorUtil.UByteBufferToIntSpliterator(buf), false);
     }
 
     private static class BitfieldAdapter8 extends AbstractBitfieldAdapter {
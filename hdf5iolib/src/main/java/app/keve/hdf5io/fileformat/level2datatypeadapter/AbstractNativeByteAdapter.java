@@ -20,6 +20,7 @@ import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.PrimitiveIterator.OfInt;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.Spliterator;
 import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -90,11 +91,21 @@ public abstract class AbstractNativeByteAdapter extends AbstractNativeFixedPoint
             return new BufferToIteratorUtil.ByteBufferToIntIterator(buf);
         }
 
+        @Override
+        public final Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+            return new BufferToSpliteratorUtil.ByteBufferToIntSpliterator(buf);
+        }
+
         @Override
         public final OfLong asLongIterator(final ByteBuffer buf) {
             return new BufferToIteratorUtil.ByteBufferToLongIterator(buf);
         }
 
+        @Override
+        public final Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            return new BufferToSpliteratorUtil.ByteBufferToLongSpliterator(buf);
+        }
+
         @Override
         public String toString() {
             return "FixedPointNumber:NativeByte";
@@ -116,11 +127,21 @@ public abstract class AbstractNativeByteAdapter extends AbstractNativeFixedPoint
             return new BufferToIteratorUtil.UByteBufferToIntIterator(buf);
         }
 
+        @Override
+        public final Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+            return new BufferToSpliteratorUtil.UByteBufferToIntSpliterator(buf);
+        }
+
         @Override
         public final OfLong asLongIterator(final ByteBuffer buf) {
             return new BufferToIteratorUtil.UByteBufferToLongIterator(buf);
         }
 
+        @Override
+        public final Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            return new BufferToSpliteratorUtil.UByteBufferToLongSpliterator(buf);
+        }
+
         @Override
         public Object asScalarObject(final ByteBuffer buf, final int byteOffset) {
             return Byte.toUnsignedInt(buf.get(byteOffset));
@@ -21,6 +21,7 @@ import java.nio.ByteOrder;
 import java.nio.DoubleBuffer;
 import java.util.Iterator;
 import java.util.PrimitiveIterator.OfDouble;
+import java.util.Spliterator;
 import java.util.stream.Stream;
 
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
@@ -50,6 +51,11 @@ public abstract class AbstractNativeDoubleAdapter extends AbstractNativeFloating
         return new BufferToIteratorUtil.DoubleBufferToDoubleIterator(asDoubleBuffer(buf));
     }
 
+    @Override
+    public final Spliterator.OfDouble asDoubleSpliterator(final ByteBuffer buf) {
+        return new BufferToSpliteratorUtil.DoubleBufferToDoubleSpliterator(asDoubleBuffer(buf));
+    }
+
     @Override
     public final Iterator<?> asIterator(final ByteBuffer buf) {
         return asDoubleIterator(buf);
@@ -21,7 +21,9 @@ import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.Iterator;
+import java.util.PrimitiveIterator.OfDouble;
 import java.util.PrimitiveIterator.OfInt;
+import java.util.Spliterator;
 
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
@@ -51,6 +53,22 @@ public abstract class AbstractNativeFloatAdapter extends AbstractNativeFloatingP
         return new BufferToIteratorUtil.IntBufferToIntIterator(intBuffer);
     }
 
+    @Override
+    public final Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+        final IntBuffer intBuffer = buf.order(byteOrder).asIntBuffer();
+        return new BufferToSpliteratorUtil.IntBufferToIntSpliterator(intBuffer);
+    }
+
+    @Override
+    public final OfDouble asDoubleIterator(final ByteBuffer buf) {
+        return new BufferToIteratorUtil.FloatBufferToDoubleIterator(asFloatBuffer(buf));
+    }
+
+    @Override
+    public final Spliterator.OfDouble asDoubleSpliterator(final ByteBuffer buf) {
+        return new BufferToSpliteratorUtil.FloatBufferToDoubleSpliterator(asFloatBuffer(buf));
+    }
+
     @Override
     public final Iterator<?> asIterator(final ByteBuffer buf) {
         final FloatBuffer floatBuffer = buf.order(byteOrder).asFloatBuffer();
@@ -22,6 +22,7 @@ import java.nio.IntBuffer;
 import java.util.Iterator;
 import java.util.PrimitiveIterator.OfInt;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.Spliterator;
 
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
@@ -45,6 +46,12 @@ public abstract class AbstractNativeIntAdapter extends AbstractNativeFixedPointN
         return new BufferToIteratorUtil.IntBufferToIntIterator(intBuffer);
     }
 
+    @Override
+    public final Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+        final IntBuffer intBuffer = asIntBuffer(buf);
+        return new BufferToSpliteratorUtil.IntBufferToIntSpliterator(intBuffer);
+    }
+
     public static final class NativeIntBEAdapter extends AbstractNativeIntAdapter {
         public NativeIntBEAdapter(final HDF5FixedPointNumber datatype) {
             super(datatype);
@@ -66,6 +73,12 @@ public abstract class AbstractNativeIntAdapter extends AbstractNativeFixedPointN
             return new BufferToIteratorUtil.IntBufferToLongIterator(intBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final IntBuffer intBuffer = asIntBuffer(buf);
+            return new BufferToSpliteratorUtil.IntBufferToLongSpliterator(intBuffer);
+        }
+
         @Override
         public Iterator<?> asIterator(final ByteBuffer buf) {
             return asIntIterator(buf);
@@ -104,6 +117,12 @@ public abstract class AbstractNativeIntAdapter extends AbstractNativeFixedPointN
             return new BufferToIteratorUtil.IntBufferToLongIterator(intBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final IntBuffer intBuffer = asIntBuffer(buf);
+            return new BufferToSpliteratorUtil.IntBufferToLongSpliterator(intBuffer);
+        }
+
         @Override
         public Iterator<?> asIterator(final ByteBuffer buf) {
             return asIntIterator(buf);
@@ -143,6 +162,12 @@ public abstract class AbstractNativeIntAdapter extends AbstractNativeFixedPointN
             return new BufferToIteratorUtil.UIntBufferToLongIterator(intBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final IntBuffer intBuffer = asIntBuffer(buf);
+            return new BufferToSpliteratorUtil.UIntBufferToLongSpliterator(intBuffer);
+        }
+
         @Override
         public Iterator<?> asIterator(final ByteBuffer buf) {
             return asLongIterator(buf);
@@ -182,6 +207,12 @@ public abstract class AbstractNativeIntAdapter extends AbstractNativeFixedPointN
             return new BufferToIteratorUtil.UIntBufferToLongIterator(intBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final IntBuffer intBuffer = asIntBuffer(buf);
+            return new BufferToSpliteratorUtil.UIntBufferToLongSpliterator(intBuffer);
+        }
+
         @Override
         public Iterator<?> asIterator(final ByteBuffer buf) {
             return asLongIterator(buf);
@@ -22,6 +22,7 @@ import java.nio.ByteOrder;
 import java.nio.LongBuffer;
 import java.util.Iterator;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.Spliterator;
 
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
@@ -45,6 +46,12 @@ public abstract class AbstractNativeLongAdapter extends AbstractNativeFixedPoint
         return new BufferToIteratorUtil.LongBufferToLongIterator(intBuffer);
     }
 
+    @Override
+    public final Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+        final LongBuffer intBuffer = asLongBuffer(buf);
+        return new BufferToSpliteratorUtil.LongBufferToLongSpliterator(intBuffer);
+    }
+
     public static final class NativeLongBEAdapter extends AbstractNativeLongAdapter {
         public NativeLongBEAdapter(final HDF5FixedPointNumber datatype) {
             super(datatype);
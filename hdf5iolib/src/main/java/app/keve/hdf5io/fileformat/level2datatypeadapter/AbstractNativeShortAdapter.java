@@ -22,6 +22,7 @@ import java.nio.ShortBuffer;
 import java.util.Iterator;
 import java.util.PrimitiveIterator.OfInt;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.Spliterator;
 
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
@@ -65,12 +66,24 @@ public abstract class AbstractNativeShortAdapter extends AbstractNativeFixedPoin
             return new BufferToIteratorUtil.ShortBufferToIntIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.ShortBufferToIntSpliterator(shortBuffer);
+        }
+
         @Override
         public OfLong asLongIterator(final ByteBuffer buf) {
             final ShortBuffer shortBuffer = asShortBuffer(buf);
             return new BufferToIteratorUtil.ShortBufferToLongIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.ShortBufferToLongSpliterator(shortBuffer);
+        }
+
         @Override
         public String toString() {
             return "FixedPointNumber:NativeShortBE";
@@ -105,12 +118,24 @@ public abstract class AbstractNativeShortAdapter extends AbstractNativeFixedPoin
             return new BufferToIteratorUtil.ShortBufferToIntIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.ShortBufferToIntSpliterator(shortBuffer);
+        }
+
         @Override
         public OfLong asLongIterator(final ByteBuffer buf) {
             final ShortBuffer shortBuffer = asShortBuffer(buf);
             return new BufferToIteratorUtil.ShortBufferToLongIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.ShortBufferToLongSpliterator(shortBuffer);
+        }
+
         @Override
         public String toString() {
             return "FixedPointNumber:NativeShortLE";
@@ -145,12 +170,24 @@ public abstract class AbstractNativeShortAdapter extends AbstractNativeFixedPoin
             return new BufferToIteratorUtil.UShortBufferToIntIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.UShortBufferToIntSpliterator(shortBuffer);
+        }
+
         @Override
         public OfLong asLongIterator(final ByteBuffer buf) {
             final ShortBuffer shortBuffer = asShortBuffer(buf);
             return new BufferToIteratorUtil.UShortBufferToLongIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.UShortBufferToLongSpliterator(shortBuffer);
+        }
+
         @Override
         public String toString() {
             return "FixedPointNumber:NativeUShortBE";
@@ -185,12 +222,24 @@ public abstract class AbstractNativeShortAdapter extends AbstractNativeFixedPoin
             return new BufferToIteratorUtil.UShortBufferToIntIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfInt asIntSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.UShortBufferToIntSpliterator(shortBuffer);
+        }
+
         @Override
         public OfLong asLongIterator(final ByteBuffer buf) {
             final ShortBuffer shortBuffer = asShortBuffer(buf);
             return new BufferToIteratorUtil.UShortBufferToLongIterator(shortBuffer);
         }
 
+        @Override
+        public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+            final ShortBuffer shortBuffer = asShortBuffer(buf);
+            return new BufferToSpliteratorUtil.UShortBufferToLongSpliterator(shortBuffer);
+        }
+
         @Override
         public String toString() {
             return "FixedPointNumber:NativeUShortLE";
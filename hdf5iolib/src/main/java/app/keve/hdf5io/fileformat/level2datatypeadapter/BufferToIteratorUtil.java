@@ -229,6 +229,19 @@ public final class BufferToIteratorUtil {
         }
     }
 
+    public static final class FloatBufferToDoubleIterator extends AbstractBufferToIterator<FloatBuffer, Double>
+            implements PrimitiveIterator.OfDouble {
+
+        public FloatBufferToDoubleIterator(final FloatBuffer floatBuffer) {
+            super(floatBuffer);
+        }
+
+        @Override
+        public double nextDouble() {
+            return buffer.get();
+        }
+    }
+
     public static final class DoubleBufferToDoubleIterator extends AbstractBufferToIterator<DoubleBuffer, Double>
             implements PrimitiveIterator.OfDouble {
 
@@ -0,0 +1,608 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Primitive spliterators over the elements between the position and the limit
+ * of a buffer. The elements are read by absolute index, so the buffer is not
+ * consumed and the halves of a split can be traversed concurrently. The
+ * spliterators split by index range and know their exact size.
+ * 
+ * @author keve
+ *
+ */
+public final class BufferToSpliteratorUtil {
+    private abstract static class AbstractBufferSpliterator<B extends Buffer> {
+        protected final B buffer;
+        protected int index;
+        protected final int fence;
+
+        AbstractBufferSpliterator(final B buffer, final int index, final int fence) {
+            this.buffer = buffer;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        /**
+         * Move the start of this spliterator to the middle of its range.
+         * 
+         * @return the new start, or the old one if the range is too small to split
+         */
+        protected final int split() {
+            final int mid = index + fence >>> 1;
+            if (index < mid) {
+                index = mid;
+            }
+            return index;
+        }
+
+        public final long estimateSize() {
+            return fence - index;
+        }
+
+        public final int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.IMMUTABLE
+                    | Spliterator.NONNULL;
+        }
+    }
+
+    public static final class ByteBufferToIntSpliterator extends AbstractBufferSpliterator<ByteBuffer>
+            implements Spliterator.OfInt {
+
+        public ByteBufferToIntSpliterator(final ByteBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private ByteBufferToIntSpliterator(final ByteBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new ByteBufferToIntSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class ByteBufferToLongSpliterator extends AbstractBufferSpliterator<ByteBuffer>
+            implements Spliterator.OfLong {
+
+        public ByteBufferToLongSpliterator(final ByteBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private ByteBufferToLongSpliterator(final ByteBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new ByteBufferToLongSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class UByteBufferToIntSpliterator extends AbstractBufferSpliterator<ByteBuffer>
+            implements Spliterator.OfInt {
+
+        public UByteBufferToIntSpliterator(final ByteBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private UByteBufferToIntSpliterator(final ByteBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new UByteBufferToIntSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(Byte.toUnsignedInt(buffer.get(i)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(Byte.toUnsignedInt(buffer.get(i)));
+            }
+            index = to;
+        }
+    }
+
+    public static final class UByteBufferToLongSpliterator extends AbstractBufferSpliterator<ByteBuffer>
+            implements Spliterator.OfLong {
+
+        public UByteBufferToLongSpliterator(final ByteBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private UByteBufferToLongSpliterator(final ByteBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new UByteBufferToLongSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(Byte.toUnsignedLong(buffer.get(i)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(Byte.toUnsignedLong(buffer.get(i)));
+            }
+            index = to;
+        }
+    }
+
+    public static final class ShortBufferToIntSpliterator extends AbstractBufferSpliterator<ShortBuffer>
+            implements Spliterator.OfInt {
+
+        public ShortBufferToIntSpliterator(final ShortBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private ShortBufferToIntSpliterator(final ShortBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new ShortBufferToIntSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class ShortBufferToLongSpliterator extends AbstractBufferSpliterator<ShortBuffer>
+            implements Spliterator.OfLong {
+
+        public ShortBufferToLongSpliterator(final ShortBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private ShortBufferToLongSpliterator(final ShortBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new ShortBufferToLongSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class UShortBufferToIntSpliterator extends AbstractBufferSpliterator<ShortBuffer>
+            implements Spliterator.OfInt {
+
+        public UShortBufferToIntSpliterator(final ShortBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private UShortBufferToIntSpliterator(final ShortBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new UShortBufferToIntSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(Short.toUnsignedInt(buffer.get(i)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(Short.toUnsignedInt(buffer.get(i)));
+            }
+            index = to;
+        }
+    }
+
+    public static final class UShortBufferToLongSpliterator extends AbstractBufferSpliterator<ShortBuffer>
+            implements Spliterator.OfLong {
+
+        public UShortBufferToLongSpliterator(final ShortBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private UShortBufferToLongSpliterator(final ShortBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new UShortBufferToLongSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(Short.toUnsignedLong(buffer.get(i)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(Short.toUnsignedLong(buffer.get(i)));
+            }
+            index = to;
+        }
+    }
+
+    public static final class IntBufferToIntSpliterator extends AbstractBufferSpliterator<IntBuffer>
+            implements Spliterator.OfInt {
+
+        public IntBufferToIntSpliterator(final IntBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private IntBufferToIntSpliterator(final IntBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new IntBufferToIntSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final IntConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final IntConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class IntBufferToLongSpliterator extends AbstractBufferSpliterator<IntBuffer>
+            implements Spliterator.OfLong {
+
+        public IntBufferToLongSpliterator(final IntBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private IntBufferToLongSpliterator(final IntBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new IntBufferToLongSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class UIntBufferToLongSpliterator extends AbstractBufferSpliterator<IntBuffer>
+            implements Spliterator.OfLong {
+
+        public UIntBufferToLongSpliterator(final IntBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private UIntBufferToLongSpliterator(final IntBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new UIntBufferToLongSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(Integer.toUnsignedLong(buffer.get(i)));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(Integer.toUnsignedLong(buffer.get(i)));
+            }
+            index = to;
+        }
+    }
+
+    public static final class LongBufferToLongSpliterator extends AbstractBufferSpliterator<LongBuffer>
+            implements Spliterator.OfLong {
+
+        public LongBufferToLongSpliterator(final LongBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private LongBufferToLongSpliterator(final LongBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new LongBufferToLongSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final LongConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final LongConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class FloatBufferToDoubleSpliterator extends AbstractBufferSpliterator<FloatBuffer>
+            implements Spliterator.OfDouble {
+
+        public FloatBufferToDoubleSpliterator(final FloatBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private FloatBufferToDoubleSpliterator(final FloatBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new FloatBufferToDoubleSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final DoubleConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final DoubleConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    public static final class DoubleBufferToDoubleSpliterator extends AbstractBufferSpliterator<DoubleBuffer>
+            implements Spliterator.OfDouble {
+
+        public DoubleBufferToDoubleSpliterator(final DoubleBuffer buffer) {
+            this(buffer, buffer.position(), buffer.limit());
+        }
+
+        private DoubleBufferToDoubleSpliterator(final DoubleBuffer buffer, final int index, final int fence) {
+            super(buffer, index, fence);
+        }
+
+        @Override
+        public Spliterator.OfDouble trySplit() {
+            final int lo = index;
+            final int mid = split();
+            return lo < mid ? new DoubleBufferToDoubleSpliterator(buffer, lo, mid) : null;
+        }
+
+        @Override
+        public boolean tryAdvance(final DoubleConsumer action) {
+            if (index >= fence) {
+                return false;
+            }
+            final int i = index++;
+            action.accept(buffer.get(i));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(final DoubleConsumer action) {
+            final int to = fence;
+            for (int i = index; i < to; i++) {
+                action.accept(buffer.get(i));
+            }
+            index = to;
+        }
+    }
+
+    private BufferToSpliteratorUtil() {
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A lazy view of the bytes of a string. Strings of ASCII characters are read
+ * from the bytes without decoding, others are decoded on the first read.
+ */
+final class ByteCharSequence implements CharSequence {
+    /** Marks the bytes read as ASCII, compared by identity. */
+    private static final String ASCII = new String();
+
+    private final ByteBuffer bytes;
+    private final Charset charset;
+    /**
+     * The decoded string, {@link #ASCII} if the bytes are read as ASCII, or null
+     * before the first read. The string is immutable, so it is safe to publish
+     * without synchronization; racing threads compute the same value.
+     */
+    private String decoded;
+
+    ByteCharSequence(final ByteBuffer bytes, final Charset charset) {
+        this.bytes = bytes.slice();
+        this.charset = charset;
+    }
+
+    private String decoded() {
+        String s = decoded;
+        if (null == s) {
+            s = StringDecoder.isAscii(bytes, charset) ? ASCII : StringDecoder.decodeSingle(bytes, charset, null);
+            decoded = s;
+        }
+        return s;
+    }
+
+    @Override
+    public int length() {
+        final String s = decoded();
+        return ASCII == s ? bytes.limit() : s.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        final String s = decoded();
+        if (ASCII != s) {
+            return s.charAt(index);
+        }
+        if (index < 0 || index >= bytes.limit()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) bytes.get(index);
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        final String s = decoded();
+        if (ASCII != s) {
+            return s.subSequence(start, end);
+        }
+        if (start < 0 || start > end || end > bytes.limit()) {
+            throw new IndexOutOfBoundsException(start);
+        }
+        return new ByteCharSequence(bytes.duplicate().position(start).limit(end), charset);
+    }
+
+    @Override
+    public String toString() {
+        final String s = decoded();
+        return ASCII == s ? StringDecoder.asciiString(bytes) : s;
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import app.keve.hdf5io.api.HDF5DatatypeAdapter;
+import app.keve.hdf5io.api.datatype.HDF5Compound;
+import app.keve.hdf5io.api.datatype.HDF5Compound.Member;
+import app.keve.hdf5io.api.datatype.HDF5Datatype;
+import app.keve.hdf5io.api.datatype.HDF5FixedPointNumber;
+import app.keve.hdf5io.api.datatype.HDF5FloatingPointNumber;
+
+/**
+ * Binding of the records of a compound datatype to instances of a Java class.
+ * The members are matched by name to the components of a record class, or to
+ * the fields declared by a class with a no argument constructor. Members
+ * without a match are skipped.
+ *
+ * <p>
+ * The method handles reading and writing the members are composed once per
+ * compound datatype and class, and kept by the adapter of the datatype, see
+ * {@link GenericCompoundToMapAdapter#recordBinding(Class)}. So the numeric
+ * members are read straight from the buffer into the instance, without a map
+ * per record and without boxing. As the bindings are kept with the file of
+ * their datatype, they do not keep a closed file reachable.
+ *
+ * @param <T> the bound class
+ */
+public final class CompoundRecordBinding<T> {
+    private static final MethodType DECODER = MethodType.methodType(Object.class, ByteBuffer.class, int.class);
+    private static final MethodType ENCODER = MethodType.methodType(void.class, Object.class, ByteBuffer.class,
+            int.class);
+    private static final MethodHandle SUM;
+    private static final MethodHandle AS_SCALAR_OBJECT;
+    private static final MethodHandle FROM_SCALAR_OBJECT;
+    private static final MethodHandle GET_BYTE;
+    private static final MethodHandle PUT_BYTE;
+    private static final MethodHandle TO_STRING;
+
+    static {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            SUM = lookup.findStatic(Integer.class, "sum",
+                    MethodType.methodType(int.class, int.class, int.class));
+            AS_SCALAR_OBJECT = lookup.findVirtual(HDF5DatatypeAdapter.class, "asScalarObject", DECODER);
+            FROM_SCALAR_OBJECT = lookup.findVirtual(HDF5DatatypeAdapter.class, "fromScalarObject", MethodType
+                    .methodType(ByteBuffer.class, ByteBuffer.class, int.class, Object.class));
+            GET_BYTE = lookup.findVirtual(ByteBuffer.class, "get", MethodType.methodType(byte.class, int.class));
+            PUT_BYTE = lookup.findVirtual(ByteBuffer.class, "put",
+                    MethodType.methodType(ByteBuffer.class, int.class, byte.class));
+            TO_STRING = lookup.findStatic(String.class, "valueOf", MethodType.methodType(String.class, Object.class));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Class<T> type;
+    private final int elementSize;
+    /** (ByteBuffer, int) Object. */
+    private final MethodHandle decoder;
+    /** (Object, ByteBuffer, int) void. */
+    private final MethodHandle encoder;
+
+    private CompoundRecordBinding(final HDF5Compound datatype, final Class<T> type) {
+        this.type = type;
+        this.elementSize = datatype.getElementSize();
+        final MethodHandles.Lookup lookup = lookup(type);
+        final Object[] components = recordComponents(type);
+        try {
+            if (null == components) {
+                final Constructor<T> constructor = type.getDeclaredConstructor();
+                MethodHandle setters = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1,
+                        ByteBuffer.class, int.class);
+                MethodHandle getters = MethodHandles.empty(ENCODER);
+                for (final Field field : type.getDeclaredFields()) {
+                    final Member member = member(datatype, field.getName());
+                    if (null == member || 0 != (field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT))) {
+                        continue;
+                    }
+                    final MethodHandle setter = lookup.unreflectSetter(field);
+                    setters = MethodHandles.foldArguments(setters, MethodHandles
+                            .collectArguments(setter, 1, reader(member, field.getType())).asType(ENCODER));
+                    getters = MethodHandles.foldArguments(getters, encoder(member, lookup.unreflectGetter(field)));
+                }
+                this.decoder = MethodHandles.foldArguments(setters, MethodHandles.dropArguments(
+                        lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class)), 0,
+                        ByteBuffer.class, int.class));
+                this.encoder = getters;
+            } else {
+                final Class<?>[] componentTypes = new Class<?>[components.length];
+                final MethodHandle[] readers = new MethodHandle[components.length];
+                final int[] reorder = new int[2 * components.length];
+                MethodHandle getters = MethodHandles.empty(ENCODER);
+                for (int i = 0; i < components.length; i++) {
+                    final Method accessor = (Method) invoke(components[i], "getAccessor");
+                    componentTypes[i] = accessor.getReturnType();
+                    final Member member = member(datatype, accessor.getName());
+                    readers[i] = null == member ? defaultReader(componentTypes[i])
+                            : reader(member, componentTypes[i]);
+                    reorder[2 * i + 1] = 1;
+                    if (null != member) {
+                        getters = MethodHandles.foldArguments(getters, encoder(member, lookup.unreflect(accessor)));
+                    }
+                }
+                final MethodHandle constructor = lookup
+                        .unreflectConstructor(type.getDeclaredConstructor(componentTypes));
+                MethodHandle filtered = constructor;
+                for (int i = readers.length - 1; i >= 0; i--) {
+                    filtered = MethodHandles.collectArguments(filtered, i, readers[i]);
+                }
+                this.decoder = MethodHandles.permuteArguments(
+                        filtered.asType(filtered.type().changeReturnType(Object.class)), DECODER, reorder);
+                this.encoder = getters;
+            }
+        } catch (final NoSuchMethodException | IllegalAccessException | WrongMethodTypeException e) {
+            throw new IllegalArgumentException("Cannot bind " + datatype + " to " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Compose the binding of a compound datatype to a class.
+     *
+     * @param <T>      the bound class
+     * @param datatype the compound datatype
+     * @param type     the class
+     * @return the binding
+     */
+    public static <T> CompoundRecordBinding<T> of(final HDF5Compound datatype, final Class<T> type) {
+        return new CompoundRecordBinding<>(datatype, type);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public int getElementSize() {
+        return elementSize;
+    }
+
+    /**
+     * Read a record into a new instance.
+     *
+     * @param buf        the buffer
+     * @param byteOffset the absolute offset of the record in the buffer
+     * @return the instance
+     */
+    @SuppressWarnings("checkstyle:illegalcatch")
+    public T decode(final ByteBuffer buf, final int byteOffset) {
+        try {
+            return type.cast((Object) decoder.invokeExact(buf, byteOffset));
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write an instance as a record. Members without a match in the class are
+     * left as they are.
+     *
+     * @param buf        the buffer
+     * @param byteOffset the absolute offset of the record in the buffer
+     * @param value      the instance
+     * @return the buffer
+     */
+    @SuppressWarnings("checkstyle:illegalcatch")
+    public ByteBuffer encode(final ByteBuffer buf, final int byteOffset, final Object value) {
+        try {
+            final Object instance = type.cast(value);
+            encoder.invokeExact(instance, buf, byteOffset);
+            return buf;
+        } catch (final RuntimeException | Error e) {
+            throw e;
+        } catch (final Throwable e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static Member member(final HDF5Compound datatype, final String name) {
+        for (final Member member : datatype.getMembers()) {
+            if (member.getName().equals(name)) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The reader of a member as a value of the field type.
+     *
+     * @param member    the member
+     * @param fieldType the type of the field
+     * @return (ByteBuffer, int) fieldType
+     */
+    private static MethodHandle reader(final Member member, final Class<?> fieldType) {
+        final HDF5Datatype memberType = member.getMemberType();
+        MethodHandle reader = numericAccess(memberType, false);
+        if (null == reader) {
+            reader = AS_SCALAR_OBJECT.bindTo(memberType.adapter());
+            if (String.class == fieldType) {
+                reader = MethodHandles.filterReturnValue(reader, TO_STRING);
+            }
+        } else if (memberType instanceof HDF5FixedPointNumber && !((HDF5FixedPointNumber) memberType).isSigned()
+                && reader.type().returnType() != unbox(fieldType)) {
+            // widened to keep the unsigned value
+            reader = MethodHandles.filterReturnValue(reader, unsigned(reader.type().returnType()));
+        }
+        return MethodHandles.filterArguments(reader.asType(reader.type().changeReturnType(fieldType)), 1,
+                MethodHandles.insertArguments(SUM, 1, member.getByteOffset()));
+    }
+
+    private static MethodHandle defaultReader(final Class<?> fieldType) {
+        return MethodHandles.dropArguments(MethodHandles.zero(fieldType), 0, ByteBuffer.class, int.class);
+    }
+
+    /**
+     * The writer of a member from the value of a getter.
+     *
+     * @param member the member
+     * @param getter (T) fieldType
+     * @return (Object, ByteBuffer, int) void
+     */
+    private static MethodHandle encoder(final Member member, final MethodHandle getter) {
+        final HDF5Datatype memberType = member.getMemberType();
+        MethodHandle writer = numericAccess(memberType, true);
+        if (null == writer) {
+            writer = dropReturn(FROM_SCALAR_OBJECT.bindTo(memberType.adapter()));
+        }
+        writer = MethodHandles.explicitCastArguments(writer,
+                writer.type().changeParameterType(2, getter.type().returnType()));
+        writer = MethodHandles.filterArguments(writer, 1,
+                MethodHandles.insertArguments(SUM, 1, member.getByteOffset()));
+        writer = MethodHandles.filterArguments(writer, 2, getter);
+        return MethodHandles.permuteArguments(writer, ENCODER.changeParameterType(0, getter.type().parameterType(0)),
+                1, 2, 0).asType(ENCODER);
+    }
+
+    /**
+     * The buffer access of the numeric types with a native layout.
+     *
+     * @param datatype the member datatype
+     * @param write    whether the setter is wanted
+     * @return (ByteBuffer, int) primitive, (ByteBuffer, int, primitive) void or
+     *         null
+     */
+    private static MethodHandle numericAccess(final HDF5Datatype datatype, final boolean write) {
+        final int size = datatype.getElementSize();
+        final ByteOrder order;
+        final Class<?> primitive;
+        if (datatype instanceof HDF5FixedPointNumber) {
+            final HDF5FixedPointNumber fixed = (HDF5FixedPointNumber) datatype;
+            if (0 != fixed.getBitOffset() || 8 * size != fixed.getBitPrecision()) {
+                return null;
+            }
+            order = fixed.getByteOrder().getByteOrder();
+            primitive = 1 == size ? byte.class : 2 == size ? short.class : 4 == size ? int.class : long.class;
+        } else if (datatype instanceof HDF5FloatingPointNumber) {
+            final HDF5FloatingPointNumber floating = (HDF5FloatingPointNumber) datatype;
+            if (0 != floating.getBitOffset() || 8 * size != floating.getBitPrecision()) {
+                return null;
+            }
+            order = floating.getByteOrder().getByteOrder();
+            primitive = 4 == size ? float.class : double.class;
+        } else {
+            return null;
+        }
+        if (null == order || 3 == size || size > 8 || datatype instanceof HDF5FloatingPointNumber && size < 4) {
+            return null;
+        }
+        if (1 == size) {
+            return write ? dropReturn(PUT_BYTE) : GET_BYTE;
+        }
+        final VarHandle view = MethodHandles.byteBufferViewVarHandle(Array.newInstance(primitive, 0).getClass(),
+                order);
+        return view.toMethodHandle(write ? VarHandle.AccessMode.SET : VarHandle.AccessMode.GET);
+    }
+
+    private static MethodHandle dropReturn(final MethodHandle target) {
+        return MethodHandles.filterReturnValue(target,
+                MethodHandles.empty(MethodType.methodType(void.class, target.type().returnType())));
+    }
+
+    private static Class<?> unbox(final Class<?> fieldType) {
+        return MethodType.methodType(fieldType).unwrap().returnType();
+    }
+
+    private static MethodHandle unsigned(final Class<?> primitive) {
+        try {
+            if (long.class == primitive) {
+                return MethodHandles.identity(long.class);
+            }
+            final Class<?> box = MethodType.methodType(primitive).wrap().returnType();
+            return MethodHandles.lookup().findStatic(box, int.class == primitive ? "toUnsignedLong" : "toUnsignedInt",
+                    MethodType.methodType(int.class == primitive ? long.class : int.class, primitive));
+        } catch (final NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(final Class<?> type) {
+        final Module module = CompoundRecordBinding.class.getModule();
+        module.addReads(type.getModule());
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (final IllegalAccessException e) {
+            // the package is not open, bind the public members only
+            return MethodHandles.publicLookup();
+        }
+    }
+
+    /**
+     * The record components of the class, where the runtime has records.
+     *
+     * @param type the class
+     * @return the components, or null if not a record class
+     */
+    private static Object[] recordComponents(final Class<?> type) {
+        try {
+            return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+        } catch (final NoSuchMethodException e) {
+            return null;
+        } catch (final IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Object invoke(final Object target, final String method) {
+        try {
+            return target.getClass().getMethod(method).invoke(target);
+        } catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
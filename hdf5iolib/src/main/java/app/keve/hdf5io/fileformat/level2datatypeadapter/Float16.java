@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+/**
+ * Codecs of the 16 bit floating point numbers, IEEE half precision and
+ * bfloat16. Half precision is decoded through tables indexed by the exponent
+ * and the mantissa, without branches. Both are encoded rounding to nearest
+ * even.
+ */
+final class Float16 {
+    private static final int[] HALF_MANTISSA = new int[2048];
+    private static final int[] HALF_EXPONENT = new int[64];
+    private static final int[] HALF_OFFSET = new int[64];
+
+    static {
+        for (int i = 1; i < 1024; i++) {
+            // the subnormal half values are normal floats
+            int m = i << 13;
+            int e = 0;
+            while (0 == (m & 0x0080_0000)) {
+                e -= 0x0080_0000;
+                m <<= 1;
+            }
+            HALF_MANTISSA[i] = (m & ~0x0080_0000) | (e + 0x3880_0000);
+        }
+        for (int i = 1024; i < 2048; i++) {
+            HALF_MANTISSA[i] = 0x3800_0000 + ((i - 1024) << 13);
+        }
+        for (int i = 1; i < 31; i++) {
+            HALF_EXPONENT[i] = i << 23;
+            HALF_EXPONENT[32 + i] = 0x8000_0000 + (i << 23);
+        }
+        HALF_EXPONENT[31] = 0x4780_0000;
+        HALF_EXPONENT[32] = 0x8000_0000;
+        HALF_EXPONENT[63] = 0xC780_0000;
+        for (int i = 0; i < 64; i++) {
+            HALF_OFFSET[i] = 0 == (i & 31) ? 0 : 1024;
+        }
+    }
+
+    private Float16() {
+    }
+
+    static float halfToFloat(final int half) {
+        final int e = (half >> 10) & 0x3F;
+        return Float.intBitsToFloat(HALF_MANTISSA[HALF_OFFSET[e] + (half & 0x3FF)] + HALF_EXPONENT[e]);
+    }
+
+    static short floatToHalf(final float value, final boolean saturate) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int sign = (bits >>> 16) & 0x8000;
+        final int abs = bits & 0x7FFF_FFFF;
+        if (abs > 0x7F80_0000) {
+            // NaN, kept quiet with the high bits of its payload
+            return (short) (sign | 0x7E00 | (abs >>> 13) & 0x3FF);
+        } else if (abs >= 0x477F_F000) {
+            // at least half way from the largest half to the next power of two
+            return (short) (sign | (saturate && abs < 0x7F80_0000 ? 0x7BFF : 0x7C00));
+        } else if (abs >= 0x3880_0000) {
+            final int half = (abs - 0x3800_0000) >>> 13;
+            return (short) (sign | roundHalfEven(half, abs & 0x1FFF, 0x1000));
+        } else if (abs <= 0x3300_0000) {
+            // at most half of the smallest subnormal half
+            return (short) sign;
+        }
+        final int shift = 126 - (abs >>> 23);
+        final int m = (abs & 0x007F_FFFF) | 0x0080_0000;
+        return (short) (sign | roundHalfEven(m >>> shift, m & ((1 << shift) - 1), 1 << (shift - 1)));
+    }
+
+    private static int roundHalfEven(final int value, final int remainder, final int halfway) {
+        return remainder > halfway || remainder == halfway && 1 == (value & 1) ? value + 1 : value;
+    }
+
+    static float bfloat16ToFloat(final int bfloat16) {
+        return Float.intBitsToFloat(bfloat16 << 16);
+    }
+
+    static short floatToBfloat16(final float value, final boolean saturate) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int abs = bits & 0x7FFF_FFFF;
+        if (abs > 0x7F80_0000) {
+            return (short) ((bits >>> 16) | 0x40);
+        }
+        final int rounded = (bits + 0x7FFF + ((bits >>> 16) & 1)) >>> 16;
+        if (saturate && abs < 0x7F80_0000 && 0x7F80 == (rounded & 0x7FFF)) {
+            return (short) (rounded - 1);
+        }
+        return (short) rounded;
+    }
+}
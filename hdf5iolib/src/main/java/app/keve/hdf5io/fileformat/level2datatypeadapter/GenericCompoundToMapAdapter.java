@@ -17,10 +17,16 @@ package app.keve.hdf5io.fileformat.level2datatypeadapter;
 
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.datatype.HDF5Compound;
@@ -30,6 +36,7 @@ public final class GenericCompoundToMapAdapter extends AbstractDatatypeAdapter<H
     private final int elementSize;
     private final List<Member> members;
     private final HDF5DatatypeAdapter[] memberTypeAdapter;
+    private final Map<Class<?>, CompoundRecordBinding<?>> recordBindings;
 
     public GenericCompoundToMapAdapter(final HDF5Compound datatype) {
         super(datatype);
@@ -39,6 +46,21 @@ public final class GenericCompoundToMapAdapter extends AbstractDatatypeAdapter<H
         for (int i = 0; i < memberTypeAdapter.length; i++) {
             memberTypeAdapter[i] = members.get(i).getMemberType().adapter();
         }
+        this.recordBindings = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Get the binding of the records to a class, composed on the first use and
+     * kept with this adapter, which the file caches for its datatype.
+     * 
+     * @param <T>  the bound class
+     * @param type the class
+     * @return the binding
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompoundRecordBinding<T> recordBinding(final Class<T> type) {
+        return (CompoundRecordBinding<T>) recordBindings.computeIfAbsent(type,
+                t -> CompoundRecordBinding.of(datatype, t));
     }
 
     @Override
@@ -46,6 +68,69 @@ public final class GenericCompoundToMapAdapter extends AbstractDatatypeAdapter<H
         return toMap(byteOffset, buf);
     }
 
+    /**
+     * Write the members of a map, members missing from the map are left as they
+     * are. Other objects are written through the {@link CompoundRecordBinding} of
+     * their class.
+     */
+    @Override
+    public ByteBuffer fromScalarObject(final ByteBuffer buf, final int byteOffset, final Object value) {
+        if (!(value instanceof Map)) {
+            return recordBinding(value.getClass()).encode(buf, byteOffset, value);
+        }
+        final Map<?, ?> map = (Map<?, ?>) value;
+        for (int i = 0; i < members.size(); i++) {
+            final Object v = map.get(members.get(i).getName());
+            if (null != v) {
+                fromMember(i, buf, byteOffset + members.get(i).getByteOffset(), v);
+            }
+        }
+        return buf;
+    }
+
+    private void fromMember(final int i, final ByteBuffer buf, final int byteOffset, final Object value) {
+        final ByteBuffer memberBuf = buf.duplicate().position(byteOffset)
+                .limit(byteOffset + members.get(i).getMemberType().getElementSize()).slice();
+        final HDF5DatatypeAdapter memberAdapter = memberTypeAdapter[i];
+        // the typed views of the native number types write through
+        final DoubleBuffer doubles = memberAdapter.asDoubleBuffer(memberBuf.duplicate());
+        if (null != doubles) {
+            doubles.put(0, ((Number) value).doubleValue());
+            return;
+        }
+        final FloatBuffer floats = memberAdapter.asFloatBuffer(memberBuf.duplicate());
+        if (null != floats) {
+            floats.put(0, ((Number) value).floatValue());
+            return;
+        }
+        final LongBuffer longs = memberAdapter.asLongBuffer(memberBuf.duplicate());
+        if (null != longs) {
+            longs.put(0, ((Number) value).longValue());
+            return;
+        }
+        final IntBuffer ints = memberAdapter.asIntBuffer(memberBuf.duplicate());
+        if (null != ints) {
+            ints.put(0, ((Number) value).intValue());
+            return;
+        }
+        final ShortBuffer shorts = memberAdapter.asShortBuffer(memberBuf.duplicate());
+        if (null != shorts) {
+            shorts.put(0, ((Number) value).shortValue());
+            return;
+        }
+        memberAdapter.fromScalarObject(memberBuf, 0, value);
+    }
+
+    @Override
+    public ByteBuffer fromIterator(final ByteBuffer buf, final Iterator<?> value) {
+        int offset = buf.position();
+        while (value.hasNext()) {
+            fromScalarObject(buf, offset, value.next());
+            offset += elementSize;
+        }
+        return buf;
+    }
+
     @Override
     public Type getJavaType() {
         return Map.class;
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Iterator;
+import java.util.PrimitiveIterator.OfDouble;
+import java.util.PrimitiveIterator.OfInt;
+import java.util.PrimitiveIterator.OfLong;
+
+import app.keve.hdf5io.api.HDF5Dataset.Narrowing;
+import app.keve.hdf5io.api.datatype.HDF5Datatype;
+import app.keve.hdf5io.api.util.NDArray;
+
+/**
+ * Adapter of the fixed and floating point numbers without a Java buffer view:
+ * the 16 bit floating point numbers, the 24 bit integers and the integers at a
+ * bit offset. The elements are converted by {@link NumericConverter} to float,
+ * int or long, so the buffer views are copies.
+ */
+public final class GenericConvertedNumberAdapter extends AbstractDatatypeAdapter<HDF5Datatype> {
+    private final Class<?> javaType;
+
+    public GenericConvertedNumberAdapter(final HDF5Datatype datatype) {
+        super(datatype);
+        this.javaType = converter().getJavaType();
+    }
+
+    private NumericConverter converter() {
+        // the adapter is shared, a converter is not
+        return NumericConverter.forType(datatype);
+    }
+
+    @Override
+    public Type getJavaType() {
+        return javaType;
+    }
+
+    @Override
+    public Object asScalarObject(final ByteBuffer buf, final int byteOffset) {
+        final Object value = Array.newInstance(javaType, 1);
+        converter().read(buf.duplicate().position(byteOffset).slice(), 0, value, 0, 1, Narrowing.WRAP);
+        return Array.get(value, 0);
+    }
+
+    @Override
+    public ByteBuffer fromScalarObject(final ByteBuffer buf, final int byteOffset, final Object value) {
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException("Cannot convert " + value + " to " + datatype);
+        }
+        final Object array = Float.TYPE == javaType ? new double[] {((Number) value).doubleValue()}
+                : new long[] {((Number) value).longValue()};
+        converter().write(array, 0, buf.duplicate().position(byteOffset).slice(), 0, 1, Narrowing.WRAP);
+        return buf;
+    }
+
+    private Object decode(final ByteBuffer buf, final Class<?> componentType) {
+        final int n = numberOfElements(buf);
+        final Object array = Array.newInstance(componentType, n);
+        converter().read(buf.slice(), 0, array, 0, n, Narrowing.WRAP);
+        return array;
+    }
+
+    @Override
+    public FloatBuffer asFloatBuffer(final ByteBuffer buf) {
+        return Float.TYPE == javaType ? FloatBuffer.wrap((float[]) decode(buf, Float.TYPE)) : null;
+    }
+
+    @Override
+    public IntBuffer asIntBuffer(final ByteBuffer buf) {
+        return Integer.TYPE == javaType ? IntBuffer.wrap((int[]) decode(buf, Integer.TYPE)) : null;
+    }
+
+    @Override
+    public LongBuffer asLongBuffer(final ByteBuffer buf) {
+        return Float.TYPE == javaType ? null : LongBuffer.wrap((long[]) decode(buf, Long.TYPE));
+    }
+
+    @Override
+    public OfInt asIntIterator(final ByteBuffer buf) {
+        final IntBuffer ints = asIntBuffer(buf);
+        return null == ints ? null : new BufferToIteratorUtil.IntBufferToIntIterator(ints);
+    }
+
+    @Override
+    public OfLong asLongIterator(final ByteBuffer buf) {
+        final LongBuffer longs = asLongBuffer(buf);
+        return null == longs ? null : new BufferToIteratorUtil.LongBufferToLongIterator(longs);
+    }
+
+    @Override
+    public OfDouble asDoubleIterator(final ByteBuffer buf) {
+        final FloatBuffer floats = asFloatBuffer(buf);
+        return null == floats ? null : new BufferToIteratorUtil.FloatBufferToDoubleIterator(floats);
+    }
+
+    @Override
+    public Iterator<?> asIterator(final ByteBuffer buf) {
+        if (Float.TYPE == javaType) {
+            return new BufferToIteratorUtil.FloatBufferToFloatIterator(asFloatBuffer(buf));
+        }
+        return Integer.TYPE == javaType ? asIntIterator(buf) : asLongIterator(buf);
+    }
+
+    @Override
+    public Object asObject(final ByteBuffer buf, final int... dim) {
+        if (0 == dim.length) {
+            return asScalarObject(buf, 0);
+        }
+        final NDArray array = NDArray.allocate(javaType, dim);
+        converter().read(buf.slice(), 0, array.array(), 0, array.size(), Narrowing.WRAP);
+        return array.toArray();
+    }
+
+    @Override
+    public ByteBuffer fromObject(final ByteBuffer buf, final Object value) {
+        if (NumericConverter.isNumericArray(value)) {
+            converter().writeRowMajor(value, buf.slice(), 0, Narrowing.WRAP);
+            return buf;
+        }
+        return fromScalarObject(buf, 0, value);
+    }
+
+    @Override
+    public String toString() {
+        return "ConvertedNumber:" + javaType;
+    }
+}
@@ -21,6 +21,7 @@ import java.nio.ByteOrder;
 import java.nio.LongBuffer;
 import java.util.Iterator;
 import java.util.PrimitiveIterator.OfLong;
+import java.util.Spliterator;
 import java.util.function.LongFunction;
 
 import app.keve.hdf5io.api.datatype.HDF5Reference;
@@ -54,6 +55,12 @@ public final class GenericReferenceAdapter extends AbstractDatatypeAdapter<HDF5R
         return new BufferToIteratorUtil.LongBufferToLongIterator(longBuffer);
     }
 
+    @Override
+    public Spliterator.OfLong asLongSpliterator(final ByteBuffer buf) {
+        final LongBuffer longBuffer = asLongBuffer(buf);
+        return new BufferToSpliteratorUtil.LongBufferToLongSpliterator(longBuffer);
+    }
+
     @Override
     public Iterator<?> asIterator(final ByteBuffer buf) {
         final OfLong rawIt = asLongIterator(buf);
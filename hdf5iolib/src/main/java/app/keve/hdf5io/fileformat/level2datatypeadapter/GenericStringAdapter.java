@@ -17,11 +17,16 @@ package app.keve.hdf5io.fileformat.level2datatypeadapter;
 
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
+import app.keve.hdf5io.api.datatype.HDF5Datatype.PaddingType;
 import app.keve.hdf5io.api.datatype.HDF5String;
 
-public final class GenericStringAdapter extends AbstractDatatypeAdapter<HDF5String> {
+public final class GenericStringAdapter extends AbstractDatatypeAdapter<HDF5String> implements StringAdapter {
     private final int elementSize;
 
     public GenericStringAdapter(final HDF5String datatype) {
@@ -31,8 +36,38 @@ public final class GenericStringAdapter extends AbstractDatatypeAdapter<HDF5Stri
 
     @Override
     public Object asScalarObject(final ByteBuffer buf, final int byteOffset) {
-        final ByteBuffer bb = buf.duplicate().position(byteOffset).limit(byteOffset + elementSize).slice();
-        return datatype.getCharset().decode(bb);
+        final ByteBuffer bb = buf.duplicate().position(byteOffset).limit(byteOffset + elementSize);
+        return StringDecoder.decodeSingle(bb, datatype.getCharset(), datatype.getPaddingType());
+    }
+
+    /**
+     * Write a string, truncated to the element size. A null terminated string
+     * keeps its terminator.
+     */
+    @Override
+    public ByteBuffer fromScalarObject(final ByteBuffer buf, final int byteOffset, final Object value) {
+        final ByteBuffer bb = buf.duplicate().position(byteOffset).limit(byteOffset + elementSize);
+        if (PaddingType.NULL_TERMINATE == datatype.getPaddingType()) {
+            bb.limit(bb.limit() - 1);
+        }
+        final CharsetEncoder encoder = datatype.getCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encoder.encode(CharBuffer.wrap(value.toString()), bb, true);
+        final byte pad = PaddingType.SPACE_PAD == datatype.getPaddingType() ? (byte) ' ' : 0;
+        for (int i = bb.position(); i < byteOffset + elementSize; i++) {
+            buf.put(i, pad);
+        }
+        return buf;
+    }
+
+    @Override
+    public ByteBuffer fromIterator(final ByteBuffer buf, final Iterator<?> value) {
+        int offset = buf.position();
+        while (value.hasNext()) {
+            fromScalarObject(buf, offset, value.next());
+            offset += elementSize;
+        }
+        return buf;
     }
 
     @Override
@@ -42,6 +77,35 @@ public final class GenericStringAdapter extends AbstractDatatypeAdapter<HDF5Stri
 
     @Override
     public Iterator<?> asIterator(final ByteBuffer buf) {
-        throw new IllegalArgumentException();
+        return asCharSequenceIterator(buf, decoder(StringDecoder.Mode.STRING));
+    }
+
+    @Override
+    public StringDecoder decoder(final StringDecoder.Mode mode) {
+        return new StringDecoder(datatype.getCharset(), datatype.getPaddingType(), mode);
+    }
+
+    @Override
+    public Iterator<CharSequence> asCharSequenceIterator(final ByteBuffer buf, final StringDecoder decoder) {
+        final ByteBuffer bb = buf.duplicate();
+        return new Iterator<>() {
+            private final int end = bb.limit();
+            private int offset = bb.position();
+
+            @Override
+            public boolean hasNext() {
+                return offset + elementSize <= end;
+            }
+
+            @Override
+            public CharSequence next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                bb.limit(offset + elementSize).position(offset);
+                offset += elementSize;
+                return decoder.decode(bb);
+            }
+        };
     }
 }
@@ -19,7 +19,10 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.function.Function;
 
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
@@ -30,14 +33,21 @@ import app.keve.hdf5io.fileformat.Resolvable;
 import app.keve.hdf5io.fileformat.SizingContext;
 import app.keve.hdf5io.fileformat.level1.GlobalHeapCollection;
 
-public final class GenericVariableLengthAdapter extends AbstractDatatypeAdapter<HDF5VariableLength> {
-    private final Function<VLGlobalHeapReference, ByteBuffer> resolver;
+/**
+ * Adapter of variable length sequences and strings stored in global heap
+ * collections. A collection is resolved once per bulk read, in the order the
+ * references are read.
+ */
+public final class GenericVariableLengthAdapter extends AbstractDatatypeAdapter<HDF5VariableLength>
+        implements StringAdapter {
+    private final Function<Resolvable<GlobalHeapCollection>, GlobalHeapCollection> resolver;
     private final SizingContext sizingContext;
     private final HDF5DatatypeAdapter baseTypeAdapter;
     private final int baseTypeElementSize;
 
     public GenericVariableLengthAdapter(final HDF5VariableLength datatype,
-            final Function<VLGlobalHeapReference, ByteBuffer> resolver, final SizingContext sizingContext) {
+            final Function<Resolvable<GlobalHeapCollection>, GlobalHeapCollection> resolver,
+            final SizingContext sizingContext) {
         super(datatype);
         final HDF5Datatype baseType = datatype.getBaseType();
         this.baseTypeAdapter = baseType.adapter();
@@ -50,7 +60,7 @@ public final class GenericVariableLengthAdapter extends AbstractDatatypeAdapter<
     public Object asScalarObject(final ByteBuffer buf, final int byteOffset) {
         final VLGlobalHeapReference r = new VLGlobalHeapReference(
                 buf.duplicate().position(byteOffset).slice().order(ByteOrder.LITTLE_ENDIAN), sizingContext);
-        return resolveGHR(r);
+        return resolveGHR(r, resolver.apply(r.getGlobalHeapCollection()));
     }
 
     @Override
@@ -103,12 +113,12 @@ public final class GenericVariableLengthAdapter extends AbstractDatatypeAdapter<
         }
     }
 
-    private class VariableLengthIterator implements Iterator<VLGlobalHeapReference> {
+    private class ReferenceIterator implements Iterator<VLGlobalHeapReference> {
         private final ByteBuffer buf;
         private final int end;
         private int ofs;
 
-        VariableLengthIterator(final ByteBuffer buf) {
+        ReferenceIterator(final ByteBuffer buf) {
             this.buf = buf;
             this.ofs = buf.position();
             this.end = buf.limit();
@@ -121,6 +131,9 @@ public final class GenericVariableLengthAdapter extends AbstractDatatypeAdapter<
 
         @Override
         public VLGlobalHeapReference next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
             final VLGlobalHeapReference r = new VLGlobalHeapReference(
                     buf.duplicate().position(ofs).slice().order(ByteOrder.LITTLE_ENDIAN), sizingContext);
             ofs += r.size();
@@ -128,11 +141,44 @@ public final class GenericVariableLengthAdapter extends AbstractDatatypeAdapter<
         }
     }
 
-    private Object resolveGHR(final VLGlobalHeapReference vlghr) {
-        final ByteBuffer hod = resolver.apply(vlghr);
+    /**
+     * Iterator over the values, keeping the collections it resolved. The
+     * references of consecutive elements mostly point into the same collection,
+     * which is then resolved once.
+     */
+    private class VariableLengthIterator implements Iterator<Object> {
+        private final ReferenceIterator references;
+        private final Map<Long, GlobalHeapCollection> collections;
+
+        VariableLengthIterator(final ByteBuffer buf) {
+            this.references = new ReferenceIterator(buf);
+            this.collections = new HashMap<>();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return references.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            final VLGlobalHeapReference r = references.next();
+            final Resolvable<GlobalHeapCollection> rCollection = r.getGlobalHeapCollection();
+            GlobalHeapCollection collection = collections.get(rCollection.getAddress());
+            if (null == collection) {
+                collection = resolver.apply(rCollection);
+                collections.put(rCollection.getAddress(), collection);
+            }
+            return resolveGHR(r, collection);
+        }
+    }
+
+    private Object resolveGHR(final VLGlobalHeapReference vlghr, final GlobalHeapCollection collection) {
+        final ByteBuffer hod = collection.getHeapObject(vlghr.getIndex()).getObjectData();
         switch (datatype.getType()) {
         case STRING:
-            return datatype.getCharset().decode(hod).toString();
+            return StringDecoder.decodeSingle(hod.slice().limit(vlghr.getLength()), datatype.getCharset(),
+                    datatype.getPaddingType());
         case SEQUENCE:
             final int numElements = vlghr.getLength();
             final ByteBuffer dataBuf = hod.slice().limit(numElements * baseTypeElementSize);
@@ -148,4 +194,37 @@ public final class GenericVariableLengthAdapter extends AbstractDatatypeAdapter<
         return new VariableLengthIterator(buf);
     }
 
+    @Override
+    public StringDecoder decoder(final StringDecoder.Mode mode) {
+        if (HDF5VariableLength.Type.STRING != datatype.getType()) {
+            throw new IllegalArgumentException("Not a variable length string: " + datatype.getType());
+        }
+        return new StringDecoder(datatype.getCharset(), datatype.getPaddingType(), mode);
+    }
+
+    /**
+     * Return an iterator over the strings in the buffer. The collections are
+     * resolved once per decoder.
+     */
+    @Override
+    public Iterator<CharSequence> asCharSequenceIterator(final ByteBuffer buf, final StringDecoder decoder) {
+        final Iterator<VLGlobalHeapReference> references = new ReferenceIterator(buf);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return references.hasNext();
+            }
+
+            @Override
+            public CharSequence next() {
+                final VLGlobalHeapReference r = references.next();
+                final Resolvable<GlobalHeapCollection> rCollection = r.getGlobalHeapCollection();
+                final GlobalHeapCollection collection = decoder.resolved(rCollection.getAddress(),
+                        address -> resolver.apply(rCollection));
+                final ByteBuffer hod = collection.getHeapObject(r.getIndex()).getObjectData();
+                return decoder.decode(hod.slice().limit(r.getLength()));
+            }
+        };
+    }
+
 }
@@ -0,0 +1,877 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import app.keve.hdf5io.api.HDF5Dataset.Narrowing;
+import app.keve.hdf5io.api.datatype.HDF5Datatype;
+import app.keve.hdf5io.api.datatype.HDF5FixedPointNumber;
+import app.keve.hdf5io.api.datatype.HDF5FloatingPointNumber;
+
+/**
+ * Conversion of fixed and floating point elements from and to Java primitive
+ * arrays. The byte order, the sign extension and the widening of the source
+ * are fused into one loop per source type, producing a block of longs for the
+ * integers and of doubles for the floating point numbers. The block is
+ * converted to the target in a second loop per target type, which also
+ * narrows. Long and double targets take the first loop only.
+ * 
+ * <p>
+ * The layouts without a Java type have their own kernels: the 16 bit floating
+ * point numbers are decoded through tables into floats, the 24 bit integers
+ * four at a time from three words into ints, and the integers at a bit offset
+ * by masking the word of the element.
+ * 
+ * <p>
+ * A converter is used by one thread at a time.
+ */
+public final class NumericConverter {
+    private static final int BLOCK = 512;
+
+    /**
+     * The numeric types of the datatypes and of the arrays.
+     */
+    private enum Kind {
+        INT8(1, true, false), UINT8(1, false, false), INT16(2, true, false), UINT16(2, false, false),
+        INT32(4, true, false), UINT32(4, false, false), INT64(8, true, false), UINT64(8, false, false),
+        FLOAT32(4, true, true), FLOAT64(8, true, true), FLOAT16(2, true, true), BFLOAT16(2, true, true),
+        INT24(3, true, false), UINT24(3, false, false), PACKED(0, true, false);
+
+        private final int size;
+        private final boolean floating;
+        private final long min;
+        private final long max;
+
+        Kind(final int size, final boolean signed, final boolean floating) {
+            this.size = size;
+            this.floating = floating;
+            final int bits = 8 * size;
+            this.min = signed ? Long.MIN_VALUE >> (64 - bits) : 0;
+            this.max = signed ? Long.MAX_VALUE >> (64 - bits) : Long.MAX_VALUE >>> (Math.max(64 - bits, 1) - 1);
+        }
+    }
+
+    private final Kind kind;
+    private final ByteOrder byteOrder;
+    private final int size;
+    private final int bitOffset;
+    private final int signShift;
+    private final long mask;
+    private final long padding;
+    private final long min;
+    private final long max;
+    private final boolean fitsInt;
+    private long[] longs;
+    private double[] doubles;
+    private int[] ints;
+    private float[] floats;
+
+    private NumericConverter(final Kind kind, final HDF5Datatype datatype) {
+        this.kind = kind;
+        this.size = datatype.getElementSize();
+        final int precision;
+        final boolean signed;
+        if (datatype instanceof HDF5FixedPointNumber) {
+            final HDF5FixedPointNumber fpn = (HDF5FixedPointNumber) datatype;
+            this.byteOrder = fpn.getByteOrder().getByteOrder();
+            this.bitOffset = fpn.getBitOffset();
+            precision = fpn.getBitPrecision();
+            signed = fpn.isSigned();
+            this.padding = (1 == fpn.getLoPadBit() ? lowBits(bitOffset) : 0)
+                    | (1 == fpn.getHiPadBit() ? lowBits(8 * size) & ~lowBits(bitOffset + precision) : 0);
+        } else {
+            this.byteOrder = ((HDF5FloatingPointNumber) datatype).getByteOrder().getByteOrder();
+            this.bitOffset = 0;
+            precision = 8 * size;
+            signed = true;
+            this.padding = 0;
+        }
+        this.signShift = signed ? 64 - precision : 0;
+        this.mask = lowBits(precision);
+        this.min = signed ? -1L << (precision - 1) : 0;
+        this.max = signed ? lowBits(precision - 1) : lowBits(Math.min(precision, 63));
+        this.fitsInt = precision < 32 || signed && 32 == precision;
+    }
+
+    /**
+     * Whether the elements of a datatype can be converted: the whole byte fixed
+     * point numbers and the IEEE single and double precision floating point
+     * numbers, in either byte order.
+     * 
+     * @param datatype the datatype
+     * @return true if convertible
+     */
+    public static boolean isConvertible(final HDF5Datatype datatype) {
+        return null != kindOf(datatype);
+    }
+
+    public static NumericConverter forType(final HDF5Datatype datatype) {
+        final Kind kind = kindOf(datatype);
+        if (null == kind) {
+            throw new IllegalArgumentException("No conversion for " + datatype);
+        }
+        return new NumericConverter(kind, datatype);
+    }
+
+    /**
+     * Whether the elements of a datatype have no buffer view in Java, so they are
+     * only read and written by conversion.
+     * 
+     * @param datatype the datatype
+     * @return true for the 16 bit floating point numbers, the 24 bit integers and
+     *         the integers at a bit offset
+     */
+    public static boolean needsConversion(final HDF5Datatype datatype) {
+        final Kind kind = kindOf(datatype);
+        return Kind.FLOAT16 == kind || Kind.BFLOAT16 == kind || Kind.INT24 == kind || Kind.UINT24 == kind
+                || Kind.PACKED == kind;
+    }
+
+    private static Kind kindOf(final HDF5Datatype datatype) {
+        if (datatype instanceof HDF5FixedPointNumber) {
+            final HDF5FixedPointNumber fpn = (HDF5FixedPointNumber) datatype;
+            final int bits = 8 * fpn.getElementSize();
+            if (null == fpn.getByteOrder().getByteOrder() || bits > 64 || fpn.getBitPrecision() < 1
+                    || fpn.getBitOffset() + fpn.getBitPrecision() > bits) {
+                return null;
+            } else if (0 != fpn.getBitOffset() || bits != fpn.getBitPrecision()) {
+                return Kind.PACKED;
+            }
+            switch (fpn.getElementSize()) {
+            case 1:
+                return fpn.isSigned() ? Kind.INT8 : Kind.UINT8;
+            case 2:
+                return fpn.isSigned() ? Kind.INT16 : Kind.UINT16;
+            case 3:
+                return fpn.isSigned() ? Kind.INT24 : Kind.UINT24;
+            case 4:
+                return fpn.isSigned() ? Kind.INT32 : Kind.UINT32;
+            case 8:
+                return fpn.isSigned() ? Kind.INT64 : Kind.UINT64;
+            default:
+                return Kind.PACKED;
+            }
+        } else if (datatype instanceof HDF5FloatingPointNumber) {
+            final HDF5FloatingPointNumber fpn = (HDF5FloatingPointNumber) datatype;
+            if (isIeee(fpn, 8, 23, 127)) {
+                return Kind.FLOAT32;
+            } else if (isIeee(fpn, 11, 52, 1023)) {
+                return Kind.FLOAT64;
+            } else if (isIeee(fpn, 5, 10, 15)) {
+                return Kind.FLOAT16;
+            } else if (isIeee(fpn, 8, 7, 127)) {
+                return Kind.BFLOAT16;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIeee(final HDF5FloatingPointNumber fpn, final int exponentSize, final int mantissaSize,
+            final int exponentBias) {
+        final int bits = 1 + exponentSize + mantissaSize;
+        return bits == 8 * fpn.getElementSize() && bits == fpn.getBitPrecision() && 0 == fpn.getBitOffset()
+                && 0 == fpn.getLoPadBit() && 0 == fpn.getHiPadBit() && 0 == fpn.getIntPadBit()
+                && 2 == fpn.getMantissaNormalization() && bits - 1 == fpn.getSignLocation()
+                && mantissaSize == fpn.getExponentLocation() && exponentSize == fpn.getExponentSize()
+                && 0 == fpn.getMantissaLocation() && mantissaSize == fpn.getMantissaSize()
+                && exponentBias == fpn.getExponentBias() && null != fpn.getByteOrder().getByteOrder();
+    }
+
+    private static Kind arrayKind(final Class<?> arrayClass) {
+        if (byte[].class == arrayClass) {
+            return Kind.INT8;
+        } else if (short[].class == arrayClass) {
+            return Kind.INT16;
+        } else if (int[].class == arrayClass) {
+            return Kind.INT32;
+        } else if (long[].class == arrayClass) {
+            return Kind.INT64;
+        } else if (float[].class == arrayClass) {
+            return Kind.FLOAT32;
+        } else if (double[].class == arrayClass) {
+            return Kind.FLOAT64;
+        }
+        throw new IllegalArgumentException("Not a numeric array: " + arrayClass.getSimpleName());
+    }
+
+    /**
+     * Whether the values convert without narrowing: the Java widening conversions,
+     * and the integers of the same size keeping their bits.
+     * 
+     * @param source     the type converted from
+     * @param sourceSize the size of the source elements
+     * @param target     the type converted to
+     * @param targetSize the size of the target elements
+     * @return true if widening
+     */
+    private static boolean widens(final Kind source, final int sourceSize, final Kind target,
+            final int targetSize) {
+        if (source.floating) {
+            return target.floating && targetSize >= sourceSize;
+        }
+        return target.floating || targetSize >= sourceSize;
+    }
+
+    /**
+     * The Java type of the elements, the narrowest of float, double, int and long
+     * taking their values.
+     * 
+     * @return the primitive type
+     */
+    public Class<?> getJavaType() {
+        if (kind.floating) {
+            return Kind.FLOAT64 == kind ? Double.TYPE : Float.TYPE;
+        }
+        return fitsInt ? Integer.TYPE : Long.TYPE;
+    }
+
+    /**
+     * Whether data is a possibly multi-dimensional array of a numeric primitive
+     * type.
+     * 
+     * @param data the data
+     * @return true for the byte, short, int, long, float and double arrays
+     */
+    public static boolean isNumericArray(final Object data) {
+        if (null == data || !data.getClass().isArray()) {
+            return false;
+        }
+        Class<?> componentType = data.getClass().getComponentType();
+        while (componentType.isArray()) {
+            componentType = componentType.getComponentType();
+        }
+        return componentType.isPrimitive() && Boolean.TYPE != componentType && Character.TYPE != componentType;
+    }
+
+    /**
+     * Check that the elements can be read into an array.
+     * 
+     * @param array     the array
+     * @param narrowing the narrowing, or null to allow widening only
+     */
+    public void checkRead(final Object array, final Narrowing narrowing) {
+        final Kind target = arrayKind(array.getClass());
+        if (null == narrowing && !widens(kind, size, target, target.size)) {
+            throw new IllegalArgumentException("Cannot read " + kind + " into " + array.getClass().getSimpleName()
+                    + " without narrowing");
+        }
+    }
+
+    /**
+     * Check that the elements of a multi-dimensional array can be written.
+     * 
+     * @param mdArray   the array
+     * @param narrowing the narrowing, or null to allow widening only
+     */
+    public void checkWrite(final Object mdArray, final Narrowing narrowing) {
+        Class<?> arrayClass = mdArray.getClass();
+        while (arrayClass.getComponentType().isArray()) {
+            arrayClass = arrayClass.getComponentType();
+        }
+        final Kind source = arrayKind(arrayClass);
+        if (null == narrowing && !widens(source, source.size, kind, size)) {
+            throw new IllegalArgumentException(
+                    "Cannot write " + arrayClass.getSimpleName() + " as " + kind + " without narrowing");
+        }
+    }
+
+    /**
+     * Whether reading into the array copies the bits of the elements, so a
+     * buffer view of the datatype can be used instead.
+     * 
+     * @param array     the array
+     * @param narrowing the narrowing, or null to allow widening only
+     * @return true if no conversion is needed
+     */
+    public boolean copiesBits(final Object array, final Narrowing narrowing) {
+        final Kind target = arrayKind(array.getClass());
+        return kind == target
+                || !kind.floating && !target.floating && kind.size == target.size && Narrowing.SATURATE != narrowing;
+    }
+
+    /**
+     * Read elements into an array.
+     * 
+     * @param src       the elements, the byte order of the buffer is set
+     * @param srcIndex  the index of the first element in the buffer
+     * @param dst       the byte, short, int, long, float or double array
+     * @param dstOffset the index of the first element in the array
+     * @param length    the number of elements
+     * @param narrowing the narrowing of the values out of the range of the array
+     */
+    public void read(final ByteBuffer src, final int srcIndex, final Object dst, final int dstOffset,
+            final int length, final Narrowing narrowing) {
+        src.order(byteOrder);
+        final boolean saturate = Narrowing.SATURATE == narrowing;
+        if (kind.floating) {
+            if (dst instanceof double[]) {
+                decode(src, srcIndex, (double[]) dst, dstOffset, length);
+                return;
+            } else if (dst instanceof float[] && size <= 4) {
+                decodeFloats(src, srcIndex, (float[]) dst, dstOffset, length);
+                return;
+            }
+            final double[] block = doubleBlock();
+            for (int done = 0; done < length; done += BLOCK) {
+                final int n = Math.min(BLOCK, length - done);
+                decode(src, srcIndex + done, block, 0, n);
+                convert(block, n, dst, dstOffset + done, saturate);
+            }
+        } else {
+            if (dst instanceof long[] && !(Kind.UINT64 == kind && saturate)) {
+                decode(src, srcIndex, (long[]) dst, dstOffset, length);
+                return;
+            } else if (dst instanceof int[] && fitsInt
+                    && (Kind.INT24 == kind || Kind.UINT24 == kind || Kind.PACKED == kind)) {
+                decodeInts(src, srcIndex, (int[]) dst, dstOffset, length);
+                return;
+            }
+            final long[] block = longBlock();
+            for (int done = 0; done < length; done += BLOCK) {
+                final int n = Math.min(BLOCK, length - done);
+                decode(src, srcIndex + done, block, 0, n);
+                convert(block, n, dst, dstOffset + done, saturate);
+            }
+        }
+    }
+
+    /**
+     * Write elements from an array.
+     * 
+     * @param src       the byte, short, int, long, float or double array
+     * @param srcOffset the index of the first element in the array
+     * @param dst       the buffer of the elements, its byte order is set
+     * @param dstIndex  the index of the first element in the buffer
+     * @param length    the number of elements
+     * @param narrowing the narrowing of the values out of the range of the
+     *                  datatype
+     */
+    public void write(final Object src, final int srcOffset, final ByteBuffer dst, final int dstIndex,
+            final int length, final Narrowing narrowing) {
+        dst.order(byteOrder);
+        final boolean saturate = Narrowing.SATURATE == narrowing;
+        if (kind.floating) {
+            if (src instanceof double[]) {
+                encode((double[]) src, srcOffset, dst, dstIndex, length, saturate);
+                return;
+            } else if (src instanceof float[] && size <= 4) {
+                encodeFloats((float[]) src, srcOffset, dst, dstIndex, length, saturate);
+                return;
+            }
+            final double[] block = doubleBlock();
+            for (int done = 0; done < length; done += BLOCK) {
+                final int n = Math.min(BLOCK, length - done);
+                widen(src, srcOffset + done, block, n);
+                encode(block, 0, dst, dstIndex + done, n, saturate);
+            }
+        } else {
+            if (src instanceof long[]) {
+                encode((long[]) src, srcOffset, dst, dstIndex, length, saturate);
+                return;
+            }
+            final long[] block = longBlock();
+            for (int done = 0; done < length; done += BLOCK) {
+                final int n = Math.min(BLOCK, length - done);
+                widen(src, srcOffset + done, block, n);
+                encode(block, 0, dst, dstIndex + done, n, saturate);
+            }
+        }
+    }
+
+    /**
+     * Write the elements of a multi-dimensional array, in row major order.
+     * 
+     * @param mdArray   the array of a numeric primitive type
+     * @param dst       the buffer of the elements, its byte order is set
+     * @param dstIndex  the index of the first element in the buffer
+     * @param narrowing the narrowing of the values out of the range of the
+     *                  datatype
+     * @return the index past the last element written
+     */
+    public int writeRowMajor(final Object mdArray, final ByteBuffer dst, final int dstIndex,
+            final Narrowing narrowing) {
+        if (!mdArray.getClass().getComponentType().isArray()) {
+            final int n = Array.getLength(mdArray);
+            write(mdArray, 0, dst, dstIndex, n, narrowing);
+            return dstIndex + n;
+        }
+        int index = dstIndex;
+        for (final Object row : (Object[]) mdArray) {
+            index = writeRowMajor(row, dst, index, narrowing);
+        }
+        return index;
+    }
+
+    private long[] longBlock() {
+        if (null == longs) {
+            longs = new long[BLOCK];
+        }
+        return longs;
+    }
+
+    private double[] doubleBlock() {
+        if (null == doubles) {
+            doubles = new double[BLOCK];
+        }
+        return doubles;
+    }
+
+    private int[] intBlock() {
+        if (null == ints) {
+            ints = new int[BLOCK];
+        }
+        return ints;
+    }
+
+    private float[] floatBlock() {
+        if (null == floats) {
+            floats = new float[BLOCK];
+        }
+        return floats;
+    }
+
+    private void decode(final ByteBuffer src, final int srcIndex, final long[] dst, final int dstOffset,
+            final int n) {
+        final int from = srcIndex * size;
+        switch (kind) {
+        case INT8:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = src.get(from + i);
+            }
+            break;
+        case UINT8:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = Byte.toUnsignedLong(src.get(from + i));
+            }
+            break;
+        case INT16:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = src.getShort(from + 2 * i);
+            }
+            break;
+        case UINT16:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = Short.toUnsignedLong(src.getShort(from + 2 * i));
+            }
+            break;
+        case INT32:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = src.getInt(from + 4 * i);
+            }
+            break;
+        case UINT32:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = Integer.toUnsignedLong(src.getInt(from + 4 * i));
+            }
+            break;
+        case INT24:
+        case UINT24:
+            final int[] block = intBlock();
+            for (int done = 0; done < n; done += BLOCK) {
+                final int m = Math.min(BLOCK, n - done);
+                decodeInts(src, srcIndex + done, block, 0, m);
+                for (int i = 0; i < m; i++) {
+                    dst[dstOffset + done + i] = block[i];
+                }
+            }
+            break;
+        case PACKED:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = packed(src, from + size * i);
+            }
+            break;
+        default:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = src.getLong(from + 8 * i);
+            }
+        }
+    }
+
+    private void decode(final ByteBuffer src, final int srcIndex, final double[] dst, final int dstOffset,
+            final int n) {
+        if (Kind.FLOAT64 == kind) {
+            final int from = srcIndex * 8;
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = src.getDouble(from + 8 * i);
+            }
+            return;
+        }
+        final float[] block = floatBlock();
+        for (int done = 0; done < n; done += BLOCK) {
+            final int m = Math.min(BLOCK, n - done);
+            decodeFloats(src, srcIndex + done, block, 0, m);
+            for (int i = 0; i < m; i++) {
+                dst[dstOffset + done + i] = block[i];
+            }
+        }
+    }
+
+    private void decodeFloats(final ByteBuffer src, final int srcIndex, final float[] dst, final int dstOffset,
+            final int n) {
+        final int from = srcIndex * size;
+        switch (kind) {
+        case FLOAT16:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = Float16.halfToFloat(src.getShort(from + 2 * i));
+            }
+            break;
+        case BFLOAT16:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = Float16.bfloat16ToFloat(src.getShort(from + 2 * i));
+            }
+            break;
+        default:
+            for (int i = 0; i < n; i++) {
+                dst[dstOffset + i] = src.getFloat(from + 4 * i);
+            }
+        }
+    }
+
+    // the 24 bit and the packed integers of at most 32 bits, the 24 bit integers
+    // read four at a time from three words
+    private void decodeInts(final ByteBuffer src, final int srcIndex, final int[] dst, final int dstOffset,
+            final int n) {
+        int b = srcIndex * size;
+        if (Kind.PACKED == kind) {
+            for (int i = 0; i < n; i++, b += size) {
+                dst[dstOffset + i] = (int) packed(src, b);
+            }
+            return;
+        }
+        // the signed values are extended by shifting them up and back
+        final int shift = Kind.INT24 == kind ? 8 : 0;
+        int i = 0;
+        if (ByteOrder.LITTLE_ENDIAN == byteOrder) {
+            for (; i + 4 <= n; i += 4, b += 12) {
+                final int w0 = src.getInt(b);
+                final int w1 = src.getInt(b + 4);
+                final int w2 = src.getInt(b + 8);
+                final int k = dstOffset + i;
+                dst[k] = (w0 & 0xFF_FFFF) << shift >> shift;
+                dst[k + 1] = (w0 >>> 24 | (w1 & 0xFFFF) << 8) << shift >> shift;
+                dst[k + 2] = (w1 >>> 16 | (w2 & 0xFF) << 16) << shift >> shift;
+                dst[k + 3] = (w2 >>> 8) << shift >> shift;
+            }
+        } else {
+            for (; i + 4 <= n; i += 4, b += 12) {
+                final int w0 = src.getInt(b);
+                final int w1 = src.getInt(b + 4);
+                final int w2 = src.getInt(b + 8);
+                final int k = dstOffset + i;
+                dst[k] = (w0 >>> 8) << shift >> shift;
+                dst[k + 1] = ((w0 & 0xFF) << 16 | w1 >>> 16) << shift >> shift;
+                dst[k + 2] = ((w1 & 0xFFFF) << 8 | w2 >>> 24) << shift >> shift;
+                dst[k + 3] = (w2 & 0xFF_FFFF) << shift >> shift;
+            }
+        }
+        for (; i < n; i++, b += 3) {
+            dst[dstOffset + i] = (int) word(src, b) << shift >> shift;
+        }
+    }
+
+    private long packed(final ByteBuffer src, final int byteOffset) {
+        return (word(src, byteOffset) >>> bitOffset & mask) << signShift >> signShift;
+    }
+
+    // the unsigned word of an element, in the byte order of the buffer
+    private long word(final ByteBuffer src, final int byteOffset) {
+        switch (size) {
+        case 1:
+            return Byte.toUnsignedLong(src.get(byteOffset));
+        case 2:
+            return Short.toUnsignedLong(src.getShort(byteOffset));
+        case 4:
+            return Integer.toUnsignedLong(src.getInt(byteOffset));
+        case 8:
+            return src.getLong(byteOffset);
+        default:
+            long w = 0;
+            for (int i = 0; i < size; i++) {
+                final int b = ByteOrder.LITTLE_ENDIAN == byteOrder ? i : size - 1 - i;
+                w |= Byte.toUnsignedLong(src.get(byteOffset + i)) << (8 * b);
+            }
+            return w;
+        }
+    }
+
+    private void putWord(final ByteBuffer dst, final int byteOffset, final long w) {
+        switch (size) {
+        case 1:
+            dst.put(byteOffset, (byte) w);
+            break;
+        case 2:
+            dst.putShort(byteOffset, (short) w);
+            break;
+        case 4:
+            dst.putInt(byteOffset, (int) w);
+            break;
+        case 8:
+            dst.putLong(byteOffset, w);
+            break;
+        default:
+            for (int i = 0; i < size; i++) {
+                final int b = ByteOrder.LITTLE_ENDIAN == byteOrder ? i : size - 1 - i;
+                dst.put(byteOffset + i, (byte) (w >>> (8 * b)));
+            }
+        }
+    }
+
+    private void convert(final long[] block, final int n, final Object dst, final int dstOffset,
+            final boolean saturate) {
+        if (dst instanceof double[]) {
+            final double[] d = (double[]) dst;
+            for (int i = 0; i < n; i++) {
+                d[dstOffset + i] = Kind.UINT64 == kind ? unsignedToDouble(block[i]) : block[i];
+            }
+            return;
+        } else if (dst instanceof float[]) {
+            final float[] f = (float[]) dst;
+            for (int i = 0; i < n; i++) {
+                f[dstOffset + i] = Kind.UINT64 == kind ? (float) unsignedToDouble(block[i]) : block[i];
+            }
+            return;
+        }
+        if (Kind.UINT64 == kind && saturate) {
+            // the values beyond the long range are the largest
+            for (int i = 0; i < n; i++) {
+                block[i] = block[i] < 0 ? Long.MAX_VALUE : block[i];
+            }
+        }
+        if (dst instanceof long[]) {
+            System.arraycopy(block, 0, dst, dstOffset, n);
+        } else if (dst instanceof int[]) {
+            final int[] d = (int[]) dst;
+            for (int i = 0; i < n; i++) {
+                d[dstOffset + i] = (int) (saturate ? clamp(block[i], Kind.INT32) : block[i]);
+            }
+        } else if (dst instanceof short[]) {
+            final short[] d = (short[]) dst;
+            for (int i = 0; i < n; i++) {
+                d[dstOffset + i] = (short) (saturate ? clamp(block[i], Kind.INT16) : block[i]);
+            }
+        } else {
+            final byte[] d = (byte[]) dst;
+            for (int i = 0; i < n; i++) {
+                d[dstOffset + i] = (byte) (saturate ? clamp(block[i], Kind.INT8) : block[i]);
+            }
+        }
+    }
+
+    private static void convert(final double[] block, final int n, final Object dst, final int dstOffset,
+            final boolean saturate) {
+        if (dst instanceof float[]) {
+            final float[] d = (float[]) dst;
+            for (int i = 0; i < n; i++) {
+                d[dstOffset + i] = toFloat(block[i], saturate);
+            }
+        } else if (dst instanceof long[]) {
+            final long[] d = (long[]) dst;
+            for (int i = 0; i < n; i++) {
+                d[dstOffset + i] = (long) block[i];
+            }
+        } else if (dst instanceof int[]) {
+            final int[] d = (int[]) dst;
+            for (int i = 0; i < n; i++) {
+                d[dstOffset + i] = saturate ? (int) block[i] : (int) (long) block[i];
+            }
+        } else if (dst instanceof short[]) {
+            final short[] d = (short[]) dst;
+            for (int i = 0; i < n; i++) {
+                final long v = (long) block[i];
+                d[dstOffset + i] = (short) (saturate ? clamp(v, Kind.INT16) : v);
+            }
+        } else {
+            final byte[] d = (byte[]) dst;
+            for (int i = 0; i < n; i++) {
+                final long v = (long) block[i];
+                d[dstOffset + i] = (byte) (saturate ? clamp(v, Kind.INT8) : v);
+            }
+        }
+    }
+
+    private static void widen(final Object src, final int srcOffset, final long[] block, final int n) {
+        if (src instanceof int[]) {
+            final int[] s = (int[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        } else if (src instanceof short[]) {
+            final short[] s = (short[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        } else if (src instanceof byte[]) {
+            final byte[] s = (byte[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        } else if (src instanceof double[]) {
+            final double[] s = (double[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = (long) s[srcOffset + i];
+            }
+        } else {
+            final float[] s = (float[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = (long) s[srcOffset + i];
+            }
+        }
+    }
+
+    private static void widen(final Object src, final int srcOffset, final double[] block, final int n) {
+        if (src instanceof float[]) {
+            final float[] s = (float[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        } else if (src instanceof long[]) {
+            final long[] s = (long[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        } else if (src instanceof int[]) {
+            final int[] s = (int[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        } else if (src instanceof short[]) {
+            final short[] s = (short[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        } else {
+            final byte[] s = (byte[]) src;
+            for (int i = 0; i < n; i++) {
+                block[i] = s[srcOffset + i];
+            }
+        }
+    }
+
+    private void encode(final long[] src, final int srcOffset, final ByteBuffer dst, final int dstIndex,
+            final int n, final boolean saturate) {
+        final int from = dstIndex * size;
+        if (Kind.PACKED == kind || Kind.INT24 == kind || Kind.UINT24 == kind) {
+            for (int i = 0; i < n; i++) {
+                final long v = src[srcOffset + i];
+                putWord(dst, from + size * i, ((saturate ? clamp(v, min, max) : v) & mask) << bitOffset | padding);
+            }
+            return;
+        }
+        switch (size) {
+        case 1:
+            for (int i = 0; i < n; i++) {
+                final long v = src[srcOffset + i];
+                dst.put(from + i, (byte) (saturate ? clamp(v, min, max) : v));
+            }
+            break;
+        case 2:
+            for (int i = 0; i < n; i++) {
+                final long v = src[srcOffset + i];
+                dst.putShort(from + 2 * i, (short) (saturate ? clamp(v, min, max) : v));
+            }
+            break;
+        case 4:
+            for (int i = 0; i < n; i++) {
+                final long v = src[srcOffset + i];
+                dst.putInt(from + 4 * i, (int) (saturate ? clamp(v, min, max) : v));
+            }
+            break;
+        default:
+            for (int i = 0; i < n; i++) {
+                final long v = src[srcOffset + i];
+                dst.putLong(from + 8 * i, saturate ? clamp(v, min, max) : v);
+            }
+        }
+    }
+
+    private void encode(final double[] src, final int srcOffset, final ByteBuffer dst, final int dstIndex,
+            final int n, final boolean saturate) {
+        final int from = dstIndex * size;
+        switch (kind) {
+        case FLOAT16:
+            for (int i = 0; i < n; i++) {
+                dst.putShort(from + 2 * i, Float16.floatToHalf(toFloat(src[srcOffset + i], saturate), saturate));
+            }
+            break;
+        case BFLOAT16:
+            for (int i = 0; i < n; i++) {
+                dst.putShort(from + 2 * i,
+                        Float16.floatToBfloat16(toFloat(src[srcOffset + i], saturate), saturate));
+            }
+            break;
+        case FLOAT32:
+            for (int i = 0; i < n; i++) {
+                dst.putFloat(from + 4 * i, toFloat(src[srcOffset + i], saturate));
+            }
+            break;
+        default:
+            for (int i = 0; i < n; i++) {
+                dst.putDouble(from + 8 * i, src[srcOffset + i]);
+            }
+        }
+    }
+
+    private void encodeFloats(final float[] src, final int srcOffset, final ByteBuffer dst, final int dstIndex,
+            final int n, final boolean saturate) {
+        final int from = dstIndex * size;
+        switch (kind) {
+        case FLOAT16:
+            for (int i = 0; i < n; i++) {
+                dst.putShort(from + 2 * i, Float16.floatToHalf(src[srcOffset + i], saturate));
+            }
+            break;
+        case BFLOAT16:
+            for (int i = 0; i < n; i++) {
+                dst.putShort(from + 2 * i, Float16.floatToBfloat16(src[srcOffset + i], saturate));
+            }
+            break;
+        default:
+            for (int i = 0; i < n; i++) {
+                dst.putFloat(from + 4 * i, src[srcOffset + i]);
+            }
+        }
+    }
+
+    private static long clamp(final long v, final Kind range) {
+        return clamp(v, range.min, range.max);
+    }
+
+    private static long clamp(final long v, final long lo, final long hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+
+    private static long lowBits(final int n) {
+        return n >= 64 ? -1L : (1L << n) - 1;
+    }
+
+    private static float toFloat(final double v, final boolean saturate) {
+        if (saturate && Math.abs(v) > Float.MAX_VALUE && !Double.isInfinite(v)) {
+            return Math.copySign(Float.MAX_VALUE, (float) v);
+        }
+        return (float) v;
+    }
+
+    private static double unsignedToDouble(final long v) {
+        if (v >= 0) {
+            return v;
+        }
+        // halved keeping the rounding bit
+        return ((v >>> 1) | (v & 1)) * 2.0;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+
+import app.keve.hdf5io.api.HDF5DatatypeAdapter;
+
+/**
+ * An adapter of string elements, read in bulk through a {@link StringDecoder}.
+ */
+public interface StringAdapter extends HDF5DatatypeAdapter {
+    /**
+     * Create a decoder for the strings of this datatype.
+     * 
+     * @param mode the result of decoding
+     * @return the decoder
+     */
+    StringDecoder decoder(StringDecoder.Mode mode);
+
+    /**
+     * Return an iterator over the strings in the buffer.
+     * 
+     * @param buf     the buffer
+     * @param decoder the decoder of the strings, shared by the buffers of a bulk
+     *                read
+     * @return iterator of strings
+     */
+    Iterator<CharSequence> asCharSequenceIterator(ByteBuffer buf, StringDecoder decoder);
+}
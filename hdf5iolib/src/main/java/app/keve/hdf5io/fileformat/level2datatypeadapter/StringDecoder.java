@@ -0,0 +1,221 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.fileformat.level2datatypeadapter;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+import app.keve.hdf5io.api.datatype.HDF5Datatype.PaddingType;
+
+/**
+ * Decoder of the strings of a bulk read. The decoder and its character buffer
+ * are reused for all the strings. A decoder is used by one thread at a time.
+ */
+public final class StringDecoder {
+    /**
+     * The result of decoding a string.
+     */
+    public enum Mode {
+        /** A new string per element. */
+        STRING,
+        /**
+         * The same string for equal bytes, for columns with few distinct values.
+         * The dictionary stops growing at {@link StringDecoder#MAX_DICTIONARY_SIZE}
+         * entries.
+         */
+        DICTIONARY,
+        /** A lazy view of the bytes, decoded when read. */
+        VIEW
+    }
+
+    public static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+    private final Charset charset;
+    private final PaddingType paddingType;
+    private final Mode mode;
+    private final CharsetDecoder decoder;
+    private final Map<ByteBuffer, String> dictionary;
+    private final Map<Long, Object> resolved;
+    private CharBuffer chars;
+
+    public StringDecoder(final Charset charset, final PaddingType paddingType, final Mode mode) {
+        this.charset = charset;
+        this.paddingType = paddingType;
+        this.mode = mode;
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.dictionary = Mode.DICTIONARY == mode ? new HashMap<>() : null;
+        this.resolved = new HashMap<>();
+        this.chars = CharBuffer.allocate(64);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Decode a string, without its padding.
+     *
+     * @param bytes the bytes of the string from the position to the limit, not
+     *              modified
+     * @return the string, or a view of it
+     */
+    public CharSequence decode(final ByteBuffer bytes) {
+        final ByteBuffer content = trim(bytes, paddingType);
+        switch (mode) {
+        case VIEW:
+            return new ByteCharSequence(content, charset);
+        case DICTIONARY:
+            String s = dictionary.get(content);
+            if (null == s) {
+                s = decodeString(content);
+                if (dictionary.size() < MAX_DICTIONARY_SIZE) {
+                    // the key must not keep the chunk data alive
+                    final ByteBuffer key = ByteBuffer.allocate(content.remaining()).put(content.duplicate()).flip();
+                    dictionary.put(key, s);
+                }
+            }
+            return s;
+        default:
+            return decodeString(content);
+        }
+    }
+
+    private String decodeString(final ByteBuffer content) {
+        if (isAscii(content, charset)) {
+            return asciiString(content);
+        }
+        final int n = content.remaining();
+        if (chars.capacity() < n) {
+            chars = CharBuffer.allocate(Math.max(n, 2 * chars.capacity()));
+        }
+        chars.clear();
+        decoder.reset();
+        final CoderResult result = decoder.decode(content.duplicate(), chars, true);
+        if (result.isError()) {
+            throw new IllegalArgumentException("Cannot decode " + content + " as " + charset);
+        }
+        decoder.flush(chars);
+        return chars.flip().toString();
+    }
+
+    /**
+     * Get an object referenced by the strings, resolving it on the first use in
+     * this decoder.
+     *
+     * @param <T>      the type of the object
+     * @param address  the address of the object
+     * @param resolver the resolver of the object
+     * @return the object
+     */
+    @SuppressWarnings("unchecked")
+    <T> T resolved(final long address, final LongFunction<T> resolver) {
+        return (T) resolved.computeIfAbsent(address, resolver::apply);
+    }
+
+    /**
+     * Decode a single string.
+     *
+     * @param bytes       the bytes of the string, not modified
+     * @param charset     the charset
+     * @param paddingType the padding of the string
+     * @return the string
+     */
+    public static String decodeSingle(final ByteBuffer bytes, final Charset charset, final PaddingType paddingType) {
+        final ByteBuffer content = trim(bytes, paddingType);
+        if (isAscii(content, charset)) {
+            return asciiString(content);
+        }
+        if (content.hasArray()) {
+            return new String(content.array(), content.arrayOffset() + content.position(), content.remaining(),
+                    charset);
+        }
+        final byte[] b = new byte[content.remaining()];
+        content.duplicate().get(b);
+        return new String(b, charset);
+    }
+
+    /**
+     * Whether a string is read without a decoder: the charset is ASCII or UTF-8
+     * and every byte is below 0x80, so the bytes are the characters. Otherwise
+     * the charset decoder replaces the bytes it cannot decode.
+     *
+     * @param content the bytes of the string, not modified
+     * @param charset the charset
+     * @return true if the bytes are ASCII characters
+     */
+    static boolean isAscii(final ByteBuffer content, final Charset charset) {
+        if (!StandardCharsets.US_ASCII.equals(charset) && !StandardCharsets.UTF_8.equals(charset)) {
+            return false;
+        }
+        for (int i = content.position(); i < content.limit(); i++) {
+            if (content.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Read the bytes of a string as characters, see
+     * {@link #isAscii(ByteBuffer, Charset)}.
+     *
+     * @param content the bytes of the string, not modified
+     * @return the string
+     */
+    static String asciiString(final ByteBuffer content) {
+        if (content.hasArray()) {
+            return new String(content.array(), content.arrayOffset() + content.position(), content.remaining(),
+                    StandardCharsets.ISO_8859_1);
+        }
+        final byte[] b = new byte[content.remaining()];
+        content.duplicate().get(b);
+        return new String(b, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Remove the padding of a string. A zero byte does not occur in the multi-byte
+     * characters of UTF-8, so the padding is found in the bytes.
+     *
+     * @param bytes       the bytes of the string
+     * @param paddingType the padding
+     * @return the bytes without the padding
+     */
+    static ByteBuffer trim(final ByteBuffer bytes, final PaddingType paddingType) {
+        final int from = bytes.position();
+        int to = bytes.limit();
+        if (PaddingType.SPACE_PAD == paddingType) {
+            while (to > from && ' ' == bytes.get(to - 1)) {
+                to--;
+            }
+        } else {
+            int i = from;
+            while (i < to && 0 != bytes.get(i)) {
+                i++;
+            }
+            to = i;
+        }
+        return bytes.duplicate().limit(to);
+    }
+}
@@ -42,6 +42,10 @@ public interface DataLayoutMessageV4Chunked extends DataLayoutMessageChunked {
     }
 
     interface SingleChunkIndexingInformation extends ChunkIndexingInformation {
+        long getAddress();
+    }
+
+    interface FilteredSingleChunkIndexingInformation extends SingleChunkIndexingInformation {
         long getFilteredChunkSize();
 
         int getFilters();
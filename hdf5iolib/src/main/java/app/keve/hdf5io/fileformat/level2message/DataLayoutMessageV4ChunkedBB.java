@@ -46,9 +46,8 @@ public final class DataLayoutMessageV4ChunkedBB extends AbstractDataLayoutMessag
         size += 1;
         switch (getChunkIndexingType()) {
         case SINGLE:
-            size += context.lengthSize();
-            size += 4;
-            size += context.offsetSize();
+            size += isSingleIndexWithFilter() ? ChunkIndexFilteredSingleChunkBB.size(context)
+                    : ChunkIndexSingleChunkBB.size(context);
             break;
         case IMPLICIT:
             size += ChunkIndexImplicitBB.size(context);
@@ -122,6 +121,9 @@ public final class DataLayoutMessageV4ChunkedBB extends AbstractDataLayoutMessag
         idx += getDimensionality() * getDimensionSizeEncodedLength();
         idx += 1;
         switch (getChunkIndexingType()) {
+        case SINGLE:
+            return isSingleIndexWithFilter() ? getEmbedded(idx, FilteredSingleChunkIndexingInformation.class)
+                    : getEmbedded(idx, SingleChunkIndexingInformation.class);
         case IMPLICIT:
             return getEmbedded(idx, ImplicitIndexingInformation.class);
         case FIXED_ARRAY:
@@ -149,7 +151,7 @@ public final class DataLayoutMessageV4ChunkedBB extends AbstractDataLayoutMessag
         }
 
         public static long maxSize(final SizingContext sc) {
-            return Long.max(ChunkIndexSingleChunkBB.size(sc),
+            return Long.max(ChunkIndexFilteredSingleChunkBB.size(sc),
                     Long.max(ChunkIndexImplicitBB.size(sc), Long.max(ChunkIndexFixedArrayBB.size(sc),
                             Long.max(ChunkIndexExtensibleArrayBB.size(sc), ChunkIndexBTreeV2BB.size(sc)))));
         }
@@ -168,12 +170,34 @@ public final class DataLayoutMessageV4ChunkedBB extends AbstractDataLayoutMessag
         }
 
         public static long size(final SizingContext sc) {
-            return sc.lengthSize() + 4;
+            return sc.offsetSize();
+        }
+
+        @Override
+        public long size() {
+            return context.offsetSize();
+        }
+
+        @Override
+        public long getAddress() {
+            return getOffset(0);
+        }
+    }
+
+    public static final class ChunkIndexFilteredSingleChunkBB extends AbstractChunkIndexingInformationBB
+            implements FilteredSingleChunkIndexingInformation {
+
+        public ChunkIndexFilteredSingleChunkBB(final ByteBuffer buf, final SizingContext sizingContext) {
+            super(buf, sizingContext);
+        }
+
+        public static long size(final SizingContext sc) {
+            return sc.lengthSize() + 4 + sc.offsetSize();
         }
 
         @Override
         public long size() {
-            return context.lengthSize() + 4;
+            return context.lengthSize() + 4 + context.offsetSize();
         }
 
         @Override
@@ -185,6 +209,11 @@ public final class DataLayoutMessageV4ChunkedBB extends AbstractDataLayoutMessag
         public int getFilters() {
             return getSmallUnsignedInt(context.lengthSize());
         }
+
+        @Override
+        public long getAddress() {
+            return getOffset(context.lengthSize() + 4);
+        }
     }
 
     public static final class ChunkIndexImplicitBB extends AbstractChunkIndexingInformationBB
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filter;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import app.keve.hdf5io.api.HDF5Filter;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage.FilterDescription;
+
+/**
+ * The gzip filter, compressing with the zlib deflate format. The client data
+ * holds the compression level.
+ * 
+ * @author keve
+ *
+ */
+public final class DeflateFilter implements HDF5Filter {
+    private static final int DEFAULT_LEVEL = 6;
+    /** The inflaters, reset after use and kept for the next chunk of the thread. */
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    @Override
+    public int getId() {
+        return FilterDescription.FILTER_DEFLATE;
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize) {
+        return decode(input, clientData, decodedSize, null);
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize,
+            final ByteBuffer output) {
+        final Inflater inflater = INFLATER.get();
+        try {
+            // a direct input, as mapped from the file, is inflated without copying
+            inflater.setInput(input);
+            ByteBuffer out = null != output && output.capacity() >= decodedSize ? output.clear()
+                    : ByteBuffer.allocate(Integer.max(decodedSize, 1));
+            while (true) {
+                inflater.inflate(out);
+                if (inflater.finished()) {
+                    return out.flip();
+                }
+                if (inflater.needsInput() || inflater.needsDictionary()) {
+                    throw new IllegalArgumentException("Truncated deflate stream");
+                }
+                // the hint was too small
+                out = ByteBuffer.allocate(out.capacity() * 2).put(out.flip());
+            }
+        } catch (final DataFormatException e) {
+            throw new IllegalArgumentException(e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    @Override
+    public ByteBuffer encode(final ByteBuffer input, final int[] clientData) {
+        final Deflater deflater = new Deflater(clientData.length > 0 ? clientData[0] : DEFAULT_LEVEL);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteBuffer output = ByteBuffer.allocate(input.remaining() + input.remaining() / 1000 + 64);
+            while (true) {
+                deflater.deflate(output);
+                if (deflater.finished()) {
+                    return output.flip();
+                }
+                output = ByteBuffer.allocate(output.capacity() * 2).put(output.flip());
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+}
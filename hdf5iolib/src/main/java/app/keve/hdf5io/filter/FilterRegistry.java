@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import app.keve.hdf5io.api.HDF5Filter;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage.FilterDescription;
+
+/**
+ * The filters by their identification, applying the filter pipeline of a
+ * dataset to its chunks. The built-in filters may be replaced by filters
+ * provided through {@link ServiceLoader}.
+ * 
+ * @author keve
+ *
+ */
+public final class FilterRegistry {
+    private static final FilterRegistry DEFAULT = load();
+
+    /** The buffers for the intermediate results of the pipeline, per thread. */
+    private static final ThreadLocal<ByteBuffer[]> SCRATCH = ThreadLocal.withInitial(() -> new ByteBuffer[2]);
+
+    private final Map<Integer, HDF5Filter> filters = new ConcurrentHashMap<>();
+
+    public static FilterRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    private static FilterRegistry load() {
+        final FilterRegistry registry = new FilterRegistry();
+        registry.register(new DeflateFilter());
+        registry.register(new ShuffleFilter());
+        registry.register(new Fletcher32Filter());
+        ServiceLoader.load(HDF5Filter.class).forEach(registry::register);
+        return registry;
+    }
+
+    public void register(final HDF5Filter filter) {
+        filters.put(filter.getId(), filter);
+    }
+
+    public Optional<HDF5Filter> get(final int id) {
+        return Optional.ofNullable(filters.get(id));
+    }
+
+    /**
+     * Undo the filters of the pipeline, last filter first. The intermediate
+     * results are decoded into buffers kept per thread, only the result is
+     * allocated.
+     * 
+     * @param pipeline    the filter pipeline
+     * @param filterMask  the filters not applied to the chunk, bit n set for the
+     *                    n-th filter
+     * @param data        the filtered data
+     * @param decodedSize the expected size of the unfiltered data
+     * @return the unfiltered data
+     */
+    public ByteBuffer decode(final FilterPipelineMessage pipeline, final int filterMask, final ByteBuffer data,
+            final int decodedSize) {
+        final List<FilterDescription> descriptions = pipeline.getFilters();
+        int first = 0;
+        while (first < descriptions.size() && 0 != (filterMask & 1 << first)) {
+            first++;
+        }
+        final ByteBuffer[] scratch = SCRATCH.get();
+        ByteBuffer buf = data;
+        for (int i = descriptions.size() - 1; i >= 0; i--) {
+            if (0 == (filterMask & 1 << i)) {
+                final FilterDescription description = descriptions.get(i);
+                if (i == first) {
+                    buf = filter(description).decode(buf, clientData(description), decodedSize);
+                } else {
+                    // alternate the buffers, the input may be one of them
+                    final int next = isScratch(buf, scratch[0]) ? 1 : 0;
+                    if (null == scratch[next] || scratch[next].capacity() < decodedSize) {
+                        scratch[next] = ByteBuffer.allocate(decodedSize);
+                    }
+                    buf = filter(description).decode(buf, clientData(description), decodedSize, scratch[next]);
+                }
+            }
+        }
+        if (isScratch(buf, scratch[0]) || isScratch(buf, scratch[1])) {
+            // a filter returned its input
+            return ByteBuffer.allocate(buf.remaining()).put(buf.duplicate()).flip();
+        }
+        return buf;
+    }
+
+    private static boolean isScratch(final ByteBuffer buf, final ByteBuffer scratch) {
+        return null != scratch && buf.hasArray() && buf.array() == scratch.array();
+    }
+
+    /**
+     * Apply the filters of the pipeline, first filter first.
+     * 
+     * @param pipeline the filter pipeline
+     * @param data     the data
+     * @return the filtered data
+     */
+    public ByteBuffer encode(final FilterPipelineMessage pipeline, final ByteBuffer data) {
+        ByteBuffer buf = data;
+        for (final FilterDescription description : pipeline.getFilters()) {
+            buf = filter(description).encode(buf, clientData(description));
+        }
+        return buf;
+    }
+
+    private HDF5Filter filter(final FilterDescription description) {
+        return get(description.getFilterIdentification())
+                .orElseThrow(() -> new IllegalArgumentException("Implement filter: " + description));
+    }
+
+    private static int[] clientData(final FilterDescription description) {
+        final IntBuffer clientData = description.getClientData();
+        if (null == clientData) {
+            return new int[0];
+        }
+        final int[] values = new int[clientData.remaining()];
+        clientData.duplicate().get(values);
+        return values;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import app.keve.hdf5io.api.HDF5Filter;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage.FilterDescription;
+
+/**
+ * The Fletcher32 checksum filter, appending the checksum of the data. Decoding
+ * verifies the checksum and returns a view of the data without it.
+ * 
+ * @author keve
+ *
+ */
+public final class Fletcher32Filter implements HDF5Filter {
+    /** The number of 16 bit words summed before the sums are folded. */
+    private static final int FOLD_WORDS = 360;
+
+    @Override
+    public int getId() {
+        return FilterDescription.FILTER_FLETCHER32;
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize) {
+        final int length = input.remaining() - 4;
+        if (length < 0) {
+            throw new IllegalArgumentException("No Fletcher32 checksum in " + input.remaining() + " bytes");
+        }
+        final ByteBuffer data = input.slice().limit(length);
+        final int stored = input.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(input.position() + length);
+        final int checksum = checksum(data);
+        // versions before 1.6.3 swapped the bytes of the sums on little endian hosts
+        final int swapped = (checksum & 0xFF00FF00) >>> 8 | (checksum & 0x00FF00FF) << 8;
+        if (stored != checksum && stored != swapped) {
+            throw new IllegalArgumentException(
+                    String.format("Fletcher32 checksum mismatch, stored %08x, computed %08x", stored, checksum));
+        }
+        return data;
+    }
+
+    @Override
+    public ByteBuffer encode(final ByteBuffer input, final int[] clientData) {
+        final int length = input.remaining();
+        final ByteBuffer output = ByteBuffer.allocate(length + 4).order(ByteOrder.LITTLE_ENDIAN);
+        output.put(input.duplicate()).putInt(checksum(input)).flip();
+        return output;
+    }
+
+    /**
+     * Compute the checksum of the data between position and limit, summing big
+     * endian 16 bit words, the last odd byte as the high byte of a word. The
+     * data is read four words at a time.
+     * 
+     * @param data the data
+     * @return the checksum
+     */
+    static int checksum(final ByteBuffer data) {
+        final ByteBuffer buf = data.slice().order(ByteOrder.BIG_ENDIAN);
+        final int length = buf.remaining();
+        final int words = length / 2;
+        int sum1 = 0;
+        int sum2 = 0;
+        int idx = 0;
+        for (int done = 0; done < words;) {
+            final int end = idx + 2 * Integer.min(FOLD_WORDS, words - done);
+            done += (end - idx) / 2;
+            for (; idx + 8 <= end; idx += 8) {
+                final long w = buf.getLong(idx);
+                sum1 += (int) (w >>> 48);
+                sum2 += sum1;
+                sum1 += (int) (w >>> 32) & 0xFFFF;
+                sum2 += sum1;
+                sum1 += (int) (w >>> 16) & 0xFFFF;
+                sum2 += sum1;
+                sum1 += (int) w & 0xFFFF;
+                sum2 += sum1;
+            }
+            for (; idx < end; idx += 2) {
+                sum1 += buf.getShort(idx) & 0xFFFF;
+                sum2 += sum1;
+            }
+            sum1 = (sum1 & 0xFFFF) + (sum1 >>> 16);
+            sum2 = (sum2 & 0xFFFF) + (sum2 >>> 16);
+        }
+        if (length % 2 != 0) {
+            sum1 += (buf.get(length - 1) & 0xFF) << 8;
+            sum2 += sum1;
+            sum1 = (sum1 & 0xFFFF) + (sum1 >>> 16);
+            sum2 = (sum2 & 0xFFFF) + (sum2 >>> 16);
+        }
+        sum1 = (sum1 & 0xFFFF) + (sum1 >>> 16);
+        sum2 = (sum2 & 0xFFFF) + (sum2 >>> 16);
+        return sum2 << 16 | sum1;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import app.keve.hdf5io.api.HDF5Filter;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage.FilterDescription;
+
+/**
+ * The shuffle filter, storing the n-th bytes of all elements together. The
+ * client data holds the element size.
+ * 
+ * <p>
+ * Elements of sizes 2, 4 and 8 are moved eight at a time: a long is read from
+ * each byte plane (or of elements), the 8x8 byte matrix is transposed in
+ * registers and written as longs of elements (or byte planes). Other sizes, and
+ * the elements remaining, are moved byte by byte. Trailing bytes that do not
+ * form an element are kept in place.
+ * 
+ * @author keve
+ *
+ */
+public final class ShuffleFilter implements HDF5Filter {
+    private static final int BLOCK = 8;
+
+    @Override
+    public int getId() {
+        return FilterDescription.FILTER_SHUFFLE;
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize) {
+        return transform(input, elementSize(clientData), false, null);
+    }
+
+    @Override
+    public ByteBuffer decode(final ByteBuffer input, final int[] clientData, final int decodedSize,
+            final ByteBuffer output) {
+        return transform(input, elementSize(clientData), false, output);
+    }
+
+    @Override
+    public ByteBuffer encode(final ByteBuffer input, final int[] clientData) {
+        return transform(input, elementSize(clientData), true, null);
+    }
+
+    private static int elementSize(final int[] clientData) {
+        if (0 == clientData.length || clientData[0] < 1) {
+            throw new IllegalArgumentException("Shuffle needs the element size as client data");
+        }
+        return clientData[0];
+    }
+
+    private static ByteBuffer transform(final ByteBuffer input, final int elementSize, final boolean shuffle,
+            final ByteBuffer output) {
+        final int length = input.remaining();
+        final int count = length / elementSize;
+        if (1 == elementSize || count < 2) {
+            return input;
+        }
+        final ByteBuffer src = input.slice().order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer dst = (null != output && output.capacity() >= length ? output.clear().limit(length)
+                : ByteBuffer.allocate(length)).order(ByteOrder.LITTLE_ENDIAN);
+        int done = 0;
+        if (BLOCK % elementSize == 0) {
+            done = count / BLOCK * BLOCK;
+            if (shuffle) {
+                shuffleWords(src, dst, elementSize, count, done);
+            } else {
+                unshuffleWords(src, dst, elementSize, count, done);
+            }
+        }
+        for (int i = done; i < count; i++) {
+            for (int j = 0; j < elementSize; j++) {
+                if (shuffle) {
+                    dst.put(j * count + i, src.get(i * elementSize + j));
+                } else {
+                    dst.put(i * elementSize + j, src.get(j * count + i));
+                }
+            }
+        }
+        for (int k = count * elementSize; k < length; k++) {
+            dst.put(k, src.get(k));
+        }
+        return dst;
+    }
+
+    private static void unshuffleWords(final ByteBuffer src, final ByteBuffer dst, final int elementSize,
+            final int count, final int blocks) {
+        final long[] m = new long[BLOCK];
+        final int perWord = BLOCK / elementSize;
+        final int bits = 8 * elementSize;
+        for (int i = 0; i < blocks; i += BLOCK) {
+            // byte j of the elements i..i+7, as rows of the matrix
+            for (int j = 0; j < elementSize; j++) {
+                m[j] = src.getLong(j * count + i);
+            }
+            for (int j = elementSize; j < BLOCK; j++) {
+                m[j] = 0;
+            }
+            transpose(m);
+            // rows are now the elements, in their low bytes
+            for (int w = 0; w < elementSize; w++) {
+                long word = 0;
+                for (int q = 0; q < perWord; q++) {
+                    word |= m[w * perWord + q] << bits * q;
+                }
+                dst.putLong(i * elementSize + w * BLOCK, word);
+            }
+        }
+    }
+
+    private static void shuffleWords(final ByteBuffer src, final ByteBuffer dst, final int elementSize,
+            final int count, final int blocks) {
+        final long[] m = new long[BLOCK];
+        final int perWord = BLOCK / elementSize;
+        final int bits = 8 * elementSize;
+        final long mask = 8 == elementSize ? -1L : (1L << bits) - 1;
+        for (int i = 0; i < blocks; i += BLOCK) {
+            // the elements i..i+7, as rows of the matrix
+            for (int w = 0; w < elementSize; w++) {
+                final long word = src.getLong(i * elementSize + w * BLOCK);
+                for (int q = 0; q < perWord; q++) {
+                    m[w * perWord + q] = word >>> bits * q & mask;
+                }
+            }
+            transpose(m);
+            // rows are now the byte planes
+            for (int j = 0; j < elementSize; j++) {
+                dst.putLong(j * count + i, m[j]);
+            }
+        }
+    }
+
+    /**
+     * Transpose the 8x8 byte matrix having the longs as rows and the little
+     * endian bytes as columns, by swapping blocks of 4x4, 2x2 and 1x1 bytes.
+     * 
+     * @param m the eight rows of the matrix, transposed in place
+     */
+    static void transpose(final long[] m) {
+        for (int j = 0; j < 4; j++) {
+            final long t = (m[j] >>> 32 ^ m[j + 4]) & 0x0000_0000_FFFF_FFFFL;
+            m[j] ^= t << 32;
+            m[j + 4] ^= t;
+        }
+        for (int k = 0; k < BLOCK; k += 4) {
+            for (int j = k; j < k + 2; j++) {
+                final long t = (m[j] >>> 16 ^ m[j + 2]) & 0x0000_FFFF_0000_FFFFL;
+                m[j] ^= t << 16;
+                m[j + 2] ^= t;
+            }
+        }
+        for (int j = 0; j < BLOCK; j += 2) {
+            final long t = (m[j] >>> 8 ^ m[j + 1]) & 0x00FF_00FF_00FF_00FFL;
+            m[j] ^= t << 8;
+            m[j + 1] ^= t;
+        }
+    }
+}
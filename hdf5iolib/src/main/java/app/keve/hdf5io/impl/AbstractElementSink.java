@@ -0,0 +1,617 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.impl;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import app.keve.hdf5io.api.HDF5Dataset.Narrowing;
+import app.keve.hdf5io.api.HDF5DatatypeAdapter;
+import app.keve.hdf5io.api.util.Aggregation;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.CompoundRecordBinding;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.NumericConverter;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.StringAdapter;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.StringDecoder;
+
+/**
+ * Target of a selection read, receiving runs of consecutive elements of a
+ * chunk. The chunk data is prepared once per chunk, so the runs are copied
+ * through a single view without allocating.
+ * 
+ * <p>
+ * A sink is used by one thread at a time.
+ */
+abstract class AbstractElementSink {
+    private static final String CANNOT_READ = "Cannot read ";
+    private static final int BLOCK = 512;
+
+    protected final HDF5DatatypeAdapter adapter;
+    protected final int elementSize;
+
+    AbstractElementSink(final HDF5DatatypeAdapter adapter) {
+        this(adapter, adapter.getDatatype().getElementSize());
+    }
+
+    AbstractElementSink(final HDF5DatatypeAdapter adapter, final int elementSize) {
+        this.adapter = adapter;
+        this.elementSize = elementSize;
+    }
+
+    /**
+     * Check that the target can take the elements.
+     * 
+     * @param n the number of elements
+     */
+    abstract void checkCapacity(int n);
+
+    /**
+     * Set the elements of the target to zero, for the elements of chunks not
+     * stored.
+     * 
+     * @param n the number of elements
+     */
+    abstract void clear(int n);
+
+    /**
+     * Prepare the data of a chunk for the following runs.
+     * 
+     * @param chunkData the data of the chunk, not modified
+     */
+    abstract void prepare(ByteBuffer chunkData);
+
+    /**
+     * Copy a run of elements from the prepared chunk.
+     * 
+     * @param sourceIndex the element index in the chunk
+     * @param targetIndex the element index in the target
+     * @param length      the number of elements
+     */
+    abstract void copy(int sourceIndex, int targetIndex, int length);
+
+    /**
+     * The view of a run of the prepared chunk, for the conversions without a
+     * buffer view.
+     * 
+     * @param chunk the chunk data
+     * @param from  the byte offset of the run
+     * @param to    the byte offset past the run
+     * @return the run
+     */
+    protected static ByteBuffer run(final ByteBuffer chunk, final int from, final int to) {
+        return chunk.duplicate().clear().position(from).limit(to).slice();
+    }
+
+    protected static void checkBounds(final int n, final int offset, final int length) {
+        if (offset < 0 || n > length - offset) {
+            throw new IllegalArgumentException(
+                    CANNOT_READ + n + " elements into " + length + " from offset " + offset);
+        }
+    }
+
+    static AbstractElementSink of(final HDF5DatatypeAdapter adapter, final ByteBuffer dst) {
+        return new AbstractElementSink(adapter) {
+            private final int base = dst.position();
+            private final ByteBuffer target = dst.duplicate();
+            private ByteBuffer source;
+
+            @Override
+            void checkCapacity(final int n) {
+                checkBounds(n * elementSize, 0, dst.remaining());
+            }
+
+            @Override
+            void clear(final int n) {
+                final int end = base + n * elementSize;
+                if (target.hasArray()) {
+                    Arrays.fill(target.array(), target.arrayOffset() + base, target.arrayOffset() + end, (byte) 0);
+                } else {
+                    for (int i = base; i < end; i++) {
+                        target.put(i, (byte) 0);
+                    }
+                }
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                source = chunkData.duplicate();
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                final int from = sourceIndex * elementSize;
+                source.clear().position(from).limit(from + length * elementSize);
+                target.clear().position(base + targetIndex * elementSize);
+                target.put(source);
+            }
+        };
+    }
+
+    static AbstractElementSink of(final HDF5DatatypeAdapter adapter, final double[] dst, final int offset) {
+        return new DoubleArraySink(adapter, dst, offset);
+    }
+
+    static AbstractElementSink of(final HDF5DatatypeAdapter adapter, final float[] dst, final int offset) {
+        return new AbstractElementSink(adapter) {
+            private FloatBuffer floats;
+
+            @Override
+            void checkCapacity(final int n) {
+                checkBounds(n, offset, dst.length);
+            }
+
+            @Override
+            void clear(final int n) {
+                Arrays.fill(dst, offset, offset + n, 0);
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                floats = adapter.asFloatBuffer(chunkData.duplicate());
+                if (null == floats) {
+                    throw new IllegalArgumentException(CANNOT_READ + adapter.getDatatype() + " as float");
+                }
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                floats.position(sourceIndex);
+                floats.get(dst, offset + targetIndex, length);
+            }
+        };
+    }
+
+    static AbstractElementSink of(final HDF5DatatypeAdapter adapter, final int[] dst, final int offset) {
+        return new AbstractElementSink(adapter) {
+            private ByteBuffer source;
+            private IntBuffer ints;
+
+            @Override
+            void checkCapacity(final int n) {
+                checkBounds(n, offset, dst.length);
+            }
+
+            @Override
+            void clear(final int n) {
+                Arrays.fill(dst, offset, offset + n, 0);
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                source = chunkData;
+                ints = adapter.asIntBuffer(chunkData.duplicate());
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                if (null != ints) {
+                    ints.position(sourceIndex);
+                    ints.get(dst, offset + targetIndex, length);
+                } else {
+                    final PrimitiveIterator.OfInt it = adapter.asIntIterator(
+                            run(source, sourceIndex * elementSize, (sourceIndex + length) * elementSize));
+                    if (null == it) {
+                        throw new IllegalArgumentException(CANNOT_READ + adapter.getDatatype() + " as int");
+                    }
+                    for (int i = 0; i < length; i++) {
+                        dst[offset + targetIndex + i] = it.nextInt();
+                    }
+                }
+            }
+        };
+    }
+
+    static AbstractElementSink of(final HDF5DatatypeAdapter adapter, final long[] dst, final int offset) {
+        return new AbstractElementSink(adapter) {
+            private ByteBuffer source;
+            private LongBuffer longs;
+
+            @Override
+            void checkCapacity(final int n) {
+                checkBounds(n, offset, dst.length);
+            }
+
+            @Override
+            void clear(final int n) {
+                Arrays.fill(dst, offset, offset + n, 0);
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                source = chunkData;
+                longs = adapter.asLongBuffer(chunkData.duplicate());
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                if (null != longs) {
+                    longs.position(sourceIndex);
+                    longs.get(dst, offset + targetIndex, length);
+                } else {
+                    final PrimitiveIterator.OfLong it = adapter.asLongIterator(
+                            run(source, sourceIndex * elementSize, (sourceIndex + length) * elementSize));
+                    if (null == it) {
+                        throw new IllegalArgumentException(CANNOT_READ + adapter.getDatatype() + " as long");
+                    }
+                    for (int i = 0; i < length; i++) {
+                        dst[offset + targetIndex + i] = it.nextLong();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * A sink converting fixed and floating point elements to a primitive array.
+     * 
+     * @param adapter   the adapter of the elements
+     * @param converter the converter of the elements
+     * @param dst       the byte, short, int, long, float or double array
+     * @param offset    the index of the first element in the array
+     * @param narrowing the narrowing of the values out of the range of the array
+     * @return the sink
+     */
+    static AbstractElementSink of(final HDF5DatatypeAdapter adapter, final NumericConverter converter,
+            final Object dst, final int offset, final Narrowing narrowing) {
+        return new AbstractElementSink(adapter) {
+            private final int capacity = Array.getLength(dst);
+            private ByteBuffer source;
+
+            @Override
+            void checkCapacity(final int n) {
+                checkBounds(n, offset, capacity);
+            }
+
+            @Override
+            void clear(final int n) {
+                final ByteBuffer zero = ByteBuffer.allocate(elementSize * BLOCK);
+                for (int i = 0; i < n; i += BLOCK) {
+                    converter.read(zero, 0, dst, offset + i, Math.min(BLOCK, n - i), narrowing);
+                }
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                source = chunkData.duplicate();
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                converter.read(source, sourceIndex, dst, offset + targetIndex, length, narrowing);
+            }
+        };
+    }
+
+    static <T> AbstractElementSink of(final HDF5DatatypeAdapter adapter, final CompoundRecordBinding<T> binding,
+            final T[] dst) {
+        return new AbstractElementSink(adapter) {
+            private ByteBuffer source;
+
+            @Override
+            void checkCapacity(final int n) {
+                checkBounds(n, 0, dst.length);
+            }
+
+            @Override
+            void clear(final int n) {
+                final ByteBuffer zero = ByteBuffer.allocate(elementSize);
+                for (int i = 0; i < n; i++) {
+                    dst[i] = binding.decode(zero, 0);
+                }
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                source = chunkData;
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                for (int i = 0; i < length; i++) {
+                    dst[targetIndex + i] = binding.decode(source, (sourceIndex + i) * elementSize);
+                }
+            }
+        };
+    }
+
+    static AbstractElementSink of(final StringAdapter stringAdapter, final StringDecoder decoder,
+            final CharSequence[] dst) {
+        return new AbstractElementSink(stringAdapter) {
+            private ByteBuffer source;
+
+            @Override
+            void checkCapacity(final int n) {
+                checkBounds(n, 0, dst.length);
+            }
+
+            @Override
+            void clear(final int n) {
+                Arrays.fill(dst, 0, n, "");
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                source = chunkData;
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                final Iterator<CharSequence> it = stringAdapter.asCharSequenceIterator(
+                        run(source, sourceIndex * elementSize, (sourceIndex + length) * elementSize), decoder);
+                for (int i = 0; i < length; i++) {
+                    dst[targetIndex + i] = it.next();
+                }
+            }
+        };
+    }
+
+    /**
+     * A sink of a member of compound records. The member is gathered from the
+     * records of each chunk into a packed buffer, which the member sink reads.
+     * 
+     * @param recordSize   the size of the compound records
+     * @param memberOffset the byte offset of the member in the record
+     * @param memberSink   the sink of the member values
+     * @return the sink of the records
+     */
+    static AbstractElementSink project(final int recordSize, final int memberOffset,
+            final AbstractElementSink memberSink) {
+        return new ProjectionSink(recordSize, memberOffset, memberSink);
+    }
+
+    /**
+     * A sink passing the runs to all the sinks, so several members are read in
+     * one pass over the chunks.
+     * 
+     * @param sinks the sinks
+     * @return the sink
+     */
+    static AbstractElementSink all(final List<AbstractElementSink> sinks) {
+        return new AbstractElementSink(sinks.get(0).adapter, sinks.get(0).elementSize) {
+            @Override
+            void checkCapacity(final int n) {
+                sinks.forEach(sink -> sink.checkCapacity(n));
+            }
+
+            @Override
+            void clear(final int n) {
+                sinks.forEach(sink -> sink.clear(n));
+            }
+
+            @Override
+            void prepare(final ByteBuffer chunkData) {
+                sinks.forEach(sink -> sink.prepare(chunkData));
+            }
+
+            @Override
+            void copy(final int sourceIndex, final int targetIndex, final int length) {
+                for (final AbstractElementSink sink : sinks) {
+                    sink.copy(sourceIndex, targetIndex, length);
+                }
+            }
+        };
+    }
+
+    /**
+     * A double array target, widening the float and integer types.
+     */
+    private static final class DoubleArraySink extends AbstractElementSink {
+        private final double[] dst;
+        private final int offset;
+        private ByteBuffer source;
+        private DoubleBuffer doubles;
+        private FloatBuffer floats;
+        private LongBuffer longs;
+
+        DoubleArraySink(final HDF5DatatypeAdapter adapter, final double[] dst, final int offset) {
+            super(adapter);
+            this.dst = dst;
+            this.offset = offset;
+        }
+
+        @Override
+        void checkCapacity(final int n) {
+            checkBounds(n, offset, dst.length);
+        }
+
+        @Override
+        void clear(final int n) {
+            Arrays.fill(dst, offset, offset + n, 0);
+        }
+
+        @Override
+        void prepare(final ByteBuffer chunkData) {
+            source = chunkData;
+            // the first view the datatype has, widened
+            doubles = adapter.asDoubleBuffer(chunkData.duplicate());
+            floats = null == doubles ? adapter.asFloatBuffer(chunkData.duplicate()) : null;
+            longs = null == doubles && null == floats ? adapter.asLongBuffer(chunkData.duplicate()) : null;
+        }
+
+        @Override
+        void copy(final int sourceIndex, final int targetIndex, final int length) {
+            if (null != doubles) {
+                doubles.position(sourceIndex);
+                doubles.get(dst, offset + targetIndex, length);
+            } else if (null != floats) {
+                for (int i = 0; i < length; i++) {
+                    dst[offset + targetIndex + i] = floats.get(sourceIndex + i);
+                }
+            } else if (null != longs) {
+                for (int i = 0; i < length; i++) {
+                    dst[offset + targetIndex + i] = longs.get(sourceIndex + i);
+                }
+            } else {
+                final ByteBuffer run = run(source, sourceIndex * elementSize,
+                        (sourceIndex + length) * elementSize);
+                // the long conversion of the narrower integers keeps them unsigned where they are
+                final PrimitiveIterator.OfLong integers = adapter.asLongIterator(run.duplicate());
+                final PrimitiveIterator.OfDouble it = null == integers ? adapter.asDoubleIterator(run) : null;
+                if (null == integers && null == it) {
+                    throw new IllegalArgumentException(CANNOT_READ + adapter.getDatatype() + " as double");
+                }
+                for (int i = 0; i < length; i++) {
+                    dst[offset + targetIndex + i] = null == integers ? it.nextDouble() : integers.nextLong();
+                }
+            }
+        }
+    }
+
+    /**
+     * A target of a member of compound records, see
+     * {@link #project(int, int, AbstractElementSink)}.
+     */
+    private static final class ProjectionSink extends AbstractElementSink {
+        private final int memberOffset;
+        private final int memberSize;
+        private final AbstractElementSink memberSink;
+        private ByteBuffer column;
+
+        ProjectionSink(final int recordSize, final int memberOffset, final AbstractElementSink memberSink) {
+            super(memberSink.adapter, recordSize);
+            this.memberOffset = memberOffset;
+            this.memberSize = memberSink.elementSize;
+            this.memberSink = memberSink;
+        }
+
+        @Override
+        void checkCapacity(final int n) {
+            memberSink.checkCapacity(n);
+        }
+
+        @Override
+        void clear(final int n) {
+            memberSink.clear(n);
+        }
+
+        @Override
+        void prepare(final ByteBuffer chunkData) {
+            final ByteBuffer records = chunkData.slice().order(chunkData.order());
+            final int n = records.remaining() / elementSize;
+            if (null == column || column.capacity() < n * memberSize) {
+                column = ByteBuffer.allocate(n * memberSize);
+            }
+            // copied as raw bits, so the order only has to match
+            column.clear().limit(n * memberSize);
+            column.order(records.order());
+            gather(records, n);
+            memberSink.prepare(column);
+        }
+
+        private void gather(final ByteBuffer records, final int n) {
+            switch (memberSize) {
+            case 8:
+                for (int i = 0, r = memberOffset; i < n; i++, r += elementSize) {
+                    column.putLong(i * 8, records.getLong(r));
+                }
+                break;
+            case 4:
+                for (int i = 0, r = memberOffset; i < n; i++, r += elementSize) {
+                    column.putInt(i * 4, records.getInt(r));
+                }
+                break;
+            case 2:
+                for (int i = 0, r = memberOffset; i < n; i++, r += elementSize) {
+                    column.putShort(i * 2, records.getShort(r));
+                }
+                break;
+            default:
+                for (int i = 0, r = memberOffset; i < n; i++, r += elementSize) {
+                    for (int b = 0; b < memberSize; b++) {
+                        column.put(i * memberSize + b, records.get(r + b));
+                    }
+                }
+            }
+        }
+
+        @Override
+        void copy(final int sourceIndex, final int targetIndex, final int length) {
+            memberSink.copy(sourceIndex, targetIndex, length);
+        }
+    }
+
+    /**
+     * A reduction of the elements instead of a target, decoding a block of
+     * elements to double at a time. The target indexes are not used, so the
+     * selection may exceed the range of an array.
+     * 
+     * @param <A> the type of the partial result
+     */
+    static final class AggregationSink<A> extends AbstractElementSink {
+        private final Aggregation<A, ?> aggregation;
+        private final NumericConverter converter;
+        private final double[] values;
+        private final A partial;
+        private long elements;
+        private ByteBuffer source;
+
+        AggregationSink(final HDF5DatatypeAdapter adapter, final Aggregation<A, ?> aggregation) {
+            super(adapter);
+            this.aggregation = aggregation;
+            // a converter per sink, as its blocks are not shared
+            this.converter = NumericConverter.forType(adapter.getDatatype());
+            this.values = new double[BLOCK];
+            this.partial = aggregation.create();
+        }
+
+        A getPartial() {
+            return partial;
+        }
+
+        /**
+         * Get the number of elements accumulated, for the elements of the chunks not
+         * stored.
+         * 
+         * @return the number of elements
+         */
+        long getElements() {
+            return elements;
+        }
+
+        @Override
+        void checkCapacity(final int n) {
+            // no target
+        }
+
+        @Override
+        void clear(final int n) {
+            aggregation.accumulate(partial, 0, n);
+            elements += n;
+        }
+
+        @Override
+        void prepare(final ByteBuffer chunkData) {
+            source = chunkData.duplicate();
+        }
+
+        @Override
+        void copy(final int sourceIndex, final int targetIndex, final int length) {
+            for (int done = 0; done < length; done += BLOCK) {
+                final int n = Math.min(BLOCK, length - done);
+                converter.read(source, sourceIndex + done, values, 0, n, Narrowing.WRAP);
+                aggregation.accumulate(partial, values, 0, n);
+            }
+            elements += length;
+        }
+    }
+}
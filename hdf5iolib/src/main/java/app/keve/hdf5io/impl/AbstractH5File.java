@@ -19,29 +19,56 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import app.keve.hdf5io.api.HDF5CacheStatistics;
 import app.keve.hdf5io.fileformat.H5Context;
 import app.keve.hdf5io.fileformat.H5Object;
 import app.keve.hdf5io.fileformat.H5Registry;
+import app.keve.hdf5io.util.ChunkCache;
 
 public abstract class AbstractH5File extends H5Heap implements AutoCloseable {
     private final Logger logger = LoggerFactory.getLogger(AbstractH5File.class);
 
-    // this is nice for performance, but unclean.
-    // currently needed to avoid StackOverflow in traversing the HDF object tree
+    // also needed to avoid StackOverflow in traversing the HDF object tree
     // with cycles.
-    @Deprecated
-    private final Map<Long, H5Object<?>> resolvedMap;
+    private final MetadataCache metadataCache;
 
     protected AbstractH5File(final H5Registry hdf5Registry) {
-        super(hdf5Registry);
-        resolvedMap = new LinkedHashMap<>();
+        this(hdf5Registry, MetadataCache.DEFAULT_MAX_WEIGHT, 1, ChunkCache.of(), null);
+    }
+
+    protected AbstractH5File(final H5Registry hdf5Registry, final long metadataCacheSize,
+            final int concurrencyLevel, final ChunkCache chunkCache, final Executor chunkExecutor) {
+        super(hdf5Registry, chunkCache, chunkExecutor);
+        metadataCache = new MetadataCache(metadataCacheSize, concurrencyLevel);
+    }
+
+    public final HDF5CacheStatistics getMetadataCacheStatistics() {
+        return metadataCache;
+    }
+
+    public final HDF5CacheStatistics getChunkCacheStatistics() {
+        return chunkCache();
+    }
+
+    /**
+     * Keep the object at the address in the metadata cache until the file is
+     * closed.
+     * 
+     * @param address the address of the object
+     */
+    protected final void pinMetadata(final long address) {
+        metadataCache.pin(address);
+    }
+
+    protected final void clearMetadata() {
+        metadataCache.clear();
+        chunkCache().clear();
     }
 
     protected abstract ByteBuffer at(long address, long length) throws IOException;
@@ -56,18 +83,23 @@ public abstract class AbstractH5File extends H5Heap implements AutoCloseable {
             return t;
         }
 
-        t = (T) resolvedMap.get(address);
+        t = (T) metadataCache.get(address);
         if (null == t) {
             try {
                 final long len = 0 == length ? -h5Registry.minSize(tClass, sc) : length;
                 final BiFunction<ByteBuffer, S, T> of = of(tClass);
-                final ByteBuffer buf = at(address, len).order(ByteOrder.LITTLE_ENDIAN);
+                ByteBuffer buf = at(address, len).order(ByteOrder.LITTLE_ENDIAN);
                 t = of.apply(buf, sc);
                 assert t.size() > 0 : "Invalid size for instance of " + tClass;
+                if (t.size() > buf.capacity()) {
+                    // the storage provided less than the actual size, read again with exact size
+                    buf = at(address, t.size()).order(ByteOrder.LITTLE_ENDIAN);
+                    t = of.apply(buf, sc);
+                }
                 assert t.size() <= buf.capacity() : "Invalid size for instance of " + tClass + " resolved at " + address
                         + " requested" + t.size() + " has " + buf.capacity();
                 buf.limit((int) t.size());
-                resolvedMap.put(address, t);
+                metadataCache.put(address, t);
             } catch (final IOException e) {
                 throw new UncheckedIOException(e);
             }
@@ -19,40 +19,71 @@ import java.io.IOException;
 import java.lang.reflect.Array;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.nio.LongBuffer;
 import java.nio.ShortBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.OptionalInt;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 import app.keve.hdf5io.api.HDF5Dataset;
 import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.HDF5FormatException;
+import app.keve.hdf5io.api.HDF5Hyperslab;
+import app.keve.hdf5io.api.datatype.HDF5Compound;
+import app.keve.hdf5io.api.datatype.HDF5Compound.Member;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
 import app.keve.hdf5io.api.datatype.HDF5Datatype.DatatypeBuilder;
+import app.keve.hdf5io.api.util.Aggregation;
 import app.keve.hdf5io.api.util.ArrayUtil;
+import app.keve.hdf5io.api.util.NDArray;
 import app.keve.hdf5io.fileformat.BTreeV1DataManager;
 import app.keve.hdf5io.fileformat.BTreeV1DataManager.TreeEntryData;
+import app.keve.hdf5io.fileformat.BTreeV2ChunkManager;
+import app.keve.hdf5io.fileformat.ChunkIndexCursor;
+import app.keve.hdf5io.fileformat.ChunkIndexEntry;
+import app.keve.hdf5io.fileformat.ExtensibleArrayManager;
+import app.keve.hdf5io.fileformat.FixedArrayManager;
 import app.keve.hdf5io.fileformat.H5Factory;
 import app.keve.hdf5io.fileformat.H5Object;
 import app.keve.hdf5io.fileformat.H5Resolver;
 import app.keve.hdf5io.fileformat.Resolvable;
 import app.keve.hdf5io.fileformat.SizingContext;
-import app.keve.hdf5io.fileformat.level1.ExtensibleArrayIndex;
-import app.keve.hdf5io.fileformat.level1.ExtensibleArrayIndexBlock;
+import app.keve.hdf5io.fileformat.SizingContextBTreeV2;
+import app.keve.hdf5io.fileformat.level1.BTreeV2;
 import app.keve.hdf5io.fileformat.level2.ObjectHeader;
 import app.keve.hdf5io.fileformat.level2.ObjectHeaderV1;
 import app.keve.hdf5io.fileformat.level2datatype.AbstractDatatypeBB;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.CompoundRecordBinding;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericCompoundToMapAdapter;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.NumericConverter;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.StringAdapter;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.StringDecoder;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessage;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageCompact;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageContiguous;
@@ -60,16 +91,26 @@ import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV1Contiguous;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV3Chunked;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.ChunkIndexingInformation;
+import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.ChunkIndexingType;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.ExtensibleArrayIndexingInformation;
+import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.FilteredSingleChunkIndexingInformation;
+import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.FixedArrayIndexingInformation;
+import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.ImplicitIndexingInformation;
+import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.SingleChunkIndexingInformation;
 import app.keve.hdf5io.fileformat.level2message.DataLayoutMessageV4Chunked.Version2BTreeIndexingInformation;
 import app.keve.hdf5io.fileformat.level2message.DataspaceMessage;
 import app.keve.hdf5io.fileformat.level2message.DataspaceMessageV1;
 import app.keve.hdf5io.fileformat.level2message.DatatypeMessage;
 import app.keve.hdf5io.fileformat.level2message.FillValueMessageV1;
 import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage;
-import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage.FilterDescription;
+import app.keve.hdf5io.filter.FilterRegistry;
+import app.keve.hdf5io.impl.AbstractElementSink.AggregationSink;
 
 public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset {
+    private static final String NOT_A_COMPOUND = "Not a compound datatype: ";
+    /** The byte size of the slabs of rows of a compact or contiguous dataset aggregated in parallel. */
+    private static final long SLAB_SIZE = 1 << 16;
+
     private final HDF5Datatype datatype;
     private final DataLayoutMessage dataLayout;
     private final DataspaceMessage dataspace;
@@ -137,37 +178,55 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
 
     @Override
     public ShortBuffer getAsShortBuffer(final long... dim) {
-        final ByteBuffer dataBuf = getDataBuf(dim);
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
         return null == dataBuf ? null : adapter.asShortBuffer(dataBuf);
     }
 
     @Override
     public IntBuffer getAsIntBuffer(final long... dim) {
-        final ByteBuffer dataBuf = getDataBuf(dim);
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
         return null == dataBuf ? null : adapter.asIntBuffer(dataBuf);
     }
 
     @Override
     public LongBuffer getAsLongBuffer(final long... dim) {
-        final ByteBuffer dataBuf = getDataBuf(dim);
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
         return null == dataBuf ? null : adapter.asLongBuffer(dataBuf);
     }
 
+    @Override
+    public FloatBuffer getAsFloatBuffer(final long... dim) {
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
+        return null == dataBuf ? null : adapter.asFloatBuffer(dataBuf);
+    }
+
+    @Override
+    public DoubleBuffer getAsDoubleBuffer(final long... dim) {
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
+        return null == dataBuf ? null : adapter.asDoubleBuffer(dataBuf);
+    }
+
     @Override
     public IntStream getAsIntStream(final long... dim) {
-        final ByteBuffer dataBuf = getDataBuf(dim);
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
         return null == dataBuf ? null : adapter.asIntStream(dataBuf);
     }
 
     @Override
     public LongStream getAsLongStream(final long... dim) {
-        final ByteBuffer dataBuf = getDataBuf(dim);
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
         return null == dataBuf ? null : adapter.asLongStream(dataBuf);
     }
 
+    @Override
+    public DoubleStream getAsDoubleStream(final long... dim) {
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
+        return null == dataBuf ? null : adapter.asDoubleStream(dataBuf);
+    }
+
     @Override
     public Stream<?> getAsStream(final long... dim) {
-        final ByteBuffer dataBuf = getDataBuf(dim);
+        final ByteBuffer dataBuf = getContiguousDataBuf(dim);
         if (null == dataBuf) {
             return null;
 //            throw new IllegalArgumentException("Implement!");
@@ -184,14 +243,25 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
 
         }
         final ByteBuffer dataBuf = getDataBuf(dim);
-        if (null == dataBuf) {
+        if (null == dataBuf && dim.length > 0) {
+            // select the sub-dimension, then drop the leading single element dimensions
+            final long[] count = Arrays.copyOf(dataDim, dataDim.length);
+            Arrays.fill(count, 0, dim.length, 1);
+            Object mdArray = getAsObject(HDF5Hyperslab.of(Arrays.copyOf(dim, dataDim.length), count));
+            for (int i = 0; i < dim.length; i++) {
+                mdArray = Array.get(mdArray, 0);
+            }
+            return mdArray;
+        } else if (null == dataBuf && isFlatReadable(adapter)) {
+            // not in a contiguous area, gathered into a flat array
+            return getAsNDArray(null).toArray();
+        } else if (null == dataBuf) {
             // not in a contiguous area
-            // TODO: filter chunks
             // TODO: jagged arrays
             // TODO: fill value
             final Type componentType = adapter.getJavaType();
             final Object mdArray = Array.newInstance((Class<?>) componentType, returnDim);
-            getChunks().peek(System.err::println).forEach(chunk -> {
+            forEachChunk(getChunks(), chunk -> {
                 final long[] lofs = chunk.getOffset();
                 final int[] ofs = new int[lofs.length];
                 for (int i = 0; i < ofs.length; i++) {
@@ -206,12 +276,638 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
         }
     }
 
+    @Override
+    public Object getAsObject(final HDF5Hyperslab selection) {
+        if (isFlatReadable(adapter)) {
+            return getAsNDArray(selection).toArray();
+        }
+        selection.checkWithin(getDimensionSizes());
+        final Object mdArray = Array.newInstance((Class<?>) adapter.getJavaType(), selection.getShape());
+        forEachChunk(getChunks(selection).filter(chunk -> selection.intersects(chunk.getOffset(), chunk.getSize())),
+                chunk -> selection.copyTo(mdArray, chunk.getAsObject(), chunk.getOffset()));
+        return mdArray;
+    }
+
+    @Override
+    public NDArray getAsNDArray(final HDF5Hyperslab selection) {
+        if (!isFlatReadable(adapter)) {
+            return NDArray.copyOf(null == selection ? getAsObject() : getAsObject(selection));
+        }
+        final NDArray ndArray = NDArray.allocate((Class<?>) adapter.getJavaType(), selectionShape(selection));
+        readSelection(selection, () -> sink(adapter, ndArray.array(), 0, null), true);
+        return ndArray;
+    }
+
+    @Override
+    public String[] getAsStrings(final HDF5Hyperslab selection, final boolean dictionary) {
+        final String[] strings = new String[selectionLength(selection)];
+        readSelection(selection, AbstractElementSink.of(stringAdapter(),
+                stringAdapter().decoder(dictionary ? StringDecoder.Mode.DICTIONARY : StringDecoder.Mode.STRING),
+                strings));
+        return strings;
+    }
+
+    @Override
+    public CharSequence[] getAsCharSequences(final HDF5Hyperslab selection) {
+        final CharSequence[] views = new CharSequence[selectionLength(selection)];
+        readSelection(selection,
+                AbstractElementSink.of(stringAdapter(), stringAdapter().decoder(StringDecoder.Mode.VIEW), views));
+        return views;
+    }
+
+    private StringAdapter stringAdapter() {
+        if (!(adapter instanceof StringAdapter)) {
+            throw new IllegalArgumentException("Not a string datatype: " + datatype.getDatatypeClass());
+        }
+        return (StringAdapter) adapter;
+    }
+
+    @Override
+    public <T> T[] getAsRecords(final Class<T> type, final HDF5Hyperslab selection) {
+        if (!(adapter instanceof GenericCompoundToMapAdapter)) {
+            throw new IllegalArgumentException(NOT_A_COMPOUND + datatype.getDatatypeClass());
+        }
+        @SuppressWarnings("unchecked")
+        final T[] records = (T[]) Array.newInstance(type, selectionLength(selection));
+        final CompoundRecordBinding<T> binding = ((GenericCompoundToMapAdapter) adapter).recordBinding(type);
+        readSelection(selection, () -> AbstractElementSink.of(adapter, binding, records), true);
+        return records;
+    }
+
+    @Override
+    public NDArray getMemberAsNDArray(final String member, final HDF5Hyperslab selection) {
+        return getMembersAsNDArray(List.of(member), selection).get(member);
+    }
+
+    @Override
+    public Map<String, NDArray> getMembersAsNDArray(final List<String> members, final HDF5Hyperslab selection) {
+        final int[] shape = selectionShape(selection);
+        final Map<String, NDArray> columns = new LinkedHashMap<>();
+        final List<Supplier<AbstractElementSink>> sinks = new ArrayList<>();
+        for (final String name : members) {
+            final Member member = member(name);
+            final HDF5DatatypeAdapter memberAdapter = member.getMemberType().adapter();
+            if (!isFlatReadable(memberAdapter)) {
+                throw new IllegalArgumentException("Implement projection of " + member.getMemberType());
+            }
+            final NDArray column = NDArray.allocate((Class<?>) memberAdapter.getJavaType(), shape);
+            columns.put(name, column);
+            sinks.add(() -> AbstractElementSink.project(datatype.getElementSize(), member.getByteOffset(),
+                    sink(memberAdapter, column.array(), 0, null)));
+        }
+        if (!sinks.isEmpty()) {
+            readSelection(selection,
+                    () -> AbstractElementSink.all(sinks.stream().map(Supplier::get).collect(Collectors.toList())),
+                    true);
+        }
+        return columns;
+    }
+
+    @Override
+    public ByteBuffer readMemberInto(final String member, final ByteBuffer dst, final HDF5Hyperslab selection) {
+        final Member m = member(member);
+        final int n = readSelection(selection, () -> AbstractElementSink.project(datatype.getElementSize(),
+                m.getByteOffset(), AbstractElementSink.of(m.getMemberType().adapter(), dst)), true);
+        return dst.position(dst.position() + n * m.getMemberType().getElementSize());
+    }
+
+    @Override
+    public int readMemberInto(final String member, final double[] dst, final int dstOffset,
+            final HDF5Hyperslab selection) {
+        final Member m = member(member);
+        return readSelection(selection, () -> AbstractElementSink.project(datatype.getElementSize(),
+                m.getByteOffset(), sink(m.getMemberType().adapter(), dst, dstOffset, null)), true);
+    }
+
+    private Member member(final String name) {
+        if (!(datatype instanceof HDF5Compound)) {
+            throw new IllegalArgumentException(NOT_A_COMPOUND + datatype.getDatatypeClass());
+        }
+        for (final Member member : ((HDF5Compound) datatype).getMembers()) {
+            if (member.getName().equals(name)) {
+                return member;
+            }
+        }
+        throw new IllegalArgumentException("No member " + name + " in " + datatype);
+    }
+
+    private int selectionLength(final HDF5Hyperslab selection) {
+        return Arrays.stream(selectionShape(selection)).reduce(1, Math::multiplyExact);
+    }
+
+    private int[] selectionShape(final HDF5Hyperslab selection) {
+        if (null == selection) {
+            return Arrays.stream(getDimensionSizes()).mapToInt(Math::toIntExact).toArray();
+        }
+        selection.checkWithin(getDimensionSizes());
+        return selection.getShape();
+    }
+
+    /**
+     * Whether the elements are read straight into a flat primitive array.
+     * 
+     * @param adapter the adapter of the elements
+     * @return true for the numeric types with an int, long, float or double view
+     */
+    private static boolean isFlatReadable(final HDF5DatatypeAdapter adapter) {
+        final Type javaType = adapter.getJavaType();
+        return Double.TYPE == javaType || Float.TYPE == javaType || Long.TYPE == javaType
+                || Integer.TYPE == javaType;
+    }
+
+    /**
+     * The sink of a primitive array. The fixed and floating point elements are
+     * converted, unless the array takes their bits as they are, when they are
+     * read through a buffer view. The other types are read through the views and
+     * iterators of their adapter.
+     * 
+     * @param adapter   the adapter of the elements
+     * @param array     the array
+     * @param offset    the index of the first element in the array
+     * @param narrowing the narrowing, or null to allow widening only
+     * @return the sink
+     */
+    private static AbstractElementSink sink(final HDF5DatatypeAdapter adapter, final Object array, final int offset,
+            final Narrowing narrowing) {
+        if (NumericConverter.isConvertible(adapter.getDatatype())) {
+            final NumericConverter converter = NumericConverter.forType(adapter.getDatatype());
+            converter.checkRead(array, narrowing);
+            if (array instanceof byte[] || array instanceof short[] || !converter.copiesBits(array, narrowing)) {
+                return AbstractElementSink.of(adapter, converter, array, offset,
+                        null == narrowing ? Narrowing.WRAP : narrowing);
+            }
+        } else if (null != narrowing || array instanceof byte[] || array instanceof short[]) {
+            throw new IllegalArgumentException("Implement conversion of " + adapter.getDatatype());
+        }
+        if (array instanceof double[]) {
+            return AbstractElementSink.of(adapter, (double[]) array, offset);
+        } else if (array instanceof float[]) {
+            return AbstractElementSink.of(adapter, (float[]) array, offset);
+        } else if (array instanceof long[]) {
+            return AbstractElementSink.of(adapter, (long[]) array, offset);
+        } else if (array instanceof int[]) {
+            return AbstractElementSink.of(adapter, (int[]) array, offset);
+        }
+        throw new IllegalArgumentException("Not a numeric array: " + array.getClass().getSimpleName());
+    }
+
+    @Override
+    public ByteBuffer readInto(final ByteBuffer dst, final HDF5Hyperslab selection) {
+        final int n = readSelection(selection, () -> AbstractElementSink.of(adapter, dst), true);
+        return dst.position(dst.position() + n * datatype.getElementSize());
+    }
+
+    @Override
+    public int readInto(final double[] dst, final int dstOffset, final HDF5Hyperslab selection) {
+        return readSelection(selection, () -> sink(adapter, dst, dstOffset, null), true);
+    }
+
+    @Override
+    public int readInto(final float[] dst, final int dstOffset, final HDF5Hyperslab selection) {
+        return readSelection(selection, () -> sink(adapter, dst, dstOffset, null), true);
+    }
+
+    @Override
+    public int readInto(final int[] dst, final int dstOffset, final HDF5Hyperslab selection) {
+        return readSelection(selection, () -> sink(adapter, dst, dstOffset, null), true);
+    }
+
+    @Override
+    public int readInto(final long[] dst, final int dstOffset, final HDF5Hyperslab selection) {
+        return readSelection(selection, () -> sink(adapter, dst, dstOffset, null), true);
+    }
+
+    @Override
+    public int readInto(final Object dst, final int dstOffset, final HDF5Hyperslab selection,
+            final Narrowing narrowing) {
+        return readSelection(selection, () -> sink(adapter, dst, dstOffset, narrowing), true);
+    }
+
+    /**
+     * Read the elements of the selection into the sink, chunk by chunk in
+     * sequence, see {@link #readSelection(HDF5Hyperslab, Supplier, boolean)}.
+     *
+     * @param selection the selection, or null for the whole dataset
+     * @param sink      the target
+     * @return the number of elements read
+     */
+    private int readSelection(final HDF5Hyperslab selection, final AbstractElementSink sink) {
+        return readSelection(selection, () -> sink, false);
+    }
+
+    /**
+     * Read the elements of the selection chunk by chunk, without materialising
+     * the selection or the chunks as arrays. In parallel and with the chunk
+     * executor, each chunk is read on the executor into a sink of its own, as the
+     * chunks cover disjoint elements of the target. Otherwise the chunks are read
+     * in sequence into a single sink.
+     *
+     * @param selection the selection, or null for the whole dataset
+     * @param sinks     supplies the sinks, each writing the same target
+     * @param parallel  whether the sinks may be used concurrently
+     * @return the number of elements read
+     */
+    private int readSelection(final HDF5Hyperslab selection, final Supplier<AbstractElementSink> sinks,
+            final boolean parallel) {
+        final AbstractElementSink sink = sinks.get();
+        final long[] dataDim = getDimensionSizes();
+        if (0 == dataDim.length) {
+            if (null != selection) {
+                selection.checkWithin(dataDim);
+            }
+            sink.checkCapacity(1);
+            final ByteBuffer dataBuf = getDataBuf();
+            if (null == dataBuf) {
+                sink.clear(1);
+            } else {
+                sink.prepare(dataBuf);
+                sink.copy(0, 0, 1);
+            }
+            return 1;
+        }
+        final HDF5Hyperslab sel = null == selection ? HDF5Hyperslab.of(new long[dataDim.length], dataDim)
+                : selection;
+        sel.checkWithin(dataDim);
+        final long[] start = sel.getStart();
+        final long[] stride = sel.getStride();
+        final long[] count = sel.getCount();
+        final long[] block = sel.getBlock();
+        final int elements = Math.toIntExact(mergeBlocks(stride, count, block));
+        sink.checkCapacity(elements);
+        if (0 == elements) {
+            return 0;
+        }
+        if (mayMissChunks()) {
+            sink.clear(elements);
+        }
+        final Executor executor = parallel ? hdf5Resolver.chunkExecutor() : null;
+        Stream<? extends Chunk> chunks = getChunks(sel);
+        if (null != executor && DataLayoutMessage.Layout.CHUNKED != dataLayout.getLayoutClass()) {
+            chunks = rowSlabs(chunks);
+        }
+        chunks = chunks.filter(chunk -> sel.intersects(chunk.getOffset(), chunk.getSize()));
+        if (null == executor) {
+            chunks.forEach(chunk -> readChunk((ChunkJ) chunk, start, stride, count, block, sink));
+        } else {
+            forEachChunk(chunks, chunk -> readChunk((ChunkJ) chunk, start, stride, count, block, sinks.get()));
+        }
+        return elements;
+    }
+
+    /**
+     * Merge the adjacent blocks of each dimension of a selection into a single
+     * block.
+     *
+     * @param stride the stride of the selection, updated
+     * @param count  the block count of the selection, updated
+     * @param block  the block size of the selection, updated
+     * @return the number of elements selected
+     */
+    private static long mergeBlocks(final long[] stride, final long[] count, final long[] block) {
+        long n = 1;
+        for (int d = 0; d < count.length; d++) {
+            if (count[d] <= 1 || stride[d] == block[d]) {
+                // adjacent blocks are a single block
+                block[d] *= count[d];
+                count[d] = 1;
+                stride[d] = block[d];
+            }
+            n = Math.multiplyExact(n, count[d] * block[d]);
+        }
+        return n;
+    }
+
+    @Override
+    public <R> R aggregate(final Aggregation<?, R> aggregation, final HDF5Hyperslab selection) {
+        return aggregateSelection(aggregation, selection);
+    }
+
+    /**
+     * Aggregate the elements of the selection. With the chunk executor, each chunk
+     * is reduced into its own partial result, the partial results being merged in
+     * the order of the chunks as they complete.
+     *
+     * @param <A>         the type of the partial result
+     * @param <R>         the type of the result
+     * @param aggregation the aggregation
+     * @param selection   the selection, or null for the whole dataset
+     * @return the result
+     */
+    private <A, R> R aggregateSelection(final Aggregation<A, R> aggregation, final HDF5Hyperslab selection) {
+        if (!NumericConverter.isConvertible(datatype)) {
+            throw new IllegalArgumentException("Cannot aggregate " + datatype);
+        }
+        final long[] dataDim = getDimensionSizes();
+        if (0 == dataDim.length) {
+            final AggregationSink<A> sink = new AggregationSink<>(adapter, aggregation);
+            readSelection(selection, sink);
+            return aggregation.finish(sink.getPartial());
+        }
+        final HDF5Hyperslab sel = null == selection ? HDF5Hyperslab.of(new long[dataDim.length], dataDim)
+                : selection;
+        sel.checkWithin(dataDim);
+        final long[] start = sel.getStart();
+        final long[] stride = sel.getStride();
+        final long[] count = sel.getCount();
+        final long[] block = sel.getBlock();
+        final long n = mergeBlocks(stride, count, block);
+        final Executor executor = hdf5Resolver.chunkExecutor();
+        Stream<? extends Chunk> chunks = getChunks(sel);
+        if (null != executor && DataLayoutMessage.Layout.CHUNKED != dataLayout.getLayoutClass()) {
+            chunks = rowSlabs(chunks);
+        }
+        chunks = chunks.filter(chunk -> sel.intersects(chunk.getOffset(), chunk.getSize()));
+        A partial;
+        long elements;
+        if (null == executor) {
+            final AggregationSink<A> sink = new AggregationSink<>(adapter, aggregation);
+            chunks.forEach(chunk -> readChunk((ChunkJ) chunk, start, stride, count, block, sink));
+            partial = sink.getPartial();
+            elements = sink.getElements();
+        } else {
+            partial = aggregation.create();
+            elements = 0;
+            // the partial results of the completed leading chunks are merged while the
+            // chunk index is walked, so they are not all held until the end
+            final Deque<CompletableFuture<AggregationSink<A>>> tasks = new ArrayDeque<>();
+            final Iterator<? extends Chunk> it = chunks.iterator();
+            while (it.hasNext() || !tasks.isEmpty()) {
+                if (it.hasNext()) {
+                    final ChunkJ chunk = (ChunkJ) it.next();
+                    tasks.add(CompletableFuture.supplyAsync(() -> {
+                        final AggregationSink<A> sink = new AggregationSink<>(adapter, aggregation);
+                        readChunk(chunk, start, stride, count, block, sink);
+                        return sink;
+                    }, executor));
+                }
+                while (!tasks.isEmpty() && (tasks.peek().isDone() || !it.hasNext())) {
+                    final AggregationSink<A> sink = join(tasks.poll());
+                    partial = aggregation.merge(partial, sink.getPartial());
+                    elements += sink.getElements();
+                }
+            }
+        }
+        // the elements of chunks not stored
+        aggregation.accumulate(partial, 0, n - elements);
+        return aggregation.finish(partial);
+    }
+
+    /**
+     * Split the single chunk of a compact or contiguous dataset into slabs of
+     * rows, so that the slabs are reduced in parallel.
+     *
+     * @param chunks the chunks
+     * @return the slabs, in the order of the rows
+     */
+    private Stream<? extends Chunk> rowSlabs(final Stream<? extends Chunk> chunks) {
+        final long[] dataDim = getDimensionSizes();
+        long rowSize = datatype.getElementSize();
+        for (int d = 1; d < dataDim.length; d++) {
+            rowSize *= dataDim[d];
+        }
+        final List<Spliterator<? extends Chunk>> slabs = new ArrayList<>();
+        splitRows(chunks.spliterator(), Math.max(1, SLAB_SIZE / Math.max(1, rowSize)), slabs);
+        return slabs.stream().flatMap(slab -> StreamSupport.stream(slab, false));
+    }
+
+    private static void splitRows(final Spliterator<? extends Chunk> rows, final long maxRows,
+            final List<Spliterator<? extends Chunk>> slabs) {
+        Spliterator<? extends Chunk> prefix;
+        while (rows.estimateSize() > maxRows && null != (prefix = rows.trySplit())) {
+            splitRows(prefix, maxRows, slabs);
+        }
+        slabs.add(rows);
+    }
+
+    /**
+     * Whether some elements of the dataset may not be stored at all.
+     *
+     * @return true if the elements have to be cleared before the chunks are read
+     */
+    private boolean mayMissChunks() {
+        switch (dataLayout.getLayoutClass()) {
+        case CONTIGUOUS:
+            return null == ((DataLayoutMessageContiguous) dataLayout).getData();
+        case CHUNKED:
+            return 4 != dataLayout.getVersion() || !allChunksStored((DataLayoutMessageV4Chunked) dataLayout);
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * Copy the selected elements of a chunk to the sink, a run of a block of the
+     * last dimension at a time.
+     *
+     * @param chunk  the chunk
+     * @param start  the start of the selection
+     * @param stride the stride of the selection
+     * @param count  the block count of the selection
+     * @param block  the block size of the selection
+     * @param sink   the target
+     */
+    private static void readChunk(final ChunkJ chunk, final long[] start, final long[] stride, final long[] count,
+            final long[] block, final AbstractElementSink sink) {
+        final int rank = start.length;
+        final long[] kLo = new long[rank];
+        final long[] kHi = new long[rank];
+        for (int d = 0; d < rank; d++) {
+            final long c0 = chunk.offset[d];
+            final long c1 = c0 + chunk.size[d];
+            if (1 == count[d]) {
+                if (start[d] >= c1 || start[d] + block[d] <= c0) {
+                    return;
+                }
+            } else {
+                // the blocks overlapping the chunk
+                kLo[d] = Math.max(0, Math.floorDiv(c0 - start[d] - block[d], stride[d]) + 1);
+                kHi[d] = Math.min(count[d] - 1, Math.floorDiv(c1 - 1 - start[d], stride[d]));
+                if (kLo[d] > kHi[d]) {
+                    return;
+                }
+            }
+        }
+        final ByteBuffer data = chunk.bufferSupplier.get(true);
+        if (null == data) {
+            return; // not allocated, left clear
+        }
+        sink.prepare(data);
+        final int last = rank - 1;
+        final long[] k = kLo.clone();
+        final long[] j = new long[rank];
+        for (int d = 0; d < last; d++) {
+            j[d] = Math.max(0, chunk.offset[d] - start[d] - k[d] * stride[d]);
+        }
+        while (true) {
+            long sourceRow = 0;
+            long targetRow = 0;
+            for (int d = 0; d < last; d++) {
+                sourceRow = sourceRow * chunk.size[d] + start[d] + k[d] * stride[d] + j[d] - chunk.offset[d];
+                targetRow = targetRow * count[d] * block[d] + k[d] * block[d] + j[d];
+            }
+            final long c0 = chunk.offset[last];
+            final long c1 = c0 + chunk.size[last];
+            for (long kl = kLo[last]; kl <= kHi[last]; kl++) {
+                final long b0 = start[last] + kl * stride[last];
+                final long lo = Math.max(c0, b0);
+                final long hi = Math.min(c1, b0 + block[last]);
+                sink.copy((int) (sourceRow * chunk.size[last] + lo - c0),
+                        (int) (targetRow * count[last] * block[last] + kl * block[last] + lo - b0), (int) (hi - lo));
+            }
+            int d = last - 1;
+            while (d >= 0) {
+                final long b0 = start[d] + k[d] * stride[d];
+                if (++j[d] < Math.min(block[d], chunk.offset[d] + chunk.size[d] - b0)) {
+                    break;
+                }
+                if (++k[d] <= kHi[d]) {
+                    j[d] = Math.max(0, chunk.offset[d] - start[d] - k[d] * stride[d]);
+                    break;
+                }
+                k[d] = kLo[d];
+                j[d] = Math.max(0, chunk.offset[d] - start[d] - k[d] * stride[d]);
+                d--;
+            }
+            if (d < 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Apply the action to the chunks, on the chunk executor of the file if any.
+     * The actions must write disjoint regions only.
+     *
+     * @param chunks the chunks
+     * @param action the action
+     */
+    private void forEachChunk(final Stream<? extends Chunk> chunks, final Consumer<Chunk> action) {
+        final Executor executor = hdf5Resolver.chunkExecutor();
+        if (null == executor) {
+            chunks.forEach(action);
+            return;
+        }
+        // submitted while the chunk index is walked, so fetch and decode overlap
+        final CompletableFuture<?>[] tasks = chunks
+                .map(chunk -> CompletableFuture.runAsync(() -> action.accept(chunk), executor))
+                .toArray(CompletableFuture[]::new);
+        join(CompletableFuture.allOf(tasks));
+    }
+
+    /**
+     * Wait for a task of the chunk executor, rethrowing its failure.
+     *
+     * @param <T>  the type of the result
+     * @param task the task
+     * @return the result of the task
+     */
+    private static <T> T join(final CompletableFuture<T> task) {
+        try {
+            return task.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Supplies the (unfiltered) data of a chunk.
+     */
+    @FunctionalInterface
+    public interface ChunkData {
+        /**
+         * Get the chunk data.
+         * 
+         * @param full whether the whole chunk is going to be read
+         * @return the chunk data
+         */
+        ByteBuffer get(boolean full);
+    }
+
+    /**
+     * The rows [from, to) of the first dimension of a compact or contiguous
+     * dataset as a single chunk, split in halves of rows. The size estimate is
+     * the number of rows, as every split adds a chunk.
+     */
+    private final class RowSpliterator implements Spliterator<ChunkJ> {
+        private final ChunkData data;
+        private final long[] dataDim;
+        private final long rowSize;
+        private long from;
+        private final long to;
+
+        RowSpliterator(final ChunkData data) {
+            // a scalar or empty dataset is a single chunk still
+            this(data, getDimensionSizes(), 0,
+                    0 == getDimensionSizes().length ? 1 : Math.max(1, getDimensionSizes()[0]));
+        }
+
+        private RowSpliterator(final ChunkData data, final long[] dataDim, final long from, final long to) {
+            this.data = data;
+            this.dataDim = dataDim;
+            this.from = from;
+            this.to = to;
+            long size = datatype.getElementSize();
+            for (int i = 1; i < dataDim.length; i++) {
+                size *= dataDim[i];
+            }
+            this.rowSize = size;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super ChunkJ> action) {
+            if (from >= to) {
+                return false;
+            }
+            final long[] origin = new long[dataDim.length];
+            final long[] size = dataDim.clone();
+            if (0 == dataDim.length || 0 == from && to >= dataDim[0]) {
+                action.accept(new ChunkJ(origin, size, data));
+            } else {
+                origin[0] = from;
+                size[0] = to - from;
+                final int start = (int) (from * rowSize);
+                final int end = (int) (to * rowSize);
+                action.accept(new ChunkJ(origin, size,
+                        full -> data.get(full).duplicate().position(start).limit(end).slice()));
+            }
+            from = to;
+            return true;
+        }
+
+        @Override
+        public Spliterator<ChunkJ> trySplit() {
+            if (to - from < 2) {
+                return null;
+            }
+            final long mid = from + to >>> 1;
+            final RowSpliterator prefix = new RowSpliterator(data, dataDim, from, mid);
+            from = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+
     public final class ChunkJ implements Chunk {
         public final long[] offset;
         public final long[] size;
-        private final Supplier<ByteBuffer> bufferSupplier;
+        private final ChunkData bufferSupplier;
 
-        public ChunkJ(final long[] offset, final long[] size, final Supplier<ByteBuffer> bufferSupplier) {
+        public ChunkJ(final long[] offset, final long[] size, final ChunkData bufferSupplier) {
             assert offset.length == size.length;
             this.offset = offset;
             this.size = size;
@@ -230,7 +926,7 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
 
         @Override
         public Object getAsObject(final long... dim) {
-            final ByteBuffer contiguousData = bufferSupplier.get();
+            final ByteBuffer contiguousData = bufferSupplier.get(0 == dim.length);
             final ByteBuffer dataBuf = subset(contiguousData, size, dim);
             final int[] returnDim = new int[size.length - dim.length];
             for (int i = 0; i < returnDim.length; i++) {
@@ -241,37 +937,55 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
 
         @Override
         public ShortBuffer getAsShortBuffer(final long... dim) {
-            final ByteBuffer dataBuf = subset(bufferSupplier.get(), dim);
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
             return adapter.asShortBuffer(dataBuf);
         }
 
         @Override
         public IntBuffer getAsIntBuffer(final long... dim) {
-            final ByteBuffer dataBuf = subset(bufferSupplier.get(), dim);
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
             return adapter.asIntBuffer(dataBuf);
         }
 
         @Override
         public LongBuffer getAsLongBuffer(final long... dim) {
-            final ByteBuffer dataBuf = subset(bufferSupplier.get(), dim);
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
             return adapter.asLongBuffer(dataBuf);
         }
 
+        @Override
+        public FloatBuffer getAsFloatBuffer(final long... dim) {
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
+            return adapter.asFloatBuffer(dataBuf);
+        }
+
+        @Override
+        public DoubleBuffer getAsDoubleBuffer(final long... dim) {
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
+            return adapter.asDoubleBuffer(dataBuf);
+        }
+
         @Override
         public IntStream getAsIntStream(final long... dim) {
-            final ByteBuffer dataBuf = subset(bufferSupplier.get(), dim);
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
             return adapter.asIntStream(dataBuf);
         }
 
         @Override
         public LongStream getAsLongStream(final long... dim) {
-            final ByteBuffer dataBuf = subset(bufferSupplier.get(), dim);
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
             return adapter.asLongStream(dataBuf);
         }
 
+        @Override
+        public DoubleStream getAsDoubleStream(final long... dim) {
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
+            return adapter.asDoubleStream(dataBuf);
+        }
+
         @Override
         public Stream<?> getAsStream(final long... dim) {
-            final ByteBuffer dataBuf = subset(bufferSupplier.get(), dim);
+            final ByteBuffer dataBuf = subset(bufferSupplier.get(0 == dim.length), size, dim);
             return adapter.asStream(dataBuf);
         }
 
@@ -287,52 +1001,390 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
 
     @Override
     public Stream<? extends Chunk> getChunks() {
+        return getChunks(null);
+    }
+
+    /**
+     * Get the chunks, skipping parts of the chunk index that cannot intersect the
+     * selection where the index allows.
+     * 
+     * @param selection the selection, or null for all chunks
+     * @return the chunks, possibly including some not intersecting the selection
+     */
+    private Stream<? extends Chunk> getChunks(final HDF5Hyperslab selection) {
         final long[] size;
         final long[] origin;
         switch (dataLayout.getLayoutClass()) {
         case COMPACT:
             final ByteBuffer buf = ((DataLayoutMessageCompact) dataLayout).getCompactData().slice();
-            size = dataspace.getDimensionSizes();
-            origin = new long[size.length];
-            return Stream.of(new ChunkJ(origin, size, () -> buf));
+            return StreamSupport.stream(new RowSpliterator(full -> buf), false);
         case CONTIGUOUS:
             final Resolvable<ByteBuffer> data = ((DataLayoutMessageContiguous) dataLayout).getData();
-            size = dataspace.getDimensionSizes();
-            origin = new long[size.length];
             if (null == data) {
+                size = dataspace.getDimensionSizes();
+                origin = new long[size.length];
                 // TODO:
-                return Stream.of(new ChunkJ(origin, size, () -> null));
+                return Stream.of(new ChunkJ(origin, size, full -> null));
             }
-            return Stream.of(new ChunkJ(origin, size, () -> {
+            return StreamSupport.stream(new RowSpliterator(full -> {
                 final ByteBuffer dataBuf = data.resolve(hdf5Resolver);
                 long bufSize = datatype.getElementSize();
                 for (final long d : getDimensionSizes()) {
                     bufSize *= d;
                 }
                 return dataBuf.limit((int) bufSize);
-            }));
+            }), false);
         case CHUNKED:
-            switch (dataLayout.getVersion()) {
-            case 3:
+            size = getChunkSize();
+            if (3 == dataLayout.getVersion()) {
                 final DataLayoutMessageV3Chunked dataLayoutChunked = (DataLayoutMessageV3Chunked) dataLayout;
-                size = dataLayoutChunked.getDimensionSizes();
                 final BTreeV1DataManager bTreeV1DataManager = new BTreeV1DataManager(hdf5Resolver,
                         dataLayoutChunked.getData());
-                final Iterator<TreeEntryData> it = bTreeV1DataManager.chunkIterator();
-                return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.IMMUTABLE), false)
+                final Spliterator<TreeEntryData> chunks;
+                if (null == selection || 0 == size.length) {
+                    chunks = bTreeV1DataManager.chunkSpliterator(null, null);
+                } else {
+                    // chunk offsets are ordered by the first dimension first
+                    chunks = bTreeV1DataManager.chunkSpliterator(
+                            new long[] {selection.getStart()[0] / size[0] * size[0]},
+                            new long[] {selection.getEnd(0)});
+                }
+                return StreamSupport.stream(chunks, false)
                         .map(ted -> {
                             final long[] originC = Arrays.copyOf(ted.leftKey.getDimChunkOffset(), size.length);
-                            return new ChunkJ(originC, size, () -> unfilter(ted.child.resolve(hdf5Resolver)));
+                            return new ChunkJ(originC, size,
+                                    full -> chunkData(originC, full, ted.leftKey.getFilterMask(),
+                                            () -> ted.child.resolve(hdf5Resolver)));
                         });
-            case 4:
-            default:
-                throw new IllegalArgumentException("implement chunked for version 4 layout");
             }
+            final DataLayoutMessageV4Chunked layoutV4 = (DataLayoutMessageV4Chunked) dataLayout;
+            if (null == selection
+                    && ChunkIndexingType.VERSION2_BTREE == layoutV4.getChunkIndexingType()) {
+                final long chunkSizeInBytes = chunkSizeInBytes(size);
+                return StreamSupport.stream(new BTreeV2ChunkManager(hdf5Resolver, bTreeV2Index(layoutV4), size.length)
+                        .spliterator((scaledOffset, entry) -> {
+                            for (int i = 0; i < scaledOffset.length; i++) {
+                                scaledOffset[i] *= size[i];
+                            }
+                            return chunkV4(layoutV4, scaledOffset, size, entry, chunkSizeInBytes);
+                        }), false);
+            }
+            // look up the chunks of the chunk grid covering the selection
+            final Function<long[], ChunkJ> chunkLocator = chunkLocator();
+            if (allChunksStored(layoutV4)) {
+                // keeps the stream sized
+                return chunkOffsets(size, selection).map(chunkLocator);
+            }
+            return chunkOffsets(size, selection).map(chunkLocator).filter(Objects::nonNull);
         default:
             throw new IllegalArgumentException("Implement api for " + dataLayout.getLayoutClass());
         }
     }
 
+    @Override
+    public Stream<? extends Chunk> getChunksDescending() {
+        if (DataLayoutMessage.Layout.CHUNKED == dataLayout.getLayoutClass() && 4 == dataLayout.getVersion()) {
+            final long[] size = getChunkSize();
+            final ChunkIndexCursor cursor = chunkCursor(size);
+            if (null != cursor) {
+                return cursorChunks(cursor, size, true);
+            }
+        }
+        // the other indexes are either small or not ordered from their tail
+        final List<? extends Chunk> chunks = getChunks().collect(Collectors.toList());
+        Collections.reverse(chunks);
+        return chunks.stream();
+    }
+
+    private long[] getChunkSize() {
+        switch (dataLayout.getVersion()) {
+        case 3:
+            return ((DataLayoutMessageV3Chunked) dataLayout).getDimensionSizes();
+        case 4:
+            // the last dimension is the size of the dataset element
+            return Arrays.copyOf(((DataLayoutMessageV4Chunked) dataLayout).getDimensionSizes(),
+                    getDimensionSizes().length);
+        default:
+            throw new IllegalArgumentException("Implement chunked for version " + dataLayout.getVersion() + " layout");
+        }
+    }
+
+    /**
+     * The offsets of the chunks within the dataset dimensions and the bounds of
+     * the selection, in row major order.
+     *
+     * @param chunkSize the size of the chunks
+     * @param selection the selection, or null for the whole dataset
+     * @return the chunk offsets
+     */
+    private Stream<long[]> chunkOffsets(final long[] chunkSize, final HDF5Hyperslab selection) {
+        final long[] dataDim = getDimensionSizes();
+        final long[] first = new long[dataDim.length];
+        final long[] count = new long[dataDim.length];
+        long total = 1;
+        for (int i = 0; i < dataDim.length; i++) {
+            final long from = null == selection ? 0 : selection.getStart()[i];
+            final long to = null == selection ? dataDim[i] : Long.min(dataDim[i], selection.getEnd(i));
+            if (from >= to) {
+                return Stream.empty();
+            }
+            first[i] = from / chunkSize[i];
+            count[i] = (to - 1) / chunkSize[i] - first[i] + 1;
+            total *= count[i];
+        }
+        return LongStream.range(0, total).mapToObj(k -> {
+            final long[] chunkOffset = new long[dataDim.length];
+            long rest = k;
+            for (int i = dataDim.length - 1; i >= 0; i--) {
+                chunkOffset[i] = (first[i] + rest % count[i]) * chunkSize[i];
+                rest /= count[i];
+            }
+            return chunkOffset;
+        });
+    }
+
+    /**
+     * Create a function finding the chunk at an offset, or null if the chunk is
+     * not stored.
+     *
+     * @return the function
+     */
+    private Function<long[], ChunkJ> chunkLocator() {
+        final long[] chunkSize = getChunkSize();
+        final long chunkSizeInBytes = chunkSizeInBytes(chunkSize);
+        if (3 == dataLayout.getVersion()) {
+            final BTreeV1DataManager bTreeV1DataManager = new BTreeV1DataManager(hdf5Resolver,
+                    ((DataLayoutMessageV3Chunked) dataLayout).getData());
+            return chunkOffset -> bTreeV1DataManager.findChunk(chunkOffset)
+                    .map(ted -> new ChunkJ(chunkOffset, chunkSize,
+                            full -> chunkData(chunkOffset, full, ted.leftKey.getFilterMask(),
+                                    () -> ted.child.resolve(hdf5Resolver))))
+                    .orElse(null);
+        }
+        final DataLayoutMessageV4Chunked layout = (DataLayoutMessageV4Chunked) dataLayout;
+        final ChunkIndexingInformation indexInformation = layout.getChunkIndexingInformation();
+        switch (layout.getChunkIndexingType()) {
+        case SINGLE:
+            final long singleAddress = ((SingleChunkIndexingInformation) indexInformation).getAddress();
+            if (indexInformation instanceof FilteredSingleChunkIndexingInformation) {
+                final FilteredSingleChunkIndexingInformation filtered = (FilteredSingleChunkIndexingInformation) indexInformation;
+                return chunkOffset -> chunkV4(layout, chunkOffset, chunkSize, singleAddress,
+                        filtered.getFilteredChunkSize(), filtered.getFilters());
+            }
+            return chunkOffset -> chunkV4(layout, chunkOffset, chunkSize, singleAddress, chunkSizeInBytes, 0);
+        case IMPLICIT:
+            final long baseAddress = ((ImplicitIndexingInformation) indexInformation).getIndex();
+            if (ChunkIndexEntry.isUndefinedAddress(baseAddress, layout.context().offsetSize())) {
+                return chunkOffset -> null;
+            }
+            return chunkOffset -> chunkV4(layout, chunkOffset, chunkSize,
+                    baseAddress + chunkIndex(chunkSize, chunkOffset) * chunkSizeInBytes, chunkSizeInBytes, 0);
+        case FIXED_ARRAY:
+            final FixedArrayManager fixedArrayManager = new FixedArrayManager(hdf5Resolver,
+                    ((FixedArrayIndexingInformation) indexInformation).getIndex());
+            return chunkOffset -> fixedArrayManager.getEntry(chunkIndex(chunkSize, chunkOffset))
+                    .map(entry -> chunkV4(layout, chunkOffset, chunkSize, entry, chunkSizeInBytes)).orElse(null);
+        case EXTENSIBLE_ARRAY:
+            final ExtensibleArrayManager extensibleArrayManager = new ExtensibleArrayManager(hdf5Resolver,
+                    ((ExtensibleArrayIndexingInformation) indexInformation).getIndex());
+            return chunkOffset -> extensibleArrayManager.getEntry(extensibleArrayIndex(chunkSize, chunkOffset))
+                    .map(entry -> chunkV4(layout, chunkOffset, chunkSize, entry, chunkSizeInBytes)).orElse(null);
+        case VERSION2_BTREE:
+            final BTreeV2ChunkManager bTreeV2ChunkManager = new BTreeV2ChunkManager(hdf5Resolver,
+                    bTreeV2Index(layout), chunkSize.length);
+            return chunkOffset -> {
+                final long[] scaledOffset = new long[chunkSize.length];
+                for (int i = 0; i < scaledOffset.length; i++) {
+                    scaledOffset[i] = chunkOffset[i] / chunkSize[i];
+                }
+                return bTreeV2ChunkManager.findChunk(scaledOffset)
+                        .map(entry -> chunkV4(layout, chunkOffset, chunkSize, entry, chunkSizeInBytes))
+                        .orElse(null);
+            };
+        default:
+            throw new IllegalArgumentException(
+                    "Implement Version4 chunked layout index " + layout.getChunkIndexingType());
+        }
+    }
+
+    /**
+     * Create a cursor over the chunk index, if the index is ordered by the chunk
+     * offsets.
+     * 
+     * @param chunkSize the size of the chunks
+     * @return the cursor, or null if the chunk index has none
+     */
+    private ChunkIndexCursor chunkCursor(final long[] chunkSize) {
+        final DataLayoutMessageV4Chunked layout = (DataLayoutMessageV4Chunked) dataLayout;
+        switch (layout.getChunkIndexingType()) {
+        case EXTENSIBLE_ARRAY:
+            return new ExtensibleArrayManager(hdf5Resolver,
+                    ((ExtensibleArrayIndexingInformation) layout.getChunkIndexingInformation()).getIndex())
+                            .cursor(index -> extensibleArrayScaledOffset(chunkSize, index));
+        case VERSION2_BTREE:
+            return new BTreeV2ChunkManager(hdf5Resolver, bTreeV2Index(layout), chunkSize.length).cursor();
+        default:
+            return null;
+        }
+    }
+
+    private Resolvable<BTreeV2> bTreeV2Index(final DataLayoutMessageV4Chunked layout) {
+        final long address = ((Version2BTreeIndexingInformation) layout.getChunkIndexingInformation()).getIndex();
+        return layout.context().h5Factory().resolvable(address, 0, BTreeV2.class,
+                SizingContextBTreeV2.of(layout.context(), null));
+    }
+
+    /**
+     * Stream the chunks of a cursor, from the first or from the last chunk. The
+     * cursor moves as the stream is consumed.
+     * 
+     * @param cursor     the cursor over the chunk index
+     * @param chunkSize  the size of the chunks
+     * @param descending whether to start from the last chunk
+     * @return the chunks
+     */
+    private Stream<ChunkJ> cursorChunks(final ChunkIndexCursor cursor, final long[] chunkSize,
+            final boolean descending) {
+        final DataLayoutMessageV4Chunked layout = (DataLayoutMessageV4Chunked) dataLayout;
+        final long chunkSizeInBytes = chunkSizeInBytes(chunkSize);
+        final Iterator<ChunkJ> it = new Iterator<>() {
+            private boolean positioned = descending ? cursor.last() : cursor.first();
+
+            @Override
+            public boolean hasNext() {
+                return positioned;
+            }
+
+            @Override
+            public ChunkJ next() {
+                if (!positioned) {
+                    throw new NoSuchElementException();
+                }
+                final long[] chunkOffset = cursor.getScaledOffset();
+                for (int i = 0; i < chunkOffset.length; i++) {
+                    chunkOffset[i] *= chunkSize[i];
+                }
+                final ChunkJ chunk = chunkV4(layout, chunkOffset, chunkSize, cursor.getEntry(), chunkSizeInBytes);
+                positioned = descending ? cursor.previous() : cursor.next();
+                return chunk;
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(it, Spliterator.IMMUTABLE | Spliterator.NONNULL), false);
+    }
+
+    private long chunkSizeInBytes(final long[] chunkSize) {
+        long chunkBytes = datatype.getElementSize();
+        for (final long d : chunkSize) {
+            chunkBytes *= d;
+        }
+        return chunkBytes;
+    }
+
+    /**
+     * Whether the chunk index has every chunk of the grid, so looking up a chunk
+     * never misses.
+     * 
+     * @param layout the layout
+     * @return true for the single chunk index and the allocated implicit index
+     */
+    private boolean allChunksStored(final DataLayoutMessageV4Chunked layout) {
+        switch (layout.getChunkIndexingType()) {
+        case SINGLE:
+            return true;
+        case IMPLICIT:
+            return !ChunkIndexEntry.isUndefinedAddress(
+                    ((ImplicitIndexingInformation) layout.getChunkIndexingInformation()).getIndex(),
+                    layout.context().offsetSize());
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * The position of a chunk in the row major order of the chunk grid spanning
+     * the maximum dimensions, as used by the implicit and fixed array indexes.
+     *
+     * @param chunkSize   the size of the chunks
+     * @param chunkOffset the offset of the chunk
+     * @return the index of the chunk
+     */
+    private long chunkIndex(final long[] chunkSize, final long[] chunkOffset) {
+        final long[] maxDim = null == getDimensionMaxSizes() ? getDimensionSizes() : getDimensionMaxSizes();
+        long index = 0;
+        for (int i = 0; i < chunkSize.length; i++) {
+            index = index * ((maxDim[i] + chunkSize[i] - 1) / chunkSize[i]) + chunkOffset[i] / chunkSize[i];
+        }
+        return index;
+    }
+
+    /**
+     * The position of a chunk in the extensible array index, the row major order
+     * of the chunk grid with the unlimited dimension moved first, so that
+     * extending the dataset appends to the array.
+     *
+     * @param chunkSize   the size of the chunks
+     * @param chunkOffset the offset of the chunk
+     * @return the index of the chunk
+     */
+    private long extensibleArrayIndex(final long[] chunkSize, final long[] chunkOffset) {
+        final long[] maxDim = getDimensionMaxSizes();
+        final int unlimited = unlimitedDimension(maxDim);
+        long index = chunkOffset[unlimited] / chunkSize[unlimited];
+        for (int i = 0; i < chunkSize.length; i++) {
+            if (i != unlimited) {
+                index = index * ((maxDim[i] + chunkSize[i] - 1) / chunkSize[i]) + chunkOffset[i] / chunkSize[i];
+            }
+        }
+        return index;
+    }
+
+    private long[] extensibleArrayScaledOffset(final long[] chunkSize, final long index) {
+        final long[] maxDim = getDimensionMaxSizes();
+        final int unlimited = unlimitedDimension(maxDim);
+        final long[] scaledOffset = new long[chunkSize.length];
+        long rest = index;
+        for (int i = chunkSize.length - 1; i >= 0; i--) {
+            if (i != unlimited) {
+                final long chunks = (maxDim[i] + chunkSize[i] - 1) / chunkSize[i];
+                scaledOffset[i] = rest % chunks;
+                rest /= chunks;
+            }
+        }
+        scaledOffset[unlimited] = rest;
+        return scaledOffset;
+    }
+
+    private static int unlimitedDimension(final long[] maxDim) {
+        for (int i = 0; i < maxDim.length; i++) {
+            if (-1L == maxDim[i]) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No unlimited dimension in " + Arrays.toString(maxDim));
+    }
+
+    private ChunkJ chunkV4(final DataLayoutMessageV4Chunked layout, final long[] chunkOffset, final long[] chunkSize,
+            final ChunkIndexEntry entry, final long chunkSizeInBytes) {
+        return chunkV4(layout, chunkOffset, chunkSize, entry.address,
+                entry.chunkSize < 0 ? chunkSizeInBytes : entry.chunkSize, entry.filterMask);
+    }
+
+    private ChunkJ chunkV4(final DataLayoutMessageV4Chunked layout, final long[] chunkOffset, final long[] chunkSize,
+            final long address, final long size, final int filterMask) {
+        final Supplier<ByteBuffer> rawData = () -> hdf5Resolver.resolve(address, (int) size);
+        if (layout.isDontFilterPartialBoundChunks()) {
+            final long[] dataDim = getDimensionSizes();
+            for (int i = 0; i < dataDim.length; i++) {
+                if (chunkOffset[i] + chunkSize[i] > dataDim[i]) {
+                    // partial edge chunks are stored unfiltered
+                    return new ChunkJ(chunkOffset, chunkSize, full -> rawData.get());
+                }
+            }
+        }
+        return new ChunkJ(chunkOffset, chunkSize, full -> chunkData(chunkOffset, full, filterMask, rawData));
+    }
+
     private ByteBuffer subset(final ByteBuffer contiguousData, final long[] dimSizes, final long... dim) {
         assert 0 == contiguousData.position();
         int ofs = 0;
@@ -344,10 +1396,86 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
         return contiguousData.position(ofs).limit(ofs + size).slice();
     }
 
+    /**
+     * Get the data of the (sub-)dimensions in row major order, a view of the
+     * stored data if it is contiguous, otherwise gathered from the chunks.
+     * 
+     * @param dim the dimensions to lock, if any
+     * @return the data, or null if not allocated
+     */
+    private ByteBuffer getContiguousDataBuf(final long... dim) {
+        final ByteBuffer dataBuf = getDataBuf(dim);
+        if (null != dataBuf || DataLayoutMessage.Layout.CHUNKED != dataLayout.getLayoutClass()) {
+            return dataBuf;
+        }
+        final long[] dataDim = getDimensionSizes();
+        final long[] start = Arrays.copyOf(dim, dataDim.length);
+        final long[] count = dataDim.clone();
+        Arrays.fill(count, 0, dim.length, 1);
+        final HDF5Hyperslab selection = HDF5Hyperslab.of(start, count);
+        long size = datatype.getElementSize();
+        for (final long c : count) {
+            size *= c;
+        }
+        // the elements of missing chunks are left zero
+        final ByteBuffer target = ByteBuffer.allocate(Math.toIntExact(size));
+        forEachChunk(getChunks(selection).filter(chunk -> selection.intersects(chunk.getOffset(), chunk.getSize())),
+                chunk -> copyChunk((ChunkJ) chunk, start, count, target));
+        return target;
+    }
+
+    /**
+     * Copy the part of a chunk within the box to the row major target of the box,
+     * a run of the last dimension at a time.
+     * 
+     * @param chunk  the chunk
+     * @param start  the start of the box
+     * @param count  the size of the box
+     * @param target the data of the box
+     */
+    private void copyChunk(final ChunkJ chunk, final long[] start, final long[] count, final ByteBuffer target) {
+        final int rank = start.length;
+        final long[] lo = new long[rank];
+        final long[] hi = new long[rank];
+        for (int d = 0; d < rank; d++) {
+            lo[d] = Math.max(start[d], chunk.offset[d]);
+            hi[d] = Math.min(start[d] + count[d], chunk.offset[d] + chunk.size[d]);
+            if (lo[d] >= hi[d]) {
+                return;
+            }
+        }
+        final int elementSize = datatype.getElementSize();
+        final int run = (int) (hi[rank - 1] - lo[rank - 1]) * elementSize;
+        final ByteBuffer source = chunk.bufferSupplier.get(true).duplicate();
+        final ByteBuffer dst = target.duplicate();
+        final long[] pos = lo.clone();
+        while (true) {
+            long sourceIndex = 0;
+            long targetIndex = 0;
+            for (int d = 0; d < rank; d++) {
+                sourceIndex = sourceIndex * chunk.size[d] + pos[d] - chunk.offset[d];
+                targetIndex = targetIndex * count[d] + pos[d] - start[d];
+            }
+            final int from = (int) sourceIndex * elementSize;
+            source.clear().position(from).limit(from + run);
+            dst.position((int) targetIndex * elementSize);
+            dst.put(source);
+            int d = rank - 2;
+            while (d >= 0 && ++pos[d] >= hi[d]) {
+                pos[d] = lo[d];
+                d--;
+            }
+            if (d < 0) {
+                return;
+            }
+        }
+    }
+
     private ByteBuffer getDataBuf(final long... dim) {
         switch (dataLayout.getLayoutClass()) {
         case COMPACT:
-            return subset(((DataLayoutMessageCompact) dataLayout).getCompactData().slice(), dim);
+            return subset(((DataLayoutMessageCompact) dataLayout).getCompactData().slice(), getDimensionSizes(),
+                    dim);
         case CONTIGUOUS:
             final Resolvable<ByteBuffer> data = ((DataLayoutMessageContiguous) dataLayout).getData();
             if (null == data) {
@@ -359,74 +1487,54 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
                 size *= d;
             }
             dataBuf.limit((int) size);
-            return subset(dataBuf, dim);
+            return subset(dataBuf, getDimensionSizes(), dim);
         case CHUNKED:
-            switch (dataLayout.getVersion()) {
-            case 3:
-                final BTreeV1DataManager bTreeV1DataManager = new BTreeV1DataManager(hdf5Resolver,
-                        ((DataLayoutMessageV3Chunked) dataLayout).getData());
-                // TODO: implement searching for the (sub-) dimension
-                if (bTreeV1DataManager.isSingleChunk()) {
-                    final Iterator<TreeEntryData> it = bTreeV1DataManager.chunkIterator();
-                    final ByteBuffer rawData = it.next().child.resolve(hdf5Resolver);
-                    return unfilter(rawData);
-                }
-                return null; // not contiguous surface
-            case 4:
-                final ChunkIndexingInformation indexInformation = ((DataLayoutMessageV4Chunked) dataLayout)
-                        .getChunkIndexingInformation();
-                if (indexInformation instanceof Version2BTreeIndexingInformation) {
-                    final long index = ((Version2BTreeIndexingInformation) indexInformation).getIndex();
-                    System.err.println(index);
-                } else if (indexInformation instanceof ExtensibleArrayIndexingInformation) {
-                    final Resolvable<ExtensibleArrayIndex> rIndex = ((ExtensibleArrayIndexingInformation) indexInformation)
-                            .getIndex();
-                    final ExtensibleArrayIndex index = rIndex.resolve(hdf5Resolver);
-                    final Resolvable<ExtensibleArrayIndexBlock> rIndexBlock = index.getIndexBlock();
-                    final ExtensibleArrayIndexBlock indexBlock = rIndexBlock.resolve(hdf5Resolver);
-
-                    System.err.println(index);
+            final long[] chunkSize = getChunkSize();
+            final long[] dataDim = getDimensionSizes();
+            for (int i = dim.length; i < dataDim.length; i++) {
+                if (chunkSize[i] < dataDim[i] || i > dim.length && chunkSize[i] > dataDim[i]) {
+                    return null; // not contiguous surface
                 }
-                throw new IllegalArgumentException(
-                        "Implement Version4 chunked layout index " + indexInformation.getClass());
-
-            default:
-                throw new IllegalArgumentException();
             }
-
+            final long[] chunkOffset = new long[dataDim.length];
+            final long[] chunkDim = new long[dim.length];
+            for (int i = 0; i < dim.length; i++) {
+                chunkOffset[i] = dim[i] / chunkSize[i] * chunkSize[i];
+                chunkDim[i] = dim[i] - chunkOffset[i];
+            }
+            final ChunkJ chunk = chunkLocator().apply(chunkOffset);
+            if (null == chunk) {
+                return null; // not stored
+            }
+            return subset(chunk.bufferSupplier.get(0 == dim.length), chunkSize, chunkDim);
         default:
             throw new IllegalArgumentException("Implement api for " + dataLayout.getLayoutClass());
         }
 
     }
 
-    private ByteBuffer unfilter(final ByteBuffer rawData) {
-        if (null != filterPipeline) {
-            for (final Iterator<? extends FilterDescription> fit = filterPipeline.filterIterator(); fit.hasNext();) {
-                final FilterDescription filter = fit.next();
-                switch (filter.getFilterIdentification()) {
-                case 1:
-                    final Inflater inflater = new Inflater();
-                    inflater.setInput(rawData);
-                    long size = datatype.getElementSize();
-                    for (final long d : getDimensionSizes()) {
-                        size *= d;
-                    }
-                    final ByteBuffer output = ByteBuffer.allocate((int) size);
-                    try {
-                        inflater.inflate(output);
-                    } catch (final DataFormatException e) {
-                        throw new IllegalArgumentException(e);
-                    } finally {
-                        inflater.end();
-                    }
-                    return output.flip();
-                default:
-                    throw new IllegalArgumentException("Implement filter: " + filter);
-                }
-            }
+    /**
+     * Get the unfiltered data of a chunk, through the file's chunk cache if the
+     * chunk has to be unfiltered.
+     * 
+     * @param chunkOffset the offset of the chunk
+     * @param full        whether the whole chunk is going to be read
+     * @param filterMask  the filters of the pipeline skipped for the chunk
+     * @param rawData     supplies the raw chunk data
+     * @return the unfiltered chunk data
+     */
+    private ByteBuffer chunkData(final long[] chunkOffset, final boolean full, final int filterMask,
+            final Supplier<ByteBuffer> rawData) {
+        if (null == filterPipeline) {
+            return rawData.get();
         }
-        return rawData;
+        return hdf5Resolver.chunkCache().get(getObjectId(), chunkOffset, full,
+                () -> unfilter(rawData.get(), filterMask));
+    }
+
+    private ByteBuffer unfilter(final ByteBuffer rawData, final int filterMask) {
+        return FilterRegistry.getDefault().decode(filterPipeline, filterMask, rawData,
+                (int) chunkSizeInBytes(getChunkSize()));
     }
 
     @Override
@@ -456,6 +1564,7 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
         private Object data;
         private Object fillValue;
         private ByteBuffer fillValueBuffer;
+        private Narrowing narrowing;
 
         public BuilderV(final long id, final H5Resolver h5Resolver, final ObjectHeader newObjectHeader) {
             this.id = id;
@@ -520,8 +1629,14 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
 
             if (null != data) {
                 final ByteBuffer dataBuffer = rDataBuffer.resolve(h5Resolver);
-                final HDF5DatatypeAdapter adapter = h5Factory.datatypeAdapter(datatypeBB, sizingContext);
-                adapter.fromObject(dataBuffer, data);
+                if (NumericConverter.isConvertible(datatypeBB) && NumericConverter.isNumericArray(data)) {
+                    final NumericConverter converter = NumericConverter.forType(datatypeBB);
+                    converter.checkWrite(data, narrowing);
+                    converter.writeRowMajor(data, dataBuffer, 0, null == narrowing ? Narrowing.WRAP : narrowing);
+                } else {
+                    final HDF5DatatypeAdapter adapter = h5Factory.datatypeAdapter(datatypeBB, sizingContext);
+                    adapter.fromObject(dataBuffer, data);
+                }
             }
 
             ((ObjectHeaderV1) newObjectHeader).addHeaderMessage(dataspaceMessage);
@@ -573,5 +1688,11 @@ public final class DatasetV extends AbstractNamedObjectV implements HDF5Dataset
             return this;
         }
 
+        @Override
+        public Builder withNarrowing(final Narrowing narrowing) {
+            this.narrowing = narrowing;
+            return this;
+        }
+
     }
 }
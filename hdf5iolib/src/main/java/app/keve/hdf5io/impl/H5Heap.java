@@ -20,14 +20,16 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Deque;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.OptionalLong;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 
@@ -63,8 +65,6 @@ import app.keve.hdf5io.fileformat.SizingContext;
 import app.keve.hdf5io.fileformat.level1.FractalHeap;
 import app.keve.hdf5io.fileformat.level1.FractalHeap.DirectBlock;
 import app.keve.hdf5io.fileformat.level1.FractalHeap.HeapBlock;
-import app.keve.hdf5io.fileformat.level1.GlobalHeapCollection;
-import app.keve.hdf5io.fileformat.level1.GlobalHeapObject;
 import app.keve.hdf5io.fileformat.level1.LocalHeap;
 import app.keve.hdf5io.fileformat.level1.LocalHeap.LocalHeapDataSegment;
 import app.keve.hdf5io.fileformat.level2.ObjectHeader;
@@ -74,11 +74,14 @@ import app.keve.hdf5io.fileformat.level2datatypeadapter.AbstractNativeFixedPoint
 import app.keve.hdf5io.fileformat.level2datatypeadapter.AbstractNativeFloatingPointNumberAdapter;
 import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericArrayAdapter;
 import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericCompoundToMapAdapter;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericConvertedNumberAdapter;
 import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericEnumToLabelAdapter;
 import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericOpaqueAdapter;
 import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericReferenceAdapter;
 import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericStringAdapter;
 import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericVariableLengthAdapter;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.NumericConverter;
+import app.keve.hdf5io.util.ChunkCache;
 
 public class H5Heap implements H5Resolver, H5Factory {
 
@@ -239,16 +242,26 @@ public class H5Heap implements H5Resolver, H5Factory {
     protected final H5Registry h5Registry;
     private final Logger logger = LoggerFactory.getLogger(H5Heap.class);
     private final AtomicLong heapAddress;
-    private final TreeMap<Long, Object> heapResolvables;
-    private final TreeMap<Long, List<Entry<ResolutionListener, Object>>> heapListeners;
+    // concurrent, as the heap is consulted on every resolve, also by concurrent
+    // readers.
+    private final NavigableMap<Long, Object> heapResolvables;
+    private final NavigableMap<Long, List<Entry<ResolutionListener, Object>>> heapListeners;
     private final Deque<Object> dirty;
+    private final ChunkCache chunkCache;
+    private final Executor chunkExecutor;
 
     protected H5Heap(final H5Registry hdf5Registry) {
+        this(hdf5Registry, ChunkCache.of(0, false), null);
+    }
+
+    protected H5Heap(final H5Registry hdf5Registry, final ChunkCache chunkCache, final Executor chunkExecutor) {
         this.h5Registry = hdf5Registry;
-        this.datatypeMap = new LinkedHashMap<>();
-        this.heapResolvables = new TreeMap<>();
-        this.heapListeners = new TreeMap<>();
-        this.dirty = new LinkedList<>();
+        this.chunkCache = chunkCache;
+        this.chunkExecutor = chunkExecutor;
+        this.datatypeMap = new ConcurrentHashMap<>();
+        this.heapResolvables = new ConcurrentSkipListMap<>();
+        this.heapListeners = new ConcurrentSkipListMap<>();
+        this.dirty = new ConcurrentLinkedDeque<>();
         this.heapAddress = new AtomicLong(0xFFFF_FFFF_FFFF_FFFEL); // -1 is already used as NULL pointer
     }
 
@@ -301,8 +314,15 @@ public class H5Heap implements H5Resolver, H5Factory {
 
     private HDF5DatatypeAdapter datatypeAdapter2(final HDF5Datatype datatype, final SizingContext sizingContext) {
         if (datatype instanceof HDF5FixedPointNumber) {
+            // the single byte parts stay with the native byte adapters, as the enumeration base types
+            if (1 != datatype.getElementSize() && NumericConverter.needsConversion(datatype)) {
+                return new GenericConvertedNumberAdapter(datatype);
+            }
             return AbstractNativeFixedPointNumberAdapter.forType((HDF5FixedPointNumber) datatype);
         } else if (datatype instanceof HDF5FloatingPointNumber) {
+            if (NumericConverter.needsConversion(datatype)) {
+                return new GenericConvertedNumberAdapter(datatype);
+            }
             return AbstractNativeFloatingPointNumberAdapter.forType((HDF5FloatingPointNumber) datatype);
         } else if (datatype instanceof HDF5Enumeration) {
             return new GenericEnumToLabelAdapter((HDF5Enumeration) datatype);
@@ -321,12 +341,9 @@ public class H5Heap implements H5Resolver, H5Factory {
         } else if (datatype instanceof HDF5VariableLength) {
             // for VL datatypes we need a full resolver!
             // sizingContext to read the vl structure
-            // resolveObject to get to the GlobalHeapCollection
-            return new GenericVariableLengthAdapter((HDF5VariableLength) datatype, vlghr -> {
-                final GlobalHeapCollection ghc = vlghr.getGlobalHeapCollection().resolve(this);
-                final GlobalHeapObject gho = ghc.getHeapObject(vlghr.getIndex());
-                return gho.getObjectData();
-            }, sizingContext);
+            // resolveObject to get to the GlobalHeapCollection, cached by the metadata cache
+            return new GenericVariableLengthAdapter((HDF5VariableLength) datatype, r -> r.resolve(this),
+                    sizingContext);
         } else if (datatype instanceof HDF5String) {
             return new GenericStringAdapter((HDF5String) datatype);
         } else if (datatype instanceof HDF5Bitfield) {
@@ -503,6 +520,16 @@ public class H5Heap implements H5Resolver, H5Factory {
         return -1;
     }
 
+    @Override
+    public final ChunkCache chunkCache() {
+        return chunkCache;
+    }
+
+    @Override
+    public final Executor chunkExecutor() {
+        return chunkExecutor;
+    }
+
     /**
      * Commit the resolvable/instance pair and return an new resolvable.
      * 
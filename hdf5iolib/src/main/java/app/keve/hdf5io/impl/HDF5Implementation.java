@@ -22,20 +22,29 @@ import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.OptionalInt;
+import java.util.concurrent.Executor;
 
 import app.keve.hdf5io.api.HDF5;
 import app.keve.hdf5io.api.HDF5Constants.Profile;
+import app.keve.hdf5io.api.HDF5Constants.StorageMode;
 import app.keve.hdf5io.api.HDF5File;
 import app.keve.hdf5io.api.HDF5FormatException;
 import app.keve.hdf5io.fileformat.H5Registry;
 import app.keve.hdf5io.fileformat.SizingContext;
 import app.keve.hdf5io.fileformat.level0.Superblock;
+import app.keve.hdf5io.util.ChunkCache;
 
 public final class HDF5Implementation implements HDF5 {
 
     @SuppressWarnings("checkstyle:hiddenfield")
     private static final class Builder implements HDF5FileBuilder {
         private Profile profile;
+        private StorageMode storageMode = StorageMode.MMAP;
+        private long metadataCacheSize = MetadataCache.DEFAULT_MAX_WEIGHT;
+        private int concurrencyLevel = 1;
+        private long chunkCacheSize = ChunkCache.DEFAULT_MAX_WEIGHT;
+        private boolean preemptFullyRead = true;
+        private Executor chunkExecutor;
         private ByteBuffer preamble;
         private OptionalInt offsetSize = OptionalInt.empty();
         private OptionalInt lengthSize = OptionalInt.empty();
@@ -54,11 +63,17 @@ public final class HDF5Implementation implements HDF5 {
             return false;
         }
 
+        private LocalHDF5File.Options readOptions() {
+            return new LocalHDF5File.Options().withStorageMode(storageMode).withMetadataCacheSize(metadataCacheSize)
+                    .withConcurrencyLevel(concurrencyLevel)
+                    .withChunkCache(ChunkCache.of(chunkCacheSize, preemptFullyRead)).withChunkExecutor(chunkExecutor);
+        }
+
         @Override
         public HDF5File build() throws IOException {
             final H5Registry h5Registry = null == profile ? H5Registry.ofDefault() : H5Registry.of(profile);
             if (null != path && Files.exists(path) && !allowTruncate()) {
-                final LocalHDF5File existingFile = LocalHDF5File.of(h5Registry, path, options);
+                final LocalHDF5File existingFile = LocalHDF5File.of(h5Registry, path, readOptions(), options);
                 final Superblock superblock = existingFile.getSuperblock();
                 final SizingContext sizingContext = superblock.context();
                 if (offsetSize.isPresent() && offsetSize.getAsInt() != sizingContext.offsetSize()) {
@@ -84,9 +99,12 @@ public final class HDF5Implementation implements HDF5 {
                 }
                 return existingFile;
             }
-            final LocalHDF5File newFile = LocalHDF5File.ofNew(h5Registry, path, options, preamble,
-                    offsetSize.orElse(8), lengthSize.orElse(8), indexedStorageInternalNodeK, groupInternalNodeK,
-                    groupLeafNodeK);
+            final LocalHDF5File newFile = LocalHDF5File.ofNew(h5Registry, path,
+                    readOptions().withPreamble(preamble).withOffsetSize(offsetSize.orElse(8))
+                            .withLengthSize(lengthSize.orElse(8))
+                            .withIndexedStorageInternalNodeK(indexedStorageInternalNodeK)
+                            .withGroupInternalNodeK(groupInternalNodeK).withGroupLeafNodeK(groupLeafNodeK),
+                    options);
 
             return newFile;
         }
@@ -97,6 +115,37 @@ public final class HDF5Implementation implements HDF5 {
             return this;
         }
 
+        @Override
+        public HDF5FileBuilder withStorageMode(final StorageMode storageMode) {
+            this.storageMode = storageMode;
+            return this;
+        }
+
+        @Override
+        public HDF5FileBuilder withMetadataCacheSize(final long maxBytes) {
+            this.metadataCacheSize = maxBytes;
+            return this;
+        }
+
+        @Override
+        public HDF5FileBuilder withConcurrentReaders(final int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        @Override
+        public HDF5FileBuilder withChunkCache(final long maxBytes, final boolean preemptFullyRead) {
+            this.chunkCacheSize = maxBytes;
+            this.preemptFullyRead = preemptFullyRead;
+            return this;
+        }
+
+        @Override
+        public HDF5FileBuilder withChunkExecutor(final Executor chunkExecutor) {
+            this.chunkExecutor = chunkExecutor;
+            return this;
+        }
+
         @Override
         public HDF5FileBuilder withPreamble(final ByteBuffer preamble) {
             this.preamble = preamble;
@@ -23,12 +23,14 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
 import java.util.OptionalInt;
+import java.util.concurrent.Executor;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import app.keve.hdf5io.api.HDF5Constants.StorageMode;
 import app.keve.hdf5io.api.HDF5File;
 import app.keve.hdf5io.api.HDF5FormatException;
 import app.keve.hdf5io.api.HDF5Group;
@@ -60,23 +62,50 @@ import app.keve.hdf5io.fileformat.level2.ObjectHeaderV1.HeaderMessageEntryV1;
 import app.keve.hdf5io.fileformat.level2datatype.AbstractDatatypeBB;
 import app.keve.hdf5io.fileformat.level2message.SymbolTableMessage;
 import app.keve.hdf5io.fileformat.level2message.SymbolTableMessageBB;
+import app.keve.hdf5io.util.ChunkCache;
+import app.keve.hdf5io.util.VAdaptiveFile;
+import app.keve.hdf5io.util.VFile;
 import app.keve.hdf5io.util.VMappedFile;
+import app.keve.hdf5io.util.VPreadFile;
 
 public final class LocalHDF5File extends AbstractH5File implements HDF5File {
     private final Logger logger = LoggerFactory.getLogger(LocalHDF5File.class);
 
     private final Path path;
     private final OpenOption[] openOptions;
-    private final VMappedFile mappedFile;
+    private final VFile mappedFile;
     private Superblock superblock;
     private long preambleSize;
 
-    private LocalHDF5File(final H5Registry h5Registry, final Path path, final OpenOption... openOptions)
-            throws IOException {
-        super(h5Registry);
+    private LocalHDF5File(final H5Registry h5Registry, final Path path, final Options options,
+            final OpenOption... openOptions) throws IOException {
+        super(h5Registry, options.metadataCacheSize, options.concurrencyLevel, options.chunkCache,
+                options.chunkExecutor);
         this.path = path;
         this.openOptions = openOptions;
-        mappedFile = VMappedFile.of(path, openOptions);
+        final StorageMode storageMode = options.storageMode;
+        if (StorageMode.MMAP != storageMode && isWriteable()) {
+            throw new IllegalArgumentException("Storage mode " + storageMode + " is read-only.");
+        }
+        if (options.concurrencyLevel > 1 && isWriteable()) {
+            throw new IllegalArgumentException("Concurrent readers require a read-only file.");
+        }
+        if (null != options.chunkExecutor && isWriteable()) {
+            throw new IllegalArgumentException("Parallel chunk reads require a read-only file.");
+        }
+        switch (storageMode) {
+        case MMAP:
+            mappedFile = VMappedFile.of(path, openOptions);
+            break;
+        case PREAD:
+            mappedFile = VPreadFile.of(path, openOptions);
+            break;
+        case ADAPTIVE:
+            mappedFile = VAdaptiveFile.of(path, openOptions);
+            break;
+        default:
+            throw new IllegalArgumentException("Implement storage mode " + storageMode);
+        }
         initialize();
     }
 
@@ -96,7 +125,9 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
 
     @Override
     protected ByteBuffer at(final long address, final long length) throws IOException {
-        assert length < Integer.MAX_VALUE;
+        if (length > Integer.MAX_VALUE || length < -Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot provide a buffer of " + length + " bytes @" + address);
+        }
         return mappedFile.at(address, (int) length);
     }
 
@@ -120,10 +151,10 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
             offset = 256;
             do {
                 offset *= 2;
-                if (offset >= buf.remaining()) {
+                if (offset >= mappedFile.size()) {
                     throw new HDF5FormatException("Could not find HDF5 header.");
                 }
-                superblockCandidate = Superblock.of(buf.duplicate().position(offset).slice(), nullSC);
+                superblockCandidate = Superblock.of(mappedFile.at(offset), nullSC);
             } while (!superblockCandidate.isValid());
         }
         if (offset > 0) {
@@ -132,7 +163,7 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
             // re-map the file with the current offset
             // adjust with baseaddress which might be non-zero??
             mappedFile.close();
-            mappedFile.addMapping(0, offset, Integer.MAX_VALUE, path, openOptions);
+            mappedFile.addMapping(0, offset, Long.MAX_VALUE, path, openOptions);
             buf = mappedFile.at(0);
             superblockCandidate = Superblock.of(buf, nullSC);
         }
@@ -160,7 +191,7 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
                     mappedFile.close();
                     for (final FileInfo fileInfo : filesInfo) {
                         final Path filePath = Path.of(fileInfo.getName().replace("%s", stem));
-                        mappedFile.addMapping(fileInfo.getAddress(), 0, Integer.MAX_VALUE, filePath,
+                        mappedFile.addMapping(fileInfo.getAddress(), 0, Long.MAX_VALUE, filePath,
                                 StandardOpenOption.READ);
                     }
 
@@ -172,18 +203,20 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
                     mappedFile.close();
                     for (int i = 0; i < (int) (eof / fileSize); i++) {
                         final Path p = Path.of(String.format(pattern, i));
-                        mappedFile.addMapping(vOffset, 0, (int) fileSize, p, StandardOpenOption.READ);
+                        mappedFile.addMapping(vOffset, 0, fileSize, p, StandardOpenOption.READ);
                         vOffset += fileSize;
                     }
                 } else {
                     throw new IllegalArgumentException("Implement driver information: " + driverInformation);
                 }
                 // replace Superblock to drop all references to the old MappedFile
+                clearMetadata();
                 buf = mappedFile.at(0);
                 this.superblock = Superblock.of(buf, nullSC);
                 assert this.superblock.isValid();
             }
         }
+        pinMetadata(getRootGroupObjectHeader().getAddress());
     }
 
     Iterator<ObjectHeader.HeaderMessageEntry<?>> headerMessages(final ObjectHeader objectHeader) {
@@ -226,28 +259,32 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
             superblock.setEndOfFileAddress(mappedFile.size());
         }
         mappedFile.close();
+        clearMetadata();
     }
 
     public Superblock getSuperblock() {
         return superblock;
     }
 
-    @Override
-    public HDF5Group getRootGroup() throws HDF5FormatException {
+    private Resolvable<? extends ObjectHeader> getRootGroupObjectHeader() {
         switch (superblock.getVersionNumber()) {
         case 0:
         case 1:
-            return new Link(this, "", ((SuperblockV0) superblock).getRootGroupSymbolTableEntry().getObjectHeader())
-                    .getTarget().asGroup();
+            return ((SuperblockV0) superblock).getRootGroupSymbolTableEntry().getObjectHeader();
         case 2:
-            return new Link(this, "", ((SuperblockV2) superblock).getRootGroupObjectHeader()).getTarget().asGroup();
+            return ((SuperblockV2) superblock).getRootGroupObjectHeader();
         case 3:
-            return new Link(this, "", ((SuperblockV3) superblock).getRootGroupObjectHeader()).getTarget().asGroup();
+            return ((SuperblockV3) superblock).getRootGroupObjectHeader();
         default:
             throw new IllegalArgumentException("Implement Group V" + superblock.getVersionNumber());
         }
     }
 
+    @Override
+    public HDF5Group getRootGroup() throws HDF5FormatException {
+        return new Link(this, "", getRootGroupObjectHeader()).getTarget().asGroup();
+    }
+
     @Override
     public DatatypeBuilder getDatatypeBuilder() {
         return new AbstractDatatypeBB.DatatypeBuilderBB(superblock.context());
@@ -255,31 +292,53 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
 
     public static LocalHDF5File of(final H5Registry h5Registry, final Path p, final OpenOption... openOptions)
             throws IOException {
-        return new LocalHDF5File(h5Registry, p, openOptions);
+        return of(h5Registry, p, new Options(), openOptions);
+    }
+
+    /**
+     * Open a local HDF5 file.
+     * 
+     * @param h5Registry  the registry
+     * @param p           the path of the file
+     * @param options     the storage, cache and concurrency settings
+     * @param openOptions the options to open the file with
+     * @return the HDF5 file
+     * @throws IOException if an I/O exception occurs
+     */
+    public static LocalHDF5File of(final H5Registry h5Registry, final Path p, final Options options,
+            final OpenOption... openOptions) throws IOException {
+        return new LocalHDF5File(h5Registry, p, options, openOptions);
     }
 
     public static LocalHDF5File of(final Path p) throws IOException {
         return of(H5Registry.ofDefault(), p, StandardOpenOption.READ);
     }
 
-    public static LocalHDF5File ofNew(final H5Registry h5Registry, final Path p, final OpenOption[] openOptions,
-            final ByteBuffer preamble, final int offsetSize, final int lengthSize,
-            final OptionalInt indexedStorageInternalNodeK, final OptionalInt groupInternalNodeK,
-            final OptionalInt groupLeafNodeK) throws IOException {
-        final LocalHDF5File newFile = of(h5Registry, p, openOptions);
-        newFile.createNew(preamble, offsetSize, lengthSize, indexedStorageInternalNodeK, groupInternalNodeK,
-                groupLeafNodeK);
+    /**
+     * Create a local HDF5 file. The storage, cache and concurrency settings are
+     * validated and applied as when opening a file, so settings which require a
+     * read-only file are rejected.
+     * 
+     * @param h5Registry  the registry
+     * @param p           the path of the file
+     * @param options     the settings, the preamble and the sizes of the new file
+     * @param openOptions the options to open the file with
+     * @return the HDF5 file
+     * @throws IOException if an I/O exception occurs
+     */
+    public static LocalHDF5File ofNew(final H5Registry h5Registry, final Path p, final Options options,
+            final OpenOption... openOptions) throws IOException {
+        final LocalHDF5File newFile = of(h5Registry, p, options, openOptions);
+        newFile.createNew(options);
         return newFile;
     }
 
-    private void createNew(final ByteBuffer preamble, final int offsetSize, final int lengthSize,
-            final OptionalInt indexedStorageInternalNodeK, final OptionalInt groupInternalNodeK,
-            final OptionalInt groupLeafNodeK) throws IOException {
-        SizingContext sizingContext = SizingContext.of(this, offsetSize, lengthSize, indexedStorageInternalNodeK,
-                groupInternalNodeK, groupLeafNodeK);
+    private void createNew(final Options options) throws IOException {
+        SizingContext sizingContext = SizingContext.of(this, options.offsetSize, options.lengthSize,
+                options.indexedStorageInternalNodeK, options.groupInternalNodeK, options.groupLeafNodeK);
 
-        if (null != preamble) {
-            writePreamble(preamble);
+        if (null != options.preamble) {
+            writePreamble(options.preamble);
         }
 
         Resolvable<SuperblockV0> rSuperblockV0 = allocate(SuperblockV0.class, sizingContext);
@@ -345,9 +404,102 @@ public final class LocalHDF5File extends AbstractH5File implements HDF5File {
             }
         }
         mappedFile.close();
-        mappedFile.addMapping(0, preambleSize, Integer.MAX_VALUE, path, StandardOpenOption.READ,
+        mappedFile.addMapping(0, preambleSize, Long.MAX_VALUE, path, StandardOpenOption.READ,
                 StandardOpenOption.WRITE);
         System.out.println(mappedFile);
     }
 
+    /**
+     * The settings of opening or creating a local file.
+     */
+    @SuppressWarnings("checkstyle:hiddenfield")
+    public static final class Options {
+        private StorageMode storageMode = StorageMode.MMAP;
+        private long metadataCacheSize = MetadataCache.DEFAULT_MAX_WEIGHT;
+        private int concurrencyLevel = 1;
+        private ChunkCache chunkCache = ChunkCache.of();
+        private Executor chunkExecutor;
+        private ByteBuffer preamble;
+        private int offsetSize = 8;
+        private int lengthSize = 8;
+        private OptionalInt indexedStorageInternalNodeK = OptionalInt.empty();
+        private OptionalInt groupInternalNodeK = OptionalInt.empty();
+        private OptionalInt groupLeafNodeK = OptionalInt.empty();
+
+        /**
+         * Set the storage backend to read the file with. Other than MMAP requires a
+         * read-only file.
+         * 
+         * @param storageMode the storage mode
+         * @return these options
+         */
+        public Options withStorageMode(final StorageMode storageMode) {
+            this.storageMode = storageMode;
+            return this;
+        }
+
+        public Options withMetadataCacheSize(final long metadataCacheSize) {
+            this.metadataCacheSize = metadataCacheSize;
+            return this;
+        }
+
+        /**
+         * Set the estimated number of concurrent reader threads. More than one
+         * requires a read-only file.
+         * 
+         * @param concurrencyLevel the number of threads
+         * @return these options
+         */
+        public Options withConcurrencyLevel(final int concurrencyLevel) {
+            this.concurrencyLevel = concurrencyLevel;
+            return this;
+        }
+
+        public Options withChunkCache(final ChunkCache chunkCache) {
+            this.chunkCache = chunkCache;
+            return this;
+        }
+
+        /**
+         * Set the executor to read chunks in parallel with. Requires a read-only
+         * file.
+         * 
+         * @param chunkExecutor the executor, or null
+         * @return these options
+         */
+        public Options withChunkExecutor(final Executor chunkExecutor) {
+            this.chunkExecutor = chunkExecutor;
+            return this;
+        }
+
+        public Options withPreamble(final ByteBuffer preamble) {
+            this.preamble = preamble;
+            return this;
+        }
+
+        public Options withOffsetSize(final int offsetSize) {
+            this.offsetSize = offsetSize;
+            return this;
+        }
+
+        public Options withLengthSize(final int lengthSize) {
+            this.lengthSize = lengthSize;
+            return this;
+        }
+
+        public Options withIndexedStorageInternalNodeK(final OptionalInt k) {
+            this.indexedStorageInternalNodeK = k;
+            return this;
+        }
+
+        public Options withGroupInternalNodeK(final OptionalInt k) {
+            this.groupInternalNodeK = k;
+            return this;
+        }
+
+        public Options withGroupLeafNodeK(final OptionalInt k) {
+            this.groupLeafNodeK = k;
+            return this;
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package app.keve.hdf5io.impl;
 
+import app.keve.hdf5io.api.HDF5CacheStatistics;
 import app.keve.hdf5io.api.HDF5File;
 import app.keve.hdf5io.api.HDF5Group;
 import app.keve.hdf5io.api.datatype.HDF5Datatype.DatatypeBuilder;
@@ -24,6 +25,7 @@ import app.keve.hdf5io.fileformat.level2datatype.AbstractDatatypeBB;
 
 public final class MemHDF5 extends H5Heap implements HDF5File {
     private final SizingContext sizingContext;
+    private final MetadataCache metadataCache = new MetadataCache(0);
 
     public MemHDF5() {
         super(H5Registry.ofDefault());
@@ -47,6 +49,16 @@ public final class MemHDF5 extends H5Heap implements HDF5File {
         return new AbstractDatatypeBB.DatatypeBuilderBB(sizingContext);
     }
 
+    @Override
+    public HDF5CacheStatistics getMetadataCacheStatistics() {
+        return metadataCache;
+    }
+
+    @Override
+    public HDF5CacheStatistics getChunkCacheStatistics() {
+        return chunkCache();
+    }
+
     @Override
     public long getPreambleSize() {
         // TODO Auto-generated method stub
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import app.keve.hdf5io.api.HDF5CacheStatistics;
+import app.keve.hdf5io.fileformat.H5Object;
+import app.keve.hdf5io.fileformat.level0.Superblock;
+
+/**
+ * Cache of resolved metadata objects, bounded by the byte size of the cached
+ * objects.
+ * 
+ * <p>
+ * Objects are evicted in least recently used order, except for objects of
+ * pinned classes or at pinned addresses, which are kept until the file is
+ * closed. The cache is split by address into stripes, each guarded by its own
+ * lock and owning an equal share of the maximum weight, so concurrent readers
+ * rarely contend.
+ */
+final class MetadataCache implements HDF5CacheStatistics {
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    /**
+     * Caching policy for a class of objects.
+     */
+    enum Policy {
+        /** Never evict. */
+        PIN,
+        /** Evict in least recently used order. */
+        LRU,
+        /** Do not cache. */
+        NONE
+    }
+
+    private static final class Stripe {
+        private final long maxWeight;
+        private final Map<Long, H5Object<?>> pinned;
+        private final LinkedHashMap<Long, H5Object<?>> lru;
+        private long weight;
+
+        Stripe(final long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.pinned = new HashMap<>();
+            this.lru = new LinkedHashMap<>(16, 0.75f, true);
+        }
+
+        synchronized H5Object<?> get(final long address) {
+            final H5Object<?> t = pinned.get(address);
+            return null == t ? lru.get(address) : t;
+        }
+
+        synchronized void pin(final long address) {
+            final H5Object<?> t = lru.remove(address);
+            if (null != t) {
+                weight -= t.size();
+                pinned.put(address, t);
+            }
+        }
+
+        synchronized void putPinned(final long address, final H5Object<?> t) {
+            pinned.put(address, t);
+        }
+
+        synchronized long putLRU(final long address, final H5Object<?> t) {
+            final H5Object<?> old = lru.put(address, t);
+            if (null != old) {
+                weight -= old.size();
+            }
+            weight += t.size();
+            long evicted = 0;
+            final Iterator<H5Object<?>> it = lru.values().iterator();
+            while (weight > maxWeight && it.hasNext()) {
+                weight -= it.next().size();
+                it.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized long getWeight() {
+            return weight;
+        }
+
+        synchronized void clear() {
+            pinned.clear();
+            lru.clear();
+            weight = 0;
+        }
+    }
+
+    private final long maxWeight;
+    private final Stripe[] stripes;
+    private volatile Map<Class<?>, Policy> classPolicies;
+    private final Map<Class<?>, Policy> resolvedPolicies;
+    private final Set<Long> pinnedAddresses;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    MetadataCache(final long maxWeight) {
+        this(maxWeight, 1);
+    }
+
+    MetadataCache(final long maxWeight, final int concurrencyLevel) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Invalid maximum weight " + maxWeight);
+        }
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("Invalid concurrency level " + concurrencyLevel);
+        }
+        this.maxWeight = maxWeight;
+        // power of two number of stripes
+        final int nStripes = Integer.highestOneBit(concurrencyLevel * 2 - 1);
+        this.stripes = new Stripe[nStripes];
+        for (int i = 0; i < nStripes; i++) {
+            stripes[i] = new Stripe(maxWeight / nStripes);
+        }
+        final Map<Class<?>, Policy> policies = new LinkedHashMap<>();
+        policies.put(Superblock.class, Policy.PIN);
+        this.classPolicies = policies;
+        this.resolvedPolicies = new ConcurrentHashMap<>();
+        this.pinnedAddresses = ConcurrentHashMap.newKeySet();
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    private Stripe stripe(final long address) {
+        final long h = address * 0x9E37_79B9_7F4A_7C15L;
+        return stripes[(int) (h >>> 32) & stripes.length - 1];
+    }
+
+    /**
+     * Set the policy for all objects assignable to the class.
+     * 
+     * @param tClass the class
+     * @param policy the policy
+     */
+    synchronized void setPolicy(final Class<?> tClass, final Policy policy) {
+        final Map<Class<?>, Policy> policies = new LinkedHashMap<>(classPolicies);
+        policies.put(tClass, policy);
+        classPolicies = policies;
+        resolvedPolicies.clear();
+    }
+
+    /**
+     * Keep the object at the address cached until the file is closed.
+     * 
+     * @param address the address
+     */
+    void pin(final long address) {
+        pinnedAddresses.add(address);
+        stripe(address).pin(address);
+    }
+
+    private Policy policy(final Class<?> tClass) {
+        return resolvedPolicies.computeIfAbsent(tClass, c -> {
+            for (final Map.Entry<Class<?>, Policy> e : classPolicies.entrySet()) {
+                if (e.getKey().isAssignableFrom(c)) {
+                    return e.getValue();
+                }
+            }
+            return Policy.LRU;
+        });
+    }
+
+    H5Object<?> get(final long address) {
+        final H5Object<?> t = stripe(address).get(address);
+        if (null == t) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return t;
+    }
+
+    void put(final long address, final H5Object<?> t) {
+        final Policy policy = pinnedAddresses.contains(address) ? Policy.PIN : policy(t.getClass());
+        switch (policy) {
+        case PIN:
+            stripe(address).putPinned(address, t);
+            break;
+        case LRU:
+            evictionCount.add(stripe(address).putLRU(address, t));
+            break;
+        case NONE:
+            break;
+        default:
+            throw new IllegalArgumentException("Implement policy " + policy);
+        }
+    }
+
+    void clear() {
+        for (final Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public long getWeight() {
+        long weight = 0;
+        for (final Stripe stripe : stripes) {
+            weight += stripe.getWeight();
+        }
+        return weight;
+    }
+
+    @Override
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MetadataCache [weight=%d/%d, stripes=%d, hits=%d, misses=%d, evictions=%d]",
+                getWeight(), maxWeight, stripes.length, getHitCount(), getMissCount(), getEvictionCount());
+    }
+}
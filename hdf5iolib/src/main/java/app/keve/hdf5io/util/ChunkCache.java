@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import app.keve.hdf5io.api.HDF5CacheStatistics;
+
+/**
+ * Cache of decoded (unfiltered) chunks, keyed by the address of the dataset's
+ * object header and the chunk offset, bounded by the byte size of the cached
+ * chunks.
+ * 
+ * <p>
+ * Chunks are evicted in least recently used order. With preemption of fully
+ * read chunks, chunks that were read completely are evicted before partially
+ * read ones, as they are less likely to be read again (see w0 of the HDF5
+ * library's raw data chunk cache). Chunks larger than the cache are not
+ * cached.
+ */
+public final class ChunkCache implements HDF5CacheStatistics {
+    /** Same as the HDF5 library default. */
+    public static final long DEFAULT_MAX_WEIGHT = 1024 * 1024;
+
+    private static final class Key {
+        private final long objectAddress;
+        private final long[] offset;
+
+        Key(final long objectAddress, final long[] offset) {
+            this.objectAddress = objectAddress;
+            this.offset = offset;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(objectAddress) + Arrays.hashCode(offset);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return objectAddress == other.objectAddress && Arrays.equals(offset, other.offset);
+        }
+    }
+
+    private final long maxWeight;
+    private final boolean preemptFullyRead;
+    private final LinkedHashMap<Key, ByteBuffer> partiallyRead;
+    private final LinkedHashMap<Key, ByteBuffer> fullyRead;
+    private long weight;
+
+    private final LongAdder hitCount;
+    private final LongAdder missCount;
+    private final LongAdder evictionCount;
+
+    private ChunkCache(final long maxWeight, final boolean preemptFullyRead) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Invalid maximum weight " + maxWeight);
+        }
+        this.maxWeight = maxWeight;
+        this.preemptFullyRead = preemptFullyRead;
+        this.partiallyRead = new LinkedHashMap<>(16, 0.75f, true);
+        this.fullyRead = new LinkedHashMap<>(16, 0.75f, true);
+        this.hitCount = new LongAdder();
+        this.missCount = new LongAdder();
+        this.evictionCount = new LongAdder();
+    }
+
+    /**
+     * Get the decoded chunk, decoding it if not cached.
+     * 
+     * @param objectAddress the address of the dataset's object header
+     * @param offset        the offset of the chunk
+     * @param full          whether the chunk is going to be read completely
+     * @param decoder       decodes the chunk on a cache miss
+     * @return a duplicate of the decoded chunk
+     */
+    public ByteBuffer get(final long objectAddress, final long[] offset, final boolean full,
+            final Supplier<ByteBuffer> decoder) {
+        if (0 == maxWeight) {
+            missCount.increment();
+            return decoder.get();
+        }
+        final Key key = new Key(objectAddress, offset.clone());
+        ByteBuffer buf = lookup(key, full);
+        if (null != buf) {
+            hitCount.increment();
+            return buf.duplicate();
+        }
+        missCount.increment();
+        // decode outside of the lock, concurrent misses of the same chunk decode twice
+        buf = decoder.get();
+        store(key, buf, full);
+        return buf.duplicate();
+    }
+
+    private synchronized ByteBuffer lookup(final Key key, final boolean full) {
+        ByteBuffer buf = partiallyRead.get(key);
+        if (null == buf) {
+            buf = fullyRead.get(key);
+        } else if (full && preemptFullyRead) {
+            fullyRead.put(key, partiallyRead.remove(key));
+        }
+        return buf;
+    }
+
+    private synchronized void store(final Key key, final ByteBuffer buf, final boolean full) {
+        final long size = buf.remaining();
+        if (size > maxWeight) {
+            return;
+        }
+        final ByteBuffer old = (full && preemptFullyRead ? fullyRead : partiallyRead).put(key, buf);
+        if (null != old) {
+            weight -= old.remaining();
+        }
+        weight += size;
+        evict(fullyRead);
+        evict(partiallyRead);
+    }
+
+    private void evict(final Map<Key, ByteBuffer> map) {
+        final Iterator<ByteBuffer> it = map.values().iterator();
+        while (weight > maxWeight && it.hasNext()) {
+            weight -= it.next().remaining();
+            it.remove();
+            evictionCount.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        partiallyRead.clear();
+        fullyRead.clear();
+        weight = 0;
+    }
+
+    @Override
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    @Override
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ChunkCache [weight=%d/%d, hits=%d, misses=%d, evictions=%d]", getWeight(), maxWeight,
+                getHitCount(), getMissCount(), getEvictionCount());
+    }
+
+    public static ChunkCache of() {
+        return of(DEFAULT_MAX_WEIGHT, true);
+    }
+
+    public static ChunkCache of(final long maxWeight, final boolean preemptFullyRead) {
+        return new ChunkCache(maxWeight, preemptFullyRead);
+    }
+}
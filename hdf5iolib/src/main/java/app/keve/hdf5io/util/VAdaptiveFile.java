@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+/**
+ * A read-only virtual address space which serves small requests with
+ * positional reads and large or best effort requests from memory mapped
+ * windows.
+ */
+public final class VAdaptiveFile implements VFile {
+    public static final int DEFAULT_MAP_THRESHOLD = 256 * 1024;
+
+    private final VPreadFile preadFile;
+    private final VMappedFile mappedFile;
+    private final int mapThreshold;
+
+    private VAdaptiveFile(final VPreadFile preadFile, final VMappedFile mappedFile, final int mapThreshold) {
+        this.preadFile = preadFile;
+        this.mappedFile = mappedFile;
+        this.mapThreshold = mapThreshold;
+    }
+
+    @Override
+    public void addMapping(final long virtualOffset, final long offsetInfoFile, final long size, final Path path,
+            final OpenOption... openOptions) throws IOException {
+        preadFile.addMapping(virtualOffset, offsetInfoFile, size, path, openOptions);
+        mappedFile.addMapping(virtualOffset, offsetInfoFile, size, path, openOptions);
+    }
+
+    @Override
+    public long[] append(final ByteBuffer src) throws IOException {
+        return preadFile.append(src);
+    }
+
+    @Override
+    public long size() throws IOException {
+        return preadFile.size();
+    }
+
+    @Override
+    public long maxVOffset() throws IOException {
+        return preadFile.maxVOffset();
+    }
+
+    @Override
+    public ByteBuffer at(final long vOffset, final int size) throws IOException {
+        if (0 == size || Math.abs(size) >= mapThreshold) {
+            return mappedFile.at(vOffset, size);
+        }
+        return preadFile.at(vOffset, size);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            preadFile.close();
+        } finally {
+            mappedFile.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AdaptiveFile [threshold=%d, pread=%s, mapped=%s]", mapThreshold, preadFile,
+                mappedFile);
+    }
+
+    public static VAdaptiveFile of() throws IOException {
+        return of(VPreadFile.of(), VMappedFile.of(), DEFAULT_MAP_THRESHOLD);
+    }
+
+    public static VAdaptiveFile of(final VPreadFile preadFile, final VMappedFile mappedFile, final int mapThreshold) {
+        return new VAdaptiveFile(preadFile, mappedFile, mapThreshold);
+    }
+
+    public static VAdaptiveFile of(final Path file, final OpenOption... openOptions) throws IOException {
+        final VAdaptiveFile vAdaptiveFile = of();
+        vAdaptiveFile.addMapping(0, 0, Long.MAX_VALUE, file, openOptions);
+        return vAdaptiveFile;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+
+/**
+ * Storage backend providing a virtual address space composed of file regions.
+ */
+public interface VFile extends AutoCloseable {
+
+    /**
+     * Add a file region to the virtual address space.
+     * 
+     * @param virtualOffset  the virtual offset of the region
+     * @param offsetInfoFile the offset into the file at which the region starts
+     * @param size           the maximum size of the region
+     * @param path           the file
+     * @param openOptions    the options to open the file with
+     * @throws IOException if an I/O exception occurs
+     */
+    void addMapping(long virtualOffset, long offsetInfoFile, long size, Path path, OpenOption... openOptions)
+            throws IOException;
+
+    /**
+     * Append the buffer contents to the end of the appendable region.
+     * 
+     * @param src the buffer to append
+     * @return the virtual offset at which the buffer was written and the number
+     *         of bytes written
+     * @throws IOException if an I/O exception occurs
+     */
+    long[] append(ByteBuffer src) throws IOException;
+
+    /**
+     * Cumulative size of all the regions.
+     * 
+     * @return cumulative size of all the regions.
+     * @throws IOException if an I/O exception occurs
+     */
+    long size() throws IOException;
+
+    /**
+     * Maximum addressable vOffset +1.
+     * 
+     * @return Maximum addressable vOffset.
+     * @throws IOException if an I/O exception occurs
+     */
+    long maxVOffset() throws IOException;
+
+    /**
+     * Provide a sized buffer starting at offset.
+     * 
+     * @param vOffset the virtual offset
+     * @param size    0 - best effort, negative - at least this number of available
+     *                bytes, positive - exact number of bytes, max:
+     *                Integer.MAX_VALUE
+     * @return the buffer
+     * @throws IOException if an I/O exception occurs
+     */
+    ByteBuffer at(long vOffset, int size) throws IOException;
+
+    /**
+     * Provide a best effort buffer starting at offset.
+     * 
+     * @param vOffset the virtual offset
+     * @return the buffer
+     * @throws IOException if an I/O exception occurs
+     */
+    default ByteBuffer at(final long vOffset) throws IOException {
+        return at(vOffset, 0);
+    }
+
+    @Override
+    void close() throws IOException;
+}
@@ -15,6 +15,7 @@
  */
 package app.keve.hdf5io.util;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
@@ -29,45 +30,104 @@ import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 
-// TODO: for MapMode.READ_ONLY do heuristics to seek into the channel and read small chunk vs. map the file
-public final class VMappedFile implements AutoCloseable {
+/**
+ * A virtual address space composed of memory mapped file regions.
+ * 
+ * <p>
+ * Every mapping is mapped lazily in windows of {@code windowSize} bytes. Each
+ * window is mapped with an additional {@code windowOverlap} bytes, so that
+ * structures starting near the end of a window can still be served as a slice
+ * of a single mapped buffer. Requests which extend beyond the overlap are
+ * served from a stitched copy in read-only mode, and from a mapping of the
+ * requested range otherwise, so that writes to the buffer reach the file. This
+ * way mappings are not limited to 2G.
+ */
+public final class VMappedFile implements VFile {
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+    public static final int DEFAULT_WINDOW_OVERLAP = 1 << 26;
+
     private final TreeMap<Long, Mapping> vMap;
+    private final int windowSize;
+    private final int windowOverlap;
     private Mapping appendMapping;
 
-    private static class Mapping implements AutoCloseable {
+    private final class Mapping implements AutoCloseable {
         private final long virtualOffset; // could be put outside of Mapping class
         private final long maxSize;
         private final long offsetIntoFile;
         private final Path file;
         private final FileChannel fc;
         private final MapMode mapMode;
+        // read-only mappings are mapped upfront and never change
+        private final MappedByteBuffer[] readOnlyWindows;
+        private final TreeMap<Long, MappedByteBuffer> windows;
 
-        private long currentSize; // TODO: int, ==buf.capacity if we remap aggressively
-        private MappedByteBuffer buf;
+        private volatile long currentSize;
 
         Mapping(final long virtualOffset, final long maxSize, final long offsetIntoFile, final Path file,
                 final FileChannel fc, final MapMode mapMode) throws IOException {
             this.virtualOffset = virtualOffset;
             this.maxSize = maxSize;
-            assert maxSize <= Integer.MAX_VALUE : "cannot map more than 2G";
             this.offsetIntoFile = offsetIntoFile;
             this.file = file;
             this.fc = fc;
             this.mapMode = mapMode;
+            this.windows = new TreeMap<>();
 
             // offsetInfoFile might be bigger than the current file size, file will
             // be expanded at first write.
-            this.currentSize = Long.max(0, fc.size() - offsetIntoFile);
+            this.currentSize = Long.max(0, Long.min(maxSize, fc.size() - offsetIntoFile));
+
+            if (MapMode.READ_ONLY == mapMode) {
+                final int nWindows = (int) ((currentSize + windowSize - 1) / windowSize);
+                readOnlyWindows = new MappedByteBuffer[nWindows];
+                for (int i = 0; i < nWindows; i++) {
+                    final long windowOffset = (long) i * windowSize;
+                    readOnlyWindows[i] = fc.map(mapMode, offsetIntoFile + windowOffset,
+                            Long.min(windowSize + windowOverlap, currentSize - windowOffset));
+                }
+            } else {
+                readOnlyWindows = null;
+            }
+        }
+
+        private ByteBuffer window(final long index, final long offset, final long minEnd) throws IOException {
+            if (null != readOnlyWindows) {
+                if (index >= readOnlyWindows.length) {
+                    throw new EOFException("Unexpected EOF at " + (offsetIntoFile + offset));
+                }
+                return readOnlyWindows[(int) index];
+            }
+            return remappedWindow(index, minEnd);
         }
 
-        ByteBuffer getBuffer(final int offset, final int size) throws IOException {
-            if (null == buf || offset + Math.abs(size) > buf.capacity()) {
+        private synchronized MappedByteBuffer remappedWindow(final long index, final long minEnd)
+                throws IOException {
+            final long windowOffset = index * windowSize;
+            MappedByteBuffer buf = windows.get(index);
+            if (null == buf || windowOffset + buf.capacity() < minEnd && buf.capacity() < windowSize + windowOverlap) {
                 // file size has changed!
-                // TODO: multiple buffers;
                 currentSize = Long.min(maxSize, fc.size() - offsetIntoFile);
-                buf = fc.map(mapMode, offsetIntoFile, currentSize);
+                final long bufSize = Long.min(windowSize + windowOverlap, currentSize - windowOffset);
+                buf = fc.map(mapMode, offsetIntoFile + windowOffset, Long.max(0, bufSize));
+                windows.put(index, buf);
+            }
+            return buf;
+        }
+
+        ByteBuffer getBuffer(final long offset, final int size) throws IOException {
+            final long index = offset / windowSize;
+            final long windowOffset = index * windowSize;
+            final long end = offset + Math.abs((long) size);
+            final ByteBuffer buf = window(index, offset, end);
+            if (end > windowOffset + buf.capacity() && end <= currentSize) {
+                if (MapMode.READ_ONLY == mapMode) {
+                    return stitch(offset, Math.abs(size));
+                }
+                // writes to a copy would be lost
+                return fc.map(mapMode, offsetIntoFile + offset, Math.abs(size));
             }
-            final ByteBuffer atBuf = buf.duplicate().position(offset).slice();
+            final ByteBuffer atBuf = buf.duplicate().position((int) (offset - windowOffset)).slice();
             if (size < 0) {
                 assert atBuf.limit() >= -size : "Limit " + atBuf.limit() + " < " + -size;
             } else if (size > 0) {
@@ -76,28 +136,42 @@ public final class VMappedFile implements AutoCloseable {
             return atBuf;
         }
 
+        private ByteBuffer stitch(final long offset, final int size) throws IOException {
+            final ByteBuffer buf = ByteBuffer.allocate(size);
+            while (buf.hasRemaining()) {
+                if (fc.read(buf, offsetIntoFile + offset + buf.position()) < 0) {
+                    throw new EOFException("Unexpected EOF at " + (offsetIntoFile + offset + buf.position()));
+                }
+            }
+            return buf.flip();
+        }
+
         @Override
-        public void close() throws IOException {
-            if (null != buf) {
+        public synchronized void close() throws IOException {
+            for (final MappedByteBuffer buf : windows.values()) {
                 buf.force();
-                buf = null;
             }
+            windows.clear();
             fc.close(); // it is allowed to close a channel multiple times
         }
 
         @Override
         public String toString() {
-            return String.format("Mapping [virtual@%s:%s, offsetIntoFile=%s, file=%s, buf=%s]", virtualOffset, maxSize,
-                    offsetIntoFile, file, fc, buf);
+            return String.format("Mapping [virtual@%s:%s, offsetIntoFile=%s, file=%s, windows=%s]", virtualOffset,
+                    maxSize, offsetIntoFile, file,
+                    null == readOnlyWindows ? windows.keySet() : readOnlyWindows.length);
         }
 
     }
 
-    private VMappedFile(final Mapping... mappings) throws IOException {
-        vMap = new TreeMap<>();
-        for (final Mapping mapping : mappings) {
-            addMapping(mapping);
+    private VMappedFile(final int windowSize, final int windowOverlap) {
+        if (windowSize <= 0 || windowOverlap < 0 || windowSize > Integer.MAX_VALUE - windowOverlap) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid window size %d with overlap %d", windowSize, windowOverlap));
         }
+        this.vMap = new TreeMap<>();
+        this.windowSize = windowSize;
+        this.windowOverlap = windowOverlap;
     }
 
     private void addMapping(final Mapping mapping) {
@@ -107,12 +181,13 @@ public final class VMappedFile implements AutoCloseable {
         }
     }
 
-    public void addMapping(final long virtualOffset, final long offsetInfoFile, final int size, final Path path,
+    @Override
+    public void addMapping(final long virtualOffset, final long offsetInfoFile, final long size, final Path path,
             final OpenOption... openOptions) throws IOException {
         addMapping(virtualOffset, offsetInfoFile, size, path, mapModeFromOpenOptions(openOptions), openOptions);
     }
 
-    public void addMapping(final long virtualOffset, final long offsetInfoFile, final int size, final Path path,
+    public void addMapping(final long virtualOffset, final long offsetInfoFile, final long size, final Path path,
             final MapMode mapMode, final OpenOption... openOptions) throws IOException {
         for (final Mapping mapping : vMap.values()) {
             if (Files.isSameFile(mapping.file, path)) {
@@ -127,6 +202,7 @@ public final class VMappedFile implements AutoCloseable {
         addMapping(newMapping);
     }
 
+    @Override
     public long[] append(final ByteBuffer src) throws IOException {
         // TODO: check if we need to wrap the buffer (appendMapping.currentSize +
         // src.remaining > appendMapping.maxSize)
@@ -146,6 +222,7 @@ public final class VMappedFile implements AutoCloseable {
      * @return cumulative size of all the mappings.
      * @throws IOException if an I/O exception occurs
      */
+    @Override
     public long size() throws IOException {
         long size = 0;
         for (final Mapping me : vMap.values()) {
@@ -160,6 +237,7 @@ public final class VMappedFile implements AutoCloseable {
      * @return Maximum addressable vOffset.
      * @throws IOException if an I/O exception occurs
      */
+    @Override
     public long maxVOffset() throws IOException {
         long maxVOffset = Long.MIN_VALUE;
         for (final Mapping me : vMap.values()) {
@@ -175,14 +253,18 @@ public final class VMappedFile implements AutoCloseable {
      * @param size    0 - best effort, negative - at least this number of available
      *                bytes, positive - exact number of bytes, max:
      *                Integer.MAX_VALUE
-     * @return the buffer
+     * @return the buffer. If the requested range straddles a window boundary it
+     *         is a stitched copy for a read-only mapping, and a mapping of exactly
+     *         the requested range for a writable one, so that writes reach the
+     *         file.
      * @throws IOException if an I/O exception occurs
      */
+    @Override
     public ByteBuffer at(final long vOffset, final int size) throws IOException {
         final Entry<Long, Mapping> entry = vMap.floorEntry(vOffset);
         assert null != entry : "file@" + vOffset + ":" + size + " is before BOF";
         final Mapping mapping = entry.getValue();
-        final int offset = (int) (vOffset - mapping.virtualOffset);
+        final long offset = vOffset - mapping.virtualOffset;
         return mapping.getBuffer(offset, size);
     }
 
@@ -193,6 +275,7 @@ public final class VMappedFile implements AutoCloseable {
      * @return the buffer
      * @throws IOException if an I/O exception occurs
      */
+    @Override
     public ByteBuffer at(final long vOffset) throws IOException {
         return at(vOffset, 0);
     }
@@ -236,7 +319,11 @@ public final class VMappedFile implements AutoCloseable {
     }
 
     public static VMappedFile of() throws IOException {
-        return new VMappedFile();
+        return of(DEFAULT_WINDOW_SIZE, DEFAULT_WINDOW_OVERLAP);
+    }
+
+    public static VMappedFile of(final int windowSize, final int windowOverlap) throws IOException {
+        return new VMappedFile(windowSize, windowOverlap);
     }
 
     public static VMappedFile of(final Path file, final OpenOption... openOptions) throws IOException {
@@ -245,10 +332,9 @@ public final class VMappedFile implements AutoCloseable {
 
     public static VMappedFile of(final Path file, final MapMode mapMode, final OpenOption... openOptions)
             throws IOException {
-        final FileChannel fc = FileChannel.open(file, openOptions);
-        final long eof = fc.size();
-        assert eof < Integer.MAX_VALUE; // TODO: multiple buffers
-        return new VMappedFile(new Mapping(0, Integer.MAX_VALUE, 0, file, fc, mapMode));
+        final VMappedFile vMappedFile = of();
+        vMappedFile.addMapping(0, 0, Long.MAX_VALUE, file, mapMode, openOptions);
+        return vMappedFile;
     }
 
 }
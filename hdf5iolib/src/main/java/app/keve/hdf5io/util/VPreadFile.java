@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * A virtual address space composed of file regions which are read with
+ * positional reads.
+ * 
+ * <p>
+ * Every request is served from a heap buffer owned by the caller. The bytes are
+ * transferred through a bounded pool of fixed size direct buffers, so the
+ * direct memory used is independent of the request size (a plain
+ * {@link FileChannel#read(ByteBuffer, long)} into a heap buffer caches a
+ * temporary direct buffer of the request size per thread). This storage is
+ * read-only.
+ */
+public final class VPreadFile implements VFile {
+    public static final int DEFAULT_READ_AHEAD = 4096;
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_POOL_SIZE = 16;
+
+    private final TreeMap<Long, Region> vMap;
+    private final int readAhead;
+    private final int blockSize;
+    private final int poolSize;
+    private final ConcurrentLinkedDeque<ByteBuffer> pool;
+
+    private static final class Region implements AutoCloseable {
+        private final long virtualOffset;
+        private final long maxSize;
+        private final long offsetIntoFile;
+        private final Path file;
+        private final FileChannel fc;
+
+        Region(final long virtualOffset, final long maxSize, final long offsetIntoFile, final Path file,
+                final FileChannel fc) {
+            this.virtualOffset = virtualOffset;
+            this.maxSize = maxSize;
+            this.offsetIntoFile = offsetIntoFile;
+            this.file = file;
+            this.fc = fc;
+        }
+
+        long currentSize() throws IOException {
+            return Long.max(0, Long.min(maxSize, fc.size() - offsetIntoFile));
+        }
+
+        @Override
+        public void close() throws IOException {
+            fc.close(); // it is allowed to close a channel multiple times
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Region [virtual@%s:%s, offsetIntoFile=%s, file=%s]", virtualOffset, maxSize,
+                    offsetIntoFile, file);
+        }
+    }
+
+    private VPreadFile(final int readAhead, final int blockSize, final int poolSize) {
+        if (readAhead <= 0 || blockSize <= 0 || poolSize < 0) {
+            throw new IllegalArgumentException(String.format("Invalid read ahead %d, block size %d or pool size %d",
+                    readAhead, blockSize, poolSize));
+        }
+        this.vMap = new TreeMap<>();
+        this.readAhead = readAhead;
+        this.blockSize = blockSize;
+        this.poolSize = poolSize;
+        this.pool = new ConcurrentLinkedDeque<>();
+    }
+
+    @Override
+    public void addMapping(final long virtualOffset, final long offsetInfoFile, final long size, final Path path,
+            final OpenOption... openOptions) throws IOException {
+        for (final Region region : vMap.values()) {
+            if (Files.isSameFile(region.file, path)) {
+                vMap.put(virtualOffset, new Region(virtualOffset, size, offsetInfoFile, region.file, region.fc));
+                return;
+            }
+        }
+        final FileChannel fc = FileChannel.open(path, openOptions);
+        vMap.put(virtualOffset, new Region(virtualOffset, size, offsetInfoFile, path, fc));
+    }
+
+    @Override
+    public long[] append(final ByteBuffer src) throws IOException {
+        throw new IOException("Cannot append to read-only storage.");
+    }
+
+    @Override
+    public long size() throws IOException {
+        long size = 0;
+        for (final Region region : vMap.values()) {
+            size += region.currentSize();
+        }
+        return size;
+    }
+
+    @Override
+    public long maxVOffset() throws IOException {
+        long maxVOffset = Long.MIN_VALUE;
+        for (final Region region : vMap.values()) {
+            maxVOffset = Long.max(maxVOffset, region.virtualOffset + region.currentSize());
+        }
+        return maxVOffset;
+    }
+
+    @Override
+    public ByteBuffer at(final long vOffset, final int size) throws IOException {
+        final Entry<Long, Region> entry = vMap.floorEntry(vOffset);
+        assert null != entry : "file@" + vOffset + ":" + size + " is before BOF";
+        final Region region = entry.getValue();
+        final long offset = vOffset - region.virtualOffset;
+        final long available = region.currentSize() - offset;
+        final int length;
+        if (size > 0) {
+            length = size;
+        } else {
+            length = (int) Long.max(0, Long.min(available, Integer.max(-size, readAhead)));
+            assert length >= -size : "Limit " + length + " < " + -size;
+        }
+        if (length > available) {
+            throw new EOFException(String.format("file@%d:%d is beyond EOF", vOffset, size));
+        }
+        return read(region.fc, region.offsetIntoFile + offset, length);
+    }
+
+    private ByteBuffer read(final FileChannel fc, final long position, final int length) throws IOException {
+        final ByteBuffer buf = ByteBuffer.allocate(length);
+        ByteBuffer block = pool.pollFirst();
+        if (null == block) {
+            block = ByteBuffer.allocateDirect(blockSize);
+        }
+        try {
+            while (buf.hasRemaining()) {
+                block.clear().limit(Integer.min(blockSize, buf.remaining()));
+                while (block.hasRemaining()) {
+                    if (fc.read(block, position + buf.position() + block.position()) < 0) {
+                        throw new EOFException("Unexpected EOF at " + (position + buf.position() + block.position()));
+                    }
+                }
+                buf.put(block.flip());
+            }
+        } finally {
+            if (pool.size() < poolSize) {
+                pool.offerFirst(block);
+            }
+        }
+        return buf.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (final Region region : vMap.values()) {
+            region.close();
+        }
+        vMap.clear();
+        pool.clear();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PreadFile [vMap=%s]", vMap.values());
+    }
+
+    public static VPreadFile of() {
+        return of(DEFAULT_READ_AHEAD, DEFAULT_BLOCK_SIZE, DEFAULT_POOL_SIZE);
+    }
+
+    public static VPreadFile of(final int readAhead, final int blockSize, final int poolSize) {
+        return new VPreadFile(readAhead, blockSize, poolSize);
+    }
+
+    public static VPreadFile of(final Path file, final OpenOption... openOptions) throws IOException {
+        final VPreadFile vPreadFile = of();
+        vPreadFile.addMapping(0, 0, Long.MAX_VALUE, file, openOptions);
+        return vPreadFile;
+    }
+}
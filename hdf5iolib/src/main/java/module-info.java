@@ -9,6 +9,11 @@ module hdf5iolib {
 
     provides app.keve.hdf5io.api.HDF5 with app.keve.hdf5io.impl.HDF5Implementation;
 
+    uses app.keve.hdf5io.api.HDF5Filter;
+
+    provides app.keve.hdf5io.api.HDF5Filter with app.keve.hdf5io.filter.DeflateFilter,
+            app.keve.hdf5io.filter.ShuffleFilter, app.keve.hdf5io.filter.Fletcher32Filter;
+
     requires java.desktop; // temporarily for BeanInfo in entries
 
     requires org.yaml.snakeyaml;
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.filter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import app.keve.hdf5io.api.HDF5Filter;
+import app.keve.hdf5io.fileformat.H5Context;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessage.FilterDescription;
+import app.keve.hdf5io.fileformat.level2message.FilterPipelineMessageV2BB.FilterDescriptionV2BB;
+
+public final class TestFilters {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 8, 12})
+    public void testShuffle(final int elementSize) {
+        final HDF5Filter shuffle = new ShuffleFilter();
+        final Random random = new Random(elementSize);
+        for (final int length : new int[] {0, 1, elementSize, 7 * elementSize, 8 * elementSize + 3,
+                1000 * elementSize + 1}) {
+            final byte[] data = new byte[length];
+            random.nextBytes(data);
+            final int count = length / elementSize;
+            final byte[] expected = data.clone();
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < elementSize; j++) {
+                    expected[j * count + i] = data[i * elementSize + j];
+                }
+            }
+            final ByteBuffer shuffled = shuffle.encode(ByteBuffer.wrap(data), new int[] {elementSize});
+            assertEquals(ByteBuffer.wrap(expected), shuffled);
+            assertEquals(ByteBuffer.wrap(data), shuffle.decode(shuffled, new int[] {elementSize}, length));
+        }
+    }
+
+    @Test
+    public void testFletcher32() {
+        assertEquals(0x05080406, Fletcher32Filter.checksum(ByteBuffer.wrap(new byte[] {1, 2, 3, 4})));
+        assertEquals(0x05040402, Fletcher32Filter.checksum(ByteBuffer.wrap(new byte[] {1, 2, 3})));
+        final HDF5Filter fletcher32 = new Fletcher32Filter();
+        final Random random = new Random(32);
+        for (final int length : new int[] {0, 5, 719, 720, 721, 10_001}) {
+            final byte[] data = new byte[length];
+            random.nextBytes(data);
+            assertEquals(checksum(data), Fletcher32Filter.checksum(ByteBuffer.wrap(data)));
+            final ByteBuffer encoded = fletcher32.encode(ByteBuffer.wrap(data), new int[0]);
+            assertEquals(length + 4, encoded.remaining());
+            assertEquals(ByteBuffer.wrap(data), fletcher32.decode(encoded.duplicate(), new int[0], length));
+            if (length > 0) {
+                encoded.put(0, (byte) ~encoded.get(0));
+                assertThrows(IllegalArgumentException.class,
+                        () -> fletcher32.decode(encoded, new int[0], length));
+            }
+        }
+        // checksums written before 1.6.3 have the bytes of the sums swapped
+        final ByteBuffer legacy = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).put(new byte[] {1, 2, 3, 4})
+                .putInt(0x08050604).flip();
+        assertEquals(4, fletcher32.decode(legacy, new int[0], 4).remaining());
+    }
+
+    @Test
+    public void testRegistry() {
+        final FilterRegistry registry = FilterRegistry.getDefault();
+        assertTrue(registry.get(FilterDescription.FILTER_DEFLATE).isPresent());
+        assertTrue(registry.get(FilterDescription.FILTER_SHUFFLE).isPresent());
+        assertTrue(registry.get(FilterDescription.FILTER_FLETCHER32).isPresent());
+        final HDF5Filter deflate = registry.get(FilterDescription.FILTER_DEFLATE).get();
+        final byte[] data = new byte[100_000];
+        new Random(1).nextBytes(data);
+        final ByteBuffer compressed = deflate.encode(ByteBuffer.wrap(data), new int[] {9});
+        // the size hint is too small
+        assertEquals(ByteBuffer.wrap(data), deflate.decode(compressed, new int[] {9}, 1000));
+    }
+
+    private static FilterPipelineMessage pipeline(final int[]... filters) {
+        final List<FilterDescription> descriptions = new ArrayList<>();
+        for (final int[] filter : filters) {
+            // identification, flags, number of client data values and client data
+            final ByteBuffer buf = ByteBuffer.allocate(6 + 4 * (filter.length - 1)).order(ByteOrder.LITTLE_ENDIAN)
+                    .putShort((short) filter[0]).putShort((short) 0).putShort((short) (filter.length - 1));
+            for (int i = 1; i < filter.length; i++) {
+                buf.putInt(filter[i]);
+            }
+            descriptions.add(new FilterDescriptionV2BB(buf.flip(), () -> null));
+        }
+        return new FilterPipelineMessage() {
+            @Override
+            public ByteBuffer getBuffer() {
+                return null;
+            }
+
+            @Override
+            public H5Context context() {
+                return null;
+            }
+
+            @Override
+            public long size() {
+                return 0;
+            }
+
+            @Override
+            public boolean isValid() {
+                return true;
+            }
+
+            @Override
+            public int getVersion() {
+                return 2;
+            }
+
+            @Override
+            public int getNumberOfFilters() {
+                return descriptions.size();
+            }
+
+            @Override
+            public Iterator<? extends FilterDescription> filterIterator() {
+                return descriptions.iterator();
+            }
+        };
+    }
+
+    @Test
+    public void testPipeline() {
+        final FilterRegistry registry = FilterRegistry.getDefault();
+        final FilterPipelineMessage pipeline = pipeline(new int[] {FilterDescription.FILTER_SHUFFLE, 8},
+                new int[] {FilterDescription.FILTER_DEFLATE, 6}, new int[] {FilterDescription.FILTER_FLETCHER32});
+        final ByteBuffer first = ByteBuffer.allocate(8000);
+        final ByteBuffer second = ByteBuffer.allocate(8000);
+        for (int i = 0; i < 1000; i++) {
+            first.putLong(i);
+            second.putLong(-i);
+        }
+        final ByteBuffer firstDecoded = registry.decode(pipeline, 0, registry.encode(pipeline, first.flip()), 8000);
+        assertEquals(first, firstDecoded);
+        // the intermediate buffers are reused, the results are not
+        final ByteBuffer secondDecoded = registry.decode(pipeline, 0, registry.encode(pipeline, second.flip()), 8000);
+        assertEquals(second, secondDecoded);
+        assertEquals(first, firstDecoded);
+        // shuffling single bytes returns the intermediate result
+        final FilterPipelineMessage bytes = pipeline(new int[] {FilterDescription.FILTER_SHUFFLE, 1},
+                new int[] {FilterDescription.FILTER_DEFLATE, 6});
+        final ByteBuffer bytesDecoded = registry.decode(bytes, 0, registry.encode(bytes, first.duplicate()), 8000);
+        assertEquals(first, bytesDecoded);
+        registry.decode(bytes, 0, registry.encode(bytes, second.duplicate()), 8000);
+        assertEquals(first, bytesDecoded);
+        // the chunk was not deflated
+        final ByteBuffer shuffled = new ShuffleFilter().encode(first, new int[] {8});
+        assertEquals(first, registry.decode(pipeline, 0b110, shuffled, 8000));
+    }
+
+    /**
+     * The checksum as computed by the HDF5 library, a word at a time.
+     * 
+     * @param data the data to checksum
+     * @return the Fletcher-32 checksum
+     */
+    private static int checksum(final byte[] data) {
+        int sum1 = 0;
+        int sum2 = 0;
+        int idx = 0;
+        int len = data.length / 2;
+        while (len > 0) {
+            int tlen = Integer.min(len, 360);
+            len -= tlen;
+            do {
+                sum1 += (data[idx] & 0xFF) << 8 | data[idx + 1] & 0xFF;
+                idx += 2;
+                sum2 += sum1;
+            } while (--tlen > 0);
+            sum1 = (sum1 & 0xFFFF) + (sum1 >>> 16);
+            sum2 = (sum2 & 0xFFFF) + (sum2 >>> 16);
+        }
+        if (data.length % 2 != 0) {
+            sum1 += (data[idx] & 0xFF) << 8;
+            sum2 += sum1;
+            sum1 = (sum1 & 0xFFFF) + (sum1 >>> 16);
+            sum2 = (sum2 & 0xFFFF) + (sum2 >>> 16);
+        }
+        sum1 = (sum1 & 0xFFFF) + (sum1 >>> 16);
+        sum2 = (sum2 & 0xFFFF) + (sum2 >>> 16);
+        return sum2 << 16 | sum1;
+    }
+}
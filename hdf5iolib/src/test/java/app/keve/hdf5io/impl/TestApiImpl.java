@@ -18,13 +18,21 @@ package app.keve.hdf5io.impl;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -34,17 +42,30 @@ import app.keve.hdf5io.Support;
 import app.keve.hdf5io.TestData;
 import app.keve.hdf5io.api.HDF5;
 import app.keve.hdf5io.api.HDF5Dataset;
+import app.keve.hdf5io.api.HDF5Dataset.Narrowing;
 import app.keve.hdf5io.api.HDF5File;
 import app.keve.hdf5io.api.HDF5FormatException;
 import app.keve.hdf5io.api.HDF5Group;
+import app.keve.hdf5io.api.HDF5Hyperslab;
 import app.keve.hdf5io.api.HDF5NamedObject;
 import app.keve.hdf5io.api.datatype.HDF5Array;
+import app.keve.hdf5io.api.datatype.HDF5Compound;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
+import app.keve.hdf5io.api.datatype.HDF5Datatype.DatatypeBuilder;
+import app.keve.hdf5io.api.datatype.HDF5Datatype.HDF5ByteOrder;
+import app.keve.hdf5io.api.datatype.HDF5Datatype.PaddingType;
+import app.keve.hdf5io.api.datatype.HDF5String;
+import app.keve.hdf5io.api.util.NDArray;
 import app.keve.hdf5io.fileformat.H5Resolver;
+import app.keve.hdf5io.fileformat.level2datatypeadapter.GenericCompoundToMapAdapter;
 
 public final class TestApiImpl {
     private static final String SIMPLE2_H5 = "simple2.h5";
     private static final String DOTYAML = ".yaml";
+    private static final String X = "x";
+    private static final String N = "n";
+    private static final String F = "f";
+    private static final String ID = "id";
     private final HDF5 hdf5 = new HDF5Implementation();
 
     @Disabled("Mem HDF is not a priority")
@@ -252,4 +273,274 @@ public final class TestApiImpl {
             assertArrayEquals(TestData.DOUBLE_DATA_SMALL, (double[]) data);
         }
     }
+
+    @Test
+    public void testCompoundDataset() throws Exception {
+        final int n = 100;
+        final Map<?, ?>[] records = new Map<?, ?>[n];
+        for (int i = 0; i < n; i++) {
+            records[i] = Map.of(X, i * 0.5, N, -i, F, (float) i / 4, ID, 1000L * i);
+        }
+        writeThenRead(hdf5File -> {
+            final HDF5Compound recordType = recordType(hdf5File.getDatatypeBuilder());
+            assertEquals(24, recordType.getElementSize());
+            hdf5File.getRootGroup().addDataset("records").withDatatype(recordType).forData(records).build();
+        }, hdf5File -> {
+            final HDF5Dataset ds = hdf5File.getRootGroup().resolve("records").asDataset();
+            assertEquals(records[7], ((Object[]) ds.getAsObject())[7]);
+            final NDArray x = ds.getMemberAsNDArray(X, null);
+            assertArrayEquals(IntStream.range(0, n).mapToDouble(i -> i * 0.5).toArray(), (double[]) x.array());
+            final HDF5Hyperslab selection = HDF5Hyperslab.of(new long[] {10}, new long[] {7}, new long[] {5},
+                    new long[] {2});
+            final int[] rows = IntStream.range(0, 10).map(i -> 10 + i / 2 * 7 + i % 2).toArray();
+            final Map<String, NDArray> columns = ds.getMembersAsNDArray(List.of(ID, N, F), selection);
+            assertEquals(List.of(ID, N, F), List.copyOf(columns.keySet()));
+            assertArrayEquals(IntStream.of(rows).mapToLong(i -> 1000L * i).toArray(),
+                    (long[]) columns.get(ID).array());
+            assertArrayEquals(IntStream.of(rows).map(i -> -i).toArray(), (int[]) columns.get(N).array());
+            assertEquals(rows[9] / 4f, columns.get(F).getDouble(9));
+            final double[] dst = new double[n];
+            assertEquals(10, ds.readMemberInto(N, dst, 0, selection));
+            assertArrayEquals(IntStream.of(rows).mapToDouble(i -> -i).toArray(), Arrays.copyOf(dst, 10));
+            final ByteBuffer raw = ds.readMemberInto(ID, ByteBuffer.allocate(8 * n), null).flip();
+            assertEquals(8 * n, raw.remaining());
+            assertEquals(1000L * 42, raw.getLong(8 * 42));
+            assertThrows(IllegalArgumentException.class, () -> ds.getMemberAsNDArray("y", null));
+        });
+    }
+
+    @Test
+    public void testCompoundRecordBinding() throws Exception {
+        final int n = 50;
+        final Sample[] samples = new Sample[n];
+        for (int i = 0; i < n; i++) {
+            samples[i] = new Sample();
+            samples[i].x = i * 0.25;
+            samples[i].n = -i;
+            samples[i].f = i;
+            samples[i].id = 1L << 40 | i;
+            samples[i].label = "s" + i;
+        }
+        writeThenRead(hdf5File -> {
+            hdf5File.getRootGroup().addDataset("samples").withDatatype(recordType(hdf5File.getDatatypeBuilder()))
+                    .forData(samples).build();
+        }, hdf5File -> {
+            final HDF5Dataset ds = hdf5File.getRootGroup().resolve("samples").asDataset();
+            assertEquals(Map.of(X, 3 * 0.25, N, -3, F, 3f, ID, 1L << 40 | 3), ((Object[]) ds.getAsObject())[3]);
+            final Sample[] all = ds.getAsRecords(Sample.class, null);
+            assertEquals(n, all.length);
+            for (int i = 0; i < n; i++) {
+                assertEquals(samples[i].x, all[i].x);
+                assertEquals(samples[i].n, all[i].n);
+                assertEquals(samples[i].f, all[i].f);
+                assertEquals(samples[i].id, all[i].id);
+                assertNull(all[i].label);
+            }
+            final Sample[] some = ds.getAsRecords(Sample.class,
+                    HDF5Hyperslab.of(new long[] {5}, new long[] {10}, new long[] {3}, new long[] {1}));
+            assertEquals(3, some.length);
+            assertEquals(25, some[2].f);
+            assertThrows(IllegalArgumentException.class, () -> ds.getAsRecords(Unbindable.class, null));
+            // the binding is kept with the adapter of the file, not statically
+            final GenericCompoundToMapAdapter adapter = (GenericCompoundToMapAdapter) ds.getDatatype().adapter();
+            assertSame(adapter.recordBinding(Sample.class), adapter.recordBinding(Sample.class));
+        });
+    }
+
+    @Test
+    public void testStringDataset() throws Exception {
+        final String[] colours = {"red", "green", "blue", "grün"};
+        final int n = 1000;
+        final String[] values = new String[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = colours[i % colours.length];
+        }
+        writeThenRead(hdf5File -> {
+            final DatatypeBuilder datatypeBuilder = hdf5File.getDatatypeBuilder();
+            final HDF5String utf8 = datatypeBuilder.forString().withElementSize(8)
+                    .withPaddingType(PaddingType.NULL_PAD).withCharset(StandardCharsets.UTF_8).build();
+            hdf5File.getRootGroup().addDataset("colours").withDatatype(utf8).forData(values).build();
+            final HDF5String ascii = datatypeBuilder.forString().withElementSize(6)
+                    .withPaddingType(PaddingType.SPACE_PAD).build();
+            hdf5File.getRootGroup().addDataset("padded").withDatatype(ascii)
+                    .forData(new String[] {"a", "bb  b", "toolong"}).build();
+        }, hdf5File -> {
+            final HDF5Dataset ds = hdf5File.getRootGroup().resolve("colours").asDataset();
+            assertArrayEquals(values, ds.getAsStrings(null, false));
+            assertArrayEquals(values, (Object[]) ds.getAsObject());
+            assertEquals(n, ds.getAsStream().count());
+            final HDF5Hyperslab selection = HDF5Hyperslab.of(new long[] {2}, new long[] {500});
+            final String[] dictionary = ds.getAsStrings(selection, true);
+            assertArrayEquals(Arrays.copyOfRange(values, 2, 502), dictionary);
+            assertSame(dictionary[0], dictionary[4]);
+            final CharSequence[] views = ds.getAsCharSequences(selection);
+            assertEquals(4, views[0].length());
+            assertEquals('g', views[1].charAt(0));
+            assertEquals("grün", views[1].toString());
+            assertEquals("lu", views[0].subSequence(1, 3).toString());
+            assertArrayEquals(new String[] {"a", "bb  b", "toolon"},
+                    hdf5File.getRootGroup().resolve("padded").asDataset().getAsStrings(null, false));
+        });
+    }
+
+    @Test
+    public void testNumericConversion() throws Exception {
+        writeThenRead(hdf5File -> {
+            final DatatypeBuilder datatypeBuilder = hdf5File.getDatatypeBuilder();
+            final HDF5Datatype int16 = datatypeBuilder.forFixedPointNumber().withElementSize(2).signed()
+                    .withByteOrder(HDF5ByteOrder.LITTLE_ENDIAN).build();
+            hdf5File.getRootGroup().addDataset("counts").withDatatype(int16)
+                    .forData(new int[] {0, 1, -1, 40_000, -40_000, 32_767}).withNarrowing(Narrowing.SATURATE)
+                    .build();
+            hdf5File.getRootGroup().addDataset("levels")
+                    .withDatatype(datatypeBuilder.forType(float.class).build())
+                    .forData(new double[][] {{0.5, 1e300}, {-1e300, Double.NaN}})
+                    .withNarrowing(Narrowing.SATURATE).build();
+            final HDF5Datatype uint64 = datatypeBuilder.forFixedPointNumber().withElementSize(8).unsigned()
+                    .withByteOrder(HDF5ByteOrder.BIG_ENDIAN).build();
+            hdf5File.getRootGroup().addDataset("big").withDatatype(uint64).forData(new long[] {-1L, 5L})
+                    .build();
+        }, hdf5File -> {
+            final HDF5Dataset counts = hdf5File.getRootGroup().resolve("counts").asDataset();
+            final double[] doubles = new double[6];
+            assertEquals(6, counts.readInto(doubles, 0, null));
+            assertArrayEquals(new double[] {0, 1, -1, 32_767, -32_768, 32_767}, doubles);
+            final byte[] bytes = new byte[6];
+            counts.readInto(bytes, 0, null, Narrowing.SATURATE);
+            assertArrayEquals(new byte[] {0, 1, -1, 127, -128, 127}, bytes);
+            counts.readInto(bytes, 0, null, Narrowing.WRAP);
+            assertArrayEquals(new byte[] {0, 1, -1, -1, 0, -1}, bytes);
+            assertThrows(IllegalArgumentException.class, () -> counts.readInto(bytes, 0, null, null));
+
+            final HDF5Dataset levels = hdf5File.getRootGroup().resolve("levels").asDataset();
+            assertArrayEquals(new double[] {0.5, Float.MAX_VALUE, -Float.MAX_VALUE, Double.NaN},
+                    doubles(levels, 4));
+            final int[] ints = new int[4];
+            levels.readInto(ints, 0, null, Narrowing.SATURATE);
+            assertArrayEquals(new int[] {0, Integer.MAX_VALUE, Integer.MIN_VALUE, 0}, ints);
+            assertThrows(IllegalArgumentException.class, () -> levels.readInto(new int[4], 0, null));
+
+            final HDF5Dataset big = hdf5File.getRootGroup().resolve("big").asDataset();
+            assertArrayEquals(new double[] {0x1p64, 5}, doubles(big, 2));
+            final long[] longs = new long[2];
+            big.readInto(longs, 0, null, Narrowing.SATURATE);
+            assertArrayEquals(new long[] {Long.MAX_VALUE, 5}, longs);
+            big.readInto(longs, 0, null);
+            assertArrayEquals(new long[] {-1L, 5}, longs);
+        });
+    }
+
+    @Test
+    public void testNonNativeNumbers() throws Exception {
+        final int[] int24 = {1, -1, 8_388_607, -8_388_608, 9_000_000, 42};
+        writeThenRead(hdf5File -> {
+            final DatatypeBuilder datatypeBuilder = hdf5File.getDatatypeBuilder();
+            final HDF5Datatype half = datatypeBuilder.forFloatingPointNumber().withElementSize(2)
+                    .withByteOrder(HDF5ByteOrder.LITTLE_ENDIAN).withExponentSize(5).withMantissaSize(10).build();
+            hdf5File.getRootGroup().addDataset("half").withDatatype(half)
+                    .forData(new float[] {1.5f, -0.25f, 65_504f, 1e6f, 6e-8f, Float.NaN})
+                    .withNarrowing(Narrowing.SATURATE).build();
+            final HDF5Datatype bfloat16 = datatypeBuilder.forFloatingPointNumber().withElementSize(2)
+                    .withByteOrder(HDF5ByteOrder.BIG_ENDIAN).withExponentSize(8).withMantissaSize(7).build();
+            hdf5File.getRootGroup().addDataset("bfloat16").withDatatype(bfloat16)
+                    .forData(new double[] {1.5, 3.14159, -1e39}).withNarrowing(Narrowing.WRAP).build();
+            for (final HDF5ByteOrder byteOrder : List.of(HDF5ByteOrder.LITTLE_ENDIAN, HDF5ByteOrder.BIG_ENDIAN)) {
+                hdf5File.getRootGroup().addDataset(byteOrder.name())
+                        .withDatatype(datatypeBuilder.forFixedPointNumber().withElementSize(3).signed()
+                                .withByteOrder(byteOrder).build())
+                        .forData(int24).withNarrowing(Narrowing.SATURATE).build();
+            }
+            final HDF5Datatype packed = datatypeBuilder.forFixedPointNumber().withElementSize(2).unsigned()
+                    .withByteOrder(HDF5ByteOrder.LITTLE_ENDIAN).withBitOffset(4).withBitPrecision(10)
+                    .withHiPadBit(1).build();
+            hdf5File.getRootGroup().addDataset("packed").withDatatype(packed)
+                    .forData(new int[] {0, 1023, 2000, -5}).withNarrowing(Narrowing.SATURATE).build();
+        }, hdf5File -> {
+            final float[] floats = new float[6];
+            hdf5File.getRootGroup().resolve("half").asDataset().readInto(floats, 0, null);
+            assertArrayEquals(new float[] {1.5f, -0.25f, 65_504f, 65_504f, 5.9604645E-8f, Float.NaN}, floats);
+            assertArrayEquals(new float[] {1.5f, 3.140625f, Float.NEGATIVE_INFINITY},
+                    (float[]) hdf5File.getRootGroup().resolve("bfloat16").asDataset().getAsObject());
+            final int[] expected = {1, -1, 8_388_607, -8_388_608, 8_388_607, 42};
+            for (final HDF5ByteOrder byteOrder : List.of(HDF5ByteOrder.LITTLE_ENDIAN, HDF5ByteOrder.BIG_ENDIAN)) {
+                final HDF5Dataset ds = hdf5File.getRootGroup().resolve(byteOrder.name()).asDataset();
+                final int[] ints = new int[6];
+                assertEquals(6, ds.readInto(ints, 0, null));
+                assertArrayEquals(expected, ints);
+                assertArrayEquals(expected, (int[]) ds.getAsObject());
+                assertArrayEquals(IntStream.of(expected).asDoubleStream().toArray(), doubles(ds, 6));
+            }
+            final HDF5Dataset ds = hdf5File.getRootGroup().resolve("packed").asDataset();
+            assertArrayEquals(new int[] {0, 1023, 1023, 0}, (int[]) ds.getAsObject());
+            final ByteBuffer raw = ds.readInto(ByteBuffer.allocate(8), null).flip().order(ByteOrder.LITTLE_ENDIAN);
+            // the value at bits 4 to 13, the high padding bits set
+            assertEquals((short) (1023 << 4 | 0xC000), raw.getShort(2));
+        });
+    }
+
+    /**
+     * Write a temporary file, then reopen it for reading. The file is deleted
+     * afterwards.
+     * 
+     * @param writer adds the objects to the new file
+     * @param reader checks the objects of the reopened file
+     * @throws Exception if the file cannot be written or read
+     */
+    private void writeThenRead(final FileAction writer, final FileAction reader) throws Exception {
+        final Path path = Files.createTempFile("test", ".h5");
+        try {
+            try (HDF5File hdf5File = hdf5.builder().withBacking(path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING).build()) {
+                writer.accept(hdf5File);
+            }
+            try (HDF5File hdf5File = hdf5.open(path, StandardOpenOption.READ)) {
+                reader.accept(hdf5File);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static double[] doubles(final HDF5Dataset ds, final int n) {
+        final double[] dst = new double[n];
+        assertEquals(n, ds.readInto(dst, 0, null));
+        return dst;
+    }
+
+    private static HDF5Compound recordType(final DatatypeBuilder datatypeBuilder) {
+        return datatypeBuilder.forCompound().addMember(X, 0, datatypeBuilder.forType(double.class).build())
+                .addMember(N, 8, datatypeBuilder.forType(int.class).build())
+                .addMember(F, 12, datatypeBuilder.forType(float.class).build())
+                .addMember(ID, 16, datatypeBuilder.forType(long.class).build()).build();
+    }
+
+    /**
+     * An action on an open file.
+     */
+    @FunctionalInterface
+    private interface FileAction {
+        void accept(HDF5File hdf5File) throws IOException;
+    }
+
+    /**
+     * A class bound to the records, the int member widened to long.
+     */
+    private static final class Sample {
+        private double x;
+        private long n;
+        private float f;
+        private long id;
+        private transient String label;
+    }
+
+    /**
+     * A class without a no argument constructor.
+     */
+    private static final class Unbindable {
+        private final double x;
+
+        Unbindable(final double x) {
+            this.x = x;
+        }
+    }
 }
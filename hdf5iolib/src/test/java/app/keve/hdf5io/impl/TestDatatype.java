@@ -18,14 +18,21 @@ package app.keve.hdf5io.impl;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
 import java.util.ServiceLoader;
+import java.util.Spliterator;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
@@ -34,6 +41,7 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
 import app.keve.hdf5io.api.HDF5;
+import app.keve.hdf5io.api.HDF5DatatypeAdapter;
 import app.keve.hdf5io.api.HDF5File;
 import app.keve.hdf5io.api.datatype.HDF5Array;
 import app.keve.hdf5io.api.datatype.HDF5Datatype;
@@ -47,6 +55,7 @@ import app.keve.hdf5io.api.datatype.HDF5FloatingPointNumber;
 import app.keve.hdf5io.api.datatype.HDF5FloatingPointNumber.FloatingPointNumberBuilder;
 
 public final class TestDatatype {
+    private static final int STREAM_ELEMENTS = 10_000;
     private static final HDF5 HDF5;
 
     static {
@@ -149,6 +158,69 @@ public final class TestDatatype {
         assertEquals(datatype.hashCode(), secondDatatype.hashCode());
     }
 
+    @ParameterizedTest
+    @MethodSource("fixedPoint")
+    public void testFixedPointStreams(final Type javaType, final int bitPrecision, final boolean signed,
+            final HDF5ByteOrder order) throws IOException {
+        final FixedPointNumberBuilder builder = (FixedPointNumberBuilder) hdf5File.getDatatypeBuilder()
+                .forType(javaType);
+        builder.withBitPrecision(bitPrecision).withByteOrder(order);
+        if (signed) {
+            builder.signed();
+        } else {
+            builder.unsigned();
+        }
+        final HDF5DatatypeAdapter adapter = builder.build().adapter();
+        final ByteBuffer buf = ByteBuffer.allocate(STREAM_ELEMENTS * bitPrecision / 8);
+        new Random(bitPrecision).nextBytes(buf.array());
+
+        final long[] expected = new long[STREAM_ELEMENTS];
+        final PrimitiveIterator.OfLong it = adapter.asLongIterator(buf.duplicate());
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = it.nextLong();
+        }
+        assertSplits(adapter.asLongSpliterator(buf.duplicate()));
+        assertArrayEquals(expected, adapter.asLongStream(buf.duplicate()).parallel().toArray());
+        assertEquals(Arrays.stream(expected).sum(), adapter.asLongStream(buf.duplicate()).parallel().sum());
+        if (bitPrecision < Long.SIZE && (signed || bitPrecision < Integer.SIZE)) {
+            assertSplits(adapter.asIntSpliterator(buf.duplicate()));
+            assertArrayEquals(Arrays.stream(expected).mapToInt(l -> (int) l).toArray(),
+                    adapter.asIntStream(buf.duplicate()).parallel().toArray());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("floatingPoint")
+    public void testFloatingPointStreams(final Type javaType, final int bitPrecision, final HDF5ByteOrder order)
+            throws IOException {
+        final FloatingPointNumberBuilder builder = (FloatingPointNumberBuilder) hdf5File.getDatatypeBuilder()
+                .forType(javaType);
+        final HDF5DatatypeAdapter adapter = builder.withBitPrecision(bitPrecision).withByteOrder(order).build()
+                .adapter();
+        final ByteBuffer buf = adapter.allocate(STREAM_ELEMENTS);
+        final double[] expected = new Random(bitPrecision).doubles(STREAM_ELEMENTS).toArray();
+        if (Float.SIZE == bitPrecision) {
+            // floats are widened
+            final FloatBuffer floatBuffer = adapter.asFloatBuffer(buf.duplicate());
+            for (int i = 0; i < expected.length; i++) {
+                floatBuffer.put((float) expected[i]);
+                expected[i] = (float) expected[i];
+            }
+        } else {
+            adapter.asDoubleBuffer(buf.duplicate()).put(expected);
+        }
+        assertSplits(adapter.asDoubleSpliterator(buf.duplicate()));
+        assertArrayEquals(expected, adapter.asDoubleStream(buf.duplicate()).parallel().toArray());
+    }
+
+    private static void assertSplits(final Spliterator<?> spliterator) {
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        assertEquals(STREAM_ELEMENTS, spliterator.getExactSizeIfKnown());
+        final Spliterator<?> prefix = spliterator.trySplit();
+        assertNotNull(prefix);
+        assertEquals(STREAM_ELEMENTS, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+    }
+
     @Test
     public void testArray() throws IOException {
         final DatatypeBuilder datatypeBuilder = hdf5File.getDatatypeBuilder();
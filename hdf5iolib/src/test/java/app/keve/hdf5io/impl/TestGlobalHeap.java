@@ -0,0 +1,70 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+import app.keve.hdf5io.fileformat.H5Registry;
+import app.keve.hdf5io.fileformat.SizingContext;
+import app.keve.hdf5io.fileformat.level1.GlobalHeapCollection;
+import app.keve.hdf5io.fileformat.level1.GlobalHeapCollectionBB;
+
+public final class TestGlobalHeap {
+    private static final int COLLECTION_SIZE = 4096;
+
+    private static void putObject(final ByteBuffer buf, final int index, final String data) {
+        final byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+        buf.putShort((short) index).putShort((short) 1).putInt(0).putLong(bytes.length).put(bytes);
+        buf.position(buf.position() + 7 & ~7);
+    }
+
+    private static String objectData(final GlobalHeapCollection collection, final int index) {
+        return StandardCharsets.US_ASCII.decode(collection.getHeapObject(index).getObjectData()).toString();
+    }
+
+    @Test
+    public void testHeapObjectIndex() {
+        final ByteBuffer buf = ByteBuffer.allocate(COLLECTION_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buf.put(GlobalHeapCollection.SIGNATURE).put((byte) 1).put(new byte[3]).putLong(COLLECTION_SIZE);
+        // the objects are not in index order
+        putObject(buf, 1, "alpha");
+        putObject(buf, 3, "gamma, which is longer");
+        putObject(buf, 2, "beta");
+        // the free space
+        final int free = COLLECTION_SIZE - buf.position();
+        buf.putShort((short) 0).putShort((short) 0).putInt(0).putLong(free);
+        buf.clear();
+
+        final SizingContext sizingContext = SizingContext.of(new H5Heap(H5Registry.ofDefault()), 8, 8);
+        final GlobalHeapCollection collection = new GlobalHeapCollectionBB(buf, sizingContext);
+        assertTrue(collection.isValid());
+        assertEquals(4, collection.getHeapObjects().size());
+        assertEquals("gamma, which is longer", objectData(collection, 3));
+        assertEquals("alpha", objectData(collection, 1));
+        assertEquals("beta", objectData(collection, 2));
+        assertThrows(NoSuchElementException.class, () -> collection.getHeapObject(0));
+        assertThrows(NoSuchElementException.class, () -> collection.getHeapObject(4));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.hdf5io.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+
+import app.keve.hdf5io.TestDataFile;
+import app.keve.hdf5io.api.HDF5CacheStatistics;
+import app.keve.hdf5io.api.HDF5File;
+import app.keve.hdf5io.api.util.ArrayUtil;
+import app.keve.hdf5io.fileformat.H5Context;
+import app.keve.hdf5io.fileformat.H5Object;
+
+public final class TestMetadataCache {
+
+    private static final class Dummy implements H5Object<H5Context> {
+        private final long size;
+
+        Dummy(final long size) {
+            this.size = size;
+        }
+
+        @Override
+        public ByteBuffer getBuffer() {
+            return null;
+        }
+
+        @Override
+        public H5Context context() {
+            return null;
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        final MetadataCache cache = new MetadataCache(100);
+        final Dummy d1 = new Dummy(40);
+        final Dummy d2 = new Dummy(40);
+        final Dummy d3 = new Dummy(40);
+        final Dummy pinned = new Dummy(1000);
+        cache.pin(4);
+        cache.put(1, d1);
+        cache.put(2, d2);
+        cache.put(4, pinned);
+        assertEquals(80, cache.getWeight());
+        assertSame(d1, cache.get(1));
+        cache.put(3, d3);
+        // d2 is the least recently used
+        assertNull(cache.get(2));
+        assertSame(d1, cache.get(1));
+        assertSame(d3, cache.get(3));
+        assertSame(pinned, cache.get(4));
+        assertEquals(80, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(4, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cache.setPolicy(Dummy.class, MetadataCache.Policy.NONE);
+        cache.put(5, new Dummy(1));
+        assertNull(cache.get(5));
+    }
+
+    @Test
+    public void testSmallCache() throws Exception {
+        final Path p = Paths.get(getClass().getClassLoader().getResource("myData-V1_8.h5").toURI());
+        try (HDF5File hdf5File = new HDF5Implementation().builder().withBacking(p, StandardOpenOption.READ)
+                .withMetadataCacheSize(1024).build()) {
+            for (int i = 0; i < 2; i++) {
+                assertTrue(ArrayUtil.deepEquals(TestDataFile.DOUBLE_ENTRIES.get("data2Large.chunked"),
+                        hdf5File.getRootGroup().resolve("double", "data2Large.chunked").asDataset().getAsObject()));
+            }
+            final HDF5CacheStatistics statistics = hdf5File.getMetadataCacheStatistics();
+            assertTrue(statistics.getEvictionCount() > 0);
+            assertTrue(statistics.getHitCount() > 0);
+            assertTrue(statistics.getWeight() <= 1024);
+            assertEquals(1024, statistics.getMaxWeight());
+        }
+    }
+}
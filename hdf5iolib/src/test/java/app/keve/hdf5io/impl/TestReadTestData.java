@@ -18,16 +18,35 @@ package app.keve.hdf5io.impl;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.DoubleSummaryStatistics;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -40,14 +59,22 @@ import org.yaml.snakeyaml.Yaml;
 import app.keve.hdf5io.Support;
 import app.keve.hdf5io.TestDataFile;
 import app.keve.hdf5io.api.HDF5;
+import app.keve.hdf5io.api.HDF5Constants.StorageMode;
 import app.keve.hdf5io.api.HDF5Dataset;
 import app.keve.hdf5io.api.HDF5Dataset.Chunk;
 import app.keve.hdf5io.api.HDF5File;
+import app.keve.hdf5io.api.HDF5FormatException;
 import app.keve.hdf5io.api.HDF5Group;
+import app.keve.hdf5io.api.HDF5Hyperslab;
 import app.keve.hdf5io.api.HDF5Link;
+import app.keve.hdf5io.api.datatype.HDF5FloatingPointNumber;
+import app.keve.hdf5io.api.util.Aggregations;
 import app.keve.hdf5io.api.util.ArrayUtil;
+import app.keve.hdf5io.api.util.NDArray;
 
 public final class TestReadTestData {
+    private static final String DATA_FILE = "myData-%s.h5";
+    private static final String DOUBLE_GROUP = "double";
     private static final HDF5 HDF5;
 
     static {
@@ -58,8 +85,7 @@ public final class TestReadTestData {
     @ParameterizedTest()
     @ValueSource(strings = {"EARLIEST", "V1_8", "V1_10"})
     public void testToYaml(final String version) throws IOException, Exception {
-        final String name = String.format("myData-%s.h5", version);
-        final Path p = Paths.get(getClass().getClassLoader().getResource(name).toURI());
+        final Path p = dataFile(version);
         try (LocalHDF5File hdf5File = LocalHDF5File.of(p)) {
             final Yaml yaml = Support.newYaml(hdf5File);
             yaml.dump(hdf5File.getSuperblock(), Files.newBufferedWriter(Path.of(p.toString() + ".yaml")));
@@ -69,17 +95,16 @@ public final class TestReadTestData {
     @ParameterizedTest()
     @ValueSource(strings = {"EARLIEST", "V1_8", "V1_10"})
     public void testReadApiTraversal(final String version) throws IOException, Exception {
-        final String name = String.format("myData-%s.h5", version);
-        final Path p = Paths.get(getClass().getClassLoader().getResource(name).toURI());
+        final Path p = dataFile(version);
 
         try (HDF5File hdf5File = HDF5.open(p)) {
             final Set<HDF5Link> links = new LinkedHashSet<>();
             hdf5File.getRootGroup().linkIterator().forEachRemaining(links::add);
             assertEquals(4, links.size());
-            assertEquals(Set.of("__DATA_TYPES__", "double", "double64", "float64"),
+            assertEquals(Set.of("__DATA_TYPES__", DOUBLE_GROUP, "double64", "float64"),
                     links.stream().map(HDF5Link::getName).collect(Collectors.toSet()));
 
-            final HDF5Group doubleDir = hdf5File.getRootGroup().resolve("double").asGroup();
+            final HDF5Group doubleDir = hdf5File.getRootGroup().resolve(DOUBLE_GROUP).asGroup();
             links.clear();
             doubleDir.linkIterator().forEachRemaining(links::add);
             assertEquals(TestDataFile.DOUBLE_ENTRIES.size(), links.size());
@@ -92,16 +117,10 @@ public final class TestReadTestData {
     @MethodSource("doubleData")
     public void testReadApiData(final String version, final String dsName, final Object expectedValue)
             throws IOException, Exception {
-        final String name = String.format("myData-%s.h5", version);
-        final Path p = Paths.get(getClass().getClassLoader().getResource(name).toURI());
+        final Path p = dataFile(version);
         try (HDF5File hdf5File = HDF5.open(p)) {
-            final HDF5Dataset ds = hdf5File.getRootGroup().resolve("double", dsName).asDataset();
+            final HDF5Dataset ds = doubleDataset(hdf5File, dsName);
             assertNotNull(ds);
-            if ("V1_10".equals(version)
-                    && (dsName.endsWith(".chunked") || dsName.endsWith(".deflate") || dsName.endsWith(".sparse"))) {
-                // Not implemented yet
-                return;
-            }
             assertData(expectedValue, ds.getAsObject());
 
             final Stream<? extends Chunk> chunks = ds.getChunks();
@@ -119,6 +138,479 @@ public final class TestReadTestData {
         }
     }
 
+    @ParameterizedTest(name = "{0}/{1}")
+    @MethodSource("storageModes")
+    public void testReadStorageMode(final String version, final StorageMode storageMode)
+            throws IOException, Exception {
+        final Path p = dataFile(version);
+        try (HDF5File hdf5File = HDF5.builder().withBacking(p, StandardOpenOption.READ).withStorageMode(storageMode)
+                .build()) {
+            for (final Map.Entry<String, Object> entry : TestDataFile.DOUBLE_ENTRIES.entrySet()) {
+                assertData(entry.getValue(), doubleDataset(hdf5File, entry.getKey()).getAsObject());
+            }
+        }
+    }
+
+    @ParameterizedTest()
+    @ValueSource(strings = {"EARLIEST", "V1_8", "V1_10"})
+    public void testConcurrentReaders(final String version) throws IOException, Exception {
+        final Path p = dataFile(version);
+        final int nThreads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try (HDF5File hdf5File = HDF5.builder().withBacking(p, StandardOpenOption.READ)
+                .withConcurrentReaders(nThreads).build()) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < nThreads * 4; i++) {
+                for (final Map.Entry<String, Object> entry : TestDataFile.DOUBLE_ENTRIES.entrySet()) {
+                    futures.add(executor.submit(() -> {
+                        assertData(entry.getValue(), doubleDataset(hdf5File, entry.getKey()).getAsObject());
+                        return null;
+                    }));
+                }
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @ParameterizedTest()
+    @ValueSource(strings = {"EARLIEST", "V1_8", "V1_10"})
+    public void testParallelChunks(final String version) throws IOException, Exception {
+        final Path p = dataFile(version);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final AtomicInteger tasks = new AtomicInteger();
+        try (HDF5File hdf5File = HDF5.builder().withBacking(p, StandardOpenOption.READ).withChunkExecutor(task -> {
+            tasks.incrementAndGet();
+            pool.execute(task);
+        }).build()) {
+            for (final Map.Entry<String, Object> entry : TestDataFile.DOUBLE_ENTRIES.entrySet()) {
+                final HDF5Dataset ds = doubleDataset(hdf5File, entry.getKey());
+                final int before = tasks.get();
+                assertData(entry.getValue(), ds.getAsObject());
+                if (ds.getChunks().count() > 1) {
+                    // the chunks are gathered on the executor
+                    assertTrue(tasks.get() > before, entry::getKey);
+                }
+            }
+            final HDF5Dataset ds = doubleDataset(hdf5File, "data2Large.sparse");
+            final HDF5Hyperslab selection = HDF5Hyperslab.of(new long[] {1, 1}, new long[] {5, 5},
+                    new long[] {2, 1799}, new long[] {2, 2});
+            final int before = tasks.get();
+            assertData(hyperslab(TestDataFile.DOUBLE_ENTRIES.get("data2Large.sparse"), selection),
+                    ds.getAsObject(selection));
+            assertTrue(tasks.get() > before);
+        } finally {
+            pool.shutdown();
+        }
+        final Path copy = Files.createTempFile("parallel", ".h5");
+        try {
+            Files.copy(p, copy, StandardCopyOption.REPLACE_EXISTING);
+            assertThrows(IllegalArgumentException.class, () -> HDF5.builder()
+                    .withBacking(copy, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    .withChunkExecutor(ForkJoinPool.commonPool()).build());
+            assertThrows(IllegalArgumentException.class, () -> HDF5.builder()
+                    .withBacking(copy, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                            StandardOpenOption.TRUNCATE_EXISTING)
+                    .withChunkExecutor(ForkJoinPool.commonPool()).build());
+        } finally {
+            Files.delete(copy);
+        }
+    }
+
+    @ParameterizedTest()
+    @ValueSource(strings = {"EARLIEST", "V1_8", "V1_10"})
+    public void testReadDoubleBuffers(final String version) throws IOException, Exception {
+        final Path p = dataFile(version);
+        try (HDF5File hdf5File = HDF5.open(p)) {
+            for (final Map.Entry<String, Object> entry : TestDataFile.DOUBLE_ENTRIES.entrySet()) {
+                final HDF5Dataset ds = doubleDataset(hdf5File, entry.getKey());
+                final long[] dims = ds.getDimensionSizes();
+                if (0 == dims.length) {
+                    continue;
+                }
+                final int size = (int) Arrays.stream(dims).reduce(1, (a, b) -> a * b);
+                final double[] expected = ArrayUtil.mdRowMajorBuffer(DoubleBuffer.allocate(size), entry.getValue())
+                        .array();
+                final DoubleBuffer buffer = ds.getAsDoubleBuffer();
+                final double[] actual = new double[buffer.remaining()];
+                buffer.get(actual);
+                assertArrayEquals(expected, actual, entry.getKey());
+                assertArrayEquals(expected, ds.getAsDoubleStream().parallel().toArray(), entry.getKey());
+                assertNull(ds.getAsFloatBuffer());
+                if (dims.length > 1) {
+                    final int row = (int) (dims[0] - 1);
+                    final int rowSize = size / (int) dims[0];
+                    assertArrayEquals(Arrays.copyOfRange(expected, row * rowSize, size),
+                            ds.getAsDoubleStream(row).toArray(), entry.getKey());
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest()
+    @ValueSource(strings = {"EARLIEST", "V1_8", "V1_10"})
+    public void testSplitChunks(final String version) throws IOException, Exception {
+        final Path p = dataFile(version);
+        try (HDF5File hdf5File = HDF5.open(p)) {
+            for (final String dsName : TestDataFile.DOUBLE_ENTRIES.keySet()) {
+                final HDF5Dataset ds = doubleDataset(hdf5File, dsName);
+                final List<long[]> sequential = ds.getChunks().map(Chunk::getOffset).collect(Collectors.toList());
+                final Spliterator<? extends Chunk> spliterator = ds.getChunks().parallel().spliterator();
+                final boolean chunked = dsName.endsWith(".chunked") || dsName.endsWith(".deflate")
+                        || dsName.endsWith(".sparse");
+                final long[] dims = ds.getDimensionSizes();
+                if (sequential.size() > 1 || !chunked && dims.length > 0 && dims[0] > 1) {
+                    assertNotNull(spliterator.trySplit(), dsName);
+                }
+                if (chunked) {
+                    // the chunks of an index are the same in parallel
+                    assertArrayEquals(sequential.toArray(),
+                            ds.getChunks().parallel().map(Chunk::getOffset).collect(Collectors.toList()).toArray(),
+                            dsName);
+                } else {
+                    // contiguous data is split by rows
+                    assertEquals(1, sequential.size(), dsName);
+                    final long elements = Arrays.stream(dims).reduce(1, (a, b) -> a * b);
+                    assertEquals(elements, ds.getChunks().parallel()
+                            .mapToLong(chunk -> Arrays.stream(chunk.getSize()).reduce(1, (a, b) -> a * b)).sum(),
+                            dsName);
+                    if (dims.length > 0) {
+                        ds.getChunks().parallel().forEach(chunk -> assertData(hyperslab(TestDataFile.DOUBLE_ENTRIES
+                                .get(dsName), HDF5Hyperslab.of(chunk.getOffset(), chunk.getSize())),
+                                chunk.getAsObject()));
+                    }
+                }
+            }
+        }
+    }
+
+    @ParameterizedTest(name = "{0}/{1}")
+    @MethodSource("hyperslabData")
+    public void testReadHyperslab(final String version, final String dsName) throws IOException, Exception {
+        final Path p = dataFile(version);
+        try (HDF5File hdf5File = HDF5.open(p)) {
+            final HDF5Dataset ds = doubleDataset(hdf5File, dsName);
+            final Object expectedValue = TestDataFile.DOUBLE_ENTRIES.get(dsName);
+            final long[] dims = ds.getDimensionSizes();
+            final long[] start = new long[dims.length];
+            final long[] stride = new long[dims.length];
+            final long[] count = new long[dims.length];
+            final long[] block = new long[dims.length];
+            // one row, or the second half of a vector
+            start[0] = dims[0] / 2;
+            Arrays.fill(stride, 1);
+            Arrays.fill(count, 1);
+            count[dims.length - 1] = dims[dims.length - 1] - start[dims.length - 1];
+            Arrays.fill(block, 1);
+            HDF5Hyperslab selection = HDF5Hyperslab.of(start, stride, count, block);
+            assertData(hyperslab(expectedValue, selection), ds.getAsObject(selection));
+            // strided blocks
+            selection = stridedSelection(dims);
+            assertData(hyperslab(expectedValue, selection), ds.getAsObject(selection));
+            final NDArray ndArray = ds.getAsNDArray(selection);
+            assertArrayEquals(selection.getShape(), ndArray.getShape());
+            assertData(hyperslab(expectedValue, selection), ndArray.toArray());
+            assertEquals(ndArray.getDouble(new int[dims.length]), ndArray.transpose().getDouble(new int[dims.length]));
+            // empty
+            Arrays.fill(count, 0);
+            selection = HDF5Hyperslab.of(start, stride, count, block);
+            assertData(hyperslab(expectedValue, selection), ds.getAsObject(selection));
+        }
+    }
+
+    @ParameterizedTest(name = "{0}/{1}")
+    @MethodSource("hyperslabData")
+    public void testReadInto(final String version, final String dsName) throws IOException, Exception {
+        final Path p = dataFile(version);
+        final Object expectedValue = TestDataFile.DOUBLE_ENTRIES.get(dsName);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        final AtomicInteger tasks = new AtomicInteger();
+        try (HDF5File hdf5File = HDF5.open(p);
+                HDF5File parallelFile = HDF5.builder().withBacking(p, StandardOpenOption.READ)
+                        .withChunkExecutor(task -> {
+                            tasks.incrementAndGet();
+                            pool.execute(task);
+                        }).build()) {
+            // in sequence, and per chunk or slab of rows on the pool
+            for (final HDF5File file : List.of(hdf5File, parallelFile)) {
+                final HDF5Dataset ds = doubleDataset(file, dsName);
+                final long[] dims = ds.getDimensionSizes();
+                final int size = (int) Arrays.stream(dims).reduce(1, (a, b) -> a * b);
+                // the same arrays are reused for all reads
+                final double[] dst = new double[size + 1];
+                final ByteBuffer buf = ByteBuffer.allocate(8 * size);
+                assertEquals(size, ds.readInto(dst, 1, null));
+                assertArrayEquals(flat(expectedValue, size), Arrays.copyOfRange(dst, 1, size + 1));
+                assertEquals(8 * size, ds.readInto(buf, null).position());
+                assertArrayEquals(flat(expectedValue, size), doubles(ds, buf.flip(), size));
+                final HDF5Hyperslab selection = stridedSelection(dims);
+                final int n = Arrays.stream(selection.getShape()).reduce(1, (a, b) -> a * b);
+                assertEquals(n, ds.readInto(dst, 0, selection));
+                assertArrayEquals(flat(hyperslab(expectedValue, selection), n), Arrays.copyOf(dst, n));
+                ds.readInto(buf.clear(), selection);
+                assertArrayEquals(flat(hyperslab(expectedValue, selection), n), doubles(ds, buf.flip(), n));
+                assertThrows(IllegalArgumentException.class, () -> ds.readInto(dst, 2, null));
+                assertThrows(IllegalArgumentException.class, () -> ds.readInto(new float[size], 0, null));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        // at least a task for each of the four reads
+        assertTrue(tasks.get() >= 4, () -> tasks + " tasks");
+    }
+
+    @ParameterizedTest(name = "{0}/{1}")
+    @MethodSource("hyperslabData")
+    public void testAggregate(final String version, final String dsName) throws IOException, Exception {
+        final Path p = dataFile(version);
+        final Object expectedValue = TestDataFile.DOUBLE_ENTRIES.get(dsName);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try (HDF5File hdf5File = HDF5.open(p);
+                HDF5File parallelFile = HDF5.builder().withBacking(p, StandardOpenOption.READ)
+                        .withChunkExecutor(pool).build()) {
+            // in sequence, and per chunk or slab of rows on the pool
+            for (final HDF5File file : List.of(hdf5File, parallelFile)) {
+                final HDF5Dataset ds = doubleDataset(file, dsName);
+                final long[] dims = ds.getDimensionSizes();
+                final int size = (int) Arrays.stream(dims).reduce(1, (a, b) -> a * b);
+                final HDF5Hyperslab selection = stridedSelection(dims);
+                final int n = Arrays.stream(selection.getShape()).reduce(1, (a, b) -> a * b);
+                assertAggregate(flat(expectedValue, size), ds, null);
+                assertAggregate(flat(hyperslab(expectedValue, selection), n), ds, selection);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> Aggregations.histogram(1, 1, 10));
+    }
+
+    private static Path resource(final String name) throws URISyntaxException {
+        return Paths.get(TestReadTestData.class.getClassLoader().getResource(name).toURI());
+    }
+
+    private static Path dataFile(final String version) throws URISyntaxException {
+        return resource(String.format(DATA_FILE, version));
+    }
+
+    private static HDF5Dataset doubleDataset(final HDF5File hdf5File, final String dsName)
+            throws HDF5FormatException {
+        return hdf5File.getRootGroup().resolve(DOUBLE_GROUP, dsName).asDataset();
+    }
+
+    private static void assertAggregate(final double[] values, final HDF5Dataset ds,
+            final HDF5Hyperslab selection) {
+        final DoubleSummaryStatistics expected = Arrays.stream(values).summaryStatistics();
+        final DoubleSummaryStatistics actual = ds.aggregate(Aggregations.minMaxSum(), selection);
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getMin(), actual.getMin());
+        assertEquals(expected.getMax(), actual.getMax());
+        assertEquals(expected.getSum(), actual.getSum(), 1e-9 * values.length);
+        assertEquals(expected.getAverage(), actual.getAverage(), 1e-9);
+        final int bins = 10;
+        final double scale = bins / (expected.getMax() - expected.getMin());
+        final long[] histogram = new long[bins];
+        for (final double v : values) {
+            histogram[Math.min(bins - 1, (int) ((v - expected.getMin()) * scale))]++;
+        }
+        assertArrayEquals(histogram,
+                ds.aggregate(Aggregations.histogram(expected.getMin(), expected.getMax(), bins), selection));
+    }
+
+    private static double[] flat(final Object data, final int size) {
+        return ArrayUtil.mdRowMajorBuffer(DoubleBuffer.allocate(size), data).array();
+    }
+
+    private static double[] doubles(final HDF5Dataset ds, final ByteBuffer buf, final int size) {
+        final double[] result = new double[size];
+        buf.order(((HDF5FloatingPointNumber) ds.getDatatype()).getByteOrder().getByteOrder()).asDoubleBuffer()
+                .get(result);
+        return result;
+    }
+
+    @ParameterizedTest(name = "{0}/{1}")
+    @MethodSource("hyperslabData")
+    public void testReadSubDimension(final String version, final String dsName) throws IOException, Exception {
+        final Path p = dataFile(version);
+        try (HDF5File hdf5File = HDF5.open(p)) {
+            final HDF5Dataset ds = doubleDataset(hdf5File, dsName);
+            final Object expectedValue = TestDataFile.DOUBLE_ENTRIES.get(dsName);
+            if (!(expectedValue instanceof double[][])) {
+                return;
+            }
+            for (int i = 0; i < ds.getDimensionSizes()[0]; i++) {
+                assertData(((double[][]) expectedValue)[i], ds.getAsObject(i));
+            }
+        }
+    }
+
+    /**
+     * The fixture is myData-V1_10.h5 with the layouts of three datasets replaced:
+     * dataSmall.contiguous by a single chunk index, dataLarge.contiguous by an
+     * implicit index of 240 element chunks and dataSmall.compact by a paged fixed
+     * array index of 600 element chunks, the last page not allocated.
+     * 
+     * @param dsName the name of the dataset
+     */
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"dataSmall.contiguous", "dataLarge.contiguous", "dataSmall.compact"})
+    public void testReadChunkIndexV4(final String dsName) throws IOException, Exception {
+        final Path p = resource("myData-V1_10-index.h5");
+        final double[] expectedValue = ((double[]) TestDataFile.DOUBLE_ENTRIES.get(dsName)).clone();
+        final long expectedChunks;
+        switch (dsName) {
+        case "dataSmall.contiguous":
+            expectedChunks = 1;
+            break;
+        case "dataLarge.contiguous":
+            expectedChunks = expectedValue.length / 240;
+            break;
+        default:
+            expectedChunks = 8;
+            Arrays.fill(expectedValue, 8 * 600, expectedValue.length, 0);
+            break;
+        }
+        try (HDF5File hdf5File = HDF5.open(p)) {
+            final HDF5Dataset ds = doubleDataset(hdf5File, dsName);
+            assertData(expectedValue, ds.getAsObject());
+            assertEquals(expectedChunks, ds.getChunks().count());
+            // the single chunk and implicit indexes have every chunk
+            assertEquals("dataSmall.compact".equals(dsName) ? -1 : expectedChunks,
+                    ds.getChunks().spliterator().getExactSizeIfKnown());
+            assertEquals(expectedChunks, ds.getChunks().parallel().count());
+            final HDF5Hyperslab selection = HDF5Hyperslab.of(new long[] {100}, new long[] {550}, new long[] {9},
+                    new long[] {20});
+            assertData(hyperslab(expectedValue, selection), ds.getAsObject(selection));
+        }
+    }
+
+    /**
+     * The fixture is myData-V1_10.h5 with the chunk indexes of two datasets
+     * replaced, pointing to the chunks of the contiguous datasets.
+     * dataLarge.chunked has an extensible array index of 240 element chunks with
+     * paged data blocks in super blocks, and chunks missing at the element, data
+     * block, page and super block level. Its later super blocks hold data blocks
+     * of two pages, each with its own byte of the page bitmap, as libhdf5 writes
+     * them. data2Large.chunked has a depth 4 v2 B-tree index of 1x240 element
+     * chunks, some missing.
+     * 
+     * @param dsName the name of the dataset
+     */
+    @ParameterizedTest(name = "{0}")
+    @ValueSource(strings = {"dataLarge.chunked", "data2Large.chunked"})
+    public void testReadUnlimitedIndex(final String dsName) throws IOException, Exception {
+        final Path p = resource("myData-V1_10-unlimited.h5");
+        final String contiguousName = dsName.replace(".chunked", ".contiguous");
+        final Object expectedValue;
+        final long[] expectedLastOffset;
+        final long expectedChunks;
+        final HDF5Hyperslab selection;
+        if ("dataLarge.chunked".equals(dsName)) {
+            final double[] expected = ((double[]) TestDataFile.DOUBLE_ENTRIES.get(contiguousName)).clone();
+            for (final int[] missing : new int[][] {{2, 3}, {24, 32}, {64, 128}, {160, 176}}) {
+                Arrays.fill(expected, missing[0] * 240, missing[1] * 240, 0);
+            }
+            expectedValue = expected;
+            expectedLastOffset = new long[] {expected.length - 240};
+            expectedChunks = expected.length / 240 - 1 - 8 - 64 - 16;
+            selection = HDF5Hyperslab.of(new long[] {expected.length - 1000}, new long[] {1000});
+        } else {
+            final double[][] expected = Arrays.stream((double[][]) TestDataFile.DOUBLE_ENTRIES.get(contiguousName))
+                    .map(double[]::clone).toArray(double[][]::new);
+            Arrays.fill(expected[0], 240, 480, 0);
+            Arrays.fill(expected[1], 10 * 240, 20 * 240, 0);
+            Arrays.fill(expected[3], 0, 240, 0);
+            expectedValue = expected;
+            expectedLastOffset = new long[] {expected.length - 1, expected[0].length - 240};
+            expectedChunks = expected.length * expected[0].length / 240 - 1 - 10 - 1;
+            selection = HDF5Hyperslab.of(new long[] {1, 2000}, new long[] {3, 5000});
+        }
+        try (HDF5File hdf5File = HDF5.open(p)) {
+            final HDF5Dataset ds = doubleDataset(hdf5File, dsName);
+            assertData(expectedValue, ds.getAsObject());
+            assertEquals(expectedChunks, ds.getChunks().count());
+            assertArrayEquals(expectedLastOffset, ds.getChunksDescending().findFirst().get().getOffset());
+            final List<long[]> ascending = ds.getChunks().map(Chunk::getOffset).collect(Collectors.toList());
+            final List<long[]> descending = ds.getChunksDescending().map(Chunk::getOffset)
+                    .collect(Collectors.toList());
+            Collections.reverse(descending);
+            assertArrayEquals(ascending.toArray(), descending.toArray());
+            assertArrayEquals(ascending.toArray(),
+                    ds.getChunks().parallel().map(Chunk::getOffset).collect(Collectors.toList()).toArray());
+            // the v2 B-tree knows its number of records
+            assertEquals("data2Large.chunked".equals(dsName) ? expectedChunks : -1,
+                    ds.getChunks().spliterator().getExactSizeIfKnown());
+            assertData(hyperslab(expectedValue, selection), ds.getAsObject(selection));
+            // the elements of missing chunks are cleared
+            final int n = Arrays.stream(selection.getShape()).reduce(1, (a, b) -> a * b);
+            final double[] dst = new double[n];
+            Arrays.fill(dst, Double.NaN);
+            assertEquals(n, ds.readInto(dst, 0, selection));
+            assertArrayEquals(flat(hyperslab(expectedValue, selection), n), dst);
+        }
+    }
+
+    @ParameterizedTest()
+    @ValueSource(strings = {"EARLIEST"})
+    public void testReadHyperslabInvalid(final String version) throws IOException, Exception {
+        final Path p = dataFile(version);
+        try (HDF5File hdf5File = HDF5.open(p)) {
+            final HDF5Dataset ds = doubleDataset(hdf5File, "data2Large.chunked");
+            final long[] dims = ds.getDimensionSizes();
+            assertThrows(IllegalArgumentException.class,
+                    () -> ds.getAsObject(HDF5Hyperslab.of(new long[] {0}, new long[] {1})));
+            assertThrows(IllegalArgumentException.class,
+                    () -> ds.getAsObject(HDF5Hyperslab.of(new long[] {1, 0}, new long[] {dims[0], 1})));
+            assertThrows(IllegalArgumentException.class, () -> HDF5Hyperslab.of(new long[] {0, 0},
+                    new long[] {1, 1}, new long[] {2, 2}, new long[] {2, 2}));
+        }
+    }
+
+    /**
+     * Select blocks of 2 elements every 5 elements, from the second element, in
+     * every dimension.
+     * 
+     * @param dims the dimensions of the dataset
+     * @return the selection
+     */
+    private static HDF5Hyperslab stridedSelection(final long[] dims) {
+        final long[] start = new long[dims.length];
+        final long[] stride = new long[dims.length];
+        final long[] count = new long[dims.length];
+        final long[] block = new long[dims.length];
+        for (int d = 0; d < dims.length; d++) {
+            start[d] = 1;
+            block[d] = 2;
+            stride[d] = 5;
+            count[d] = (dims[d] - start[d] - block[d]) / stride[d] + 1;
+        }
+        return HDF5Hyperslab.of(start, stride, count, block);
+    }
+
+    private static Object hyperslab(final Object data, final HDF5Hyperslab selection) {
+        final long[] start = selection.getStart();
+        final long[] stride = selection.getStride();
+        final long[] block = selection.getBlock();
+        final int[] shape = selection.getShape();
+        if (data instanceof double[]) {
+            final double[] result = new double[shape[0]];
+            for (int i = 0; i < shape[0]; i++) {
+                result[i] = ((double[]) data)[(int) (start[0] + i / block[0] * stride[0] + i % block[0])];
+            }
+            return result;
+        }
+        final double[][] result = new double[shape[0]][shape[1]];
+        for (int i = 0; i < shape[0]; i++) {
+            for (int j = 0; j < shape[1]; j++) {
+                result[i][j] = ((double[][]) data)[(int) (start[0] + i / block[0] * stride[0] + i % block[0])][(int) (start[1]
+                        + j / block[1] * stride[1] + j % block[1])];
+            }
+        }
+        return result;
+    }
+
     private void assertData(final Object expectedValue, final Object data) {
         assertNotNull(expectedValue);
         assertNotNull(data);
@@ -135,6 +627,18 @@ public final class TestReadTestData {
         });
     }
 
+    public static Stream<Arguments> hyperslabData() {
+        return Stream.of("EARLIEST", "V1_8", "V1_10").flatMap(v -> Stream
+                .of("dataLarge.contiguous", "dataLarge.chunked", "dataLarge.deflate", "dataLarge.sparse", "data2Large.contiguous",
+                        "data2Large.chunked", "data2Large.deflate", "data2Large.sparse")
+                .map(ds -> Arguments.of(v, ds)));
+    }
+
+    public static Stream<Arguments> storageModes() {
+        return Stream.of("EARLIEST", "V1_8", "V1_10")
+                .flatMap(v -> Stream.of(StorageMode.values()).map(m -> Arguments.of(v, m)));
+    }
+
     public static Stream<Arguments> doubleData() {
         final Stream<String> versionStream = Stream.of("EARLIEST", "V1_8", "V1_10");
         return versionStream.flatMap(v -> TestDataFile.DOUBLE_ENTRIES.entrySet().stream()
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Keve Müller
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package app.keve.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import app.keve.hdf5io.TestDataFile;
+import app.keve.hdf5io.api.HDF5CacheStatistics;
+import app.keve.hdf5io.api.HDF5File;
+import app.keve.hdf5io.api.util.ArrayUtil;
+import app.keve.hdf5io.impl.HDF5Implementation;
+import app.keve.hdf5io.util.ChunkCache;
+
+public final class ChunkCacheTest {
+
+    private static Supplier<ByteBuffer> decoder(final AtomicInteger decoded, final int size) {
+        return () -> {
+            decoded.incrementAndGet();
+            return ByteBuffer.allocate(size);
+        };
+    }
+
+    @Test
+    public void testEviction() {
+        final ChunkCache cache = ChunkCache.of(100, true);
+        final AtomicInteger decoded = new AtomicInteger();
+        final long[] ofs0 = {0};
+        final long[] ofs1 = {10};
+        final long[] ofs2 = {20};
+
+        cache.get(1, ofs0, false, decoder(decoded, 40));
+        cache.get(1, ofs1, true, decoder(decoded, 40));
+        assertEquals(80, cache.getWeight());
+        // same offset of another dataset
+        cache.get(2, ofs0, false, decoder(decoded, 40));
+        assertEquals(3, decoded.get());
+        // the fully read chunk was preempted
+        assertEquals(1, cache.getEvictionCount());
+        cache.get(1, ofs0, false, decoder(decoded, 40));
+        assertEquals(3, decoded.get());
+        cache.get(1, ofs1, false, decoder(decoded, 40));
+        assertEquals(4, decoded.get());
+        // too big to be cached
+        cache.get(1, ofs2, false, decoder(decoded, 101));
+        cache.get(1, ofs2, false, decoder(decoded, 101));
+        assertEquals(6, decoded.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(6, cache.getMissCount());
+        assertTrue(cache.getWeight() <= 100);
+    }
+
+    @Test
+    public void testDeflateChunks() throws Exception {
+        final Path p = Paths.get(getClass().getClassLoader().getResource("myData-V1_8.h5").toURI());
+        try (HDF5File hdf5File = new HDF5Implementation().builder().withBacking(p, StandardOpenOption.READ)
+                .withChunkCache(1024 * 1024, false).build()) {
+            for (int i = 0; i < 2; i++) {
+                assertTrue(ArrayUtil.deepEquals(TestDataFile.DOUBLE_ENTRIES.get("data2Large.deflate"),
+                        hdf5File.getRootGroup().resolve("double", "data2Large.deflate").asDataset().getAsObject()));
+            }
+            final HDF5CacheStatistics statistics = hdf5File.getChunkCacheStatistics();
+            assertTrue(statistics.getMissCount() > 0);
+            assertEquals(statistics.getMissCount(), statistics.getHitCount());
+        }
+    }
+}
@@ -17,7 +17,9 @@ package app.keve.util;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
@@ -27,7 +29,9 @@ import java.util.Arrays;
 
 import org.junit.jupiter.api.Test;
 
+import app.keve.hdf5io.util.VAdaptiveFile;
 import app.keve.hdf5io.util.VMappedFile;
+import app.keve.hdf5io.util.VPreadFile;
 
 public final class VmapTest {
 
@@ -72,4 +76,85 @@ public final class VmapTest {
         }
         assertEquals(512/* offsetIntoFile */ + 960 /* size */, Files.size(path));
     }
+
+    @Test
+    public void testWindows() throws IOException {
+        final Path path = Path.of("testWindows.bin");
+
+        try (VMappedFile vmappedFile = VMappedFile.of(64, 16)) {
+            vmappedFile.addMapping(0, 0, Long.MAX_VALUE, path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING);
+
+            final ByteBuffer src = ByteBuffer.allocate(1000);
+            int i = 0;
+            while (src.hasRemaining()) {
+                src.put((byte) i++);
+            }
+            src.flip();
+            assertArrayEquals(new long[] {0, 1000}, vmappedFile.append(src.duplicate()));
+
+            // within a window
+            assertEquals(-1, src.duplicate().position(10).limit(10 + 32).mismatch(vmappedFile.at(10, 32)));
+            // within the overlap of the first window
+            assertEquals(-1, src.duplicate().position(60).limit(60 + 16).mismatch(vmappedFile.at(60, 16)));
+            // beyond the overlap, stitched
+            assertEquals(-1, src.duplicate().position(60).limit(60 + 200).mismatch(vmappedFile.at(60, 200)));
+            assertEquals(-1, src.duplicate().position(100).limit(100 + 300).mismatch(vmappedFile.at(100, -300)));
+            // beyond the overlap of a writable mapping, the writes reach the file
+            vmappedFile.at(60, 200).put(100, (byte) -1);
+            assertEquals(-1, vmappedFile.at(160, 1).get(0));
+            // best effort is served up to the end of the window overlap
+            assertEquals(64 + 16 - 10, vmappedFile.at(128 + 10).remaining());
+            assertEquals(1000 - 960, vmappedFile.at(960).remaining());
+            assertEquals(1000, vmappedFile.size());
+        }
+        assertEquals(1000, Files.size(path));
+        assertEquals(-1, Files.readAllBytes(path)[160]);
+
+        try (VMappedFile vmappedFile = VMappedFile.of(64, 16)) {
+            vmappedFile.addMapping(0, 0, Long.MAX_VALUE, path, StandardOpenOption.READ);
+            // beyond the overlap of a read-only mapping, stitched
+            assertEquals(-1, vmappedFile.at(100, -300).get(60));
+            // past the last window
+            assertThrows(EOFException.class, () -> vmappedFile.at(1024 + 10));
+        }
+    }
+
+    @Test
+    public void testPread() throws IOException {
+        final Path path = Files.createTempFile("testPread", ".bin");
+        final ByteBuffer src = ByteBuffer.allocate(1000);
+        int i = 0;
+        while (src.hasRemaining()) {
+            src.put((byte) i++);
+        }
+        Files.write(path, src.array());
+        try {
+            try (VPreadFile vPreadFile = VPreadFile.of(64, 16, 1)) {
+                vPreadFile.addMapping(100, 10, Long.MAX_VALUE, path, StandardOpenOption.READ);
+                assertEquals(990, vPreadFile.size());
+                assertEquals(100 + 990, vPreadFile.maxVOffset());
+
+                // exact, spanning several blocks
+                assertEquals(-1, src.duplicate().position(20).limit(20 + 100).mismatch(vPreadFile.at(110, 100)));
+                // at least, extended to the read ahead
+                assertEquals(64, vPreadFile.at(110, -8).remaining());
+                assertEquals(200, vPreadFile.at(110, -200).remaining());
+                // best effort, limited by EOF
+                assertEquals(64, vPreadFile.at(100).remaining());
+                assertEquals(30, vPreadFile.at(100 + 960).remaining());
+                assertThrows(IOException.class, () -> vPreadFile.at(100 + 960, 31));
+                assertThrows(IOException.class, () -> vPreadFile.append(src));
+            }
+
+            try (VAdaptiveFile vAdaptiveFile = VAdaptiveFile.of(VPreadFile.of(), VMappedFile.of(), 128)) {
+                vAdaptiveFile.addMapping(0, 0, Long.MAX_VALUE, path, StandardOpenOption.READ);
+                assertEquals(-1, src.duplicate().position(20).limit(20 + 100).mismatch(vAdaptiveFile.at(20, 100)));
+                assertEquals(-1, src.duplicate().position(20).limit(20 + 500).mismatch(vAdaptiveFile.at(20, 500)));
+                assertEquals(1000, vAdaptiveFile.at(0).remaining());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
 }